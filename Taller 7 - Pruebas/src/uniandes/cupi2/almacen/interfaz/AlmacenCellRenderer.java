@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -22,7 +22,7 @@ import uniandes.cupi2.almacen.mundo.Marca;
 import uniandes.cupi2.almacen.mundo.NodoAlmacen;
 
 /**
- * Clase para manejar el icono del rbol del almacn.
+ * Clase para manejar el icono del árbol del almacén.
  */
 @SuppressWarnings("serial")
 public class AlmacenCellRenderer extends DefaultTreeCellRenderer
@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -46,12 +46,12 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
     // -----------------------------------------------------------------
 
     /**
-     * Comando para ejecutar la accin del botn btnAgregar.
+     * Comando para ejecutar la acción del botón btnAgregar.
      */
     private static final String AGREGAR = "Agregar producto";
 
     /**
-     * Comando para ejecutar la accin del botn btnCancelar.
+     * Comando para ejecutar la acción del botón btnCancelar.
      */
     private static final String CANCELAR = "Cancelar";
 
@@ -60,7 +60,7 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
     // -----------------------------------------------------------------
 
     /**
-     * Ventana principal de la aplicacin
+     * Ventana principal de la aplicación
      */
     private InterfazAlmacen principal;
 
@@ -75,7 +75,7 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
     private JComboBox cbMarca;
 
     /**
-     * Campo de texto para el cdigo del producto.
+     * Campo de texto para el código del producto.
      */
     private JTextField txtCodigo;
 
@@ -90,17 +90,17 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
     private JTextField txtPrecio;
 
     /**
-     * Campo de texto para la descripcin del producto.
+     * Campo de texto para la descripción del producto.
      */
     private JTextPane txtDescripcion;
 
     /**
-     * Botn para agregar el producto.
+     * Botón para agregar el producto.
      */
     private JButton btnAgregar;
 
     /**
-     * Botn para cancelar la accin.
+     * Botón para cancelar la acción.
      */
     private JButton btnCancelar;
 
@@ -110,8 +110,8 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
 
     /**
      * Construye el dialogo que modifica el jugador.<br>
-     * <b> post: </b> Todos los botones, etiquetas y campos de texto fueron inicializados y ubicados. Se asigno el atributo principal con el valor dado por parmetro.
-     * @param pInterfaz Interfaz principal de la aplicacin. pInterfaz != null
+     * <b> post: </b> Todos los botones, etiquetas y campos de texto fueron inicializados y ubicados. Se asigno el atributo principal con el valor dado por parámetro.
+     * @param pInterfaz Interfaz principal de la aplicación. pInterfaz != null
      * @param pMarcas Lista con las marcas a las cuales se puede agregar el producto.
      */
     public DialogoAgregarProducto( InterfazAlmacen pInterfaz, List<Marca> pMarcas )
@@ -188,8 +188,8 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
         gbc_textField.gridy = 4;
         panelAux.add( txtNombre, gbc_textField );
 
-        // Etiqueta descripcin
-        JLabel lblDescripcion = new JLabel( "Descripcin:" );
+        // Etiqueta descripción
+        JLabel lblDescripcion = new JLabel( "Descripción:" );
         lblDescripcion.setVerticalAlignment( SwingConstants.TOP );
         lblDescripcion.setHorizontalAlignment( SwingConstants.RIGHT );
         GridBagConstraints gbc_lblDescripcion = new GridBagConstraints( );
@@ -199,7 +199,7 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
         gbc_lblDescripcion.gridy = 6;
         panelAux.add( lblDescripcion, gbc_lblDescripcion );
 
-        // Campo de texto para la descripcin
+        // Campo de texto para la descripción
         txtDescripcion = new JTextPane( );
         GridBagConstraints gbc_txtDescripcion = new GridBagConstraints( );
         gbc_txtDescripcion.gridheight = 3;
@@ -231,7 +231,7 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
         gbc_txtPrecio.gridy = 10;
         panelAux.add( txtPrecio, gbc_txtPrecio );
 
-        // Botn agregar
+        // Botón agregar
         btnAgregar = new JButton( AGREGAR );
         btnAgregar.setActionCommand( AGREGAR );
         btnAgregar.addActionListener( this );
@@ -243,7 +243,7 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
         gbc_btnAgregar.gridy = 12;
         panelAux.add( btnAgregar, gbc_btnAgregar );
 
-        // Botn vender
+        // Botón vender
         btnCancelar = new JButton( CANCELAR );
         btnCancelar.setActionCommand( CANCELAR );
         btnCancelar.addActionListener( this );
@@ -255,7 +255,7 @@ public class DialogoAgregarProducto extends JDialog implements ActionListener
     }
 
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
     /**
@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -12,9 +12,16 @@
 package uniandes.cupi2.almacen.interfaz;
 
 import java.awt.BorderLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComboBox;
@@ -22,37 +29,79 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JTextField;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 
 import uniandes.cupi2.almacen.mundo.Almacen;
 import uniandes.cupi2.almacen.mundo.AlmacenException;
+import uniandes.cupi2.almacen.mundo.CargadorProgresivo;
 import uniandes.cupi2.almacen.mundo.Categoria;
 import uniandes.cupi2.almacen.mundo.Marca;
 import uniandes.cupi2.almacen.mundo.NodoAlmacen;
 
 /**
- * Interfaz principal de la aplicacin.
+ * Interfaz principal de la aplicación.
  */
 @SuppressWarnings("serial")
 public class InterfazAlmacen extends JFrame
 {
 
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Archivo con los datos del almacén.
+     */
+    private final static File ARCHIVO_DATOS = new File( "./data/datos.txt" );
+
+    /**
+     * Copia binaria de los datos del almacén, que se usa para iniciar más rápido mientras esté al día con el archivo de datos.
+     */
+    private final static File ARCHIVO_COPIA = new File( "./data/datos.bin" );
+
+    /**
+     * Bitácora con los cambios hechos sobre el archivo de datos.
+     */
+    private final static File ARCHIVO_BITACORA = new File( "./data/datos.log" );
+
+    /**
+     * Tiempo entre los puntos de control que guardan los cambios en el archivo de datos, en milisegundos.
+     */
+    private final static long INTERVALO_PUNTOS_CONTROL = 5 * 60 * 1000;
+
     // -----------------------------------------------------------------
     // Atributos
     // -----------------------------------------------------------------
 
     /**
-     * Relacin con el mundo.
+     * Relación con el mundo.
      */
     private Almacen mundo;
 
     /**
-     * Panel que muestra los nodos del rbol.
+     * Indica si el catálogo se está cargando. Mientras se carga no se puede modificar el almacén.
+     */
+    private boolean cargando;
+
+    /**
+     * Indica si el catálogo se está cargando desde la copia binaria.
+     */
+    private boolean cargaDesdeCopia;
+
+    /**
+     * Indica si la carga del catálogo falló o se detuvo antes de terminar. El almacén sólo tiene una parte del catálogo y no se puede modificar, porque los
+     * cambios no se registrarían en la bitácora.
+     */
+    private boolean cargaIncompleta;
+
+    /**
+     * Panel que muestra los nodos del árbol.
      */
     private PanelNodos panelNodos;
 
     /**
-     * Panel que muestra la informacin del nodo seleccionado.
+     * Panel que muestra la información del nodo seleccionado.
      */
     private PanelInformacionNodo panelInformacionNodo;
 
@@ -66,19 +115,28 @@ public class InterfazAlmacen extends JFrame
     // -----------------------------------------------------------------
 
     /**
-     * Construye una nueva ventana de la aplicacin.<br>
-     * <b>post:</b> Se inicializaron y se ubicaron todos los componentes grficos de la ventana.
-     * @throws AlmacenException Si ocurren errores al cargar el archivo.
+     * Construye una nueva ventana de la aplicación. Los subárboles del catálogo se cargan en segundo plano y se muestran a medida que se cargan.<br>
+     * <b>post:</b> Se inicializaron y se ubicaron todos los componentes gráficos de la ventana. Se inició la carga del catálogo.
+     * @throws AlmacenException Si ocurren errores al abrir el archivo.
      */
     public InterfazAlmacen( ) throws AlmacenException
     {
         setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
-        setTitle( "El Almacn" );
+        addWindowListener( new WindowAdapter( )
+        {
+            @Override
+            public void windowClosing( WindowEvent e )
+            {
+                mundo.cerrar( );
+            }
+        } );
+        setTitle( "El Almacén" );
         setSize( 950, 700 );
 
         setLayout( new BorderLayout( ) );
         setLocationRelativeTo( null );
-        mundo = new Almacen( new File( "./data/datos.txt" ) );
+        CargadorProgresivo cargador = crearCargador( );
+        mundo = cargador.darAlmacen( );
 
         panelInformacionNodo = new PanelInformacionNodo( this );
         panelNodos = new PanelNodos( this, mundo.darCategoriaRaiz( ) );
@@ -92,18 +150,102 @@ public class InterfazAlmacen extends JFrame
         add( panelOpciones, BorderLayout.SOUTH );
 
         panelNodos.seleccionarNodo( mundo.darCategoriaRaiz( ).darIdentificador( ) );
+
+        cargando = true;
+        panelNodos.mostrarProgreso( 0 );
+        new CargaCatalogo( cargador ).execute( );
     }
 
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
+    /**
+     * Crea el cargador del almacén. Usa la copia binaria si es más reciente que el archivo de datos y si no el archivo de datos. Las descripciones de los
+     * productos se leen del archivo sólo cuando se muestran.
+     * @return Cargador con la categoría raíz leída.
+     * @throws AlmacenException Si no se puede abrir el archivo de datos.
+     */
+    private CargadorProgresivo crearCargador( ) throws AlmacenException
+    {
+        CargadorProgresivo cargador = null;
+        if( ARCHIVO_COPIA.lastModified( ) > ARCHIVO_DATOS.lastModified( ) )
+        {
+            try
+            {
+                cargador = new CargadorProgresivo( ARCHIVO_COPIA, Almacen.CARGA_BINARIA, true );
+                cargaDesdeCopia = true;
+            }
+            catch( AlmacenException e )
+            {
+                // La copia está dañada, se carga el archivo de datos
+            }
+        }
+        if( cargador == null )
+        {
+            cargador = new CargadorProgresivo( ARCHIVO_DATOS, Almacen.CARGA_MAPEADA, true );
+        }
+        return cargador;
+    }
+
+    /**
+     * Termina la carga del catálogo. Si el catálogo se cargó completo abre la bitácora, que aplica los cambios registrados, y programa los puntos de control; si no,
+     * el almacén queda sólo para consultar.<br>
+     * <b>post: </b> El almacén se puede modificar si la carga fue completa.
+     * @param pCompleta Indica si se cargó todo el catálogo.
+     */
+    private void terminarCarga( boolean pCompleta )
+    {
+        if( pCompleta )
+        {
+            try
+            {
+                mundo.abrirBitacora( ARCHIVO_DATOS, ARCHIVO_BITACORA );
+                mundo.programarPuntosControl( INTERVALO_PUNTOS_CONTROL );
+            }
+            catch( AlmacenException e )
+            {
+                JOptionPane.showMessageDialog( this, "Los cambios no se van a guardar.\n" + e.getMessage( ), "Cargar catálogo", JOptionPane.ERROR_MESSAGE );
+            }
+        }
+        else
+        {
+            cargaIncompleta = true;
+            JOptionPane.showMessageDialog( this, "El catálogo no se cargó completo, así que sólo se puede consultar.", "Cargar catálogo", JOptionPane.WARNING_MESSAGE );
+        }
+        cargando = false;
+        actualizar( );
+        panelNodos.terminarCarga( pCompleta );
+    }
+
+    /**
+     * Indica si el almacén se puede modificar. Si el catálogo se está cargando o no se cargó completo muestra un mensaje.
+     * @param pTitulo Título del mensaje. pTitulo != null.
+     * @return True si terminó la carga completa del catálogo, false en caso contrario.
+     */
+    private boolean verificarCargaTerminada( String pTitulo )
+    {
+        if( cargando )
+        {
+            JOptionPane.showMessageDialog( this, "Espera a que termine la carga del catálogo.", pTitulo, JOptionPane.WARNING_MESSAGE );
+        }
+        else if( cargaIncompleta )
+        {
+            JOptionPane.showMessageDialog( this, "El catálogo no se cargó completo, así que no se puede modificar.", pTitulo, JOptionPane.WARNING_MESSAGE );
+        }
+        return !cargando && !cargaIncompleta;
+    }
+
     /**
      * Muestra el dialogo para agregar un nuevo nodo.<br>
-     * <b>post:</b>Si se acepto el dialogo, se agreg un nuevo nodo con la informacin ingresada. Si se generan errores se muestra un mensaje indicando la razn del error.
+     * <b>post:</b>Si se acepto el dialogo, se agregó un nuevo nodo con la información ingresada. Si se generan errores se muestra un mensaje indicando la razón del error.
      */
     public void agregarNodo( )
     {
+        if( !verificarCargaTerminada( "Agregar nodo" ) )
+        {
+            return;
+        }
         JComboBox<String> cbTipo = new JComboBox<>( new String[]{ Categoria.TIPO, Marca.TIPO } );
         String idNodoSeleccionado = panelNodos.darIdSeleccionado( );
         JTextField txtIdPadre = new JTextField( idNodoSeleccionado );
@@ -126,7 +268,7 @@ public class InterfazAlmacen extends JFrame
                 }
                 if( identificador.contains( "/" ) || identificador.contains( ";;;" ) )
                 {
-                    throw new Exception( "Identificador invlido. El identificador no puede contener ';'" );
+                    throw new Exception( "Identificador inválido. El identificador no puede contener ';'" );
                 }
                 mundo.agregarNodo( idNodoSeleccionado, tipo, identificador, nombre );
                 actualizar( );
@@ -135,6 +277,8 @@ public class InterfazAlmacen extends JFrame
             catch( Exception e )
             {
                 JOptionPane.showMessageDialog( this, e.getMessage( ), "Agregar nodo", JOptionPane.ERROR_MESSAGE );
+                // Si falló la bitácora el nodo pudo quedar agregado
+                actualizar( );
             }
 
         }
@@ -142,12 +286,16 @@ public class InterfazAlmacen extends JFrame
 
     /**
      * Elimina el nodo con el id seleccionado.<br>
-     * <b>pre: </b>Todos los paneles y el mundo est inicializado.<br>
-     * <b>post: </b> Se elimin el nodo y se actualizo la interfaz.
-     * @param pIdNodo Identificador nico del nodo. pIdNodo != null && pIdNodo != "".
+     * <b>pre: </b>Todos los paneles y el mundo está inicializado.<br>
+     * <b>post: </b> Se eliminó el nodo y se actualizo la interfaz.
+     * @param pIdNodo Identificador único del nodo. pIdNodo != null && pIdNodo != "".
      */
     public void eliminarNodo( String pIdNodo )
     {
+        if( !verificarCargaTerminada( "Eliminar nodo" ) )
+        {
+            return;
+        }
         try
         {
             Categoria nuevaSel = mundo.eliminarNodo( pIdNodo );
@@ -157,18 +305,24 @@ public class InterfazAlmacen extends JFrame
         catch( AlmacenException e )
         {
             JOptionPane.showMessageDialog( this, e.getMessage( ), "Eliminar nodo", JOptionPane.ERROR_MESSAGE );
+            // Si falló la bitácora el cambio pudo quedar aplicado
+            actualizar( );
         }
 
     }
 
     /**
-     * Abre el dialogo de entrada para ingresar la cantidad de unidades y vende dicha cantidad del producto con cdigo dado.<br>
-     * <b>pre: </b> Todos los paneles y el mundo estn inicializados. Existe el producto con el cdigo dado.<br>
-     * <b>post: </b> Se vendi el producto y se actualizo el panel panelInformacinNodo.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * Abre el dialogo de entrada para ingresar la cantidad de unidades y vende dicha cantidad del producto con código dado.<br>
+     * <b>pre: </b> Todos los paneles y el mundo están inicializados. Existe el producto con el código dado.<br>
+     * <b>post: </b> Se vendió el producto y se actualizo el panel panelInformaciónNodo.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
      */
     public void venderProducto( String pCodigo )
     {
+        if( !verificarCargaTerminada( "Vender producto" ) )
+        {
+            return;
+        }
         try
         {
             String input = JOptionPane.showInputDialog( this, "Ingresa la cantidad de unidades:" );
@@ -182,6 +336,12 @@ public class InterfazAlmacen extends JFrame
                 panelInformacionNodo.seleccionar( pCodigo );
             }
         }
+        catch( AlmacenException e )
+        {
+            JOptionPane.showMessageDialog( this, e.getMessage( ), "Vender producto", JOptionPane.ERROR_MESSAGE );
+            // Si falló la bitácora la venta pudo quedar aplicada
+            actualizar( );
+        }
         catch( Exception e )
         {
             JOptionPane.showMessageDialog( this, "La cantidad debe ser un valor entero mayor a 0.", "Vender producto", JOptionPane.ERROR_MESSAGE );
@@ -193,6 +353,10 @@ public class InterfazAlmacen extends JFrame
      */
     public void mostrarDialogoAgregarProducto( )
     {
+        if( !verificarCargaTerminada( "Agregar producto" ) )
+        {
+            return;
+        }
         NodoAlmacen seleccionado = mundo.buscarNodo( panelNodos.darIdSeleccionado( ) );
         List<Marca> marcas;
         if( seleccionado instanceof Marca )
@@ -217,40 +381,58 @@ public class InterfazAlmacen extends JFrame
     }
 
     /**
-     * Agrega un producto con la informacin dada.<br>
-     * <b>pre: </b> Los paneles y el mundo estn inicializados.<br>
-     * <b>post:</b> Se agreg el producto al mundo y se actualizo la interfaz.
+     * Agrega un producto con la información dada.<br>
+     * <b>pre: </b> Los paneles y el mundo están inicializados.<br>
+     * <b>post:</b> Se agregó el producto al mundo y se actualizo la interfaz.
      * @param pIdMarca Identificador de la marca del producto. pIdMarca != null && pIdMarca != "".
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
      * @param pNombre Nombre del producto. pNombre != null && pNombre != "".
-     * @param pDescripcion Descripcin del producto. pDescripcion != null && pDescripcion != "".
+     * @param pDescripcion Descripción del producto. pDescripcion != null && pDescripcion != "".
      * @param pPrecio Precio del producto. pPrecio > 0;
      * @throws AlmacenException Si ocurren errores al agregar el producto.
      */
     public void agregarProducto( String pIdMarca, String pCodigo, String pNombre, String pDescripcion, double pPrecio ) throws AlmacenException
     {
 
-        mundo.agregarProducto( pIdMarca, pCodigo, pNombre, pDescripcion, pPrecio );
-        actualizar( );
+        try
+        {
+            mundo.agregarProducto( pIdMarca, pCodigo, pNombre, pDescripcion, pPrecio );
+        }
+        finally
+        {
+            // Si falló la bitácora el producto pudo quedar agregado
+            actualizar( );
+        }
         panelNodos.seleccionarNodo( pIdMarca );
         panelInformacionNodo.seleccionar( pCodigo );
     }
 
     /**
-     * Elimina el producto con el cdigo dado.<br>
-     * <b>pre: </b>Los paneles y el mundo estn inicializados.<br>
-     * <b>post:</b> Se elimin el producto y se actualiz la interfaz.
-     * @param pCodigo Cdigo del producto.
+     * Elimina el producto con el código dado.<br>
+     * <b>pre: </b>Los paneles y el mundo están inicializados.<br>
+     * <b>post:</b> Se eliminó el producto y se actualizó la interfaz.
+     * @param pCodigo Código del producto.
      */
     public void eliminarProducto( String pCodigo )
     {
-        mundo.eliminarProducto( pCodigo );
+        if( !verificarCargaTerminada( "Eliminar producto" ) )
+        {
+            return;
+        }
+        try
+        {
+            mundo.eliminarProducto( pCodigo );
+        }
+        catch( AlmacenException e )
+        {
+            JOptionPane.showMessageDialog( this, e.getMessage( ), "Eliminar producto", JOptionPane.ERROR_MESSAGE );
+        }
         actualizar( );
         
     }
 
     /**
-     * Actualiza el panel con la informacin del nodo con identificador dado por parmetro.
+     * Actualiza el panel con la información del nodo con identificador dado por parámetro.
      * @param pIdNodo Identificador del nodo. pIdentificador != null && pIdentificador != "".
      */
     public void actualizarInformacionNodo( String pIdNodo )
@@ -260,8 +442,8 @@ public class InterfazAlmacen extends JFrame
 
     /**
      * Actualiza la interfaz con los datos del mundo.<br>
-     * <b>pre: </b> Todos los paneles y el mundo estn inicializados.<br>
-     * <b>post: </b> Se actualizaron todos los paneles con la informacin del nodo seleccionado.
+     * <b>pre: </b> Todos los paneles y el mundo están inicializados.<br>
+     * <b>post: </b> Se actualizaron todos los paneles con la información del nodo seleccionado.
      */
     private void actualizar( )
     {
@@ -271,25 +453,171 @@ public class InterfazAlmacen extends JFrame
     }
 
     // -----------------------------------------------------------------
-    // Puntos de Extensin
+    // Puntos de Extensión
     // -----------------------------------------------------------------
 
     /**
-     * Mtodo para la extensin 1
+     * Guarda el reporte de ventas en CSV y muestra dónde quedó.
      */
     public void reqFuncOpcion1( )
     {
+        if( !verificarCargaTerminada( "Reporte de ventas" ) )
+        {
+            return;
+        }
         String resultado = mundo.metodo1( );
-        JOptionPane.showMessageDialog( this, resultado, "Respuesta", JOptionPane.INFORMATION_MESSAGE );
+        JOptionPane.showMessageDialog( this, resultado, "Reporte de ventas", JOptionPane.INFORMATION_MESSAGE );
     }
 
     /**
-     * Mtodo para la extensin 2
+     * Muestra el resumen de las ventas de todo el almacén.
      */
     public void reqFuncOpcion2( )
     {
+        if( !verificarCargaTerminada( "Resumen de ventas" ) )
+        {
+            return;
+        }
         String resultado = mundo.metodo2( );
-        JOptionPane.showMessageDialog( this, resultado, "Respuesta", JOptionPane.INFORMATION_MESSAGE );
+        JOptionPane.showMessageDialog( this, resultado, "Resumen de ventas", JOptionPane.INFORMATION_MESSAGE );
+    }
+
+    /**
+     * Tarea que carga los subárboles del catálogo en segundo plano y los agrega al almacén en el hilo de eventos, para que la ventana responda durante la carga.
+     */
+    private class CargaCatalogo extends SwingWorker<Void, NodoAlmacen>
+    {
+        /**
+         * Cargador del catálogo.
+         */
+        private CargadorProgresivo cargador;
+
+        /**
+         * Construye la tarea con el cargador dado.
+         * @param pCargador Cargador del catálogo. pCargador != null.
+         */
+        CargaCatalogo( CargadorProgresivo pCargador )
+        {
+            cargador = pCargador;
+        }
+
+        /**
+         * Carga los subárboles del catálogo y los publica a medida que se cargan. Se detiene si la tarea se cancela porque un subárbol no se pudo agregar.
+         * @throws AlmacenException Si el archivo no cumple el formato o si ocurre un error leyéndolo.
+         */
+        @Override
+        protected Void doInBackground( ) throws AlmacenException
+        {
+            while( !isCancelled( ) && cargador.haySiguiente( ) )
+            {
+                publish( cargador.cargarSiguiente( ) );
+                setProgress( cargador.darProgreso( ) );
+            }
+            return null;
+        }
+
+        /**
+         * Agrega al almacén los subárboles cargados y actualiza la interfaz.
+         * @param pSubarboles Subárboles cargados desde la última actualización. pSubarboles != null.
+         */
+        @Override
+        protected void process( List<NodoAlmacen> pSubarboles )
+        {
+            if( isCancelled( ) )
+            {
+                return;
+            }
+            try
+            {
+                for( NodoAlmacen subarbol : pSubarboles )
+                {
+                    mundo.agregarSubarbol( subarbol );
+                }
+            }
+            catch( AlmacenException e )
+            {
+                cancel( false );
+                JOptionPane.showMessageDialog( InterfazAlmacen.this, e.getMessage( ), "Cargar catálogo", JOptionPane.ERROR_MESSAGE );
+            }
+            actualizar( );
+            panelNodos.mostrarProgreso( getProgress( ) );
+        }
+
+        /**
+         * Termina la carga. Si el catálogo se cargó completo del archivo de datos, primero crea la copia binaria para el siguiente inicio; luego abre la bitácora.
+         */
+        @Override
+        protected void done( )
+        {
+            boolean completa = false;
+            try
+            {
+                get( );
+                completa = true;
+            }
+            catch( ExecutionException e )
+            {
+                JOptionPane.showMessageDialog( InterfazAlmacen.this, "No se pudo cargar todo el catálogo.\n" + e.getCause( ).getMessage( ), "Cargar catálogo", JOptionPane.ERROR_MESSAGE );
+            }
+            catch( InterruptedException | CancellationException e )
+            {
+                // La carga se detuvo por un error ya informado
+            }
+            try
+            {
+                cargador.close( );
+            }
+            catch( IOException e )
+            {
+                // El cargador sólo lee, no hay nada que perder al cerrarlo
+            }
+            if( completa && !cargaDesdeCopia )
+            {
+                new CopiaBinaria( ).execute( );
+            }
+            else
+            {
+                terminarCarga( completa );
+            }
+        }
+    }
+
+    /**
+     * Tarea que crea la copia binaria del archivo de datos para el siguiente inicio, a partir del almacén ya cargado. Se ejecuta antes de abrir la bitácora,
+     * mientras el almacén todavía no se puede modificar, de modo que la copia tiene exactamente el archivo de datos. La copia se escribe en un archivo temporal
+     * que luego reemplaza la copia anterior.
+     */
+    private class CopiaBinaria extends SwingWorker<Void, Void>
+    {
+        /**
+         * Escribe la copia binaria.
+         * @throws AlmacenException Si ocurre un error escribiendo la copia.
+         * @throws IOException Si no se puede reemplazar la copia anterior.
+         */
+        @Override
+        protected Void doInBackground( ) throws AlmacenException, IOException
+        {
+            File temporal = new File( ARCHIVO_COPIA.getPath( ) + ".tmp" );
+            try
+            {
+                mundo.guardarCopiaBinaria( temporal );
+                Files.move( temporal.toPath( ), ARCHIVO_COPIA.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            }
+            finally
+            {
+                temporal.delete( );
+            }
+            return null;
+        }
+
+        /**
+         * Termina la carga del catálogo. Si la copia falló el siguiente inicio lee de nuevo el archivo de datos.
+         */
+        @Override
+        protected void done( )
+        {
+            terminarCarga( true );
+        }
     }
 
     // -----------------------------------------------------------------
@@ -297,8 +625,8 @@ public class InterfazAlmacen extends JFrame
     // -----------------------------------------------------------------
 
     /**
-     * Este mtodo ejecuta la aplicacin, creando una nueva interfaz
-     * @param args Arreglo opcional de argumentos que se recibe por lnea de comandos
+     * Este método ejecuta la aplicación, creando una nueva interfaz
+     * @param args Arreglo opcional de argumentos que se recibe por línea de comandos
      */
     public static void main( String[] args )
     {
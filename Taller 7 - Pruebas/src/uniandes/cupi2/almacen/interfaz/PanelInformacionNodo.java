@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -16,6 +16,7 @@ import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.math.BigDecimal;
 
 import javax.swing.JButton;
 import javax.swing.JLabel;
@@ -31,7 +32,7 @@ import uniandes.cupi2.almacen.mundo.NodoAlmacen;
 import uniandes.cupi2.almacen.mundo.Producto;
 
 /**
- * Panel que contiene toda la informacin de productos.
+ * Panel que contiene toda la información de productos.
  */
 @SuppressWarnings("serial")
 public class PanelInformacionNodo extends JPanel implements ListSelectionListener, ActionListener
@@ -42,7 +43,7 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
     // -----------------------------------------------------------------
 
     /**
-     * Constante para la accin de agregar.
+     * Constante para la acción de agregar.
      */
     private final static String AGREGAR = "Agregar";
 
@@ -51,7 +52,7 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
     // -----------------------------------------------------------------
 
     /**
-     * Panel con la informacin del producto seleccionado.
+     * Panel con la información del producto seleccionado.
      */
     private PanelProducto panelProducto;
 
@@ -86,12 +87,12 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
     // -----------------------------------------------------------------
 
     /**
-     * Relacin con la ventana principal de la aplicacin.
+     * Relación con la ventana principal de la aplicación.
      */
     private InterfazAlmacen principal;
 
     /**
-     * Botn para agregar productos.
+     * Botón para agregar productos.
      */
     private JButton btnAgregar;
 
@@ -101,7 +102,7 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
 
     /**
      * Construye un nuevo panel.
-     * @param pInterfaz Ventana principal de la aplicacin. pInterfaz != null.
+     * @param pInterfaz Ventana principal de la aplicación. pInterfaz != null.
      */
     public PanelInformacionNodo( InterfazAlmacen pInterfaz )
     {
@@ -126,7 +127,7 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
         spProductos.setPreferredSize( new Dimension( 200, 300 ) );
 
         JPanel panelInfo= new JPanel( new GridLayout(4,2,0,5 ) );
-        panelInfo.setBorder( new TitledBorder( "Informacin nodo" ) );
+        panelInfo.setBorder( new TitledBorder( "Información nodo" ) );
         panelInfo.add( new JLabel( "Tipo de nodo: " ) );
         txtTipo = new JTextField(  );
         txtTipo.setEditable( false );
@@ -151,21 +152,21 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
         add( panelInfo, BorderLayout.NORTH );
 
         panelProducto = new PanelProducto( principal );
-        panelProducto.setBorder( new TitledBorder( null, "Informacin producto" ) );
+        panelProducto.setBorder( new TitledBorder( null, "Información producto" ) );
 
         add( panelProducto, BorderLayout.CENTER );
 
     }
 
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
     /**
-     * Selecciona el producto con cdigo dado.<br>
-     * <b>pre: </b> La lista de productos est inicializada.<br>
-     * <b>post: </b> Se seleccion el producto con el cdigo dado.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * Selecciona el producto con código dado.<br>
+     * <b>pre: </b> La lista de productos está inicializada.<br>
+     * <b>post: </b> Se seleccionó el producto con el código dado.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
      */
     public void seleccionar( String pCodigo )
     {
@@ -181,8 +182,8 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
     }
 
     /**
-     * Actualiza el panel con la informacin del nodo.
-     * @param pNodo Nodo con la nueva informacin. pNodo != null.
+     * Actualiza el panel con la información del nodo.
+     * @param pNodo Nodo con la nueva información. pNodo != null.
      */
     @SuppressWarnings("unchecked")
     public void actualizar( NodoAlmacen pNodo )
@@ -190,7 +191,7 @@ public class PanelInformacionNodo extends JPanel implements ListSelectionListene
         txtTipo.setText( pNodo.darTipo( ) );
         txtIdentificador.setText( pNodo.darIdentificador( ) );
         txtNombre.setText( pNodo.darNombre( ) );
-        txtVentas.setText( String.format( "COP $%,.2f", pNodo.darValorVentas( ) ) );
+        txtVentas.setText( String.format( "COP $%,.2f", BigDecimal.valueOf( pNodo.darValorVentasCentavos( ), 2 ) ) );
         listProductos.setListData( pNodo.darProductos( ).toArray( ) );
 
         
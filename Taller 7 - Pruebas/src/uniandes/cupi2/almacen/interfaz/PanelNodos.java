@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de los Andes (Bogot - Colombia)
- * Departamento de Ingeniera de Sistemas y Computacin
- * Licenciado   bajo  el  esquema Academic Free License versin 2.1
+ * Universidad  de los Andes (Bogotá - Colombia)
+ * Departamento de Ingeniería de Sistemas y Computación
+ * Licenciado   bajo  el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -25,6 +25,7 @@ import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTree;
 import javax.swing.border.TitledBorder;
@@ -42,7 +43,7 @@ import uniandes.cupi2.almacen.mundo.Marca;
 import uniandes.cupi2.almacen.mundo.NodoAlmacen;
 
 /**
- * Panel que muestra el rbol con los nodos.
+ * Panel que muestra el árbol con los nodos.
  */
 @SuppressWarnings("serial")
 public class PanelNodos extends JPanel implements TreeSelectionListener, ActionListener, ListSelectionListener
@@ -53,24 +54,24 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	// -----------------------------------------------------------------
 
 	/**
-	 * Constante para la accin agregar.
+	 * Constante para la acción agregar.
 	 */
 	private final static String AGREGAR = "Agregar";
 
 	/**
-	 * Constante para la accin eliminar.
+	 * Constante para la acción eliminar.
 	 */
 	private final static String ELIMINAR = "Eliminar";
 
 	/**
-	 * Constante para la accin del combo ver como.
+	 * Constante para la acción del combo ver como.
 	 */
 	private final static String VISTA = "Vista";
 
 	/**
-	 * Constante para la vista rbol.
+	 * Constante para la vista árbol.
 	 */
-	private final static String VER_ARBOL = "Ver como rbol";
+	private final static String VER_ARBOL = "Ver como árbol";
 
 	/**
 	 * Constante para la vista lista preorden.
@@ -87,12 +88,12 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	// -----------------------------------------------------------------
 
 	/**
-	 * Ventana principal de la aplicacin.
+	 * Ventana principal de la aplicación.
 	 */
 	private InterfazAlmacen principal;
 
 	/**
-	 * Categora raz del rbol.
+	 * Categoría raíz del árbol.
 	 */
 	private Categoria categoriaRaiz;
 
@@ -100,12 +101,12 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	// Atributos de la interfaz
 	// -----------------------------------------------------------------
 	/**
-	 * rbol que contiene los nodos.
+	 * Árbol que contiene los nodos.
 	 */
 	private JTree tree;
 
 	/**
-	 * La raz del JTree.
+	 * La raíz del JTree.
 	 */
 	private DefaultMutableTreeNode raizJtree;
 
@@ -116,17 +117,17 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	private JList listNodos;
 
 	/**
-	 * Scroll pane que contiene el rbol.
+	 * Scroll pane que contiene el árbol.
 	 */
 	private JScrollPane spNodos;
 
 	/**
-	 * Botn para agregar un nodo.
+	 * Botón para agregar un nodo.
 	 */
 	private JButton btnAgregar;
 
 	/**
-	 * Botn para eliminar un nodo.
+	 * Botón para eliminar un nodo.
 	 */
 	private JButton btnEliminar;
 
@@ -135,6 +136,11 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	 */
 	private JComboBox<String> cbVerComo;
 
+	/**
+	 * Barra con el progreso de la carga del catálogo.
+	 */
+	private JProgressBar barraCarga;
+
 	// -----------------------------------------------------------------
 	// Constructores
 	// -----------------------------------------------------------------
@@ -142,13 +148,13 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	/**
 	 * Construye un nuevo panel nodos.
 	 * 
-	 * @param pInterfaz Ventana principal de la aplicacin. pInterfaz != null.
-	 * @param pRaiz     Categora raz. pRaiz != null.
+	 * @param pInterfaz Ventana principal de la aplicación. pInterfaz != null.
+	 * @param pRaiz     Categoría raíz. pRaiz != null.
 	 */
 	public PanelNodos(InterfazAlmacen pInterfaz, Categoria pRaiz)
 	{
 		setLayout(new BorderLayout(0, 15));
-		setBorder(new TitledBorder("Categoras y marcas"));
+		setBorder(new TitledBorder("Categorías y marcas"));
 		principal = pInterfaz;
 		categoriaRaiz = pRaiz;
 
@@ -179,20 +185,28 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 		JPanel panelBotones = new JPanel(new GridLayout(1, 2));
 		panelBotones.add(btnEliminar);
 		panelBotones.add(btnAgregar);
-		add(panelBotones, BorderLayout.SOUTH);
+
+		barraCarga = new JProgressBar(0, 100);
+		barraCarga.setStringPainted(true);
+		barraCarga.setVisible(false);
+
+		JPanel panelSur = new JPanel(new BorderLayout(0, 5));
+		panelSur.add(barraCarga, BorderLayout.NORTH);
+		panelSur.add(panelBotones, BorderLayout.SOUTH);
+		add(panelSur, BorderLayout.SOUTH);
 
 	}
 
 	// -----------------------------------------------------------------
-	// Mtodos
+	// Métodos
 	// -----------------------------------------------------------------
 
 	/**
-	 * Actualiza el panel con la raz dada.<br>
-	 * <b>post: </b> Vuelve a crear el rbol con la nueva informacin y actualiza el
+	 * Actualiza el panel con la raíz dada.<br>
+	 * <b>post: </b> Vuelve a crear el árbol con la nueva información y actualiza el
 	 * viewport del scroll pane.
 	 * 
-	 * @param pRaiz Categora raz del almacn. pRaiz != null.
+	 * @param pRaiz Categoría raíz del almacén. pRaiz != null.
 	 */
 	public void actualizar(Categoria pRaiz)
 	{
@@ -253,13 +267,45 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	}
 
 	/**
-	 * Agrega los hijos de la categora al nodo del JTree.<br>
-	 * <b>post:</b> Los nodos hijos de la categora se agregaron al JTree junto con
-	 * su subrbol.
+	 * Muestra el progreso de la carga del catálogo. Mientras se carga no se pueden
+	 * agregar ni eliminar nodos.<br>
+	 * <b>post: </b> La barra de carga es visible con el porcentaje dado y los
+	 * botones están deshabilitados.
+	 * 
+	 * @param pPorcentaje Porcentaje del catálogo cargado. 0 <= pPorcentaje <= 100.
+	 */
+	public void mostrarProgreso(int pPorcentaje)
+	{
+		barraCarga.setValue(pPorcentaje);
+		barraCarga.setString("Cargando catálogo... " + pPorcentaje + "%");
+		barraCarga.setVisible(true);
+		btnAgregar.setEnabled(false);
+		btnEliminar.setEnabled(false);
+	}
+
+	/**
+	 * Indica que terminó la carga del catálogo.<br>
+	 * <b>post: </b> La barra de carga no es visible y los botones están
+	 * habilitados si el almacén se puede modificar.
+	 * 
+	 * @param pModificable Indica si el almacén se puede modificar. Es false si
+	 *                     el catálogo no se cargó completo.
+	 */
+	public void terminarCarga(boolean pModificable)
+	{
+		barraCarga.setVisible(false);
+		btnAgregar.setEnabled(pModificable);
+		btnEliminar.setEnabled(pModificable);
+	}
+
+	/**
+	 * Agrega los hijos de la categoría al nodo del JTree.<br>
+	 * <b>post:</b> Los nodos hijos de la categoría se agregaron al JTree junto con
+	 * su subárbol.
 	 * 
 	 * @param pNodo      NodoAlmacen del JTree al cual se agregaran los nodos. pNodo
 	 *                   != null.
-	 * @param pCategoria Categora del almacn que corresponde al nodo del JTree.
+	 * @param pCategoria Categoría del almacén que corresponde al nodo del JTree.
 	 */
 	public void agregarHijos(DefaultMutableTreeNode pNodo, Categoria pCategoria)
 	{
@@ -298,10 +344,10 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	}
 
 	/**
-	 * Selecciona el nodo almacn con el identificador dado en el JTree.<br>
-	 * <b>post: </b>Se seleccion el nodo en el JTree.
+	 * Selecciona el nodo almacén con el identificador dado en el JTree.<br>
+	 * <b>post: </b>Se seleccionó el nodo en el JTree.
 	 * 
-	 * @param pIdNodo Identificador del nodo almacn. pIdentificador != null.
+	 * @param pIdNodo Identificador del nodo almacén. pIdentificador != null.
 	 */
 	private void seleccionarNodoArbol(String pIdNodo)
 	{
@@ -315,11 +361,11 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	}
 
 	/**
-	 * Selecciona el nodo almacn con el identificador dado en la lista de
+	 * Selecciona el nodo almacén con el identificador dado en la lista de
 	 * nodos.<br>
-	 * <b>post: </b>Se seleccion el nodo en la lista de nodos.
+	 * <b>post: </b>Se seleccionó el nodo en la lista de nodos.
 	 * 
-	 * @param pIdNodo Identificador del nodo almacn. pIdentificador != null.
+	 * @param pIdNodo Identificador del nodo almacén. pIdentificador != null.
 	 */
 	private void seleccionarNodoLista(String pIdNodo)
 	{
@@ -339,7 +385,7 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 
 	/**
 	 * Selecciona el nodo con el identificador dado.<br>
-	 * <b>pre: </b> El rbol est inicializado.
+	 * <b>pre: </b> El árbol está inicializado.
 	 * 
 	 * @param pIdNodo Identificador del nodo. pIdNodo != null && pIdNodo != "".
 	 */
@@ -351,11 +397,11 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	}
 
 	/**
-	 * Retorna el nodo del jtree que contiene el nodo almacn con el identificador
+	 * Retorna el nodo del jtree que contiene el nodo almacén con el identificador
 	 * dado.
 	 * 
 	 * @param pIdNodo Identificador del nodo. pIdNodo != null && pIdNodo != "".
-	 * @return Nodo del jtree que contiene el nodo almacn con el identificador dado
+	 * @return Nodo del jtree que contiene el nodo almacén con el identificador dado
 	 *         o null si no existe.
 	 */
 	private DefaultMutableTreeNode buscar(String pIdNodo)
@@ -412,7 +458,7 @@ public class PanelNodos extends JPanel implements TreeSelectionListener, ActionL
 	}
 
 	/**
-	 * Maneja la accin cuando se selecciona un nodo.
+	 * Maneja la acción cuando se selecciona un nodo.
 	 * 
 	 * @param pNodo Nodo seleccionado. pNodo != null.
 	 */
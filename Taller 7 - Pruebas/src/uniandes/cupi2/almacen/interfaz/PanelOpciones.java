@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -31,12 +31,12 @@ public class PanelOpciones extends JPanel implements ActionListener
     //-----------------------------------------------------------------
 
     /**
-     * Comando Opcin 1
+     * Comando Opción 1
      */
     private static final String OPCION_1 = "OPCION_1";
 
     /**
-     * Comando Opcin 2
+     * Comando Opción 2
      */
     private static final String OPCION_2 = "OPCION_2";
 
@@ -45,7 +45,7 @@ public class PanelOpciones extends JPanel implements ActionListener
     //-----------------------------------------------------------------
 
     /**
-     * Ventana principal de la aplicacin
+     * Ventana principal de la aplicación
      */
     private InterfazAlmacen principal;
 
@@ -54,12 +54,12 @@ public class PanelOpciones extends JPanel implements ActionListener
     //-----------------------------------------------------------------
 
     /**
-     * Botn Opcin 1
+     * Botón Opción 1
      */
     private JButton btnOpcion1;
 
     /**
-     * Botn Opcin 2
+     * Botón Opción 2
      */
     private JButton btnOpcion2;
 
@@ -69,7 +69,7 @@ public class PanelOpciones extends JPanel implements ActionListener
 
     /**
      * Constructor del panel de extensiones
-     * @param ventana Ventana principal de la aplicacin. ventana != null
+     * @param ventana Ventana principal de la aplicación. ventana != null
      */
     public PanelOpciones( InterfazAlmacen ventana )
     {
@@ -78,26 +78,26 @@ public class PanelOpciones extends JPanel implements ActionListener
         setBorder( new TitledBorder( "Opciones" ) );
         setLayout( new GridLayout( 1, 2 ) );
 
-        //Botn opcin 1
-        btnOpcion1 = new JButton("Opcin 1");
+        //Botón opción 1
+        btnOpcion1 = new JButton("Reporte de ventas");
         btnOpcion1.setActionCommand( OPCION_1 );
         btnOpcion1.addActionListener( this );
         add(btnOpcion1);
         
-        //Botn opcin 2
-        btnOpcion2 = new JButton("Opcin 2");
+        //Botón opción 2
+        btnOpcion2 = new JButton("Resumen de ventas");
         btnOpcion2.setActionCommand( OPCION_2 );
         btnOpcion2.addActionListener( this );
         add(btnOpcion2);
     }
 
     //-----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     //-----------------------------------------------------------------
 
     /**
      * Manejo de los eventos de los botones
-     * @param e Accin que gener el evento. e != null
+     * @param e Acción que generó el evento. e != null
      */
     public void actionPerformed( ActionEvent e )
     {
@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -24,6 +24,7 @@ import java.awt.GridBagConstraints;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.math.BigDecimal;
 
 import javax.swing.JTextField;
 import javax.swing.JTextPane;
@@ -32,7 +33,7 @@ import javax.swing.border.EmptyBorder;
 import uniandes.cupi2.almacen.mundo.Producto;
 
 /**
- * Panel que contiene la informacin de un producto.
+ * Panel que contiene la información de un producto.
  */
 @SuppressWarnings("serial")
 public class PanelProducto extends JPanel implements ActionListener
@@ -42,12 +43,12 @@ public class PanelProducto extends JPanel implements ActionListener
     // -----------------------------------------------------------------
 
     /**
-     * Constante para la accin vender.
+     * Constante para la acción vender.
      */
     private final static String VENDER = "Vender";
 
     /**
-     * Constante para la accin eliminar.
+     * Constante para la acción eliminar.
      */
     private final static String ELIMINAR = "Eliminar";
 
@@ -81,27 +82,27 @@ public class PanelProducto extends JPanel implements ActionListener
     private JLabel lblImagen;
 
     /**
-     * Campo de texto para la descripcin.
+     * Campo de texto para la descripción.
      */
     private JTextPane txtDescripcion;
 
     /**
-     * Botn para vender el producto.
+     * Botón para vender el producto.
      */
     private JButton btnVender;
 
     /**
-     * Botn para eliminar el producto.
+     * Botón para eliminar el producto.
      */
     private JButton btnEliminar;
 
     /**
-     * Campo de texto para el cdigo.
+     * Campo de texto para el código.
      */
     private JTextField txtCodigo;
     
     /**
-     * Scroll Pane para la descripcin.
+     * Scroll Pane para la descripción.
      */
     private JScrollPane spDescripcion;
 
@@ -110,7 +111,7 @@ public class PanelProducto extends JPanel implements ActionListener
     // -----------------------------------------------------------------
 
     /**
-     * Relacin con la ventana principal de la aplicacin.
+     * Relación con la ventana principal de la aplicación.
      */
     private InterfazAlmacen principal;
 
@@ -120,7 +121,7 @@ public class PanelProducto extends JPanel implements ActionListener
 
     /**
      * Construye un nuevo panel producto.
-     * @param pInterfaz Ventana principal de la aplicacin. pInterfaz != null.
+     * @param pInterfaz Ventana principal de la aplicación. pInterfaz != null.
      */
     public PanelProducto( InterfazAlmacen pInterfaz )
     {
@@ -166,8 +167,8 @@ public class PanelProducto extends JPanel implements ActionListener
         gbc_txtCodigo.gridy = 0;
         panelAux.add( txtCodigo, gbc_txtCodigo );
 
-        // Etiqueta descripcin
-        JLabel lblDescripcion = new JLabel( "Descripcin:" );
+        // Etiqueta descripción
+        JLabel lblDescripcion = new JLabel( "Descripción:" );
         lblDescripcion.setVerticalAlignment( SwingConstants.TOP );
         lblDescripcion.setHorizontalAlignment( SwingConstants.RIGHT );
         GridBagConstraints gbc_lblDescripcion = new GridBagConstraints( );
@@ -177,7 +178,7 @@ public class PanelProducto extends JPanel implements ActionListener
         gbc_lblDescripcion.gridy = 2;
         panelAux.add( lblDescripcion, gbc_lblDescripcion );
 
-        // Campo de texto para la descripcin
+        // Campo de texto para la descripción
         txtDescripcion = new JTextPane( );
         txtDescripcion.setContentType("text/html");
         txtDescripcion.setEditable( false );
@@ -255,7 +256,7 @@ public class PanelProducto extends JPanel implements ActionListener
         gbc_txtValorVentas.gridy = 10;
         panelAux.add( txtValorVentas, gbc_txtValorVentas );
 
-        // Botn eliminar
+        // Botón eliminar
         btnEliminar = new JButton( ELIMINAR );
         btnEliminar.setActionCommand( ELIMINAR );
         btnEliminar.addActionListener( this );
@@ -267,7 +268,7 @@ public class PanelProducto extends JPanel implements ActionListener
         gbc_btnEliminar.gridy = 12;
         panelAux.add( btnEliminar, gbc_btnEliminar );
 
-        // Botn vender
+        // Botón vender
         btnVender = new JButton( VENDER );
         btnVender.setActionCommand( VENDER );
         btnVender.addActionListener( this );
@@ -281,12 +282,12 @@ public class PanelProducto extends JPanel implements ActionListener
     }
 
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
     /**
-     * Actualiza el panel con la informacin del producto dado.<br>
-     * @param pProducto Producto con la nueva informacin.
+     * Actualiza el panel con la información del producto dado.<br>
+     * @param pProducto Producto con la nueva información.
      */
     public void actualizar( Producto pProducto )
     {
@@ -304,9 +305,9 @@ public class PanelProducto extends JPanel implements ActionListener
             lblNombre.setText( pProducto.darNombre( ) );
             txtCodigo.setText( pProducto.darCodigo( ) );
             txtDescripcion.setText( pProducto.darDescripcion( ) );
-            txtPrecio.setText( String.format( "COP $%,.2f", pProducto.darPrecio( ) ) );
+            txtPrecio.setText( String.format( "COP $%,.2f", BigDecimal.valueOf( pProducto.darPrecioCentavos( ), 2 ) ) );
             txtUnidadesVendidas.setText( "" + pProducto.darCantidadUnidadesVendidas( ) );
-            txtValorVentas.setText( String.format( "COP $%,.2f", pProducto.darValorVentas( ) ) );
+            txtValorVentas.setText( String.format( "COP $%,.2f", BigDecimal.valueOf( pProducto.darValorVentasCentavos( ), 2 ) ) );
             btnVender.setEnabled( true );
             btnEliminar.setEnabled( true );
             spDescripcion.getVerticalScrollBar( ).setValue( 0 );
@@ -0,0 +1,346 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recorre en paralelo los productos de un subárbol del almacén para resumirlos o listarlos.<br>
+ * El trabajo se divide por subárboles hijos mientras tengan más de un umbral de productos: una categoría en sus hijos y una marca en los dos subárboles de su
+ * árbol de productos, cuyo tamaño ya se conoce por el peso de cada producto. Los subárboles pequeños se recorren en un solo hilo con el mismo código del recorrido
+ * secuencial. Los resultados son idénticos a los secuenciales: los resúmenes sólo suman enteros y cada producto se copia a la posición que ocupa en el
+ * recorrido, calculada con la cantidad de productos de los subárboles anteriores.<br>
+ * Mientras se recorre, ningún hilo debe cambiar la estructura del subárbol.
+ */
+public class AgregadorParalelo
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Cantidad de productos por debajo de la cual un subárbol se recorre en un solo hilo.
+     */
+    public final static int UMBRAL_PRODUCTOS = 1 << 14;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Pool en el que se recorren los subárboles.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Cantidad de productos por debajo de la cual un subárbol se recorre en un solo hilo.
+     */
+    private int umbral;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un agregador que usa el pool común y el umbral por defecto.
+     */
+    public AgregadorParalelo( )
+    {
+        this( ForkJoinPool.commonPool( ), UMBRAL_PRODUCTOS );
+    }
+
+    /**
+     * Construye un agregador que usa el pool y el umbral dados.
+     * @param pPool Pool en el que se recorren los subárboles. pPool != null.
+     * @param pUmbral Cantidad de productos por debajo de la cual un subárbol se recorre en un solo hilo. pUmbral > 0.
+     */
+    public AgregadorParalelo( ForkJoinPool pPool, int pUmbral )
+    {
+        pool = pPool;
+        umbral = pUmbral;
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Calcula el resumen de los productos del nodo dado. Es el mismo que retorna pNodo.darResumen( ).
+     * @param pNodo Nodo del árbol. pNodo != null.
+     * @return Resumen de los productos del nodo.
+     * @throws ArithmeticException Si el valor de las ventas o la suma de los precios no caben en un long.
+     */
+    public ResumenSubarbol darResumen( NodoAlmacen pNodo )
+    {
+        return pool.invoke( new ResumenNodo( pNodo ) );
+    }
+
+    /**
+     * Retorna los productos del nodo dado, en el mismo orden que pNodo.darProductos( ).
+     * @param pNodo Nodo del árbol. pNodo != null.
+     * @return Lista con los productos del nodo.
+     */
+    public List<Producto> darProductos( NodoAlmacen pNodo )
+    {
+        Producto[] productos = new Producto[pNodo.darCantidadProductos( )];
+        pool.invoke( new ProductosNodo( pNodo, productos, 0 ) );
+        return new ArrayList<>( Arrays.asList( productos ) );
+    }
+
+    /**
+     * Tarea que resume los productos de un nodo. Una categoría grande se divide en sus hijos y una marca grande en su árbol de productos.
+     */
+    private class ResumenNodo extends RecursiveTask<ResumenSubarbol>
+    {
+        /**
+         * Constante de serialización.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Nodo que se resume.
+         */
+        private NodoAlmacen nodo;
+
+        /**
+         * Construye la tarea para el nodo dado.
+         * @param pNodo Nodo que se resume. pNodo != null.
+         */
+        ResumenNodo( NodoAlmacen pNodo )
+        {
+            nodo = pNodo;
+        }
+
+        /**
+         * Resume los productos del nodo.
+         * @return Resumen de los productos del nodo.
+         */
+        @Override
+        protected ResumenSubarbol compute( )
+        {
+            ResumenSubarbol resumen = new ResumenSubarbol( );
+            if( nodo.darCantidadProductos( ) <= umbral )
+            {
+                nodo.resumir( resumen );
+            }
+            else if( nodo instanceof Categoria )
+            {
+                List<ResumenNodo> tareas = new ArrayList<>( );
+                for( NodoAlmacen hijo : ( ( Categoria )nodo ).darNodos( ) )
+                {
+                    tareas.add( new ResumenNodo( hijo ) );
+                }
+                for( ResumenNodo tarea : invokeAll( tareas ) )
+                {
+                    resumen.combinar( tarea.join( ) );
+                }
+            }
+            else
+            {
+                resumen = new ResumenProductos( ( ( Marca )nodo ).darProductoRaiz( ) ).invoke( );
+                resumen.agregarMarca( );
+            }
+            return resumen;
+        }
+    }
+
+    /**
+     * Tarea que resume los productos de un subárbol del árbol de productos de una marca, dividiéndolo en sus dos hijos mientras sea grande.
+     */
+    private class ResumenProductos extends RecursiveTask<ResumenSubarbol>
+    {
+        /**
+         * Constante de serialización.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Raíz del subárbol de productos.
+         */
+        private Producto raiz;
+
+        /**
+         * Construye la tarea para el subárbol dado.
+         * @param pRaiz Raíz del subárbol de productos. Puede ser null si el subárbol es vacío.
+         */
+        ResumenProductos( Producto pRaiz )
+        {
+            raiz = pRaiz;
+        }
+
+        /**
+         * Resume los productos del subárbol.
+         * @return Resumen de los productos del subárbol.
+         */
+        @Override
+        protected ResumenSubarbol compute( )
+        {
+            ResumenSubarbol resumen = new ResumenSubarbol( );
+            if( raiz != null && raiz.darPeso( ) <= umbral )
+            {
+                raiz.resumir( resumen );
+            }
+            else if( raiz != null )
+            {
+                ResumenProductos izquierda = new ResumenProductos( raiz.darHijoIzquierda( ) );
+                ResumenProductos derecha = new ResumenProductos( raiz.darHijoDerecha( ) );
+                invokeAll( izquierda, derecha );
+                resumen.combinar( izquierda.join( ) );
+                resumen.agregar( raiz );
+                resumen.combinar( derecha.join( ) );
+            }
+            return resumen;
+        }
+    }
+
+    /**
+     * Tarea que copia los productos de un nodo a su parte del arreglo del recorrido, que empieza en la posición dada.
+     */
+    private class ProductosNodo extends RecursiveAction
+    {
+        /**
+         * Constante de serialización.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Nodo cuyos productos se copian.
+         */
+        private NodoAlmacen nodo;
+
+        /**
+         * Arreglo con los productos de todo el recorrido.
+         */
+        private Producto[] productos;
+
+        /**
+         * Posición del arreglo donde empiezan los productos del nodo.
+         */
+        private int inicio;
+
+        /**
+         * Construye la tarea para el nodo dado.
+         * @param pNodo Nodo cuyos productos se copian. pNodo != null.
+         * @param pProductos Arreglo del recorrido. pProductos != null.
+         * @param pInicio Posición donde empiezan los productos del nodo.
+         */
+        ProductosNodo( NodoAlmacen pNodo, Producto[] pProductos, int pInicio )
+        {
+            nodo = pNodo;
+            productos = pProductos;
+            inicio = pInicio;
+        }
+
+        /**
+         * Copia los productos del nodo al arreglo.<br>
+         * <b>post: </b> Los productos del nodo quedaron en el arreglo a partir de la posición de inicio.
+         */
+        @Override
+        protected void compute( )
+        {
+            if( nodo.darCantidadProductos( ) <= umbral )
+            {
+                int posicion = inicio;
+                for( Producto producto : nodo.darProductos( ) )
+                {
+                    productos[ posicion++ ] = producto;
+                }
+            }
+            else if( nodo instanceof Categoria )
+            {
+                List<ProductosNodo> tareas = new ArrayList<>( );
+                int posicion = inicio;
+                for( NodoAlmacen hijo : ( ( Categoria )nodo ).darNodos( ) )
+                {
+                    tareas.add( new ProductosNodo( hijo, productos, posicion ) );
+                    posicion += hijo.darCantidadProductos( );
+                }
+                invokeAll( tareas );
+            }
+            else
+            {
+                new ProductosArbol( ( ( Marca )nodo ).darProductoRaiz( ), productos, inicio ).invoke( );
+            }
+        }
+    }
+
+    /**
+     * Tarea que copia en inorden los productos de un subárbol del árbol de productos de una marca, a partir de la posición dada.
+     */
+    private class ProductosArbol extends RecursiveAction
+    {
+        /**
+         * Constante de serialización.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Raíz del subárbol de productos.
+         */
+        private Producto raiz;
+
+        /**
+         * Arreglo con los productos de todo el recorrido.
+         */
+        private Producto[] productos;
+
+        /**
+         * Posición del arreglo donde empiezan los productos del subárbol.
+         */
+        private int inicio;
+
+        /**
+         * Construye la tarea para el subárbol dado.
+         * @param pRaiz Raíz del subárbol de productos. Puede ser null si el subárbol es vacío.
+         * @param pProductos Arreglo del recorrido. pProductos != null.
+         * @param pInicio Posición donde empiezan los productos del subárbol.
+         */
+        ProductosArbol( Producto pRaiz, Producto[] pProductos, int pInicio )
+        {
+            raiz = pRaiz;
+            productos = pProductos;
+            inicio = pInicio;
+        }
+
+        /**
+         * Copia los productos del subárbol al arreglo.<br>
+         * <b>post: </b> Los productos del subárbol quedaron en inorden en el arreglo a partir de la posición de inicio.
+         */
+        @Override
+        protected void compute( )
+        {
+            if( raiz != null && raiz.darPeso( ) <= umbral )
+            {
+                int posicion = inicio;
+                List<Producto> inorden = new ArrayList<>( raiz.darPeso( ) );
+                raiz.darInorden( inorden );
+                for( Producto producto : inorden )
+                {
+                    productos[ posicion++ ] = producto;
+                }
+            }
+            else if( raiz != null )
+            {
+                Producto izquierda = raiz.darHijoIzquierda( );
+                int posicionRaiz = inicio + ( izquierda == null ? 0 : izquierda.darPeso( ) );
+                productos[ posicionRaiz ] = raiz;
+                invokeAll( new ProductosArbol( izquierda, productos, inicio ), new ProductosArbol( raiz.darHijoDerecha( ), productos, posicionRaiz + 1 ) );
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -13,45 +13,264 @@ package uniandes.cupi2.almacen.mundo;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 /**
- * Representa el almacn.
+ * Representa el almacén.<br>
+ * El almacén se puede usar desde varios hilos. Cada cambio de la estructura toma el candado de escritura mientras se valida, se registra en la bitácora y se
+ * aplica, de modo que los cambios quedan en un orden total, y espera a que su registro esté en el disco después de soltarlo; si la bitácora falla el cambio
+ * queda aplicado pero el almacén deja de aceptar cambios. Las ventas sólo toman el candado de lectura, así que se hacen en paralelo entre sí, y suman a los
+ * totales con operaciones atómicas. Los totales de la raíz se leen sin tomar el candado y sólo lo toman para leer de nuevo si un cambio ocurrió mientras tanto.
+ * Las búsquedas en los índices y los recorridos del árbol toman el candado de lectura, porque los índices y las listas no se pueden leer mientras otro hilo los
+ * modifica, así que los cambios de la estructura esperan a que terminen.
  */
 public class Almacen
 {
 
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Modo de carga que lee el archivo línea por línea.
+     */
+    public final static int CARGA_SECUENCIAL = 0;
+
+    /**
+     * Modo de carga que mapea el archivo en memoria. Es el más rápido para archivos grandes.
+     */
+    public final static int CARGA_MAPEADA = 1;
+
+    /**
+     * Modo de carga que mapea el archivo en memoria y construye las marcas en paralelo.
+     */
+    public final static int CARGA_PARALELA = 2;
+
+    /**
+     * Modo de carga que lee una copia binaria creada con guardarCopiaBinaria.
+     */
+    public final static int CARGA_BINARIA = 3;
+
+    /**
+     * Tiempo máximo que cerrar espera a que termine un punto de control en curso, en segundos.
+     */
+    private final static long ESPERA_CIERRE = 60;
+
+    /**
+     * Ruta del archivo en el que metodo1 guarda el reporte de ventas.
+     */
+    public final static String RUTA_REPORTE = "./data/reporteVentas.csv";
+
     // -----------------------------------------------------------------
     // Atributos
     // -----------------------------------------------------------------
 
     /**
-     * La categora raz del almacn.
+     * La categoría raíz del almacén.
      */
     private Categoria categoriaRaiz;
 
+    /**
+     * Índice con todos los nodos del árbol. La llave es el identificador del nodo.
+     */
+    private Map<String, NodoAlmacen> nodos;
+
+    /**
+     * Índice con todos los productos de todas las marcas del árbol. La llave es el código del producto.
+     */
+    private Map<String, Producto> productos;
+
+    /**
+     * Fuente de las descripciones de los productos cuando se cargan de forma diferida. Es null si las descripciones están en memoria.
+     */
+    private DescripcionesDiferidas descripcionesDiferidas;
+
+    /**
+     * Bitácora en la que se registran los cambios o null si los cambios sólo se hacen en memoria.
+     */
+    private Bitacora bitacora;
+
+    /**
+     * Catálogo sobre el que se aplican los cambios de la bitácora. Es null si no hay bitácora.
+     */
+    private File archivoBase;
+
+    /**
+     * Candado del árbol y de los índices. Los cambios y la copia de las categorías y marcas de un punto de control toman el candado de escritura, los totales de la raíz se
+     * leen con una marca optimista y las búsquedas y los recorridos toman el candado de lectura.
+     */
+    private StampedLock candado;
+
+    /**
+     * Objeto sobre el que se sincronizan los puntos de control para que se tomen de a uno.
+     */
+    private Object candadoPuntoControl;
+
+    /**
+     * Época del punto de control que se está escribiendo o 0 si no se está escribiendo ninguno.
+     */
+    private volatile int epocaActiva;
+
+    /**
+     * Época del último punto de control tomado.
+     */
+    private int ultimaEpoca;
+
+    /**
+     * Hilo que toma los puntos de control en segundo plano. Es null si no se ha pedido ninguno.
+     */
+    private ScheduledExecutorService programador;
+
+    /**
+     * Indica si hay un punto de control pedido que todavía no ha empezado.
+     */
+    private AtomicBoolean puntoControlSolicitado;
+
+    /**
+     * Duración del último punto de control terminado en milisegundos o -1 si no se ha terminado ninguno.
+     */
+    private volatile long duracionPuntoControl;
+
+    /**
+     * Momento en que se tomó el último punto de control terminado en milisegundos o -1 si no se ha terminado ninguno.
+     */
+    private volatile long capturaPuntoControl;
+
+    /**
+     * Mensaje del error del último punto de control en segundo plano que falló o null si el último terminó bien.
+     */
+    private volatile String errorPuntoControl;
+
+    /**
+     * Registro de las ventas recientes por ventanas de tiempo.
+     */
+    private VentasRecientes ventasRecientes;
+
+    /**
+     * Error de la bitácora al confirmar un cambio que ya se había aplicado en memoria o null si todos los cambios confirmados están en el disco. Si no es null el
+     * almacén sólo acepta consultas, porque sus cambios ya no se pueden registrar.
+     */
+    private volatile String errorBitacora;
+
     // -----------------------------------------------------------------
     // Constructores
     // -----------------------------------------------------------------
 
     /**
-     * Construye un nuevo almacn a partir de los datos del archivo.<br>
-     * <b>post:</b> Se cargo la informacin del almacn contenida en el archivo.
-     * @param pArchivo Archivo con la informacin del almacn. pArchivo != null.
-     * @throws AlmacenException Si ocurre algn error al cargar la informacin.
+     * Construye un nuevo almacén a partir de los datos del archivo.<br>
+     * <b>post:</b> Se cargo la información del almacén contenida en el archivo.
+     * @param pArchivo Archivo con la información del almacén. pArchivo != null.
+     * @throws AlmacenException Si ocurre algún error al cargar la información.
      */
     public Almacen( File pArchivo ) throws AlmacenException
     {
-        cargar( pArchivo );
+        this( pArchivo, CARGA_SECUENCIAL );
+    }
+
+    /**
+     * Construye un nuevo almacén a partir de los datos del archivo, usando el modo de carga dado.<br>
+     * <b>post:</b> Se cargo la información del almacén contenida en el archivo.
+     * @param pArchivo Archivo con la información del almacén. pArchivo != null.
+     * @param pModoCarga Modo de carga del archivo. pModoCarga = {CARGA_SECUENCIAL, CARGA_MAPEADA, CARGA_PARALELA, CARGA_BINARIA}.
+     * @throws AlmacenException Si ocurre algún error al cargar la información.
+     */
+    public Almacen( File pArchivo, int pModoCarga ) throws AlmacenException
+    {
+        this( pArchivo, pModoCarga, false );
+    }
+
+    /**
+     * Construye un nuevo almacén a partir de los datos del archivo, usando el modo de carga dado y, si se indica, dejando las descripciones de los productos en el
+     * archivo. Las descripciones diferidas se leen del archivo cuando se piden y las últimas leídas se guardan en un caché. El archivo queda abierto hasta que se llame
+     * cerrar y no se debe modificar mientras tanto. El modo secuencial no conoce las posiciones en el archivo y siempre carga las descripciones en memoria.<br>
+     * <b>post:</b> Se cargo la información del almacén contenida en el archivo.
+     * @param pArchivo Archivo con la información del almacén. pArchivo != null.
+     * @param pModoCarga Modo de carga del archivo. pModoCarga = {CARGA_SECUENCIAL, CARGA_MAPEADA, CARGA_PARALELA, CARGA_BINARIA}.
+     * @param pDescripcionesDiferidas Indica si las descripciones de los productos se leen del archivo sólo cuando se piden.
+     * @throws AlmacenException Si ocurre algún error al cargar la información.
+     */
+    public Almacen( File pArchivo, int pModoCarga, boolean pDescripcionesDiferidas ) throws AlmacenException
+    {
+        inicializarPuntosControl( );
+        if( pDescripcionesDiferidas && pModoCarga != CARGA_SECUENCIAL )
+        {
+            try
+            {
+                descripcionesDiferidas = new DescripcionesDiferidas( pArchivo );
+            }
+            catch( IOException e )
+            {
+                throw new AlmacenException( "Error al abrir el archivo.\n" + e.getMessage( ) );
+            }
+        }
+        try
+        {
+            cargar( pArchivo, pModoCarga );
+        }
+        catch( AlmacenException e )
+        {
+            cerrar( );
+            throw e;
+        }
+    }
+
+    /**
+     * Construye un almacén con la categoría raíz dada, que puede estar incompleta y recibir sus subárboles después con agregarSubarbol.<br>
+     * <b>post:</b> Los índices contienen los nodos y productos del árbol de la raíz.
+     * @param pRaiz Categoría raíz del almacén, sin padre. pRaiz != null.
+     * @param pDescripciones Fuente de las descripciones diferidas de los productos del árbol o null si están en memoria.
+     * @throws AlmacenException Si el árbol tiene identificadores o códigos repetidos.
+     */
+    Almacen( Categoria pRaiz, DescripcionesDiferidas pDescripciones ) throws AlmacenException
+    {
+        inicializarPuntosControl( );
+        categoriaRaiz = pRaiz;
+        descripcionesDiferidas = pDescripciones;
+        nodos = new HashMap<>( );
+        productos = new HashMap<>( darCapacidad( pRaiz.darCantidadProductos( ) ) );
+        registrarNodos( categoriaRaiz );
     }
 
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
     /**
-     * Retorna la categora raz del almacn.
-     * @return Categora raz del almacn.
+     * Inicializa los candados, las métricas de los puntos de control y el registro de las ventas recientes.<br>
+     * <b>post: </b> No se ha tomado ningún punto de control ni hay ventas recientes.
+     */
+    private void inicializarPuntosControl( )
+    {
+        ventasRecientes = new VentasRecientes( );
+        candado = new StampedLock( );
+        candadoPuntoControl = new Object( );
+        puntoControlSolicitado = new AtomicBoolean( );
+        duracionPuntoControl = -1;
+        capturaPuntoControl = -1;
+    }
+
+    /**
+     * Retorna la categoría raíz del almacén.
+     * @return Categoría raíz del almacén.
      */
     public Categoria darCategoriaRaiz( )
     {
@@ -59,135 +278,1317 @@ public class Almacen
     }
 
     /**
-     * Carga el almacn a partir de la informacin del archivo.<br>
-     * <b>post: </b>Se cargaron los datos del archivo al rbol del almacn.
+     * Carga el almacén a partir de la información del archivo.<br>
+     * <b>post: </b>Se cargaron los datos del archivo al árbol del almacén. El archivo quedó cerrado.
      * @param pArchivo Archivo que contiene los datos. pArchivo != null
-     * @throws AlmacenException Si el archivo no cumple el formato especificado o si ocurre algn error leyendo el archivo.
+     * @param pModoCarga Modo de carga del archivo. pModoCarga = {CARGA_SECUENCIAL, CARGA_MAPEADA, CARGA_PARALELA, CARGA_BINARIA}.
+     * @throws AlmacenException Si el archivo no cumple el formato especificado o si ocurre algún error leyendo el archivo.
+     */
+    private void cargar( File pArchivo, int pModoCarga ) throws AlmacenException
+    {
+        int cantidadNodos = 0;
+        if( pModoCarga == CARGA_PARALELA )
+        {
+            CargadorParalelo cargador = new CargadorParalelo( pArchivo );
+            cargador.diferirDescripciones( descripcionesDiferidas );
+            categoriaRaiz = cargador.cargar( );
+        }
+        else if( pModoCarga == CARGA_BINARIA )
+        {
+            try( LectorBinario lector = new LectorBinario( pArchivo ) )
+            {
+                cantidadNodos = lector.darCantidadNodos( );
+                lector.diferirDescripciones( descripcionesDiferidas );
+                if( lector.leerByte( ) != LectorBinario.TIPO_CATEGORIA )
+                {
+                    throw new AlmacenException( "La raíz de la copia debe ser una categoría." );
+                }
+                categoriaRaiz = new Categoria( lector );
+            }
+            catch( IOException e )
+            {
+                throw new AlmacenException( "Error al leer la copia binaria.\n" + e.getMessage( ) );
+            }
+        }
+        else
+        {
+            try( LectorCatalogo lector = crearLector( pArchivo, pModoCarga ) )
+            {
+                lector.avanzarObligatorio( );
+                categoriaRaiz = new Categoria( lector );
+            }
+            catch( Exception e )
+            {
+                e.printStackTrace(  );
+                throw new AlmacenException( "Error al leer el archivo.\n" + e.getMessage( ) );
+            }
+        }
+        nodos = new HashMap<>( darCapacidad( cantidadNodos ) );
+        productos = new HashMap<>( darCapacidad( categoriaRaiz.darCantidadProductos( ) ) );
+        registrarNodos( categoriaRaiz );
+    }
+
+    /**
+     * Retorna la capacidad inicial de un índice para que pueda guardar la cantidad de elementos dada sin crecer.
+     * @param pCantidad Cantidad de elementos esperada. pCantidad >= 0.
+     * @return Capacidad inicial del índice.
+     */
+    private static int darCapacidad( int pCantidad )
+    {
+        return ( int )( pCantidad / 0.75 ) + 1;
+    }
+
+    /**
+     * Agrega a la categoría raíz un subárbol completo, como los que entrega el cargador progresivo.<br>
+     * <b>post: </b> El nodo es el último hijo de la raíz. Los índices contienen los nodos y productos del subárbol y se actualizaron los totales de la raíz.
+     * @param pNodo Raíz del subárbol, sin padre. pNodo != null.
+     * @throws AlmacenException Si algún identificador o código del subárbol ya existe en el almacén. En ese caso el almacén no se modifica.
+     */
+    public void agregarSubarbol( NodoAlmacen pNodo ) throws AlmacenException
+    {
+        long marca = candado.writeLock( );
+        try
+        {
+            registrarNodos( pNodo );
+            categoriaRaiz.agregarHijo( pNodo );
+        }
+        catch( AlmacenException e )
+        {
+            desregistrarNodos( pNodo );
+            throw e;
+        }
+        finally
+        {
+            candado.unlockWrite( marca );
+        }
+    }
+
+    /**
+     * Detiene los puntos de control en segundo plano y cierra la bitácora y el archivo de las descripciones diferidas, si los hay. Si la bitácora superó su umbral se
+     * toma un último punto de control. Después de cerrarlo no se pueden consultar las descripciones que no estén en memoria y los cambios ya no se registran.<br>
+     * <b>post: </b> La bitácora y el archivo de las descripciones quedaron cerrados.
+     */
+    public void cerrar( )
+    {
+        if( programador != null )
+        {
+            programador.shutdown( );
+            try
+            {
+                programador.awaitTermination( ESPERA_CIERRE, TimeUnit.SECONDS );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+        if( bitacora != null )
+        {
+            if( bitacora.requiereCompactacion( ) )
+            {
+                try
+                {
+                    hacerPuntoControl( );
+                }
+                catch( AlmacenException e )
+                {
+                    // Los cambios siguen en la bitácora y se aplican de nuevo al abrirla
+                }
+            }
+            try
+            {
+                bitacora.close( );
+            }
+            catch( IOException e )
+            {
+                // Cada cambio esperó a que su registro estuviera en el disco, no hay registros pendientes que se puedan perder
+            }
+            bitacora = null;
+        }
+        if( descripcionesDiferidas != null )
+        {
+            try
+            {
+                descripcionesDiferidas.close( );
+            }
+            catch( IOException e )
+            {
+                // El archivo sólo se leía, no hay datos que se puedan perder
+            }
+        }
+    }
+
+    /**
+     * Abre la bitácora dada con el umbral de compactación por defecto. Ver abrirBitacora( File, File, long ).
+     * @param pBase Catálogo del que se cargó el almacén, directamente o a través de su copia binaria. pBase != null.
+     * @param pBitacora Archivo de la bitácora. pBitacora != null.
+     * @throws AlmacenException Si ocurre un error leyendo o escribiendo la bitácora o si alguno de sus cambios no se puede aplicar.
+     */
+    public void abrirBitacora( File pBase, File pBitacora ) throws AlmacenException
+    {
+        abrirBitacora( pBase, pBitacora, Bitacora.UMBRAL_COMPACTACION );
+    }
+
+    /**
+     * Abre la bitácora dada, aplica al almacén los cambios que tiene registrados y registra en ella los cambios siguientes. Cada cambio se registra antes de aplicarse
+     * y el método que lo hace termina cuando el registro está en el disco. Cuando la bitácora supera el umbral dado se compacta con un punto de control en segundo
+     * plano.<br>
+     * <b>pre: </b> El almacén tiene el árbol completo del catálogo base, sin cambios.<br>
+     * <b>post: </b> El almacén tiene los cambios de la bitácora y registra los siguientes.
+     * @param pBase Catálogo del que se cargó el almacén, directamente o a través de su copia binaria. pBase != null.
+     * @param pBitacora Archivo de la bitácora. Si no existe o corresponde a otra versión del catálogo se crea una nueva. pBitacora != null.
+     * @param pUmbral Tamaño de la bitácora en bytes a partir del cual se compacta. pUmbral > 0.
+     * @throws AlmacenException Si el almacén ya tiene una bitácora, si ocurre un error leyendo o escribiendo la bitácora o si alguno de sus cambios no se puede aplicar.
      */
-    private void cargar( File pArchivo ) throws AlmacenException
+    public void abrirBitacora( File pBase, File pBitacora, long pUmbral ) throws AlmacenException
     {
+        if( bitacora != null )
+        {
+            throw new AlmacenException( "El almacén ya tiene una bitácora abierta." );
+        }
         try
         {
-            BufferedReader in = new BufferedReader( new FileReader( pArchivo ) );
-            categoriaRaiz = new Categoria( in.readLine( ), in );
+            // Mientras se aplican los cambios registrados la bitácora todavía no está asignada y no se registran de nuevo
+            bitacora = new Bitacora( pBitacora, pBase, pUmbral, this );
+        }
+        catch( IOException e )
+        {
+            throw new AlmacenException( "Error al abrir la bitácora.\n" + e.getMessage( ) );
         }
-        catch( Exception e )
+        archivoBase = pBase.getAbsoluteFile( );
+        if( bitacora.requiereCompactacion( ) )
         {
-            e.printStackTrace(  );
-            throw new AlmacenException( "Error al leer el archivo.\n" + e.getMessage( ) );
+            compactar( );
+        }
+    }
 
+    /**
+     * Compacta la bitácora con un punto de control. Ver hacerPuntoControl.<br>
+     * <b>pre: </b> El almacén tiene una bitácora abierta.<br>
+     * <b>post: </b> El catálogo base tiene los cambios hasta el punto de control y la bitácora sólo los posteriores.
+     * @throws AlmacenException Si el almacén no tiene bitácora o si ocurre un error guardando el catálogo.
+     */
+    public void compactar( ) throws AlmacenException
+    {
+        if( bitacora == null )
+        {
+            throw new AlmacenException( "El almacén no tiene una bitácora abierta." );
         }
+        hacerPuntoControl( );
     }
 
     /**
-     * Agrega un nuevo nodo a la categora con la ruta dada..<br>
-     * <b>pre:</b> La raz del rbol existe y est inicializada. Existe una categora para la ruta.<br>
-     * <b>post: </b> Se agreg el nodo a la categora dada.
-     * @param pIdPadre Identificador de la categora padre. pIdPadre != null && pIdPadre != "".
-     * @param pTipo Tipo del nodo. pTipo != null && pTipo = {Categoria.TIPO, Marca.TIPO}
-     * @param pIdentificador Identificador nico del nodo. pIdentificador != null && pIdentificador != "".
-     * @param pNombre Nombre del nodo. pNombre != null && pNombre != "".
-     * @throws AlmacenException Si ya existe en el rbol un nodo con el identificador dado.
+     * Toma un punto de control: guarda en el catálogo base el almacén tal como estaba en un momento dado y descarta de la bitácora los cambios que ya contiene.<br>
+     * Los cambios se detienen sólo mientras se copian las categorías y las marcas. Luego el árbol se escribe en este hilo mientras los demás siguen cambiando el
+     * almacén: las marcas copian sus productos antes de agregar o eliminar uno y los productos guardan sus unidades vendidas antes de vender, si todavía no se
+     * escribieron. El catálogo nuevo reemplaza al base después de registrar en la bitácora cuántos cambios contiene, de modo que si el proceso se detiene en
+     * cualquier momento la bitácora sigue sirviendo con el catálogo que quede.<br>
+     * <b>post: </b> El catálogo base tiene los cambios hasta el punto de control y la bitácora sólo los posteriores. Se actualizaron las métricas del punto de control.
+     * @throws AlmacenException Si el almacén no tiene bitácora o si ocurre un error guardando el catálogo o reescribiendo la bitácora.
      */
-    public void agregarNodo( String pIdPadre, String pTipo, String pIdentificador, String pNombre ) throws AlmacenException
+    public void hacerPuntoControl( ) throws AlmacenException
     {
-        categoriaRaiz.agregarNodo( pIdPadre, pTipo, pIdentificador, pNombre );
+        if( bitacora == null )
+        {
+            throw new AlmacenException( "El almacén no tiene una bitácora abierta." );
+        }
+        escribirPuntoControl( archivoBase, bitacora );
     }
 
     /**
-     * Elimina el nodo que est en la ruta indicada.<br>
-     * <b>pre:</b> La categora raz est inicializada. Existe un nodo con el id dado.<br>
-     * <b>post:</b>Se elimin el nodo y todo su subrbol.<br>
-     * @param pIdNodo Identificador nico del nodo. pIdNodo != null && pIdNodo != "".
-     * @return La categora padre del nodo eliminado.
-     * @throws AlmacenException Si el nodo a eliminar es la raz.
+     * Toma un punto de control y lo escribe en el archivo dado. Si se da la bitácora, se registra el punto de control en ella antes de reemplazar el archivo y
+     * después se reescribe con los cambios posteriores.<br>
+     * <b>post: </b> El archivo tiene el almacén tal como estaba al tomar el punto de control. Se actualizaron las métricas del punto de control.
+     * @param pArchivo Archivo del catálogo. Si existe se reemplaza. pArchivo != null.
+     * @param pBitacora Bitácora del catálogo base o null si el archivo no es el catálogo base.
+     * @throws AlmacenException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo o la bitácora.
      */
-    public Categoria eliminarNodo( String pIdNodo ) throws AlmacenException
+    private void escribirPuntoControl( File pArchivo, Bitacora pBitacora ) throws AlmacenException
     {
-        if( categoriaRaiz.identificador.equals( pIdNodo ) )
-            throw new AlmacenException( "No se puede eliminar la raz" );
-        Categoria respuesta = categoriaRaiz.buscarPadre( pIdNodo );
-        categoriaRaiz.eliminarNodo( pIdNodo );
-        return respuesta;
+        synchronized( candadoPuntoControl )
+        {
+            long inicio = System.nanoTime( );
+            PuntoControl punto;
+            long marca = candado.writeLock( );
+            try
+            {
+                punto = new PuntoControl( categoriaRaiz, ++ultimaEpoca );
+                if( pBitacora != null )
+                {
+                    pBitacora.marcarCorte( );
+                }
+                epocaActiva = punto.darEpoca( );
+            }
+            finally
+            {
+                candado.unlockWrite( marca );
+            }
+
+            File temporal = null;
+            try
+            {
+                temporal = File.createTempFile( pArchivo.getName( ), ".tmp", pArchivo.getAbsoluteFile( ).getParentFile( ) );
+                try( EscritorCatalogo escritor = new EscritorCatalogo( temporal ) )
+                {
+                    punto.escribir( escritor );
+                }
+                String identidad = Bitacora.darIdentidad( temporal );
+                if( pBitacora != null )
+                {
+                    pBitacora.registrarPunto( identidad );
+                }
+                Files.move( temporal.toPath( ), pArchivo.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+                temporal = null;
+                if( pBitacora != null )
+                {
+                    pBitacora.recortar( identidad );
+                }
+            }
+            catch( IOException | IllegalStateException e )
+            {
+                if( temporal != null )
+                {
+                    temporal.delete( );
+                }
+                throw new AlmacenException( "Error al guardar el archivo.\n" + e.getMessage( ) );
+            }
+            finally
+            {
+                epocaActiva = 0;
+                punto.liberar( );
+            }
+            capturaPuntoControl = punto.darCaptura( );
+            duracionPuntoControl = ( System.nanoTime( ) - inicio ) / 1000000;
+        }
     }
 
     /**
-     * Vende el producto con el cdigo dado en la cantidad especificada por parmetro.<br>
-     * <b>pre:</b> La categora raz est inicializada. Existe el producto con el cdigo dado.<br>
-     * <b>post: </b> Se vendi el producto especificado en la cantidad dada.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
-     * @param pCantidad Cantidad de unidades que se vendern. pCantidad > 0.
+     * Toma puntos de control en segundo plano cada vez que pasa el intervalo dado desde el último, hasta que se cierre el almacén.<br>
+     * <b>pre: </b> El almacén tiene una bitácora abierta.<br>
+     * <b>post: </b> Se programaron los puntos de control.
+     * @param pIntervalo Tiempo entre el final de un punto de control y el comienzo del siguiente, en milisegundos. pIntervalo > 0.
      */
-    public void venderProducto( String pCodigo, int pCantidad )
+    public void programarPuntosControl( long pIntervalo )
     {
-        categoriaRaiz.buscarProducto( pCodigo ).vender( pCantidad );
+        darProgramador( ).scheduleWithFixedDelay( this::hacerPuntoControlProgramado, pIntervalo, pIntervalo, TimeUnit.MILLISECONDS );
     }
 
     /**
-     * Retorna el nodo con el identificador dado.<br>
-     * <b>pre: </b> La categora raz est inicializada.
-     * @param pIdNodo Identificador nico del nodo. pIdNodo != null.
-     * @return El nodo encontrado o null si no existe.
+     * Pide un punto de control en segundo plano, si no hay otro pedido que todavía no haya empezado.
      */
-    public NodoAlmacen buscarNodo( String pIdNodo )
+    private void solicitarPuntoControl( )
     {
-        return categoriaRaiz.buscarNodo( pIdNodo );
+        if( puntoControlSolicitado.compareAndSet( false, true ) )
+        {
+            darProgramador( ).execute( ( ) -> {
+                puntoControlSolicitado.set( false );
+                hacerPuntoControlProgramado( );
+            } );
+        }
     }
 
     /**
-     * Agrega un nuevo producto de la marca dada con la informacin dada por parmetro.<br>
-     * <b>pre:</b> La categora raz est inicializada. Existe la marca con el identificador dado.<br>
-     * <b>post:</b> Se agreg un nuevo producto a la marca.<br>
-     * @param pIdMarca Identificador de la marca del producto. pIdMarca != null && pIdMarca != "".
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
-     * @param pNombre Nombre del producto. pNombre != null && pNombre != "".
-     * @param pDescripcion Descripcin del producto. pDescripcion != null && pDescripcion != "".
-     * @param pPrecio Precio del producto. pPrecio > 0.
-     * @throws AlmacenException Si ya existe un producto con el cdigo dado.
+     * Toma un punto de control en el hilo del programador. Si falla, el error queda disponible en darErrorPuntoControl y los cambios siguen en la bitácora.
      */
-    public void agregarProducto( String pIdMarca, String pCodigo, String pNombre, String pDescripcion, double pPrecio ) throws AlmacenException
+    private void hacerPuntoControlProgramado( )
+    {
+        try
+        {
+            if( bitacora != null )
+            {
+                hacerPuntoControl( );
+                errorPuntoControl = null;
+            }
+        }
+        catch( AlmacenException e )
+        {
+            errorPuntoControl = e.getMessage( );
+        }
+    }
+
+    /**
+     * Retorna el programador de los puntos de control en segundo plano, creándolo la primera vez.
+     * @return Programador con un solo hilo de baja prioridad que no impide terminar la aplicación.
+     */
+    private synchronized ScheduledExecutorService darProgramador( )
     {
-        if(categoriaRaiz.buscarProducto( pCodigo ) != null ){
-            throw new AlmacenException( "Ya existe un producto con codigo "+ pCodigo);
+        if( programador == null )
+        {
+            programador = Executors.newSingleThreadScheduledExecutor( tarea -> {
+                Thread hilo = new Thread( tarea, "Puntos de control" );
+                hilo.setDaemon( true );
+                hilo.setPriority( Thread.MIN_PRIORITY );
+                return hilo;
+            } );
         }
-        ((Marca)buscarNodo( pIdMarca )).agregarProducto( pCodigo, pNombre, pDescripcion, pPrecio );
+        return programador;
     }
-    
+
+    /**
+     * Retorna la duración del último punto de control terminado, desde que se detuvieron los cambios hasta que la bitácora quedó reescrita.
+     * @return Duración en milisegundos o -1 si no se ha terminado ningún punto de control.
+     */
+    public long darDuracionPuntoControl( )
+    {
+        return duracionPuntoControl;
+    }
+
+    /**
+     * Retorna el retraso del catálogo guardado, es decir el tiempo que ha pasado desde el momento que refleja el último punto de control terminado.
+     * @return Retraso en milisegundos o -1 si no se ha terminado ningún punto de control.
+     */
+    public long darRetrasoPuntoControl( )
+    {
+        long captura = capturaPuntoControl;
+        return captura < 0 ? -1 : System.currentTimeMillis( ) - captura;
+    }
+
+    /**
+     * Retorna el error del último punto de control en segundo plano, si falló.
+     * @return Mensaje del error o null si el último punto de control en segundo plano terminó bien o no se ha tomado ninguno.
+     */
+    public String darErrorPuntoControl( )
+    {
+        return errorPuntoControl;
+    }
+
     /**
-     * Elimina el producto con el cdigo dado por parmetro.<br>
-     * <b>pre: </b> La categora raz est inicializada y existe el producto con el cdigo dado.
-     * <b>post: </b>Se elimin el producto.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * Registra en la bitácora, si la hay, el cambio con los campos dados.
+     * @param pCampos Operación y datos del cambio. pCampos != null.
+     * @return Número del registro o 0 si no hay bitácora.
+     * @throws AlmacenException Si el almacén dejó de aceptar cambios porque falló la bitácora, si algún dato no se puede guardar en la bitácora o si la bitácora no
+     *         puede recibir registros.
      */
-    public void eliminarProducto(String pCodigo){
-        for(Marca marca: categoriaRaiz.darMarcas( ) ){
-            if(marca.buscarProducto( pCodigo )!=null){
-                marca.eliminarProducto( pCodigo );
-                break;
+    private long registrarCambio( String... pCampos ) throws AlmacenException
+    {
+        if( errorBitacora != null )
+        {
+            throw new AlmacenException( "El almacén no acepta más cambios porque falló la bitácora.\n" + errorBitacora );
+        }
+        long registro = 0;
+        if( bitacora != null )
+        {
+            try
+            {
+                registro = bitacora.registrar( pCampos );
+            }
+            catch( IOException e )
+            {
+                throw new AlmacenException( "Error al registrar el cambio en la bitácora.\n" + e.getMessage( ) );
             }
         }
+        return registro;
     }
-    
-    // -----------------------------------------------------------------
-    // Puntos de Extensin
-    // -----------------------------------------------------------------
 
     /**
-     * Mtodo para la extensin 1
-     * @return respuesta1
+     * Espera a que el registro dado esté en el disco y pide un punto de control en segundo plano si la bitácora superó su umbral.<br>
+     * El cambio ya se aplicó y otros hilos lo pueden ver. Si no se puede confirmar que su registro esté en el disco no se deshace: el almacén deja de aceptar
+     * cambios, porque los siguientes tampoco se podrían registrar, y la excepción indica que el cambio se aplicó pero se puede perder al cerrar el almacén.
+     * @param pRegistro Número del registro retornado por registrarCambio.
+     * @throws AlmacenException Si no se pudo confirmar que el registro esté en el disco. El cambio quedó aplicado en memoria.
      */
-    public String metodo1( )
+    private void confirmarCambio( long pRegistro ) throws AlmacenException
     {
-        return "Respuesta 1";
+        if( bitacora != null )
+        {
+            try
+            {
+                bitacora.esperar( pRegistro );
+            }
+            catch( IOException e )
+            {
+                errorBitacora = e.getMessage( );
+                throw new AlmacenException( "El cambio se aplicó pero no se pudo confirmar su registro en la bitácora, así que se puede perder al cerrar el almacén. El "
+                        + "almacén no acepta más cambios.\n" + e.getMessage( ) );
+            }
+            if( bitacora.requiereCompactacion( ) )
+            {
+                solicitarPuntoControl( );
+            }
+        }
     }
 
     /**
-     * Mtodo para la extensin2
-     * @return respuesta2
+     * Aplica el cambio del registro actual de la bitácora.
+     * @param pLector Lector de la bitácora ubicado en el registro. El campo 0 es el CRC y el campo 1 la operación. pLector != null.
+     * @throws AlmacenException Si el registro no tiene el formato de su operación o si el cambio no se puede aplicar.
      */
-    public String metodo2( )
+    void aplicarCambio( LectorCatalogo pLector ) throws AlmacenException
+    {
+        if( pLector.campoEs( 1, Bitacora.VENDER ) )
+        {
+            // La bitácora no guarda el instante de las ventas, así que no cuentan como ventas recientes
+            venderProducto( pLector.darCampo( 2 ), pLector.darCantidad( 3 ), false );
+        }
+        else if( pLector.campoEs( 1, Bitacora.AGREGAR_NODO ) )
+        {
+            agregarNodo( pLector.darCampo( 2 ), pLector.darCampo( 3 ), pLector.darCampo( 4 ), pLector.darCampo( 5 ) );
+        }
+        else if( pLector.campoEs( 1, Bitacora.ELIMINAR_NODO ) )
+        {
+            eliminarNodo( pLector.darCampo( 2 ) );
+        }
+        else if( pLector.campoEs( 1, Bitacora.AGREGAR_PRODUCTO ) )
+        {
+            agregarProducto( pLector.darCampo( 2 ), pLector.darCampo( 3 ), pLector.darCampo( 4 ), pLector.darCampo( 5 ), pLector.darDecimal( 6 ) );
+        }
+        else if( pLector.campoEs( 1, Bitacora.ELIMINAR_PRODUCTO ) )
+        {
+            eliminarProducto( pLector.darCampo( 2 ) );
+        }
+        else
+        {
+            throw new AlmacenException( pLector.darCampo( 1 ) + " no es una operación de la bitácora." );
+        }
+    }
+
+    /**
+     * Guarda el almacén en el archivo dado con el formato de texto del catálogo, de modo que se puede cargar con cualquiera de los modos de texto.<br>
+     * El árbol se escribe a partir de un punto de control en un archivo temporal del mismo directorio, que se fuerza al disco y luego reemplaza al archivo dado en
+     * un solo paso, así que los cambios pueden seguir mientras se guarda. Si ocurre un error el archivo dado no se modifica. Si el archivo es el catálogo base de la
+     * bitácora, la bitácora se recorta porque el catálogo ya tiene sus cambios.<br>
+     * <b>post: </b> El archivo contiene el árbol del almacén.
+     * @param pArchivo Archivo del catálogo. Si existe se reemplaza. pArchivo != null.
+     * @throws AlmacenException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo.
+     */
+    public void guardar( File pArchivo ) throws AlmacenException
     {
-        return "Respuesta 2";
-    }   
+        boolean esBase = bitacora != null && pArchivo.getAbsoluteFile( ).equals( archivoBase );
+        escribirPuntoControl( pArchivo, esBase ? bitacora : null );
+    }
+
+    /**
+     * Guarda el almacén en una copia binaria que se puede cargar con el modo CARGA_BINARIA.<br>
+     * <b>post: </b> El archivo contiene la copia del árbol del almacén.
+     * @param pArchivo Archivo de la copia. Si existe se reemplaza. pArchivo != null.
+     * @throws AlmacenException Si ocurre un error escribiendo el archivo.
+     */
+    public void guardarCopiaBinaria( File pArchivo ) throws AlmacenException
+    {
+        long marca = candado.readLock( );
+        try( EscritorBinario escritor = new EscritorBinario( pArchivo, nodos.size( ), productos.size( ) ) )
+        {
+            categoriaRaiz.escribir( escritor );
+        }
+        catch( IOException e )
+        {
+            throw new AlmacenException( "Error al guardar la copia binaria.\n" + e.getMessage( ) );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Crea el lector del archivo para el modo de carga dado.
+     * @param pArchivo Archivo que contiene los datos. pArchivo != null
+     * @param pModoCarga Modo de carga del archivo. pModoCarga = {CARGA_SECUENCIAL, CARGA_MAPEADA, CARGA_PARALELA, CARGA_BINARIA}.
+     * @return Lector del catálogo sin registro actual.
+     * @throws IOException Si ocurre un error abriendo el archivo.
+     */
+    private LectorCatalogo crearLector( File pArchivo, int pModoCarga ) throws IOException
+    {
+        LectorCatalogo lector;
+        if( pModoCarga == CARGA_MAPEADA )
+        {
+            LectorCatalogoMapeado mapeado = new LectorCatalogoMapeado( pArchivo );
+            mapeado.diferirDescripciones( descripcionesDiferidas );
+            lector = mapeado;
+        }
+        else
+        {
+            lector = new LectorCatalogo( new BufferedReader( new InputStreamReader( new FileInputStream( pArchivo ), LectorCatalogo.CODIFICACION ) ) );
+        }
+        return lector;
+    }
+
+    /**
+     * Agrega un nuevo nodo a la categoría con la ruta dada..<br>
+     * <b>pre:</b> La raíz del árbol existe y está inicializada. Existe una categoría para la ruta.<br>
+     * <b>post: </b> Se agregó el nodo a la categoría dada.
+     * @param pIdPadre Identificador de la categoría padre. pIdPadre != null && pIdPadre != "".
+     * @param pTipo Tipo del nodo. pTipo != null && pTipo = {Categoria.TIPO, Marca.TIPO}
+     * @param pIdentificador Identificador único del nodo. pIdentificador != null && pIdentificador != "".
+     * @param pNombre Nombre del nodo. pNombre != null && pNombre != "".
+     * @throws AlmacenException Si ya existe en el árbol un nodo con el identificador dado o si no se pudo registrar el cambio en la bitácora.
+     */
+    public void agregarNodo( String pIdPadre, String pTipo, String pIdentificador, String pNombre ) throws AlmacenException
+    {
+        long registro;
+        long marca = candado.writeLock( );
+        try
+        {
+            if( nodos.containsKey( pIdentificador ) )
+            {
+                throw new AlmacenException( "Ya existe un nodo en el árbol con el identificador " + pIdentificador );
+            }
+            NodoAlmacen padre = nodos.get( pIdPadre );
+            if( !( padre instanceof Categoria ) )
+            {
+                throw new AlmacenException( "No existe una categoría con el identificador " + pIdPadre );
+            }
+            registro = registrarCambio( Bitacora.AGREGAR_NODO, pIdPadre, pTipo, pIdentificador, pNombre );
+            NodoAlmacen nuevo = pTipo.equals( Categoria.TIPO ) ? new Categoria( pIdentificador, pNombre ) : new Marca( pIdentificador, pNombre );
+            ( ( Categoria )padre ).agregarHijo( nuevo );
+            nodos.put( pIdentificador, nuevo );
+        }
+        finally
+        {
+            candado.unlockWrite( marca );
+        }
+        confirmarCambio( registro );
+    }
+
+    /**
+     * Elimina el nodo que está en la ruta indicada.<br>
+     * <b>pre:</b> La categoría raíz está inicializada. Existe un nodo con el id dado.<br>
+     * <b>post:</b>Se eliminó el nodo y todo su subárbol.<br>
+     * @param pIdNodo Identificador único del nodo. pIdNodo != null && pIdNodo != "".
+     * @return La categoría padre del nodo eliminado o null si no existe el nodo.
+     * @throws AlmacenException Si el nodo a eliminar es la raíz o si no se pudo registrar el cambio en la bitácora.
+     */
+    public Categoria eliminarNodo( String pIdNodo ) throws AlmacenException
+    {
+        if( categoriaRaiz.identificador.equals( pIdNodo ) )
+            throw new AlmacenException( "No se puede eliminar la raíz" );
+        Categoria respuesta = null;
+        long registro = 0;
+        long marca = candado.writeLock( );
+        try
+        {
+            NodoAlmacen eliminado = nodos.get( pIdNodo );
+            if( eliminado != null )
+            {
+                registro = registrarCambio( Bitacora.ELIMINAR_NODO, pIdNodo );
+                respuesta = eliminado.darPadre( );
+                ventasRecientes.quitar( eliminado );
+                respuesta.eliminarHijo( eliminado );
+                desregistrarNodos( eliminado );
+            }
+        }
+        finally
+        {
+            candado.unlockWrite( marca );
+        }
+        confirmarCambio( registro );
+        return respuesta;
+    }
+
+    /**
+     * Vende el producto con el código dado en la cantidad especificada por parámetro.<br>
+     * <b>pre:</b> La categoría raíz está inicializada. Existe el producto con el código dado.<br>
+     * <b>post: </b> Se vendió el producto especificado en la cantidad dada.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
+     * @param pCantidad Cantidad de unidades que se venderán. pCantidad > 0.
+     * @throws AlmacenException Si la cantidad no es positiva, si no existe el producto, si la venta desborda los totales o si no se pudo registrar el cambio en la
+     *         bitácora.
+     */
+    public void venderProducto( String pCodigo, int pCantidad ) throws AlmacenException
+    {
+        venderProducto( pCodigo, pCantidad, true );
+    }
+
+    /**
+     * Vende el producto con el código dado en la cantidad especificada por parámetro y, si se indica, la registra como venta reciente en este instante.<br>
+     * <b>pre:</b> La categoría raíz está inicializada.<br>
+     * <b>post: </b> Se vendió el producto especificado en la cantidad dada.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
+     * @param pCantidad Cantidad de unidades que se venderán. pCantidad > 0.
+     * @param pReciente Indica si la venta se suma a las ventas recientes.
+     * @throws AlmacenException Si la cantidad no es positiva, si no existe el producto, si la venta desborda los totales o si no se pudo registrar el cambio en la
+     *         bitácora.
+     */
+    private void venderProducto( String pCodigo, int pCantidad, boolean pReciente ) throws AlmacenException
+    {
+        if( pCantidad <= 0 )
+        {
+            throw new AlmacenException( "La cantidad vendida del producto " + pCodigo + " debe ser positiva." );
+        }
+        long registro;
+        long marca = candado.readLock( );
+        try
+        {
+            Producto producto = productos.get( pCodigo );
+            if( producto == null )
+            {
+                throw new AlmacenException( "No existe un producto con codigo " + pCodigo );
+            }
+            verificarVenta( producto, pCantidad, 0 );
+            registro = registrarCambio( Bitacora.VENDER, pCodigo, Integer.toString( pCantidad ) );
+            int epoca = epocaActiva;
+            if( epoca == 0 )
+            {
+                producto.vender( pCantidad );
+            }
+            else
+            {
+                // El hilo del punto de control lee las unidades vendidas del producto sincronizando sobre él
+                synchronized( producto )
+                {
+                    producto.conservarVentas( epoca );
+                    producto.vender( pCantidad );
+                }
+            }
+            if( pReciente )
+            {
+                ventasRecientes.registrar( producto, pCantidad );
+            }
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+        confirmarCambio( registro );
+    }
+
+    /**
+     * Vende un lote de líneas de venta, como las que envía una caja. Las cantidades de las líneas con el mismo código se suman, cada producto se busca una sola vez
+     * y se registra en la bitácora con su cantidad total, y los totales de cada marca y de cada categoría afectada se actualizan una sola vez para todo el lote.<br>
+     * Una línea que no se puede vender no impide vender las demás: su resultado es el mensaje del error.<br>
+     * <b>pre:</b> La categoría raíz está inicializada.<br>
+     * <b>post: </b> Se vendieron los productos de las líneas cuyo resultado es null.
+     * @param pVentas Líneas de venta. pVentas != null.
+     * @return Resultado de cada línea en el orden del lote: null si se vendió o el mensaje de por qué no se vendió.
+     * @throws AlmacenException Si no se pudo escribir en el disco el registro de las ventas en la bitácora.
+     */
+    public List<String> venderProductos( Collection<Venta> pVentas ) throws AlmacenException
+    {
+        List<String> resultados = new ArrayList<>( );
+        Map<String, Integer> cantidades = new LinkedHashMap<>( );
+        for( Venta venta : pVentas )
+        {
+            String error = null;
+            Integer total = cantidades.get( venta.darCodigo( ) );
+            if( venta.darCantidad( ) <= 0 )
+            {
+                error = "La cantidad vendida del producto " + venta.darCodigo( ) + " debe ser positiva.";
+            }
+            else if( total != null && total > Integer.MAX_VALUE - venta.darCantidad( ) )
+            {
+                error = "La cantidad vendida del producto " + venta.darCodigo( ) + " supera el máximo de una venta.";
+            }
+            else
+            {
+                cantidades.put( venta.darCodigo( ), total == null ? venta.darCantidad( ) : total + venta.darCantidad( ) );
+            }
+            resultados.add( error );
+        }
+
+        Map<String, String> errores = new HashMap<>( );
+        long registro = 0;
+        long marca = candado.readLock( );
+        try
+        {
+            Map<Marca, Map<Producto, Integer>> ventasMarcas = new LinkedHashMap<>( );
+            long valorLote = 0;
+            int epoca = epocaActiva;
+            for( Map.Entry<String, Integer> cantidad : cantidades.entrySet( ) )
+            {
+                Producto producto = productos.get( cantidad.getKey( ) );
+                if( producto == null )
+                {
+                    errores.put( cantidad.getKey( ), "No existe un producto con codigo " + cantidad.getKey( ) );
+                }
+                else
+                {
+                    try
+                    {
+                        long valor = verificarVenta( producto, cantidad.getValue( ), valorLote );
+                        registro = registrarCambio( Bitacora.VENDER, cantidad.getKey( ), Integer.toString( cantidad.getValue( ) ) );
+                        valorLote += valor;
+                        if( epoca == 0 )
+                        {
+                            producto.sumarUnidades( cantidad.getValue( ) );
+                        }
+                        else
+                        {
+                            synchronized( producto )
+                            {
+                                producto.conservarVentas( epoca );
+                                producto.sumarUnidades( cantidad.getValue( ) );
+                            }
+                        }
+                        ventasMarcas.computeIfAbsent( producto.darMarca( ), m -> new LinkedHashMap<>( ) ).put( producto, cantidad.getValue( ) );
+                        ventasRecientes.registrar( producto, cantidad.getValue( ) );
+                    }
+                    catch( AlmacenException e )
+                    {
+                        errores.put( cantidad.getKey( ), e.getMessage( ) );
+                    }
+                }
+            }
+            sumarVentas( ventasMarcas );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+        confirmarCambio( registro );
+
+        int i = 0;
+        for( Venta venta : pVentas )
+        {
+            if( resultados.get( i ) == null )
+            {
+                resultados.set( i, errores.get( venta.darCodigo( ) ) );
+            }
+            i++;
+        }
+        return resultados;
+    }
+
+    /**
+     * Verifica que la venta dada se pueda sumar a las unidades del producto y a los valores de las ventas sin desbordarlos. Como los precios son mayores a 0, el
+     * total de la raíz acota los de todos los nodos y basta con verificar ese. Las ventas simultáneas de otros hilos no se tienen en cuenta, así que la verificación
+     * es exacta mientras el total esté lejos del máximo, que en centavos equivale a más de 9 * 10^16 pesos.
+     * @param pProducto Producto vendido. pProducto != null.
+     * @param pCantidad Cantidad de unidades vendidas. pCantidad > 0.
+     * @param pValorPendiente Valor en centavos de las ventas del mismo lote que todavía no se han sumado a la raíz. pValorPendiente >= 0.
+     * @return Valor de la venta en centavos.
+     * @throws AlmacenException Si las unidades vendidas del producto o el valor de la venta o de las ventas del almacén desbordan.
+     */
+    private long verificarVenta( Producto pProducto, int pCantidad, long pValorPendiente ) throws AlmacenException
+    {
+        try
+        {
+            Math.addExact( pProducto.darCantidadUnidadesVendidas( ), pCantidad );
+            long valor = Math.multiplyExact( pProducto.darPrecioCentavos( ), ( long )pCantidad );
+            Math.addExact( Math.addExact( categoriaRaiz.darValorVentasCentavos( ), pValorPendiente ), valor );
+            return valor;
+        }
+        catch( ArithmeticException e )
+        {
+            throw new AlmacenException( "La venta del producto " + pProducto.darCodigo( ) + " supera el máximo que se puede registrar." );
+        }
+    }
+
+    /**
+     * Suma las ventas de un lote a los totales de sus marcas y de las categorías ancestro de ellas. Cada categoría recibe una sola suma con las ventas de todas
+     * las marcas de su subárbol.<br>
+     * <b>pre: </b> El hilo tiene el candado de lectura. Los productos del lote ya sumaron sus unidades vendidas.
+     * @param pVentasMarcas Cantidad vendida de cada producto del lote, agrupada por marca. pVentasMarcas != null.
+     */
+    private void sumarVentas( Map<Marca, Map<Producto, Integer>> pVentasMarcas )
+    {
+        Map<Categoria, Long> valores = new LinkedHashMap<>( );
+        Map<Categoria, Long> unidades = new HashMap<>( );
+        for( Map.Entry<Marca, Map<Producto, Integer>> ventasMarca : pVentasMarcas.entrySet( ) )
+        {
+            long valor = ventasMarca.getKey( ).sumarVentas( ventasMarca.getValue( ) );
+            long unidadesMarca = 0;
+            for( int cantidad : ventasMarca.getValue( ).values( ) )
+            {
+                unidadesMarca += cantidad;
+            }
+            for( Categoria actual = ventasMarca.getKey( ).darPadre( ); actual != null; actual = actual.darPadre( ) )
+            {
+                valores.merge( actual, valor, Long::sum );
+                unidades.merge( actual, unidadesMarca, Long::sum );
+            }
+        }
+        for( Map.Entry<Categoria, Long> valor : valores.entrySet( ) )
+        {
+            valor.getKey( ).sumarVentas( valor.getValue( ), unidades.get( valor.getKey( ) ) );
+        }
+    }
+
+    /**
+     * Retorna el nodo con el identificador dado.<br>
+     * <b>pre: </b> La categoría raíz está inicializada.
+     * @param pIdNodo Identificador único del nodo. pIdNodo != null.
+     * @return El nodo encontrado o null si no existe.
+     */
+    public NodoAlmacen buscarNodo( String pIdNodo )
+    {
+        return recorrer( ( ) -> nodos.get( pIdNodo ) );
+    }
+
+    /**
+     * Retorna el producto con el código dado.<br>
+     * <b>pre: </b> La categoría raíz está inicializada.
+     * @param pCodigo Código del producto. pCodigo != null.
+     * @return El producto encontrado o null si no existe.
+     */
+    public Producto buscarProducto( String pCodigo )
+    {
+        return recorrer( ( ) -> productos.get( pCodigo ) );
+    }
+
+    /**
+     * Retorna el valor total de las ventas del almacén.
+     * @return Valor de las ventas de la categoría raíz.
+     */
+    public double darValorVentas( )
+    {
+        return leer( categoriaRaiz::darValorVentas );
+    }
+
+    /**
+     * Retorna el valor total de las ventas del almacén en centavos.
+     * @return Valor de las ventas de la categoría raíz en centavos.
+     */
+    public long darValorVentasCentavos( )
+    {
+        return leer( categoriaRaiz::darValorVentasCentavos );
+    }
+
+    /**
+     * Retorna la cantidad total de unidades vendidas del almacén.
+     * @return Unidades vendidas de la categoría raíz.
+     */
+    public long darCantidadUnidadesVendidas( )
+    {
+        return leer( categoriaRaiz::darCantidadUnidadesVendidas );
+    }
+
+    /**
+     * Retorna la cantidad de productos del almacén.
+     * @return Cantidad de productos de la categoría raíz.
+     */
+    public int darCantidadProductos( )
+    {
+        return leer( categoriaRaiz::darCantidadProductos );
+    }
+
+    /**
+     * Retorna los nodos del árbol del almacén en preorden.
+     * @return Lista con todos los nodos del árbol.
+     */
+    public List<NodoAlmacen> darPreorden( )
+    {
+        return recorrer( categoriaRaiz::darPreorden );
+    }
+
+    /**
+     * Retorna los nodos del árbol del almacén en posorden.
+     * @return Lista con todos los nodos del árbol.
+     */
+    public List<NodoAlmacen> darPosorden( )
+    {
+        return recorrer( categoriaRaiz::darPosorden );
+    }
+
+    /**
+     * Retorna todos los productos del almacén.
+     * @return Lista con los productos de todas las marcas.
+     */
+    public List<Producto> darProductos( )
+    {
+        return recorrer( categoriaRaiz::darProductos );
+    }
+
+    /**
+     * Retorna el resumen de los productos del subárbol del nodo dado: cantidad de productos, unidades vendidas, valor de las ventas y precios mínimo, máximo y
+     * promedio. Se calcula recorriendo todos los productos, en paralelo si se pide, y el resultado es el mismo en los dos modos. El recorrido toma el candado de
+     * lectura, así que los cambios de la estructura esperan a que termine; si hay ventas mientras tanto, cada producto aporta las unidades que tenía al recorrerlo.
+     * @param pIdNodo Identificador del nodo. pIdNodo != null.
+     * @param pParalelo Indica si el subárbol se recorre en paralelo en el pool común, dividido por subárboles hijos.
+     * @return Resumen de los productos del subárbol o null si no existe el nodo.
+     */
+    public ResumenSubarbol darResumen( String pIdNodo, boolean pParalelo )
+    {
+        long marca = candado.readLock( );
+        try
+        {
+            NodoAlmacen nodo = nodos.get( pIdNodo );
+            return nodo == null ? null : pParalelo ? new AgregadorParalelo( ).darResumen( nodo ) : nodo.darResumen( );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Retorna los productos que más han vendido del subárbol del nodo dado. Cada nodo mantiene sus más vendidos a medida que se vende, así que la consulta no
+     * recorre el subárbol.
+     * @param pIdNodo Identificador del nodo. pIdNodo != null.
+     * @param pCantidad Cantidad de productos pedida. 0 <= pCantidad <= NodoAlmacen.MAXIMO_MAS_VENDIDOS.
+     * @return Lista con a lo sumo pCantidad productos, del que más vendió al que menos, o null si no existe el nodo.
+     */
+    public List<Producto> darMasVendidos( String pIdNodo, int pCantidad )
+    {
+        return recorrer( ( ) -> {
+            NodoAlmacen nodo = nodos.get( pIdNodo );
+            return nodo == null ? null : nodo.darMasVendidos( pCantidad );
+        } );
+    }
+
+    /**
+     * Retorna las unidades vendidas en el subárbol del nodo dado durante el periodo reciente de la duración dada, por ejemplo ContadorVentana.HORA. La duración
+     * se redondea a las casillas de minutos, horas o días de ContadorVentana, y la consulta no depende del tamaño del subárbol. Sólo cuentan las ventas hechas
+     * desde que se creó el almacén, no las de la bitácora.
+     * @param pIdNodo Identificador del nodo. pIdNodo != null.
+     * @param pDuracion Duración del periodo en milisegundos.
+     * @return Unidades vendidas en el periodo.
+     * @throws AlmacenException Si no existe el nodo o si la duración no es positiva o supera ContadorVentana.DURACION_MAXIMA.
+     */
+    public long darUnidadesRecientes( String pIdNodo, long pDuracion ) throws AlmacenException
+    {
+        verificarDuracion( pDuracion );
+        long marca = candado.readLock( );
+        try
+        {
+            return ventasRecientes.darUnidades( buscarNodoReciente( pIdNodo ), pDuracion );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Retorna el valor en centavos de las ventas del subárbol del nodo dado durante el periodo reciente de la duración dada. Ver darUnidadesRecientes.
+     * @param pIdNodo Identificador del nodo. pIdNodo != null.
+     * @param pDuracion Duración del periodo en milisegundos.
+     * @return Valor de las ventas del periodo en centavos.
+     * @throws AlmacenException Si no existe el nodo o si la duración no es positiva o supera ContadorVentana.DURACION_MAXIMA.
+     */
+    public long darValorVentasRecientesCentavos( String pIdNodo, long pDuracion ) throws AlmacenException
+    {
+        verificarDuracion( pDuracion );
+        long marca = candado.readLock( );
+        try
+        {
+            return ventasRecientes.darValor( buscarNodoReciente( pIdNodo ), pDuracion );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Retorna las unidades vendidas del producto dado durante el periodo reciente de la duración dada. Ver darUnidadesRecientes.
+     * @param pCodigo Código del producto. pCodigo != null.
+     * @param pDuracion Duración del periodo en milisegundos.
+     * @return Unidades vendidas en el periodo.
+     * @throws AlmacenException Si no existe el producto o si la duración no es positiva o supera ContadorVentana.DURACION_MAXIMA.
+     */
+    public long darUnidadesRecientesProducto( String pCodigo, long pDuracion ) throws AlmacenException
+    {
+        verificarDuracion( pDuracion );
+        long marca = candado.readLock( );
+        try
+        {
+            Producto producto = productos.get( pCodigo );
+            if( producto == null )
+            {
+                throw new AlmacenException( "No existe un producto con codigo " + pCodigo );
+            }
+            return ventasRecientes.darUnidades( producto, pDuracion );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Verifica que la duración dada se pueda consultar en las ventas recientes.
+     * @param pDuracion Duración en milisegundos.
+     * @throws AlmacenException Si la duración no es positiva o supera ContadorVentana.DURACION_MAXIMA.
+     */
+    private void verificarDuracion( long pDuracion ) throws AlmacenException
+    {
+        if( pDuracion <= 0 || pDuracion > ContadorVentana.DURACION_MAXIMA )
+        {
+            throw new AlmacenException( "La duración del periodo debe estar entre 1 y " + ContadorVentana.DURACION_MAXIMA + " milisegundos." );
+        }
+    }
+
+    /**
+     * Busca el nodo de una consulta de ventas recientes.<br>
+     * <b>pre: </b> El hilo tiene el candado de lectura.
+     * @param pIdNodo Identificador del nodo. pIdNodo != null.
+     * @return Nodo con el identificador dado.
+     * @throws AlmacenException Si no existe el nodo.
+     */
+    private NodoAlmacen buscarNodoReciente( String pIdNodo ) throws AlmacenException
+    {
+        NodoAlmacen nodo = nodos.get( pIdNodo );
+        if( nodo == null )
+        {
+            throw new AlmacenException( "No existe un nodo con el identificador " + pIdNodo );
+        }
+        return nodo;
+    }
+
+    /**
+     * Retorna todos los productos del almacén, recorriendo las marcas en paralelo si se pide. La lista es la misma, en el mismo orden, en los dos modos.
+     * @param pParalelo Indica si el árbol se recorre en paralelo, dividido por subárboles hijos.
+     * @return Lista con los productos de todas las marcas.
+     */
+    public List<Producto> darProductos( boolean pParalelo )
+    {
+        long marca = candado.readLock( );
+        try
+        {
+            return pParalelo ? new AgregadorParalelo( ).darProductos( categoriaRaiz ) : categoriaRaiz.darProductos( );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Hace una consulta que sólo lee campos de la categoría raíz. Primero se lee sin candado y, si un cambio empezó mientras tanto, se lee de nuevo con el candado
+     * de lectura. Una lectura sin candado puede ver un cambio a medias, así que la consulta no debe recorrer estructuras que otro hilo modifica, como los índices,
+     * las listas de hijos o los enlaces del árbol: para eso está recorrer.<br>
+     * <b>pre: </b> El hilo no tiene el candado del almacén.
+     * @param pConsulta Consulta que sólo lee campos de la categoría raíz. pConsulta != null.
+     * @return Resultado de la consulta, consistente con algún momento entre los cambios.
+     */
+    private <T> T leer( Supplier<T> pConsulta )
+    {
+        long marca = candado.tryOptimisticRead( );
+        if( marca != 0 )
+        {
+            try
+            {
+                T respuesta = pConsulta.get( );
+                if( candado.validate( marca ) )
+                {
+                    return respuesta;
+                }
+            }
+            catch( RuntimeException e )
+            {
+                // La lectura vio un cambio a medias, se repite con el candado
+            }
+        }
+        return recorrer( pConsulta );
+    }
+
+    /**
+     * Hace una consulta sobre el árbol o los índices con el candado de lectura, de modo que ningún cambio de la estructura ocurre mientras tanto. Las ventas sí
+     * pueden ocurrir y cada producto aporta las unidades que tenía al consultarlo.<br>
+     * <b>pre: </b> El hilo no tiene el candado del almacén.
+     * @param pConsulta Consulta que sólo lee el árbol y los índices. pConsulta != null.
+     * @return Resultado de la consulta.
+     */
+    private <T> T recorrer( Supplier<T> pConsulta )
+    {
+        long marca = candado.readLock( );
+        try
+        {
+            return pConsulta.get( );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Agrega un nuevo producto de la marca dada con la información dada por parámetro.<br>
+     * <b>pre:</b> La categoría raíz está inicializada. Existe la marca con el identificador dado.<br>
+     * <b>post:</b> Se agregó un nuevo producto a la marca.<br>
+     * @param pIdMarca Identificador de la marca del producto. pIdMarca != null && pIdMarca != "".
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
+     * @param pNombre Nombre del producto. pNombre != null && pNombre != "".
+     * @param pDescripcion Descripción del producto. pDescripcion != null && pDescripcion != "".
+     * @param pPrecio Precio del producto en pesos, que se redondea al centavo. pPrecio > 0.
+     * @throws AlmacenException Si ya existe un producto con el código dado, si no existe la marca, si el precio redondeado no es mayor a 0 o no se puede
+     *         representar en centavos o si no se pudo registrar el cambio en la bitácora.
+     */
+    public void agregarProducto( String pIdMarca, String pCodigo, String pNombre, String pDescripcion, double pPrecio ) throws AlmacenException
+    {
+        long centavos;
+        try
+        {
+            centavos = Producto.aCentavos( pPrecio );
+        }
+        catch( ArithmeticException e )
+        {
+            throw new AlmacenException( e.getMessage( ) );
+        }
+        if( centavos <= 0 )
+        {
+            throw new AlmacenException( "El precio del producto " + pCodigo + " debe ser mayor a 0." );
+        }
+        long registro;
+        long marca = candado.writeLock( );
+        try
+        {
+            if( productos.containsKey( pCodigo ) ){
+                throw new AlmacenException( "Ya existe un producto con codigo "+ pCodigo);
+            }
+            NodoAlmacen nodo = nodos.get( pIdMarca );
+            if( !( nodo instanceof Marca ) )
+            {
+                throw new AlmacenException( "No existe una marca con el identificador " + pIdMarca );
+            }
+            registro = registrarCambio( Bitacora.AGREGAR_PRODUCTO, pIdMarca, pCodigo, pNombre, pDescripcion, EscritorCatalogo.formatearCentavos( centavos ) );
+            conservarProductos( ( Marca )nodo );
+            Producto nuevo = ( ( Marca )nodo ).agregarProducto( pCodigo, pNombre, pDescripcion, pPrecio );
+            productos.put( pCodigo, nuevo );
+        }
+        finally
+        {
+            candado.unlockWrite( marca );
+        }
+        confirmarCambio( registro );
+    }
+    
+    /**
+     * Elimina el producto con el código dado por parámetro.<br>
+     * <b>pre: </b> La categoría raíz está inicializada y existe el producto con el código dado.
+     * <b>post: </b>Se eliminó el producto.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
+     * @throws AlmacenException Si no se pudo registrar el cambio en la bitácora.
+     */
+    public void eliminarProducto(String pCodigo) throws AlmacenException{
+        long registro = 0;
+        long marca = candado.writeLock( );
+        try
+        {
+            if( productos.containsKey( pCodigo ) ){
+                registro = registrarCambio( Bitacora.ELIMINAR_PRODUCTO, pCodigo );
+                Producto eliminado = productos.remove( pCodigo );
+                conservarProductos( eliminado.darMarca( ) );
+                ventasRecientes.quitar( eliminado );
+                eliminado.darMarca( ).eliminarProducto( pCodigo );
+            }
+        }
+        finally
+        {
+            candado.unlockWrite( marca );
+        }
+        confirmarCambio( registro );
+    }
+
+    /**
+     * Copia los productos de la marca dada para el punto de control que se está escribiendo, si lo hay, antes de agregar o eliminar uno de sus productos.<br>
+     * <b>post: </b> Si se está escribiendo un punto de control, la marca tiene la copia de los productos de su época.
+     * @param pMarca Marca que se va a modificar. pMarca != null.
+     */
+    private void conservarProductos( Marca pMarca )
+    {
+        int epoca = epocaActiva;
+        if( epoca != 0 )
+        {
+            pMarca.copiarProductos( epoca );
+        }
+    }
+    
+    /**
+     * Agrega a los índices de nodos y de productos el nodo dado y todo su subárbol.<br>
+     * <b>pre: </b> Los índices están inicializados.<br>
+     * <b>post: </b> Se agregaron a los índices el nodo, sus descendientes y los productos de sus marcas.
+     * @param pNodo Nodo que se va a registrar. pNodo != null.
+     * @throws AlmacenException Si ya existe en el índice un nodo con el mismo identificador o un producto con el mismo código.
+     */
+    private void registrarNodos( NodoAlmacen pNodo ) throws AlmacenException
+    {
+        if( nodos.putIfAbsent( pNodo.identificador, pNodo ) != null )
+        {
+            throw new AlmacenException( "Ya existe un nodo en el árbol con el identificador " + pNodo.identificador );
+        }
+        if( pNodo instanceof Marca )
+        {
+            for( Producto producto : pNodo.darProductos( ) )
+            {
+                if( productos.putIfAbsent( producto.darCodigo( ), producto ) != null )
+                {
+                    throw new AlmacenException( "Ya existe un producto con codigo " + producto.darCodigo( ) );
+                }
+            }
+        }
+        else
+        {
+            for( NodoAlmacen hijo : ( ( Categoria )pNodo ).darNodos( ) )
+            {
+                registrarNodos( hijo );
+            }
+        }
+    }
+
+    /**
+     * Elimina de los índices de nodos y de productos el nodo dado y todo su subárbol.<br>
+     * <b>pre: </b> Los índices están inicializados.<br>
+     * <b>post: </b> Se eliminaron de los índices el nodo, sus descendientes y los productos de sus marcas. Las entradas de otros nodos o productos con los mismos
+     * identificadores no se modificaron.
+     * @param pNodo Nodo que se va a eliminar de los índices. pNodo != null.
+     */
+    private void desregistrarNodos( NodoAlmacen pNodo )
+    {
+        nodos.remove( pNodo.identificador, pNodo );
+        if( pNodo instanceof Marca )
+        {
+            for( Producto producto : pNodo.darProductos( ) )
+            {
+                productos.remove( producto.darCodigo( ), producto );
+            }
+        }
+        else
+        {
+            for( NodoAlmacen hijo : ( ( Categoria )pNodo ).darNodos( ) )
+            {
+                desregistrarNodos( hijo );
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------
+    // Puntos de Extensión
+    // -----------------------------------------------------------------
+
+    /**
+     * Escribe en la salida dada el reporte de ventas en CSV, con una fila por nodo del árbol, calculado en un solo recorrido en posorden. El recorrido toma el
+     * candado de lectura, así que los cambios de la estructura esperan a que termine.<br>
+     * <b>post: </b> Se escribió el reporte en la salida, que no se cierra.
+     * @param pSalida Salida del reporte. pSalida != null.
+     * @return Resumen de la categoría raíz.
+     * @throws AlmacenException Si ocurre un error escribiendo el reporte.
+     */
+    public ResumenSubarbol escribirReporte( Writer pSalida ) throws AlmacenException
+    {
+        long marca = candado.readLock( );
+        try
+        {
+            return new ReporteVentas( pSalida ).escribir( categoriaRaiz );
+        }
+        catch( IOException e )
+        {
+            throw new AlmacenException( "Error al escribir el reporte.\n" + e.getMessage( ) );
+        }
+        finally
+        {
+            candado.unlockRead( marca );
+        }
+    }
+
+    /**
+     * Guarda el reporte de ventas en CSV en el archivo RUTA_REPORTE.
+     * @return Mensaje con el archivo del reporte o con el error que impidió guardarlo.
+     */
+    public String metodo1( )
+    {
+        File archivo = new File( RUTA_REPORTE );
+        try( Writer salida = Files.newBufferedWriter( archivo.toPath( ), StandardCharsets.UTF_8 ) )
+        {
+            ResumenSubarbol resumen = escribirReporte( salida );
+            return "Se guardó el reporte de ventas de " + resumen.darCantidadMarcas( ) + " marcas en " + archivo.getPath( ) + ".";
+        }
+        catch( IOException | AlmacenException e )
+        {
+            return "No se pudo guardar el reporte de ventas.\n" + e.getMessage( );
+        }
+    }
+
+    /**
+     * Retorna el resumen de las ventas de todo el almacén, calculado en paralelo.
+     * @return Texto con las ventas, las unidades, los productos, las marcas y los precios del almacén.
+     */
+    public String metodo2( )
+    {
+        ResumenSubarbol resumen = darResumen( categoriaRaiz.darIdentificador( ), true );
+        return String.format( "Ventas: COP $%,.2f en %,d unidades.%nProductos: %,d en %,d marcas.%nPrecios: mínimo COP $%,.2f, máximo COP $%,.2f, promedio COP $%,.2f.",
+                BigDecimal.valueOf( resumen.darValorVentasCentavos( ), 2 ), resumen.darUnidadesVendidas( ), resumen.darCantidadProductos( ), resumen.darCantidadMarcas( ),
+                BigDecimal.valueOf( resumen.darPrecioMinimoCentavos( ), 2 ), BigDecimal.valueOf( resumen.darPrecioMaximoCentavos( ), 2 ), resumen.darPrecioPromedio( ) );
+    }
 
 }
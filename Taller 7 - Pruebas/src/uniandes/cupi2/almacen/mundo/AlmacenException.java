@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -12,14 +12,14 @@
 package uniandes.cupi2.almacen.mundo;
 
 /**
- * Representa una excepcin del almacn.
+ * Representa una excepción del almacén.
  */
 @SuppressWarnings("serial")
 public class AlmacenException extends Exception{
 
     /**
-     * Construye una nueva excepcin con el mensaje dado..
-     * @param pMensaje Mensaje de la excepcin. pMensaje != null && pMensaje != "".
+     * Construye una nueva excepción con el mensaje dado..
+     * @param pMensaje Mensaje de la excepción. pMensaje != null && pMensaje != "".
      */
 	public AlmacenException(String pMensaje) {
 	    super(pMensaje );
@@ -0,0 +1,723 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+/**
+ * Bitácora de los cambios del almacén, que sólo crece al final del archivo.<br>
+ * Cada registro es una línea con los campos separados por SEPARADOR: el CRC32 en hexadecimal del resto de la línea, la operación y sus datos. El primer registro
+ * es BASE con la identidad del catálogo sobre el que se aplican los cambios. Un punto de control escribe el catálogo en un archivo temporal y agrega un registro
+ * PUNTO con la identidad de ese archivo y la cantidad de cambios que ya contiene antes de reemplazar el catálogo, de modo que la bitácora sirve con el catálogo
+ * anterior o con el nuevo. Luego la bitácora se reescribe sólo con los cambios posteriores. Si el catálogo no corresponde a BASE ni a ningún PUNTO la bitácora es
+ * obsoleta y se descarta. Al abrirla se aplican los registros completos y se descarta lo que haya después del primer registro incompleto o dañado, que corresponde
+ * a una escritura interrumpida.<br>
+ * Los registros se acumulan en memoria y un hilo escritor escribe todos los pendientes y los fuerza al disco con una sola sincronización. Quien registra un cambio
+ * espera a que su registro esté en el disco, de modo que los cambios que llegan mientras se sincroniza el lote anterior comparten la siguiente sincronización.
+ */
+public class Bitacora implements Closeable
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Tamaño de la bitácora en bytes a partir del cual se compacta por defecto.
+     */
+    public final static long UMBRAL_COMPACTACION = 64L << 20;
+
+    /**
+     * Tamaño de los bloques con los que se copian los registros al reescribir la bitácora.
+     */
+    private final static int TAMANO_BLOQUE = 1 << 16;
+
+    /**
+     * Operación del primer registro, que identifica el catálogo base.
+     */
+    public final static String BASE = "Base";
+
+    /**
+     * Registro que indica que el catálogo con la identidad dada contiene los primeros cambios de la bitácora, en la cantidad dada.
+     */
+    public final static String PUNTO = "Punto";
+
+    /**
+     * Operación que vende unidades de un producto.
+     */
+    public final static String VENDER = "Vender";
+
+    /**
+     * Operación que agrega un nodo.
+     */
+    public final static String AGREGAR_NODO = "AgregarNodo";
+
+    /**
+     * Operación que elimina un nodo.
+     */
+    public final static String ELIMINAR_NODO = "EliminarNodo";
+
+    /**
+     * Operación que agrega un producto.
+     */
+    public final static String AGREGAR_PRODUCTO = "AgregarProducto";
+
+    /**
+     * Operación que elimina un producto.
+     */
+    public final static String ELIMINAR_PRODUCTO = "EliminarProducto";
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Archivo de la bitácora.
+     */
+    private File archivo;
+
+    /**
+     * Canal del archivo, ubicado al final.
+     */
+    private FileChannel canal;
+
+    /**
+     * Tamaño de la bitácora a partir del cual se debe compactar.
+     */
+    private long umbral;
+
+    /**
+     * Cantidad de bytes escritos en el archivo.
+     */
+    private long tamano;
+
+    /**
+     * Cantidad de bytes escritos en el archivo o pendientes de escribir.
+     */
+    private long tamanoRecibido;
+
+    /**
+     * Identidad del catálogo del registro BASE.
+     */
+    private String identidadBase;
+
+    /**
+     * Cantidad de cambios en el archivo o pendientes de escribir, sin contar los registros BASE y PUNTO.
+     */
+    private long cambios;
+
+    /**
+     * Cantidad de cambios que contiene el último punto de control marcado.
+     */
+    private long corteCambios;
+
+    /**
+     * Posición del archivo donde termina el último cambio que contiene el último punto de control marcado.
+     */
+    private long corteBytes;
+
+    /**
+     * Registros pendientes de escribir.
+     */
+    private ByteArrayOutputStream pendientes;
+
+    /**
+     * Número del último registro recibido.
+     */
+    private long ultimoRegistro;
+
+    /**
+     * Número del último registro que está en el disco.
+     */
+    private long ultimoSincronizado;
+
+    /**
+     * Cantidad de veces que se forzaron los registros al disco.
+     */
+    private long sincronizaciones;
+
+    /**
+     * Cantidad de registros que se aplicaron al abrir la bitácora.
+     */
+    private int reproducidos;
+
+    /**
+     * Error que detuvo la escritura o null si no ha ocurrido ninguno.
+     */
+    private IOException error;
+
+    /**
+     * Indica si se pidió cerrar la bitácora.
+     */
+    private boolean cerrada;
+
+    /**
+     * Hilo que escribe los registros pendientes.
+     */
+    private Thread escritor;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Abre la bitácora dada y aplica al almacén los cambios que tiene registrados. Si la bitácora no existe o es de otro catálogo se crea una nueva vacía.<br>
+     * <b>post: </b> El almacén tiene los cambios registrados y los nuevos registros se agregan al final.
+     * @param pArchivo Archivo de la bitácora. pArchivo != null.
+     * @param pBase Catálogo sobre el que se aplican los cambios. pBase != null.
+     * @param pUmbral Tamaño de la bitácora en bytes a partir del cual se debe compactar. pUmbral > 0.
+     * @param pAlmacen Almacén cargado del catálogo, al que se aplican los cambios. pAlmacen != null.
+     * @throws IOException Si ocurre un error leyendo o escribiendo la bitácora.
+     * @throws AlmacenException Si un registro completo no se puede aplicar al almacén.
+     */
+    public Bitacora( File pArchivo, File pBase, long pUmbral, Almacen pAlmacen ) throws IOException, AlmacenException
+    {
+        archivo = pArchivo;
+        umbral = pUmbral;
+        pendientes = new ByteArrayOutputStream( );
+        String identidad = darIdentidad( pBase );
+        long valido = archivo.exists( ) ? reproducir( identidad, pAlmacen ) : -1;
+        if( valido < 0 )
+        {
+            crear( identidad, 0, 0, 0 );
+        }
+        else
+        {
+            canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.WRITE );
+            canal.truncate( valido );
+            canal.position( valido );
+            tamano = valido;
+            tamanoRecibido = valido;
+            if( !identidad.equals( identidadBase ) )
+            {
+                // El catálogo es el de un punto de control que no alcanzó a reescribir la bitácora
+                recortar( identidad );
+            }
+        }
+        escritor = new Thread( this::escribirPendientes, "Bitácora " + archivo.getName( ) );
+        escritor.setDaemon( true );
+        escritor.start( );
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Retorna la identidad del catálogo dado, formada por su tamaño, su fecha de modificación y su clave en el sistema de archivos.
+     * @param pBase Catálogo. pBase != null.
+     * @return Identidad del catálogo.
+     * @throws IOException Si no se pueden leer los atributos del archivo.
+     */
+    static String darIdentidad( File pBase ) throws IOException
+    {
+        BasicFileAttributes atributos = Files.readAttributes( pBase.toPath( ), BasicFileAttributes.class );
+        return atributos.size( ) + ":" + atributos.lastModifiedTime( ).toMillis( ) + ":" + atributos.fileKey( );
+    }
+
+    /**
+     * Aplica al almacén los cambios de la bitácora que no contiene el catálogo. Primero recorre los registros completos para encontrar el registro BASE o PUNTO que
+     * corresponde al catálogo y luego aplica los cambios posteriores a ese registro.<br>
+     * <b>post: </b> identidadBase tiene la identidad del registro BASE. cambios tiene la cantidad de cambios de la bitácora, y corteCambios y corteBytes
+     * corresponden a los cambios que ya contiene el catálogo.
+     * @param pIdentidad Identidad del catálogo sobre el que se aplican los cambios. pIdentidad != null.
+     * @param pAlmacen Almacén al que se aplican los cambios. pAlmacen != null.
+     * @return Cantidad de bytes de la bitácora que tienen registros completos o -1 si la bitácora no corresponde al catálogo.
+     * @throws IOException Si ocurre un error leyendo la bitácora.
+     * @throws AlmacenException Si un registro no se puede aplicar al almacén.
+     */
+    private long reproducir( String pIdentidad, Almacen pAlmacen ) throws IOException, AlmacenException
+    {
+        long tamanoArchivo = archivo.length( );
+        long valido = 0;
+        long incluidos = -1;
+        try( LectorCatalogo lector = abrirLector( ) )
+        {
+            boolean completo = true;
+            while( completo && lector.avanzar( ) )
+            {
+                // Un registro sin cambio de línea al final quedó interrumpido
+                long fin = valido + lector.darLinea( ).length( ) + 1;
+                completo = fin <= tamanoArchivo && verificarRegistro( lector.darLinea( ) );
+                if( completo && valido == 0 )
+                {
+                    if( !lector.campoEs( 1, BASE ) )
+                    {
+                        return -1;
+                    }
+                    identidadBase = lector.darCampo( 2 );
+                    incluidos = identidadBase.equals( pIdentidad ) ? 0 : -1;
+                }
+                else if( completo && incluidos < 0 && lector.campoEs( 1, PUNTO ) && lector.darCampo( 2 ).equals( pIdentidad ) )
+                {
+                    incluidos = lector.darEntero( 3 );
+                }
+                valido = completo ? fin : valido;
+            }
+        }
+        if( incluidos < 0 )
+        {
+            return -1;
+        }
+
+        try( LectorCatalogo lector = abrirLector( ) )
+        {
+            lector.avanzar( );
+            long posicion = lector.darLinea( ).length( ) + 1;
+            corteBytes = posicion;
+            while( posicion < valido && lector.avanzar( ) )
+            {
+                posicion += lector.darLinea( ).length( ) + 1;
+                if( !lector.campoEs( 1, PUNTO ) )
+                {
+                    cambios++;
+                    if( cambios <= incluidos )
+                    {
+                        corteBytes = posicion;
+                    }
+                    else
+                    {
+                        pAlmacen.aplicarCambio( lector );
+                        reproducidos++;
+                    }
+                }
+            }
+        }
+        corteCambios = incluidos;
+        return valido;
+    }
+
+    /**
+     * Abre un lector de la bitácora desde el principio.
+     * @return Lector de la bitácora sin registro actual.
+     * @throws IOException Si ocurre un error abriendo el archivo.
+     */
+    private LectorCatalogo abrirLector( ) throws IOException
+    {
+        return new LectorCatalogo( new BufferedReader( new InputStreamReader( new FileInputStream( archivo ), LectorCatalogo.CODIFICACION ) ) );
+    }
+
+    /**
+     * Indica si la línea dada es un registro con el CRC correcto.
+     * @param pLinea Línea de la bitácora. pLinea != null.
+     * @return True si el CRC de la línea corresponde a su contenido, false en caso contrario.
+     */
+    private boolean verificarRegistro( String pLinea )
+    {
+        int separador = pLinea.indexOf( LectorCatalogo.SEPARADOR );
+        boolean valido = false;
+        if( separador > 0 )
+        {
+            try
+            {
+                CRC32 crc = new CRC32( );
+                crc.update( pLinea.substring( separador + LectorCatalogo.SEPARADOR.length( ) ).getBytes( LectorCatalogo.CODIFICACION ) );
+                valido = Long.parseLong( pLinea.substring( 0, separador ), 16 ) == crc.getValue( );
+            }
+            catch( NumberFormatException e )
+            {
+                valido = false;
+            }
+        }
+        return valido;
+    }
+
+    /**
+     * Crea una bitácora para el catálogo dado con los cambios de la parte dada de la bitácora actual, que reemplaza en un solo paso a la anterior. Los registros
+     * se copian por bloques, sin cargar la parte completa en memoria, y los registros PUNTO se descartan.<br>
+     * <b>post: </b> El archivo tiene el registro BASE seguido de los cambios copiados y el canal está ubicado al final. El punto de control marcado es el catálogo.
+     * @param pIdentidad Identidad del catálogo sobre el que se aplican los cambios. pIdentidad != null.
+     * @param pDesde Posición en el archivo actual del primer registro que se copia. pDesde >= 0.
+     * @param pHasta Posición en el archivo actual después del último registro que se copia. Si es igual a pDesde no se copia nada. pHasta >= pDesde.
+     * @param pCambios Cantidad de cambios entre las dos posiciones. pCambios >= 0.
+     * @throws IOException Si ocurre un error leyendo o escribiendo la bitácora.
+     */
+    private void crear( String pIdentidad, long pDesde, long pHasta, long pCambios ) throws IOException
+    {
+        byte[] encabezado = crearRegistro( new String[]{ BASE, pIdentidad } );
+        File temporal = File.createTempFile( archivo.getName( ), ".tmp", archivo.getAbsoluteFile( ).getParentFile( ) );
+        long copiados = 0;
+        try
+        {
+            try( FileChannel nuevo = FileChannel.open( temporal.toPath( ), StandardOpenOption.WRITE ) )
+            {
+                OutputStream salida = new BufferedOutputStream( Channels.newOutputStream( nuevo ), TAMANO_BLOQUE );
+                salida.write( encabezado );
+                if( pHasta > pDesde )
+                {
+                    copiados = copiarCambios( salida, pDesde, pHasta );
+                }
+                salida.flush( );
+                nuevo.force( true );
+            }
+            Files.move( temporal.toPath( ), archivo.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch( IOException e )
+        {
+            temporal.delete( );
+            throw e;
+        }
+        if( canal != null )
+        {
+            canal.close( );
+        }
+        canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.WRITE );
+        tamano = encabezado.length + copiados;
+        canal.position( tamano );
+        tamanoRecibido = tamano;
+        identidadBase = pIdentidad;
+        cambios = pCambios;
+        corteCambios = 0;
+        corteBytes = encabezado.length;
+    }
+
+    /**
+     * Copia en la salida dada los registros de la parte dada del archivo de la bitácora, excepto los registros PUNTO. Las posiciones son long, así que la parte
+     * puede tener cualquier tamaño.
+     * @param pSalida Salida de la bitácora nueva. pSalida != null.
+     * @param pDesde Posición del primer registro que se copia. pDesde >= 0.
+     * @param pHasta Posición después del último registro que se copia. pHasta > pDesde.
+     * @return Cantidad de bytes copiados.
+     * @throws IOException Si ocurre un error leyendo el archivo o escribiendo la salida.
+     */
+    private long copiarCambios( OutputStream pSalida, long pDesde, long pHasta ) throws IOException
+    {
+        String marcaPunto = LectorCatalogo.SEPARADOR + PUNTO + LectorCatalogo.SEPARADOR;
+        ByteArrayOutputStream linea = new ByteArrayOutputStream( );
+        ByteBuffer bloque = ByteBuffer.allocate( TAMANO_BLOQUE );
+        long copiados = 0;
+        try( FileChannel lectura = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ ) )
+        {
+            long posicion = pDesde;
+            while( posicion < pHasta )
+            {
+                bloque.clear( );
+                bloque.limit( ( int )Math.min( bloque.capacity( ), pHasta - posicion ) );
+                int leidos = lectura.read( bloque, posicion );
+                if( leidos < 0 )
+                {
+                    throw new IOException( "La bitácora terminó antes de lo esperado." );
+                }
+                posicion += leidos;
+                byte[] bytes = bloque.array( );
+                int inicio = 0;
+                for( int i = 0; i < leidos; i++ )
+                {
+                    if( bytes[ i ] == '\n' )
+                    {
+                        linea.write( bytes, inicio, i + 1 - inicio );
+                        String texto = linea.toString( LectorCatalogo.CODIFICACION.name( ) );
+                        if( !texto.startsWith( marcaPunto, texto.indexOf( LectorCatalogo.SEPARADOR ) ) )
+                        {
+                            linea.writeTo( pSalida );
+                            copiados += linea.size( );
+                        }
+                        linea.reset( );
+                        inicio = i + 1;
+                    }
+                }
+                linea.write( bytes, inicio, leidos - inicio );
+            }
+        }
+        return copiados;
+    }
+
+    /**
+     * Crea la línea del registro con los campos dados, precedida por su CRC.
+     * @param pCampos Operación y datos del registro. pCampos != null.
+     * @return Bytes de la línea, incluyendo el cambio de línea.
+     * @throws IOException Si algún campo no se puede guardar en la bitácora.
+     */
+    private static byte[] crearRegistro( String[] pCampos ) throws IOException
+    {
+        StringBuilder contenido = new StringBuilder( );
+        for( int i = 0; i < pCampos.length; i++ )
+        {
+            EscritorCatalogo.verificarTexto( pCampos[ i ] );
+            if( i > 0 )
+            {
+                contenido.append( LectorCatalogo.SEPARADOR );
+            }
+            contenido.append( pCampos[ i ] );
+        }
+        byte[] bytes = contenido.toString( ).getBytes( LectorCatalogo.CODIFICACION );
+        CRC32 crc = new CRC32( );
+        crc.update( bytes );
+        return ( Long.toHexString( crc.getValue( ) ) + LectorCatalogo.SEPARADOR + contenido + "\n" ).getBytes( LectorCatalogo.CODIFICACION );
+    }
+
+    /**
+     * Agrega un registro a los pendientes de escribir. El registro está en el disco cuando termina esperar con el número retornado.
+     * @param pCampos Operación y datos del registro. pCampos != null.
+     * @return Número del registro.
+     * @throws IOException Si algún campo no se puede guardar en la bitácora, si la bitácora está cerrada o si falló una escritura anterior.
+     */
+    public long registrar( String... pCampos ) throws IOException
+    {
+        byte[] registro = crearRegistro( pCampos );
+        synchronized( this )
+        {
+            return agregar( registro, true );
+        }
+    }
+
+    /**
+     * Agrega un registro a los pendientes de escribir.<br>
+     * <b>pre: </b> El hilo tiene el monitor de la bitácora.
+     * @param pRegistro Línea completa del registro. pRegistro != null.
+     * @param pCambio Indica si el registro es un cambio del almacén.
+     * @return Número del registro.
+     * @throws IOException Si la bitácora está cerrada o si falló una escritura anterior.
+     */
+    private long agregar( byte[] pRegistro, boolean pCambio ) throws IOException
+    {
+        verificarEstado( );
+        pendientes.write( pRegistro, 0, pRegistro.length );
+        tamanoRecibido += pRegistro.length;
+        if( pCambio )
+        {
+            cambios++;
+        }
+        ultimoRegistro++;
+        notifyAll( );
+        return ultimoRegistro;
+    }
+
+    /**
+     * Espera a que el registro con el número dado y los anteriores estén en el disco.
+     * @param pRegistro Número del registro retornado por registrar.
+     * @throws IOException Si la escritura falló o si se interrumpió la espera.
+     */
+    public synchronized void esperar( long pRegistro ) throws IOException
+    {
+        while( ultimoSincronizado < pRegistro && error == null )
+        {
+            try
+            {
+                wait( );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new InterruptedIOException( "Se interrumpió la espera de la bitácora." );
+            }
+        }
+        if( ultimoSincronizado < pRegistro )
+        {
+            verificarEstado( );
+        }
+    }
+
+    /**
+     * Lanza una excepción si la bitácora no puede recibir registros.
+     * @throws IOException Si falló una escritura anterior o si la bitácora está cerrada.
+     */
+    private void verificarEstado( ) throws IOException
+    {
+        if( error != null )
+        {
+            throw new IOException( "No se pudo escribir la bitácora.\n" + error.getMessage( ), error );
+        }
+        if( cerrada )
+        {
+            throw new IOException( "La bitácora está cerrada." );
+        }
+    }
+
+    /**
+     * Escribe los registros pendientes por lotes hasta que se cierre la bitácora. Cada lote se fuerza al disco con una sola sincronización.
+     */
+    private void escribirPendientes( )
+    {
+        ByteArrayOutputStream lote = new ByteArrayOutputStream( );
+        while( true )
+        {
+            long ultimoLote;
+            FileChannel destino;
+            synchronized( this )
+            {
+                while( pendientes.size( ) == 0 && !cerrada )
+                {
+                    try
+                    {
+                        wait( );
+                    }
+                    catch( InterruptedException e )
+                    {
+                        error = new InterruptedIOException( "Se interrumpió el escritor de la bitácora." );
+                        notifyAll( );
+                        return;
+                    }
+                }
+                if( pendientes.size( ) == 0 )
+                {
+                    return;
+                }
+                ByteArrayOutputStream siguiente = lote;
+                lote = pendientes;
+                pendientes = siguiente;
+                ultimoLote = ultimoRegistro;
+                destino = canal;
+            }
+            try
+            {
+                OutputStream salida = Channels.newOutputStream( destino );
+                lote.writeTo( salida );
+                destino.force( false );
+            }
+            catch( IOException e )
+            {
+                synchronized( this )
+                {
+                    error = e;
+                    notifyAll( );
+                }
+                return;
+            }
+            synchronized( this )
+            {
+                tamano += lote.size( );
+                ultimoSincronizado = ultimoLote;
+                sincronizaciones++;
+                notifyAll( );
+            }
+            lote.reset( );
+        }
+    }
+
+    /**
+     * Indica si la bitácora superó el tamaño a partir del cual se debe compactar.
+     * @return True si se debe compactar, false en caso contrario.
+     */
+    public synchronized boolean requiereCompactacion( )
+    {
+        return tamano > umbral;
+    }
+
+    /**
+     * Marca el punto de control que se está tomando: contiene todos los cambios registrados hasta ahora y ninguno de los siguientes.<br>
+     * <b>pre: </b> No se están registrando ni aplicando cambios en otros hilos.<br>
+     * <b>post: </b> corteCambios y corteBytes corresponden a los cambios registrados.
+     */
+    public synchronized void marcarCorte( )
+    {
+        corteCambios = cambios;
+        corteBytes = tamanoRecibido;
+    }
+
+    /**
+     * Registra que el catálogo con la identidad dada contiene los cambios del último corte marcado y espera a que el registro esté en el disco. A partir de ese
+     * momento el catálogo puede reemplazar al catálogo base.
+     * @param pIdentidad Identidad del catálogo del punto de control, ver darIdentidad. pIdentidad != null.
+     * @throws IOException Si la bitácora no puede recibir registros o si falló la escritura.
+     */
+    public void registrarPunto( String pIdentidad ) throws IOException
+    {
+        long registro;
+        synchronized( this )
+        {
+            registro = agregar( crearRegistro( new String[]{ PUNTO, pIdentidad, Long.toString( corteCambios ) } ), false );
+        }
+        esperar( registro );
+    }
+
+    /**
+     * Reescribe la bitácora para el catálogo dado, que reemplazó al catálogo base y contiene los cambios del último corte marcado. Sólo se conservan los cambios
+     * posteriores al corte.<br>
+     * <b>post: </b> La bitácora tiene el registro BASE del catálogo dado y los cambios posteriores al corte. Si ocurre un error la bitácora no recibe más registros.
+     * @param pIdentidad Identidad del catálogo nuevo. pIdentidad != null.
+     * @throws IOException Si ocurre un error leyendo o escribiendo la bitácora.
+     */
+    public synchronized void recortar( String pIdentidad ) throws IOException
+    {
+        // Mientras se espera pueden llegar registros nuevos, que también deben estar en el archivo antes de leer la cola
+        while( ultimoSincronizado < ultimoRegistro )
+        {
+            esperar( ultimoRegistro );
+        }
+        try
+        {
+            crear( pIdentidad, corteBytes, tamano, cambios - corteCambios );
+        }
+        catch( IOException e )
+        {
+            error = e;
+            notifyAll( );
+            throw e;
+        }
+    }
+
+    /**
+     * Retorna la cantidad de registros que se aplicaron al almacén al abrir la bitácora.
+     * @return Cantidad de registros aplicados.
+     */
+    public int darRegistrosReproducidos( )
+    {
+        return reproducidos;
+    }
+
+    /**
+     * Retorna la cantidad de veces que se forzaron los registros al disco, que es menor que la cantidad de registros cuando se escriben por lotes.
+     * @return Cantidad de sincronizaciones.
+     */
+    public synchronized long darSincronizaciones( )
+    {
+        return sincronizaciones;
+    }
+
+    /**
+     * Escribe los registros pendientes y cierra el archivo.
+     * @throws IOException Si falló alguna escritura o si ocurre un error cerrando el archivo.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        synchronized( this )
+        {
+            cerrada = true;
+            notifyAll( );
+        }
+        try
+        {
+            escritor.join( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        canal.close( );
+        synchronized( this )
+        {
+            if( error != null )
+            {
+                throw new IOException( "No se pudo escribir la bitácora.\n" + error.getMessage( ), error );
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Carga el árbol del almacén en paralelo.<br>
+ * Como cada categoría y cada marca declaran su cantidad de hijos, un primer recorrido lee sólo las líneas de las categorías y de las marcas, y salta las líneas
+ * de los productos para ubicar la parte del archivo que ocupa cada marca. Luego las marcas se construyen en paralelo en un ForkJoinPool, cada una con su propio
+ * lector de su parte del archivo, y al final se agregan a sus categorías en el orden del archivo.<br>
+ * Las líneas de las categorías pueden quedar entre las partes de dos marcas, por eso cada marca se lee a partir de su posición.
+ */
+public class CargadorParalelo
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Cantidad de bytes por debajo de la cual un grupo de marcas se carga en un solo hilo.
+     */
+    private final static long UMBRAL_BYTES = 1 << 20;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Archivo del catálogo.
+     */
+    private File archivo;
+
+    /**
+     * Pool en el que se cargan las marcas.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Categorías padre de los nodos del árbol, en preorden.
+     */
+    private List<Categoria> padres;
+
+    /**
+     * Hijos de las categorías de padres, en el mismo orden. Es null para los hijos que son marcas.
+     */
+    private List<Categoria> hijos;
+
+    /**
+     * Posición del archivo donde empieza cada marca, en preorden.
+     */
+    private List<Long> iniciosMarcas;
+
+    /**
+     * Posición del archivo donde termina cada marca, exclusiva.
+     */
+    private List<Long> finesMarcas;
+
+    /**
+     * Marcas cargadas, en el mismo orden de sus posiciones.
+     */
+    private Marca[] marcas;
+
+    /**
+     * Fuente de las descripciones diferidas. Es null si las descripciones se cargan en memoria.
+     */
+    private DescripcionesDiferidas descripcionesDiferidas;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un cargador del archivo dado que usa el pool común.
+     * @param pArchivo Archivo del catálogo. pArchivo != null.
+     */
+    public CargadorParalelo( File pArchivo )
+    {
+        this( pArchivo, ForkJoinPool.commonPool( ) );
+    }
+
+    /**
+     * Construye un cargador del archivo dado que usa el pool dado.
+     * @param pArchivo Archivo del catálogo. pArchivo != null.
+     * @param pPool Pool en el que se cargan las marcas. pPool != null.
+     */
+    public CargadorParalelo( File pArchivo, ForkJoinPool pPool )
+    {
+        archivo = pArchivo;
+        pool = pPool;
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Hace que los productos cargados lean su descripción de la fuente dada sólo cuando se pida.<br>
+     * <b>post: </b> La fuente de las descripciones diferidas es la dada.
+     * @param pDescripciones Fuente de las descripciones, que debe corresponder al mismo archivo. Si es null las descripciones se cargan en memoria.
+     */
+    public void diferirDescripciones( DescripcionesDiferidas pDescripciones )
+    {
+        descripcionesDiferidas = pDescripciones;
+    }
+
+    /**
+     * Carga el árbol del archivo.
+     * @return Categoría raíz con todo el árbol cargado.
+     * @throws AlmacenException Si el archivo no cumple el formato o si ocurre un error leyéndolo.
+     */
+    public Categoria cargar( ) throws AlmacenException
+    {
+        padres = new ArrayList<>( );
+        hijos = new ArrayList<>( );
+        iniciosMarcas = new ArrayList<>( );
+        finesMarcas = new ArrayList<>( );
+        try( LectorCatalogoMapeado lector = new LectorCatalogoMapeado( archivo ) )
+        {
+            lector.avanzarObligatorio( );
+            if( !lector.campoEs( 0, Categoria.TIPO ) )
+            {
+                throw new AlmacenException( "La raíz del archivo debe ser una categoría." );
+            }
+            Categoria raiz = ubicarCategoria( lector );
+
+            marcas = new Marca[iniciosMarcas.size( )];
+            try
+            {
+                pool.invoke( new CargaMarcas( lector.darCanal( ), 0, marcas.length ) );
+            }
+            catch( IllegalStateException e )
+            {
+                throw new AlmacenException( e.getMessage( ) );
+            }
+
+            int marca = 0;
+            for( int i = 0; i < padres.size( ); i++ )
+            {
+                padres.get( i ).agregarHijo( hijos.get( i ) != null ? hijos.get( i ) : marcas[ marca++ ] );
+            }
+            return raiz;
+        }
+        catch( IOException e )
+        {
+            throw new AlmacenException( "Error al leer el archivo.\n" + e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Recorre el subárbol de la categoría del registro actual. Crea las categorías sin hijos y ubica la parte del archivo de cada marca.<br>
+     * <b>post: </b> Se agregaron a padres e hijos los nodos del subárbol en preorden y a las posiciones las partes de sus marcas.
+     * @param pLector Lector ubicado en el registro de la categoría. pLector != null.
+     * @return Categoría del registro, todavía sin hijos.
+     * @throws AlmacenException Si el archivo no cumple el formato.
+     */
+    private Categoria ubicarCategoria( LectorCatalogoMapeado pLector ) throws AlmacenException
+    {
+        Categoria categoria = new Categoria( pLector.darCampo( 1 ), pLector.darCampo( 2 ) );
+        long numHijos = pLector.darEntero( 3 );
+        for( long i = 0; i < numHijos; i++ )
+        {
+            pLector.avanzarObligatorio( );
+            if( pLector.campoEs( 0, Categoria.TIPO ) )
+            {
+                // El hijo se registra antes de recorrer su subárbol para conservar el preorden
+                int posicion = padres.size( );
+                padres.add( categoria );
+                hijos.add( null );
+                hijos.set( posicion, ubicarCategoria( pLector ) );
+            }
+            else if( pLector.campoEs( 0, Marca.TIPO ) )
+            {
+                padres.add( categoria );
+                hijos.add( null );
+                iniciosMarcas.add( pLector.darPosicionLinea( ) );
+                pLector.saltarLineas( pLector.darEntero( 3 ) );
+                finesMarcas.add( pLector.darPosicionSiguiente( ) );
+            }
+            else
+            {
+                throw new AlmacenException( pLector.darCampo( 0 ) + " no es un tipo de nodo valido." );
+            }
+        }
+        return categoria;
+    }
+
+    /**
+     * Tarea que carga un rango de las marcas ubicadas. Divide el rango en dos mientras ocupe más de UMBRAL_BYTES del archivo.
+     */
+    private class CargaMarcas extends RecursiveAction
+    {
+        /**
+         * Constante de serialización.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Canal del archivo.
+         */
+        private FileChannel canal;
+
+        /**
+         * Primera marca del rango.
+         */
+        private int desde;
+
+        /**
+         * Marca siguiente a la última del rango.
+         */
+        private int hasta;
+
+        /**
+         * Construye la tarea para el rango dado.
+         * @param pCanal Canal del archivo. pCanal != null.
+         * @param pDesde Primera marca del rango.
+         * @param pHasta Marca siguiente a la última del rango.
+         */
+        CargaMarcas( FileChannel pCanal, int pDesde, int pHasta )
+        {
+            canal = pCanal;
+            desde = pDesde;
+            hasta = pHasta;
+        }
+
+        /**
+         * Carga las marcas del rango.<br>
+         * <b>post: </b> Las marcas del rango quedaron en el arreglo de marcas.
+         * @throws IllegalStateException Si alguna marca no cumple el formato o si ocurre un error leyendo el archivo.
+         */
+        @Override
+        protected void compute( )
+        {
+            if( hasta - desde > 1 && finesMarcas.get( hasta - 1 ) - iniciosMarcas.get( desde ) > UMBRAL_BYTES )
+            {
+                int mitad = ( desde + hasta ) >>> 1;
+                invokeAll( new CargaMarcas( canal, desde, mitad ), new CargaMarcas( canal, mitad, hasta ) );
+            }
+            else if( desde < hasta )
+            {
+                try( LectorCatalogoMapeado lector = new LectorCatalogoMapeado( canal, iniciosMarcas.get( desde ), finesMarcas.get( hasta - 1 ), LectorCatalogoMapeado.TAMANO_VENTANA ) )
+                {
+                    lector.diferirDescripciones( descripcionesDiferidas );
+                    for( int i = desde; i < hasta; i++ )
+                    {
+                        lector.ubicar( iniciosMarcas.get( i ) );
+                        lector.avanzarObligatorio( );
+                        marcas[ i ] = new Marca( lector );
+                    }
+                }
+                catch( AlmacenException | IOException e )
+                {
+                    throw new IllegalStateException( e.getMessage( ), e );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Carga el almacén de a un subárbol de la raíz a la vez.<br>
+ * Al construirse lee sólo el registro de la categoría raíz y crea un almacén con la raíz vacía. Cada llamado a cargarSiguiente construye el siguiente hijo de la raíz
+ * con todo su subárbol sin agregarlo al almacén, de modo que se puede cargar en otro hilo mientras el almacén se usa. El subárbol se agrega después con
+ * Almacen.agregarSubarbol en el hilo que usa el almacén. Lee el archivo del catálogo mapeado en memoria o la copia binaria.
+ */
+public class CargadorProgresivo implements Closeable
+{
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Lector del archivo del catálogo. Es null si se lee la copia binaria.
+     */
+    private LectorCatalogoMapeado lectorCatalogo;
+
+    /**
+     * Lector de la copia binaria. Es null si se lee el archivo del catálogo.
+     */
+    private LectorBinario lectorBinario;
+
+    /**
+     * Tamaño del archivo en bytes.
+     */
+    private long tamanoArchivo;
+
+    /**
+     * Almacén con la categoría raíz, al que se agregan los subárboles cargados.
+     */
+    private Almacen almacen;
+
+    /**
+     * Cantidad de hijos de la raíz que faltan por cargar.
+     */
+    private long subarbolesRestantes;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Abre el archivo dado y lee el registro de la categoría raíz.<br>
+     * <b>post: </b> El almacén tiene la categoría raíz sin hijos. Si se pidieron descripciones diferidas, el almacén es dueño de su archivo y lo cierra con cerrar.
+     * @param pArchivo Archivo del almacén. pArchivo != null.
+     * @param pModoCarga Formato del archivo. pModoCarga = {Almacen.CARGA_MAPEADA, Almacen.CARGA_BINARIA}.
+     * @param pDescripcionesDiferidas Indica si las descripciones de los productos se leen del archivo sólo cuando se piden.
+     * @throws AlmacenException Si el archivo no se puede abrir o si la raíz no es una categoría.
+     */
+    public CargadorProgresivo( File pArchivo, int pModoCarga, boolean pDescripcionesDiferidas ) throws AlmacenException
+    {
+        tamanoArchivo = pArchivo.length( );
+        DescripcionesDiferidas descripciones = null;
+        try
+        {
+            descripciones = pDescripcionesDiferidas ? new DescripcionesDiferidas( pArchivo ) : null;
+            Categoria raiz;
+            if( pModoCarga == Almacen.CARGA_BINARIA )
+            {
+                lectorBinario = new LectorBinario( pArchivo );
+                lectorBinario.diferirDescripciones( descripciones );
+                if( lectorBinario.leerByte( ) != LectorBinario.TIPO_CATEGORIA )
+                {
+                    throw new AlmacenException( "La raíz de la copia debe ser una categoría." );
+                }
+                raiz = new Categoria( lectorBinario.leerTexto( ), lectorBinario.leerTexto( ) );
+                subarbolesRestantes = lectorBinario.leerEntero( );
+            }
+            else
+            {
+                lectorCatalogo = new LectorCatalogoMapeado( pArchivo );
+                lectorCatalogo.diferirDescripciones( descripciones );
+                lectorCatalogo.avanzarObligatorio( );
+                if( !lectorCatalogo.campoEs( 0, Categoria.TIPO ) )
+                {
+                    throw new AlmacenException( "La raíz del archivo debe ser una categoría." );
+                }
+                raiz = new Categoria( lectorCatalogo.darCampo( 1 ), lectorCatalogo.darCampo( 2 ) );
+                subarbolesRestantes = lectorCatalogo.darEntero( 3 );
+            }
+            almacen = new Almacen( raiz, descripciones );
+        }
+        catch( IOException | AlmacenException e )
+        {
+            try
+            {
+                close( );
+                if( descripciones != null )
+                {
+                    descripciones.close( );
+                }
+            }
+            catch( IOException e2 )
+            {
+                // Se reporta el error original
+            }
+            throw e instanceof AlmacenException ? ( AlmacenException )e : new AlmacenException( "Error al leer el archivo.\n" + e.getMessage( ) );
+        }
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Retorna el almacén al que se agregan los subárboles cargados.
+     * @return Almacén.
+     */
+    public Almacen darAlmacen( )
+    {
+        return almacen;
+    }
+
+    /**
+     * Indica si faltan subárboles de la raíz por cargar.
+     * @return True si falta algún subárbol, false en caso contrario.
+     */
+    public boolean haySiguiente( )
+    {
+        return subarbolesRestantes > 0;
+    }
+
+    /**
+     * Carga el siguiente hijo de la raíz con todo su subárbol, sin agregarlo al almacén.<br>
+     * <b>pre: </b> haySiguiente es verdadero.<br>
+     * <b>post: </b> Falta un subárbol menos por cargar.
+     * @return Raíz del subárbol cargado, sin padre.
+     * @throws AlmacenException Si el archivo no cumple el formato o si ocurre un error leyéndolo.
+     */
+    public NodoAlmacen cargarSiguiente( ) throws AlmacenException
+    {
+        NodoAlmacen nodo;
+        if( lectorBinario != null )
+        {
+            try
+            {
+                nodo = almacen.darCategoriaRaiz( ).crearNodo( lectorBinario );
+            }
+            catch( IOException e )
+            {
+                throw new AlmacenException( "Error al leer la copia binaria.\n" + e.getMessage( ) );
+            }
+        }
+        else
+        {
+            nodo = almacen.darCategoriaRaiz( ).crearNodo( lectorCatalogo );
+        }
+        subarbolesRestantes--;
+        return nodo;
+    }
+
+    /**
+     * Retorna el porcentaje del archivo que se ha leído.
+     * @return Porcentaje entre 0 y 100.
+     */
+    public int darProgreso( )
+    {
+        long leido = lectorBinario != null ? lectorBinario.darPosicion( ) : lectorCatalogo.darPosicionSiguiente( );
+        return tamanoArchivo == 0 ? 100 : ( int )( Math.min( leido, tamanoArchivo ) * 100 / tamanoArchivo );
+    }
+
+    /**
+     * Cierra el archivo. No cierra el archivo de las descripciones diferidas, que pertenece al almacén.
+     * @throws IOException Si ocurre un error cerrando el archivo.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        if( lectorBinario != null )
+        {
+            lectorBinario.close( );
+        }
+        if( lectorCatalogo != null )
+        {
+            lectorCatalogo.close( );
+        }
+    }
+}
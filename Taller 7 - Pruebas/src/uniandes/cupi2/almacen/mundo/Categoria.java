@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -12,11 +12,13 @@
 package uniandes.cupi2.almacen.mundo;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Representa una categora del almacn.
+ * Representa una categoría del almacén.
  */
 public class Categoria extends NodoAlmacen
 {
@@ -26,7 +28,7 @@ public class Categoria extends NodoAlmacen
     // -----------------------------------------------------------------
 
     /**
-     * Representa el tipo del nodo categora.
+     * Representa el tipo del nodo categoría.
      */
     public final static String TIPO = "Categoria";
 
@@ -35,20 +37,36 @@ public class Categoria extends NodoAlmacen
     // -----------------------------------------------------------------
 
     /**
-     * Lista con los nodos hijos de la categora.
+     * Lista con los nodos hijos de la categoría.
      */
     private List<NodoAlmacen> nodosHijos;
 
+    /**
+     * Valor total de las ventas de los productos del subárbol de la categoría en centavos. Como las unidades vendidas, es un contador repartido en celdas para que las ventas de
+     * varios hilos no compitan por los totales de las categorías, en especial por los de la raíz.
+     */
+    private final LongAdder valorVentas = new LongAdder( );
+
+    /**
+     * Cantidad total de unidades vendidas de los productos del subárbol de la categoría.
+     */
+    private final LongAdder cantidadUnidadesVendidas = new LongAdder( );
+
+    /**
+     * Cantidad de productos del subárbol de la categoría.
+     */
+    private int cantidadProductos;
+
     // -----------------------------------------------------------------
     // Constructores
     // -----------------------------------------------------------------
 
     /**
-     * Construye una nueva categora sin nodosHijos.<br>
-     * <b>post: </b> Se inicializaron los atributos de la clase padre con los valores dados por parmetro y el tipo respectivo. Se inicializ la lista de nodosHijos como una lista
-     * vaca.
-     * @param pIdentificador Identificador nico de la marca. pIdentificador != null && pIdentificador != "".
-     * @param pNombre Nombre de la categora. pNombre != null && pNombre != "".
+     * Construye una nueva categoría sin nodosHijos.<br>
+     * <b>post: </b> Se inicializaron los atributos de la clase padre con los valores dados por parámetro y el tipo respectivo. Se inicializó la lista de nodosHijos como una lista
+     * vacía.
+     * @param pIdentificador Identificador único de la marca. pIdentificador != null && pIdentificador != "".
+     * @param pNombre Nombre de la categoría. pNombre != null && pNombre != "".
      */
     public Categoria( String pIdentificador, String pNombre )
     {
@@ -57,24 +75,35 @@ public class Categoria extends NodoAlmacen
     }
 
     /**
-     * Construye una nueva categora a partir de la lnea con la informacin general y el lector para la informacin adicional.<br>
-     * <b>post:</b> Se inicializaron los atributos de la clase padre con el identificador que viene en la lnea y el tipo respectivo. Se cargaron los nodosHijos de la categora de
-     * la informacin contenida en el lector.
-     * @param pLinea Lnea que contiene la informacin general de la marca. pLinea != null && pLinea != "" && pLinea.startsWith(TIPO).
-     * @param pLector Lector para acceder a la informacin de los productos.
-     * @throws AlmacenException Si ocurren errores al leer la informacin de los productos.
+     * Construye una nueva categoría a partir de la línea con la información general y el lector para la información adicional.<br>
+     * <b>post:</b> Se inicializaron los atributos de la clase padre con el identificador que viene en la línea y el tipo respectivo. Se cargaron los nodosHijos de la categoría de
+     * la información contenida en el lector. Los identificadores repetidos se detectan cuando el almacén registra el árbol en su índice.
+     * @param pLinea Línea que contiene la información general de la marca. pLinea != null && pLinea != "" && pLinea.startsWith(TIPO).
+     * @param pLector Lector para acceder a la información de los productos.
+     * @throws AlmacenException Si ocurren errores al leer la información de los productos.
      */
     public Categoria( String pLinea, BufferedReader pLector ) throws AlmacenException
     {
-        super( TIPO, pLinea.split( ";;;" )[ 1 ], pLinea.split( ";;;" )[ 2 ] );
+        this( new LectorCatalogo( pLinea, pLector ) );
+    }
+
+    /**
+     * Construye una nueva categoría a partir del registro actual del lector, que contiene la información general, y de los registros siguientes.<br>
+     * <b>post:</b> Se inicializaron los atributos de la clase padre con el identificador del registro y el tipo respectivo. Se cargaron los nodosHijos de la categoría de
+     * los registros siguientes. Los identificadores repetidos se detectan cuando el almacén registra el árbol en su índice.
+     * @param pLector Lector del catálogo ubicado en el registro de la categoría. pLector != null.
+     * @throws AlmacenException Si ocurren errores al leer la información de los nodos.
+     */
+    public Categoria( LectorCatalogo pLector ) throws AlmacenException
+    {
+        super( TIPO, pLector.darCampo( 1 ), pLector.darCampo( 2 ) );
         nodosHijos = new ArrayList<>( );
         try
         {
-            String datos[] = pLinea.split( ";;;" );
-            int numHijos = Integer.parseInt( datos[ 3 ] );
+            long numHijos = pLector.darEntero( 3 );
             while( numHijos-- > 0 )
             {
-                agregarNodo( identificador, crearNodo( pLector ) );
+                agregarHijo( crearNodo( pLector ) );
             }
         }
         catch( Exception e )
@@ -84,8 +113,27 @@ public class Categoria extends NodoAlmacen
 
     }
 
+    /**
+     * Construye una nueva categoría a partir de la copia binaria.<br>
+     * <b>post:</b> Se inicializaron los atributos de la clase padre con el identificador y el nombre de la copia y el tipo respectivo. Se cargaron los nodosHijos de la
+     * categoría de la copia.
+     * @param pLector Lector de la copia binaria ubicado después del tipo de la categoría. pLector != null.
+     * @throws IOException Si ocurre un error leyendo la copia.
+     * @throws AlmacenException Si la copia no tiene el formato esperado.
+     */
+    public Categoria( LectorBinario pLector ) throws IOException, AlmacenException
+    {
+        super( TIPO, pLector.leerTexto( ), pLector.leerTexto( ) );
+        int numHijos = pLector.leerEntero( );
+        nodosHijos = new ArrayList<>( numHijos );
+        for( int i = 0; i < numHijos; i++ )
+        {
+            agregarHijo( crearNodo( pLector ) );
+        }
+    }
+
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
     /**
@@ -98,47 +146,21 @@ public class Categoria extends NodoAlmacen
     }
 
     /**
-     * Indica si esta categora tiene como hijo el nodo con el identificador dado.<br>
-     * <b>pre: </b> La lista de nodosHijos est inicializada.<br>
-     * @param pIdNodo Identificador del nodo. pIdNodo != null && pIdNodo != "".
-     * @return True si esta categora tiene un hijo con el identificador dado, False en caso contrario.
-     */
-    private boolean tieneHijo( String pIdNodo )
-    {
-        boolean respuesta = false;
-        for( int i = 0; i < nodosHijos.size( ) && !respuesta; i++ )
-        {
-            NodoAlmacen nodo = nodosHijos.get( i );
-            respuesta = nodo.darIdentificador( ).equals( pIdNodo );
-        }
-        return respuesta;
-    }
-
-    /**
-     * Retorna la categora padre del nodo con identificador dado.<br>
-     * <b>pre: </b> La lista de nodosHijos est inicializada y existe un nodo con el identificador dado.<br>
+     * Retorna la categoría padre del nodo con identificador dado.<br>
+     * <b>pre: </b> La lista de nodosHijos está inicializada y existe un nodo con el identificador dado.<br>
      * @param pIdNodo Identificador del nodo. pIdNodo != null && pIdNodo != "".
      * @return Padre del nodo dado.
      */
     public Categoria buscarPadre( String pIdNodo )
     {
-        Categoria respuesta = tieneHijo( pIdNodo ) ? this : null;
-        for( int i = 0; i < nodosHijos.size( ) && respuesta == null; i++ )
-        {
-            NodoAlmacen actual = nodosHijos.get( i );
-            if( actual.darTipo( ).equals( Categoria.TIPO ) )
-            {
-                respuesta = ( ( Categoria )actual ).buscarPadre( pIdNodo );
-            }
-
-        }
-        return respuesta;
+        NodoAlmacen nodo = buscarNodo( pIdNodo );
+        return nodo == null || nodo == this ? null : nodo.padre;
     }
 
     /**
      * Busca el nodo con el identificador dado.
      * @param pIdentificador Identificador del nodo. pIdentificador != null && pIdentificador != "".
-     * @return NodoAlmacen con el identificador dado o null si no se encontr el nodo.
+     * @return NodoAlmacen con el identificador dado o null si no se encontró el nodo.
      */
     @Override
     public NodoAlmacen buscarNodo( String pIdentificador )
@@ -160,13 +182,13 @@ public class Categoria extends NodoAlmacen
 
     /**
      * Agrega un nuevo nodo del tipo dado a la lista.<br>
-     * <b>pre: </b> La lista de nodosHijos est inicializada.<br>
-     * <b>post: </b> Se agreg un nuevo nodo a la lista con los valores dados.
-     * @param pIdPadre Identificador nico del padre del nodo. pIdPadre != null && pIdPadre != "".
+     * <b>pre: </b> La lista de nodosHijos está inicializada.<br>
+     * <b>post: </b> Se agregó un nuevo nodo a la lista con los valores dados.
+     * @param pIdPadre Identificador único del padre del nodo. pIdPadre != null && pIdPadre != "".
      * @param pTipo Tipo del nodo. pTipo != null && pTipo != "".
      * @param pIdentificador Identificador del nodo. pIdentificador != null && pIdentificador != "".
      * @param pNombre Nombre del nodo. pNombre != null && pNombre != "".
-     * @throws AlmacenException Si ya existe un nodo en el subrbol con ese identificador.
+     * @throws AlmacenException Si ya existe un nodo en el subárbol con ese identificador.
      */
     public void agregarNodo( String pIdPadre, String pTipo, String pIdentificador, String pNombre ) throws AlmacenException
     {
@@ -176,23 +198,24 @@ public class Categoria extends NodoAlmacen
 
     /**
      * Agrega un nuevo nodo a la lista.<br>
-     * <b>pre: </b> La lista de nodosHijos est inicializada.<br>
-     * <b>post: </b> Se agreg el nuevo nodo a la lista.
-     * @param pIdPadre Identificador nico del padre del nodo. pIdPadre != null && pIdPadre != "".
+     * <b>pre: </b> La lista de nodosHijos está inicializada.<br>
+     * <b>post: </b> Se agregó el nuevo nodo a la lista.
+     * @param pIdPadre Identificador único del padre del nodo. pIdPadre != null && pIdPadre != "".
      * @param pNodo NodoAlmacen que se va a agregar. pNodo != null.
-     * @return True si agreg el nodo, False en caso contrario.
-     * @throws AlmacenException Si ya existe un nodo en el subrbol con ese identificador.
+     * @return True si agregó el nodo, False en caso contrario.
+     * @throws AlmacenException Si ya existe un nodo en el subárbol con ese identificador.
      */
     public boolean agregarNodo( String pIdPadre, NodoAlmacen pNodo ) throws AlmacenException
     {
         if( buscarNodo( pNodo.identificador ) != null )
         {
-            throw new AlmacenException( "Ya existe un nodo en el rbol con el identificador " + pNodo.identificador );
+            throw new AlmacenException( "Ya existe un nodo en el árbol con el identificador " + pNodo.identificador );
         }
         boolean respuesta = false;
         if( identificador.equals( pIdPadre ) )
         {
-            respuesta = nodosHijos.add( pNodo );
+            agregarHijo( pNodo );
+            respuesta = true;
         }
         else
         {
@@ -208,35 +231,160 @@ public class Categoria extends NodoAlmacen
         return respuesta;
     }
 
+    /**
+     * Agrega un nodo como hijo directo de esta categoría sin recorrer el subárbol.<br>
+     * La verificación de identificadores repetidos es responsabilidad de quien llama, normalmente el índice de nodos del almacén.<br>
+     * <b>pre: </b> La lista de nodosHijos está inicializada. No existe en el árbol un nodo con el identificador de pNodo.<br>
+     * <b>post: </b> Se agregó el nodo al final de la lista de hijos y esta categoría quedó como su padre. Los totales y los más vendidos del nodo se sumaron a esta
+     * categoría y a sus ancestros.
+     * @param pNodo NodoAlmacen que se va a agregar. pNodo != null.
+     */
+    void agregarHijo( NodoAlmacen pNodo )
+    {
+        nodosHijos.add( pNodo );
+        pNodo.padre = this;
+        actualizarTotales( pNodo.darValorVentasCentavos( ), pNodo.darCantidadUnidadesVendidas( ), pNodo.darCantidadProductos( ) );
+        combinarMasVendidos( pNodo );
+    }
+
+    /**
+     * Elimina un hijo directo de esta categoría.<br>
+     * <b>pre: </b> pNodo es hijo de esta categoría.<br>
+     * <b>post: </b> Se eliminó el nodo de la lista de hijos y quedó sin padre. Los totales del nodo se restaron de esta categoría y de sus ancestros, y se
+     * recalcularon los más vendidos de las que tenían alguno de sus productos.
+     * @param pNodo NodoAlmacen que se va a eliminar. pNodo != null.
+     */
+    void eliminarHijo( NodoAlmacen pNodo )
+    {
+        nodosHijos.remove( pNodo );
+        pNodo.padre = null;
+        actualizarTotales( -pNodo.darValorVentasCentavos( ), -pNodo.darCantidadUnidadesVendidas( ), -pNodo.darCantidadProductos( ) );
+        Categoria actual = this;
+        while( actual != null && actual.masVendidos.comparte( pNodo.masVendidos ) )
+        {
+            actual.reconstruirMasVendidos( );
+            actual = actual.padre;
+        }
+    }
+
+    /**
+     * Suma las diferencias dadas a los totales de esta categoría y de todos sus ancestros.<br>
+     * <b>pre: </b> Si la cantidad de productos cambia, ningún otro hilo está modificando el árbol. Las ventas, que no la cambian, se pueden sumar desde varios hilos.<br>
+     * <b>post: </b> Se actualizaron los totales del camino entre esta categoría y la raíz.
+     * @param pValorVentas Diferencia en el valor de las ventas en centavos.
+     * @param pUnidades Diferencia en la cantidad de unidades vendidas.
+     * @param pProductos Diferencia en la cantidad de productos.
+     */
+    void actualizarTotales( long pValorVentas, long pUnidades, int pProductos )
+    {
+        Categoria actual = this;
+        while( actual != null )
+        {
+            actual.valorVentas.add( pValorVentas );
+            actual.cantidadUnidadesVendidas.add( pUnidades );
+            if( pProductos != 0 )
+            {
+                actual.cantidadProductos += pProductos;
+            }
+            actual = actual.padre;
+        }
+    }
+
+    /**
+     * Ubica el producto dado, cuyas ventas aumentaron o que es nuevo, en los más vendidos de esta categoría y de sus ancestros. Se detiene en la primera categoría
+     * en la que el producto no queda entre los más vendidos, porque tampoco puede quedar en las de arriba.<br>
+     * <b>post: </b> Se actualizaron los más vendidos del camino entre esta categoría y la raíz.
+     * @param pProducto Producto del subárbol. pProducto != null.
+     */
+    void actualizarMasVendidos( Producto pProducto )
+    {
+        Categoria actual = this;
+        while( actual != null && actual.masVendidos.actualizar( pProducto ) )
+        {
+            actual = actual.padre;
+        }
+    }
+
+    /**
+     * Ubica los más vendidos del nodo dado, que se agregó al subárbol, en los de esta categoría y de sus ancestros. Se detiene en la primera categoría en la que
+     * no queda ninguno de ellos.<br>
+     * <b>post: </b> Se actualizaron los más vendidos del camino entre esta categoría y la raíz.
+     * @param pNodo Nodo descendiente de esta categoría. pNodo != null.
+     */
+    void combinarMasVendidos( NodoAlmacen pNodo )
+    {
+        Categoria actual = this;
+        while( actual != null && actual.masVendidos.combinar( pNodo.masVendidos ) )
+        {
+            actual = actual.padre;
+        }
+    }
+
+    /**
+     * Saca el producto dado de los más vendidos de esta categoría y de sus ancestros. Las que lo tenían se recalculan con los más vendidos de sus hijos.<br>
+     * <b>pre: </b> El producto ya salió del subárbol y los más vendidos de los hijos ya no lo tienen.<br>
+     * <b>post: </b> Ninguna categoría del camino entre esta y la raíz tiene el producto entre sus más vendidos.
+     * @param pProducto Producto eliminado. pProducto != null.
+     */
+    void quitarMasVendido( Producto pProducto )
+    {
+        Categoria actual = this;
+        while( actual != null && actual.masVendidos.quitar( pProducto ) )
+        {
+            actual.reconstruirMasVendidos( );
+            actual = actual.padre;
+        }
+    }
+
+    /**
+     * Recalcula los más vendidos de la categoría con los de sus hijos, sin recorrer sus productos.<br>
+     * <b>post: </b> Los más vendidos de la categoría son los más vendidos entre los de sus hijos.
+     */
+    private void reconstruirMasVendidos( )
+    {
+        masVendidos.vaciar( );
+        for( NodoAlmacen hijo : nodosHijos )
+        {
+            masVendidos.combinar( hijo.masVendidos );
+        }
+    }
+
+    /**
+     * Suma las ventas dadas sólo a los totales de esta categoría, sin recorrer sus ancestros. Se usa cuando quien llama ya acumuló las ventas de cada categoría.<br>
+     * <b>post: </b> Se actualizaron el valor de las ventas y las unidades vendidas de esta categoría.
+     * @param pValorVentas Valor de las ventas nuevas en centavos.
+     * @param pUnidades Unidades vendidas nuevas.
+     */
+    void sumarVentas( long pValorVentas, long pUnidades )
+    {
+        valorVentas.add( pValorVentas );
+        cantidadUnidadesVendidas.add( pUnidades );
+    }
+
     /**
      * Elimina el nodo con el identificador dado.<br>
-     * <b>pre: </b>La lista de nodosHijos est inicializada. Existe un nodo con el identificador dado en el subrbol.<br>
-     * <b>post: </b> Se elimin el nodo con toda su informacin y su subrbol asociado.
+     * <b>pre: </b>La lista de nodosHijos está inicializada. Existe un nodo con el identificador dado en el subárbol.<br>
+     * <b>post: </b> Se eliminó el nodo con toda su información y su subárbol asociado.
      * @param pIdentificador Identificador del nodo. pIdentificador != null && pIdentificador != "".
      * @return NodoAlmacen eliminado.
      */
     public NodoAlmacen eliminarNodo( String pIdentificador )
     {
-        NodoAlmacen respuesta = null;
-        for( int i = 0; i < nodosHijos.size( ) && respuesta == null; i++ )
+        NodoAlmacen respuesta = buscarNodo( pIdentificador );
+        if( respuesta == this )
         {
-            NodoAlmacen actual = nodosHijos.get( i );
-            if( actual.identificador.equals( pIdentificador ) )
-            {
-                respuesta = nodosHijos.remove( i );
-            }
-            else if( actual instanceof Categoria )
-            {
-                respuesta = ( ( Categoria )actual ).eliminarNodo( pIdentificador );
-            }
+            respuesta = null;
+        }
+        else if( respuesta != null )
+        {
+            respuesta.padre.eliminarHijo( respuesta );
         }
-
         return respuesta;
     }
 
     /**
-     * Busca el producto con el cdigo dado.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * Busca el producto con el código dado.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
      * @return El producto buscado o null si no existe.
      */
     public Producto buscarProducto( String pCodigo )
@@ -261,7 +409,7 @@ public class Categoria extends NodoAlmacen
 
     /**
      * Agrega a la lista acumulada todos los productos del nodo.<br>
-     * <b>pre:</b> La lista de nodosHijos est inicializada.
+     * <b>pre:</b> La lista de nodosHijos está inicializada.
      * @param pProductos Lista acumulada con los productos. pProductos != null.
      */
     @Override
@@ -274,9 +422,22 @@ public class Categoria extends NodoAlmacen
     }
 
     /**
-     * Retorna una lista con todas las marcas que tiene la categora y su subrbol.<br>
-     * <b>pre:</b> La lista de nodosHijos est inicializada.<br>
-     * @return Lista con todas las marcas de la categora y su subrbol.
+     * Agrega al resumen dado todas las marcas del subárbol y sus productos.
+     * @param pResumen Resumen acumulado. pResumen != null.
+     */
+    @Override
+    void resumir( ResumenSubarbol pResumen )
+    {
+        for( NodoAlmacen nodoAlmacen : nodosHijos )
+        {
+            nodoAlmacen.resumir( pResumen );
+        }
+    }
+
+    /**
+     * Retorna una lista con todas las marcas que tiene la categoría y su subárbol.<br>
+     * <b>pre:</b> La lista de nodosHijos está inicializada.<br>
+     * @return Lista con todas las marcas de la categoría y su subárbol.
      * 
      */
     public List<Marca> darMarcas( )
@@ -298,9 +459,9 @@ public class Categoria extends NodoAlmacen
     }
 
     /**
-     * Retorna todos los nodosHijos del rbol que tiene como raz este nodo. Los nodosHijos se agregan en preorden.<br>
-     * <b>pre:</b> La lista de nodosHijos est inicializada.
-     * @return Lista con todos los nodosHijos del rbol.
+     * Retorna todos los nodosHijos del árbol que tiene como raíz este nodo. Los nodosHijos se agregan en preorden.<br>
+     * <b>pre:</b> La lista de nodosHijos está inicializada.
+     * @return Lista con todos los nodosHijos del árbol.
      */
     public List<NodoAlmacen> darPreorden( )
     {
@@ -321,9 +482,9 @@ public class Categoria extends NodoAlmacen
     }
 
     /**
-     * Retorna todos los nodosHijos del rbol que tiene como raz este nodo. Los nodosHijos se agregan en posorden.<br>
-     * <b>pre:</b> La lista de nodosHijos est inicializada.
-     * @return Lista con todos los nodosHijos del rbol.
+     * Retorna todos los nodosHijos del árbol que tiene como raíz este nodo. Los nodosHijos se agregan en posorden.<br>
+     * <b>pre:</b> La lista de nodosHijos está inicializada.
+     * @return Lista con todos los nodosHijos del árbol.
      */
     public List<NodoAlmacen> darPosorden( )
     {
@@ -344,17 +505,69 @@ public class Categoria extends NodoAlmacen
     }
 
     /**
-     * Retorna el valor total de las ventas de la categora.
-     * @return Valor de las ventas de la categora.
+     * Retorna el valor total de las ventas de la categoría en centavos.
+     * @return Valor de las ventas de la categoría en centavos.
+     */
+    @Override
+    public long darValorVentasCentavos( )
+    {
+        return valorVentas.sum( );
+    }
+
+    /**
+     * Retorna la cantidad total de unidades vendidas de los productos de la categoría.
+     * @return Unidades vendidas de la categoría.
      */
-    public double darValorVentas( )
+    @Override
+    public long darCantidadUnidadesVendidas( )
     {
-        double valorVentas = 0;
-        for( NodoAlmacen nodoAlmacen : nodosHijos )
+        return cantidadUnidadesVendidas.sum( );
+    }
+
+    /**
+     * Retorna la cantidad de productos de la categoría y su subárbol.
+     * @return Cantidad de productos de la categoría.
+     */
+    @Override
+    public int darCantidadProductos( )
+    {
+        return cantidadProductos;
+    }
+
+    /**
+     * Escribe la categoría y su subárbol en la copia binaria.
+     * @param pEscritor Escritor de la copia binaria. pEscritor != null.
+     * @throws IOException Si ocurre un error escribiendo la copia.
+     */
+    @Override
+    public void escribir( EscritorBinario pEscritor ) throws IOException
+    {
+        pEscritor.escribirByte( LectorBinario.TIPO_CATEGORIA );
+        pEscritor.escribirTexto( identificador );
+        pEscritor.escribirTexto( nombre );
+        pEscritor.escribirEntero( nodosHijos.size( ) );
+        for( NodoAlmacen hijo : nodosHijos )
         {
-            valorVentas += nodoAlmacen.darValorVentas( );
+            hijo.escribir( pEscritor );
         }
-        return valorVentas;
     }
 
+    /**
+     * Escribe la categoría y su subárbol en el catálogo de texto.
+     * @param pEscritor Escritor del catálogo. pEscritor != null.
+     * @throws IOException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo.
+     */
+    @Override
+    public void escribir( EscritorCatalogo pEscritor ) throws IOException
+    {
+        pEscritor.escribirCampo( TIPO );
+        pEscritor.escribirCampo( identificador );
+        pEscritor.escribirCampo( nombre );
+        pEscritor.escribirEntero( nodosHijos.size( ) );
+        pEscritor.terminarRegistro( );
+        for( NodoAlmacen hijo : nodosHijos )
+        {
+            hijo.escribir( pEscritor );
+        }
+    }
 }
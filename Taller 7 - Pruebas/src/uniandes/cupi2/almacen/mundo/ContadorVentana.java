@@ -0,0 +1,281 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+/**
+ * Contador de una cantidad en ventanas de tiempo recientes. Guarda tres anillos de casillas: los últimos 60 minutos, las últimas 24 horas y los últimos 30 días.
+ * Cada cantidad se suma en la casilla de su instante en los tres anillos, y las casillas que salen de un anillo se descartan, así que la memoria no crece con el
+ * tiempo.<br>
+ * Cada anillo sólo guarda las casillas que tienen cantidades, en orden de periodo y con su periodo, y crece a medida que se necesitan hasta su cantidad de casillas.
+ * Así un contador con pocas cantidades, como el de un producto que se vende poco, ocupa poco, y uno con cantidades en todos los periodos ocupa lo mismo que un
+ * arreglo con todas las casillas.<br>
+ * Una consulta usa el anillo más fino que cubre la duración pedida y suma sus casillas, incluyendo la casilla actual completa, de modo que la duración tiene la
+ * precisión de una casilla del anillo y el costo no depende de cuántas cantidades se sumaron.<br>
+ * El contador no es seguro para varios hilos: quien lo usa lo debe sincronizar.
+ */
+public class ContadorVentana
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Duración de un minuto en milisegundos.
+     */
+    public final static long MINUTO = 60 * 1000L;
+
+    /**
+     * Duración de una hora en milisegundos.
+     */
+    public final static long HORA = 60 * MINUTO;
+
+    /**
+     * Duración de un día en milisegundos.
+     */
+    public final static long DIA = 24 * HORA;
+
+    /**
+     * Duración máxima que se puede consultar en milisegundos.
+     */
+    public final static long DURACION_MAXIMA = 30 * DIA;
+
+    /**
+     * Duración de una casilla de cada anillo, del más fino al más grueso.
+     */
+    private final static long[] DURACIONES = { MINUTO, HORA, DIA };
+
+    /**
+     * Cantidad de casillas de cada anillo.
+     */
+    private final static int[] CASILLAS = { 60, 24, 30 };
+
+    /**
+     * Capacidad inicial de cada anillo, en casillas.
+     */
+    private final static int CAPACIDAD_INICIAL = 2;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Periodos de las casillas guardadas de cada anillo, medidos en casillas desde el origen del reloj. Cada anillo es un arreglo circular ordenado por periodo.
+     */
+    private long[][] periodos;
+
+    /**
+     * Cantidad de cada casilla guardada, en la misma posición que su periodo.
+     */
+    private long[][] cantidades;
+
+    /**
+     * Posición de la casilla más antigua de cada anillo.
+     */
+    private int[] inicios;
+
+    /**
+     * Cantidad de casillas guardadas de cada anillo.
+     */
+    private int[] tamanos;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un contador vacío.<br>
+     * <b>post: </b> Todas las ventanas suman 0.
+     */
+    public ContadorVentana( )
+    {
+        periodos = new long[DURACIONES.length][CAPACIDAD_INICIAL];
+        cantidades = new long[DURACIONES.length][CAPACIDAD_INICIAL];
+        inicios = new int[DURACIONES.length];
+        tamanos = new int[DURACIONES.length];
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Suma una cantidad en el instante dado. Si el instante es posterior al último sumado, primero se descartan las casillas que salen de cada anillo. Los
+     * anillos en los que el instante ya salió de la ventana no cambian.<br>
+     * <b>post: </b> La cantidad quedó en la casilla del instante de cada anillo que todavía lo cubre.
+     * @param pInstante Instante de la cantidad en milisegundos.
+     * @param pCantidad Cantidad que se suma.
+     */
+    public void sumar( long pInstante, long pCantidad )
+    {
+        for( int anillo = 0; anillo < DURACIONES.length; anillo++ )
+        {
+            sumar( anillo, Math.floorDiv( pInstante, DURACIONES[ anillo ] ), pCantidad );
+        }
+    }
+
+    /**
+     * Suma una cantidad en la casilla del periodo dado de un anillo. El caso común, un periodo igual o posterior al último, no recorre el anillo.
+     * @param pAnillo Anillo de la casilla.
+     * @param pPeriodo Periodo de la casilla.
+     * @param pCantidad Cantidad que se suma.
+     */
+    private void sumar( int pAnillo, long pPeriodo, long pCantidad )
+    {
+        int ultima = tamanos[ pAnillo ] - 1;
+        long ultimo = ultima < 0 ? Long.MIN_VALUE : periodos[ pAnillo ][ darPosicion( pAnillo, ultima ) ];
+        if( pPeriodo == ultimo )
+        {
+            cantidades[ pAnillo ][ darPosicion( pAnillo, ultima ) ] += pCantidad;
+        }
+        else if( pPeriodo > ultimo )
+        {
+            descartar( pAnillo, pPeriodo - CASILLAS[ pAnillo ] );
+            insertar( pAnillo, tamanos[ pAnillo ], pPeriodo, pCantidad );
+        }
+        else if( pPeriodo > ultimo - CASILLAS[ pAnillo ] )
+        {
+            int i = ultima;
+            while( i >= 0 && periodos[ pAnillo ][ darPosicion( pAnillo, i ) ] > pPeriodo )
+            {
+                i--;
+            }
+            if( i >= 0 && periodos[ pAnillo ][ darPosicion( pAnillo, i ) ] == pPeriodo )
+            {
+                cantidades[ pAnillo ][ darPosicion( pAnillo, i ) ] += pCantidad;
+            }
+            else
+            {
+                insertar( pAnillo, i + 1, pPeriodo, pCantidad );
+            }
+        }
+    }
+
+    /**
+     * Resta de cada casilla de este contador la casilla del mismo periodo de otro contador multiplicada por el factor dado. Se usa cuando un subárbol sale de
+     * otro, cuyo contador ya tenía sus cantidades.<br>
+     * <b>pre: </b> Todas las cantidades del otro contador se sumaron también a este, multiplicadas por el factor.<br>
+     * <b>post: </b> Este contador tiene sólo las cantidades que no vinieron del otro.
+     * @param pOtro Contador que se resta. pOtro != null && pOtro != this.
+     * @param pFactor Factor por el que se multiplica cada casilla del otro contador.
+     */
+    public void restar( ContadorVentana pOtro, long pFactor )
+    {
+        for( int anillo = 0; anillo < DURACIONES.length; anillo++ )
+        {
+            int i = 0;
+            for( int j = 0; j < pOtro.tamanos[ anillo ]; j++ )
+            {
+                long periodo = pOtro.periodos[ anillo ][ pOtro.darPosicion( anillo, j ) ];
+                while( i < tamanos[ anillo ] && periodos[ anillo ][ darPosicion( anillo, i ) ] < periodo )
+                {
+                    i++;
+                }
+                if( i < tamanos[ anillo ] && periodos[ anillo ][ darPosicion( anillo, i ) ] == periodo )
+                {
+                    cantidades[ anillo ][ darPosicion( anillo, i ) ] -= pOtro.cantidades[ anillo ][ pOtro.darPosicion( anillo, j ) ] * pFactor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna la suma de las cantidades de la ventana de la duración dada que termina en el instante dado. La ventana está alineada con las casillas del anillo
+     * más fino que la cubre: incluye la casilla del instante y las anteriores hasta completar la duración.
+     * @param pInstante Instante en que termina la ventana en milisegundos.
+     * @param pDuracion Duración de la ventana en milisegundos. 0 < pDuracion <= DURACION_MAXIMA.
+     * @return Suma de las cantidades de la ventana.
+     */
+    public long darTotal( long pInstante, long pDuracion )
+    {
+        int anillo = 0;
+        while( CASILLAS[ anillo ] * DURACIONES[ anillo ] < pDuracion )
+        {
+            anillo++;
+        }
+        long hasta = Math.floorDiv( pInstante, DURACIONES[ anillo ] );
+        long desde = hasta - ( pDuracion + DURACIONES[ anillo ] - 1 ) / DURACIONES[ anillo ] + 1;
+        long total = 0;
+        for( int i = 0; i < tamanos[ anillo ]; i++ )
+        {
+            int posicion = darPosicion( anillo, i );
+            if( periodos[ anillo ][ posicion ] >= desde && periodos[ anillo ][ posicion ] <= hasta )
+            {
+                total += cantidades[ anillo ][ posicion ];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Descarta del anillo dado las casillas de los periodos iguales o anteriores al dado.<br>
+     * <b>post: </b> Todas las casillas del anillo son de periodos posteriores al dado.
+     * @param pAnillo Anillo del que se descartan las casillas.
+     * @param pPeriodo Último periodo que se descarta.
+     */
+    private void descartar( int pAnillo, long pPeriodo )
+    {
+        while( tamanos[ pAnillo ] > 0 && periodos[ pAnillo ][ inicios[ pAnillo ] ] <= pPeriodo )
+        {
+            inicios[ pAnillo ] = ( inicios[ pAnillo ] + 1 ) % periodos[ pAnillo ].length;
+            tamanos[ pAnillo ]--;
+        }
+    }
+
+    /**
+     * Inserta una casilla en el anillo dado, duplicando su capacidad si está lleno.<br>
+     * <b>pre: </b> El periodo es mayor que el de las casillas anteriores a la posición y menor que el de las siguientes, y el anillo tiene menos casillas que
+     * CASILLAS.<br>
+     * <b>post: </b> La casilla quedó en la posición dada y las siguientes se corrieron una posición.
+     * @param pAnillo Anillo de la casilla.
+     * @param pIndice Posición de la casilla contada desde la más antigua. 0 <= pIndice <= tamanos[pAnillo].
+     * @param pPeriodo Periodo de la casilla.
+     * @param pCantidad Cantidad de la casilla.
+     */
+    private void insertar( int pAnillo, int pIndice, long pPeriodo, long pCantidad )
+    {
+        int tamano = tamanos[ pAnillo ];
+        if( tamano == periodos[ pAnillo ].length )
+        {
+            int capacidad = Math.min( tamano * 2, CASILLAS[ pAnillo ] );
+            long[] nuevosPeriodos = new long[capacidad];
+            long[] nuevasCantidades = new long[capacidad];
+            for( int i = 0; i < tamano; i++ )
+            {
+                nuevosPeriodos[ i ] = periodos[ pAnillo ][ darPosicion( pAnillo, i ) ];
+                nuevasCantidades[ i ] = cantidades[ pAnillo ][ darPosicion( pAnillo, i ) ];
+            }
+            periodos[ pAnillo ] = nuevosPeriodos;
+            cantidades[ pAnillo ] = nuevasCantidades;
+            inicios[ pAnillo ] = 0;
+        }
+        for( int i = tamano; i > pIndice; i-- )
+        {
+            periodos[ pAnillo ][ darPosicion( pAnillo, i ) ] = periodos[ pAnillo ][ darPosicion( pAnillo, i - 1 ) ];
+            cantidades[ pAnillo ][ darPosicion( pAnillo, i ) ] = cantidades[ pAnillo ][ darPosicion( pAnillo, i - 1 ) ];
+        }
+        periodos[ pAnillo ][ darPosicion( pAnillo, pIndice ) ] = pPeriodo;
+        cantidades[ pAnillo ][ darPosicion( pAnillo, pIndice ) ] = pCantidad;
+        tamanos[ pAnillo ] = tamano + 1;
+    }
+
+    /**
+     * Retorna la posición en los arreglos del anillo dado de la casilla con el índice dado.
+     * @param pAnillo Anillo de la casilla.
+     * @param pIndice Índice de la casilla contado desde la más antigua.
+     * @return Posición de la casilla en los arreglos del anillo.
+     */
+    private int darPosicion( int pAnillo, int pIndice )
+    {
+        return ( inicios[ pAnillo ] + pIndice ) % periodos[ pAnillo ].length;
+    }
+}
@@ -0,0 +1,167 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fuente de las descripciones de los productos que se leen del archivo sólo cuando se piden.<br>
+ * Los productos guardan la posición y la longitud de su descripción en el archivo. Las últimas descripciones leídas se guardan en un caché de tamaño limitado que
+ * descarta la descripción usada hace más tiempo. Una longitud negativa indica que la descripción está en UTF-8 y que su longitud es -(longitud + 1); en caso
+ * contrario está en la codificación del catálogo.
+ */
+public class DescripcionesDiferidas implements Closeable
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Cantidad de descripciones que se guardan en el caché por defecto.
+     */
+    public final static int CAPACIDAD_CACHE = 256;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Canal del archivo que contiene las descripciones.
+     */
+    private FileChannel canal;
+
+    /**
+     * Caché de las descripciones leídas. La llave es la posición de la descripción en el archivo.
+     */
+    private Map<Long, String> cache;
+
+    /**
+     * Cantidad de descripciones que se leyeron del archivo.
+     */
+    private long lecturas;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Abre el archivo dado con un caché de la capacidad por defecto.
+     * @param pArchivo Archivo que contiene las descripciones. pArchivo != null.
+     * @throws IOException Si ocurre un error abriendo el archivo.
+     */
+    public DescripcionesDiferidas( File pArchivo ) throws IOException
+    {
+        this( pArchivo, CAPACIDAD_CACHE );
+    }
+
+    /**
+     * Abre el archivo dado con un caché de la capacidad dada.
+     * @param pArchivo Archivo que contiene las descripciones. pArchivo != null.
+     * @param pCapacidad Cantidad máxima de descripciones en el caché. pCapacidad >= 0.
+     * @throws IOException Si ocurre un error abriendo el archivo.
+     */
+    @SuppressWarnings("serial")
+    public DescripcionesDiferidas( File pArchivo, final int pCapacidad ) throws IOException
+    {
+        canal = FileChannel.open( pArchivo.toPath( ), StandardOpenOption.READ );
+        cache = new LinkedHashMap<Long, String>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Long, String> pEntrada )
+            {
+                return size( ) > pCapacidad;
+            }
+        };
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Retorna la descripción que está en la posición dada del archivo, del caché si está allí.<br>
+     * <b>post: </b> La descripción es la más reciente del caché.
+     * @param pPosicion Posición de la descripción en el archivo. pPosicion >= 0.
+     * @param pLongitud Longitud de la descripción en bytes, negativa si está en UTF-8.
+     * @return Descripción.
+     * @throws IllegalStateException Si ocurre un error leyendo el archivo.
+     */
+    public synchronized String darDescripcion( long pPosicion, int pLongitud )
+    {
+        String descripcion = cache.get( pPosicion );
+        if( descripcion == null )
+        {
+            try
+            {
+                descripcion = leer( pPosicion, pLongitud );
+            }
+            catch( IOException e )
+            {
+                throw new IllegalStateException( "Error al leer la descripción.\n" + e.getMessage( ), e );
+            }
+            cache.put( pPosicion, descripcion );
+            lecturas++;
+        }
+        return descripcion;
+    }
+
+    /**
+     * Lee del archivo la descripción que está en la posición dada.
+     * @param pPosicion Posición de la descripción en el archivo. pPosicion >= 0.
+     * @param pLongitud Longitud de la descripción en bytes, negativa si está en UTF-8.
+     * @return Descripción leída.
+     * @throws IOException Si el archivo termina antes o si ocurre un error leyéndolo.
+     */
+    private String leer( long pPosicion, int pLongitud ) throws IOException
+    {
+        int longitud = pLongitud < 0 ? -( pLongitud + 1 ) : pLongitud;
+        ByteBuffer buffer = ByteBuffer.allocate( longitud );
+        while( buffer.hasRemaining( ) )
+        {
+            if( canal.read( buffer, pPosicion + buffer.position( ) ) < 0 )
+            {
+                throw new EOFException( "El archivo terminó antes de la descripción." );
+            }
+        }
+        return new String( buffer.array( ), pLongitud < 0 ? StandardCharsets.UTF_8 : LectorCatalogo.CODIFICACION );
+    }
+
+    /**
+     * Retorna la cantidad de descripciones que se leyeron del archivo porque no estaban en el caché.
+     * @return Cantidad de lecturas del archivo.
+     */
+    public synchronized long darLecturas( )
+    {
+        return lecturas;
+    }
+
+    /**
+     * Cierra el archivo.
+     * @throws IOException Si ocurre un error cerrando el archivo.
+     */
+    @Override
+    public synchronized void close( ) throws IOException
+    {
+        cache.clear( );
+        canal.close( );
+    }
+}
@@ -0,0 +1,146 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escritor de la copia binaria del almacén. El formato se describe en LectorBinario.
+ */
+public class EscritorBinario implements Closeable
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Tamaño del buffer de escritura del archivo.
+     */
+    private final static int TAMANO_BUFFER = 1 << 16;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Flujo del archivo.
+     */
+    private DataOutputStream salida;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Crea la copia binaria dada y escribe su encabezado.<br>
+     * <b>post: </b> La siguiente escritura corresponde al nodo raíz.
+     * @param pArchivo Archivo de la copia. Si existe se reemplaza. pArchivo != null.
+     * @param pCantidadNodos Cantidad de nodos del almacén. pCantidadNodos >= 1.
+     * @param pCantidadProductos Cantidad de productos del almacén. pCantidadProductos >= 0.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public EscritorBinario( File pArchivo, int pCantidadNodos, int pCantidadProductos ) throws IOException
+    {
+        salida = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( pArchivo ), TAMANO_BUFFER ) );
+        salida.writeInt( LectorBinario.MAGIA );
+        salida.writeInt( LectorBinario.VERSION );
+        salida.writeInt( pCantidadNodos );
+        salida.writeInt( pCantidadProductos );
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Escribe un byte.
+     * @param pValor Byte que se escribe.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirByte( byte pValor ) throws IOException
+    {
+        salida.writeByte( pValor );
+    }
+
+    /**
+     * Escribe un entero.
+     * @param pValor Entero que se escribe.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirEntero( int pValor ) throws IOException
+    {
+        salida.writeInt( pValor );
+    }
+
+    /**
+     * Escribe un entero largo.
+     * @param pValor Entero que se escribe.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirLargo( long pValor ) throws IOException
+    {
+        salida.writeLong( pValor );
+    }
+
+    /**
+     * Escribe un decimal.
+     * @param pValor Decimal que se escribe.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirDecimal( double pValor ) throws IOException
+    {
+        salida.writeDouble( pValor );
+    }
+
+    /**
+     * Escribe un texto precedido por su longitud en bytes. Si todos sus caracteres caben en ISO-8859-1 se escribe en esa codificación, si no en UTF-8.
+     * @param pTexto Texto que se escribe. pTexto != null.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirTexto( String pTexto ) throws IOException
+    {
+        boolean latino = true;
+        for( int i = 0; i < pTexto.length( ) && latino; i++ )
+        {
+            latino = pTexto.charAt( i ) <= 0xFF;
+        }
+        if( latino )
+        {
+            byte[] bytes = pTexto.getBytes( LectorCatalogo.CODIFICACION );
+            salida.writeInt( bytes.length );
+            salida.write( bytes );
+        }
+        else
+        {
+            byte[] bytes = pTexto.getBytes( StandardCharsets.UTF_8 );
+            salida.writeInt( -( bytes.length + 1 ) );
+            salida.write( bytes );
+        }
+    }
+
+    /**
+     * Escribe los datos pendientes y cierra el archivo.
+     * @throws IOException Si ocurre un error escribiendo o cerrando el archivo.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        salida.close( );
+    }
+}
@@ -0,0 +1,225 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Escritor del catálogo en el formato de texto que leen LectorCatalogo y sus subclases: un registro por línea con los campos separados por SEPARADOR.<br>
+ * Los registros se escriben a medida que se recorre el árbol, sin armar el archivo en memoria.
+ */
+public class EscritorCatalogo implements Closeable
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Tamaño del buffer de escritura del archivo.
+     */
+    private final static int TAMANO_BUFFER = 1 << 16;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Flujo del archivo, para forzar los datos al disco al cerrar.
+     */
+    private FileOutputStream flujo;
+
+    /**
+     * Escritor con buffer sobre el flujo del archivo.
+     */
+    private Writer salida;
+
+    /**
+     * Indica si el registro actual todavía no tiene campos.
+     */
+    private boolean registroVacio;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Crea el archivo dado para escribir el catálogo.<br>
+     * <b>post: </b> La siguiente escritura es el primer campo del primer registro.
+     * @param pArchivo Archivo del catálogo. Si existe se reemplaza. pArchivo != null.
+     * @throws IOException Si ocurre un error creando el archivo.
+     */
+    public EscritorCatalogo( File pArchivo ) throws IOException
+    {
+        flujo = new FileOutputStream( pArchivo );
+        salida = new BufferedWriter( new OutputStreamWriter( flujo, LectorCatalogo.CODIFICACION ), TAMANO_BUFFER );
+        registroVacio = true;
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Escribe un campo de texto en el registro actual.
+     * @param pTexto Texto del campo. pTexto != null.
+     * @throws IOException Si el texto contiene el separador, un cambio de línea o caracteres que no existen en la codificación del catálogo, o si ocurre un error
+     *         escribiendo el archivo.
+     */
+    public void escribirCampo( String pTexto ) throws IOException
+    {
+        verificarTexto( pTexto );
+        separar( );
+        salida.write( pTexto );
+    }
+
+    /**
+     * Verifica que el texto dado se pueda guardar como un campo del catálogo.
+     * @param pTexto Texto del campo. pTexto != null.
+     * @throws IOException Si el texto contiene el separador, un cambio de línea o caracteres que no existen en la codificación del catálogo.
+     */
+    static void verificarTexto( String pTexto ) throws IOException
+    {
+        for( int i = 0; i < pTexto.length( ); i++ )
+        {
+            char caracter = pTexto.charAt( i );
+            if( caracter == '\n' || caracter == '\r' || caracter > 0xFF )
+            {
+                throw new IOException( "El texto \"" + pTexto + "\" tiene caracteres que no se pueden guardar en el catálogo." );
+            }
+        }
+        if( pTexto.contains( LectorCatalogo.SEPARADOR ) )
+        {
+            throw new IOException( "El texto \"" + pTexto + "\" contiene el separador " + LectorCatalogo.SEPARADOR + "." );
+        }
+    }
+
+    /**
+     * Escribe un campo entero en el registro actual.
+     * @param pValor Valor del campo.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirEntero( long pValor ) throws IOException
+    {
+        separar( );
+        salida.write( Long.toString( pValor ) );
+    }
+
+    /**
+     * Escribe un campo decimal en el registro actual. Los valores enteros se escriben sin parte decimal, como en el archivo original.
+     * @param pValor Valor del campo.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirDecimal( double pValor ) throws IOException
+    {
+        separar( );
+        if( pValor == Math.rint( pValor ) && Math.abs( pValor ) < 1e15 )
+        {
+            salida.write( Long.toString( ( long )pValor ) );
+        }
+        else
+        {
+            salida.write( Double.toString( pValor ) );
+        }
+    }
+
+    /**
+     * Escribe un valor en centavos como un campo decimal en pesos, exacto y sin parte decimal si los centavos son 0.
+     * @param pCentavos Valor del campo en centavos.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void escribirCentavos( long pCentavos ) throws IOException
+    {
+        separar( );
+        salida.write( formatearCentavos( pCentavos ) );
+    }
+
+    /**
+     * Retorna el texto en pesos de un valor en centavos, con el formato que lee LectorCatalogo.darDecimal.
+     * @param pCentavos Valor en centavos.
+     * @return Texto del valor en pesos, por ejemplo 1500, 1500.05 o -12345.07.
+     */
+    static String formatearCentavos( long pCentavos )
+    {
+        return formatearCentavos( pCentavos, false );
+    }
+
+    /**
+     * Retorna el texto en pesos de un valor en centavos. El signo va antes de los pesos, de modo que los valores negativos también se pueden leer de nuevo.
+     * @param pCentavos Valor en centavos. pCentavos != Long.MIN_VALUE.
+     * @param pDosDecimales Indica si se escriben siempre los dos decimales o sólo los necesarios, sin parte decimal si los centavos son 0.
+     * @return Texto del valor en pesos, por ejemplo 1500, 1500.5 o -12345.07, o 1500.00 y 1500.50 con dos decimales.
+     */
+    static String formatearCentavos( long pCentavos, boolean pDosDecimales )
+    {
+        long absoluto = Math.abs( pCentavos );
+        String pesos = ( pCentavos < 0 ? "-" : "" ) + absoluto / Producto.CENTAVOS_POR_PESO;
+        int centavos = ( int )( absoluto % Producto.CENTAVOS_POR_PESO );
+        if( pDosDecimales )
+        {
+            return pesos + ( centavos < 10 ? ".0" : "." ) + centavos;
+        }
+        if( centavos == 0 )
+        {
+            return pesos;
+        }
+        return pesos + ( centavos < 10 ? ".0" + centavos : centavos % 10 == 0 ? "." + centavos / 10 : "." + centavos );
+    }
+
+    /**
+     * Termina el registro actual.<br>
+     * <b>post: </b> La siguiente escritura es el primer campo de un nuevo registro.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    public void terminarRegistro( ) throws IOException
+    {
+        salida.write( '\n' );
+        registroVacio = true;
+    }
+
+    /**
+     * Escribe el separador si el registro actual ya tiene campos.
+     * @throws IOException Si ocurre un error escribiendo el archivo.
+     */
+    private void separar( ) throws IOException
+    {
+        if( !registroVacio )
+        {
+            salida.write( LectorCatalogo.SEPARADOR );
+        }
+        registroVacio = false;
+    }
+
+    /**
+     * Escribe los datos pendientes, los fuerza al disco y cierra el archivo.
+     * @throws IOException Si ocurre un error escribiendo o cerrando el archivo.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        try
+        {
+            salida.flush( );
+            flujo.getFD( ).sync( );
+        }
+        finally
+        {
+            salida.close( );
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lector de la copia binaria del almacén.<br>
+ * La copia empieza con un encabezado con un número mágico, la versión del formato y la cantidad de nodos y de productos. Luego vienen los nodos en preorden:
+ * cada nodo tiene su tipo, su identificador, su nombre y su cantidad de hijos, seguidos de sus hijos. Los hijos de una marca son sus productos ordenados por código,
+ * cada uno con su código, nombre, descripción, precio y unidades vendidas. Los textos se guardan precedidos por su longitud en bytes: en ISO-8859-1 cuando todos sus
+ * caracteres caben en esa codificación, que es el caso del catálogo y se decodifica sin conversión, y en UTF-8 en caso contrario. Para los textos en UTF-8 la
+ * longitud se guarda como -(longitud + 1).<br>
+ * El archivo se lee en un solo recorrido secuencial con bloques grandes, y los textos se decodifican directamente del bloque.
+ */
+public class LectorBinario implements Closeable
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Número mágico con el que empieza una copia binaria del almacén.
+     */
+    public final static int MAGIA = 0x414C4D43;
+
+    /**
+     * Versión del formato de la copia binaria. En la versión 2 los precios se guardan en centavos como enteros largos.
+     */
+    public final static int VERSION = 2;
+
+    /**
+     * Tipo que identifica a una categoría en la copia.
+     */
+    public final static byte TIPO_CATEGORIA = 0;
+
+    /**
+     * Tipo que identifica a una marca en la copia.
+     */
+    public final static byte TIPO_MARCA = 1;
+
+    /**
+     * Tamaño del buffer de lectura del archivo.
+     */
+    private final static int TAMANO_BUFFER = 1 << 20;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Canal del archivo.
+     */
+    private FileChannel canal;
+
+    /**
+     * Bloque del archivo que se está leyendo. Su posición es el siguiente dato.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Posición del archivo hasta la que se ha leído en el bloque. Se lleva aquí para no consultar el canal en cada dato.
+     */
+    private long posicionCanal;
+
+    /**
+     * Cantidad de nodos del almacén, según el encabezado.
+     */
+    private int cantidadNodos;
+
+    /**
+     * Cantidad de productos del almacén, según el encabezado.
+     */
+    private int cantidadProductos;
+
+    /**
+     * Fuente de las descripciones diferidas. Es null si las descripciones se cargan en memoria.
+     */
+    private DescripcionesDiferidas descripcionesDiferidas;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Abre la copia binaria dada y lee su encabezado.<br>
+     * <b>post: </b> La siguiente lectura corresponde al nodo raíz.
+     * @param pArchivo Archivo de la copia. pArchivo != null.
+     * @throws IOException Si ocurre un error leyendo el archivo.
+     * @throws AlmacenException Si el archivo no es una copia binaria del almacén o si su versión no es soportada.
+     */
+    public LectorBinario( File pArchivo ) throws IOException, AlmacenException
+    {
+        canal = FileChannel.open( pArchivo.toPath( ), StandardOpenOption.READ );
+        buffer = ByteBuffer.allocate( TAMANO_BUFFER );
+        buffer.limit( 0 );
+        try
+        {
+            if( leerEntero( ) != MAGIA )
+            {
+                throw new AlmacenException( "El archivo no es una copia binaria del almacén." );
+            }
+            int version = leerEntero( );
+            if( version != VERSION )
+            {
+                throw new AlmacenException( "La versión " + version + " de la copia binaria no es soportada." );
+            }
+            cantidadNodos = leerEntero( );
+            cantidadProductos = leerEntero( );
+        }
+        catch( IOException | AlmacenException e )
+        {
+            canal.close( );
+            throw e;
+        }
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Retorna la cantidad de nodos del almacén según el encabezado.
+     * @return Cantidad de nodos.
+     */
+    public int darCantidadNodos( )
+    {
+        return cantidadNodos;
+    }
+
+    /**
+     * Retorna la cantidad de productos del almacén según el encabezado.
+     * @return Cantidad de productos.
+     */
+    public int darCantidadProductos( )
+    {
+        return cantidadProductos;
+    }
+
+    /**
+     * Asegura que el bloque actual tenga la cantidad de bytes dada, leyendo más del archivo si es necesario.<br>
+     * <b>post: </b> El bloque tiene al menos la cantidad de bytes dada desde su posición.
+     * @param pCantidad Cantidad de bytes. pCantidad <= capacidad del bloque.
+     * @throws IOException Si el archivo termina antes o si ocurre un error leyéndolo.
+     */
+    private void asegurar( int pCantidad ) throws IOException
+    {
+        if( buffer.remaining( ) < pCantidad )
+        {
+            buffer.compact( );
+            while( buffer.position( ) < pCantidad )
+            {
+                int leidos = canal.read( buffer );
+                if( leidos < 0 )
+                {
+                    throw new EOFException( "La copia binaria terminó antes de lo esperado." );
+                }
+                posicionCanal += leidos;
+            }
+            buffer.flip( );
+        }
+    }
+
+    /**
+     * Hace que los productos que se construyan con este lector lean su descripción de la fuente dada sólo cuando se pida.<br>
+     * <b>post: </b> La fuente de las descripciones diferidas es la dada.
+     * @param pDescripciones Fuente de las descripciones, que debe corresponder a la misma copia. Si es null las descripciones se cargan en memoria.
+     */
+    public void diferirDescripciones( DescripcionesDiferidas pDescripciones )
+    {
+        descripcionesDiferidas = pDescripciones;
+    }
+
+    /**
+     * Retorna la fuente de las descripciones diferidas.
+     * @return Fuente de las descripciones o null si las descripciones se cargan en memoria.
+     */
+    public DescripcionesDiferidas darDescripcionesDiferidas( )
+    {
+        return descripcionesDiferidas;
+    }
+
+    /**
+     * Retorna la posición en el archivo del siguiente dato.
+     * @return Posición del siguiente dato.
+     */
+    public long darPosicion( )
+    {
+        return posicionCanal - buffer.remaining( );
+    }
+
+    /**
+     * Salta la cantidad de bytes dada sin leerlos.<br>
+     * <b>post: </b> El siguiente dato está después de los bytes saltados.
+     * @param pCantidad Cantidad de bytes. pCantidad >= 0.
+     * @throws IOException Si ocurre un error consultando el archivo.
+     */
+    public void saltar( int pCantidad ) throws IOException
+    {
+        if( pCantidad <= buffer.remaining( ) )
+        {
+            buffer.position( buffer.position( ) + pCantidad );
+        }
+        else
+        {
+            posicionCanal += pCantidad - buffer.remaining( );
+            canal.position( posicionCanal );
+            buffer.position( buffer.limit( ) );
+        }
+    }
+
+    /**
+     * Lee un byte.
+     * @return Byte leído.
+     * @throws IOException Si ocurre un error leyendo el archivo.
+     */
+    public byte leerByte( ) throws IOException
+    {
+        asegurar( 1 );
+        return buffer.get( );
+    }
+
+    /**
+     * Lee un entero.
+     * @return Entero leído.
+     * @throws IOException Si ocurre un error leyendo el archivo.
+     */
+    public int leerEntero( ) throws IOException
+    {
+        asegurar( 4 );
+        return buffer.getInt( );
+    }
+
+    /**
+     * Lee un entero largo.
+     * @return Entero leído.
+     * @throws IOException Si ocurre un error leyendo el archivo.
+     */
+    public long leerLargo( ) throws IOException
+    {
+        asegurar( 8 );
+        return buffer.getLong( );
+    }
+
+    /**
+     * Lee un decimal.
+     * @return Decimal leído.
+     * @throws IOException Si ocurre un error leyendo el archivo.
+     */
+    public double leerDecimal( ) throws IOException
+    {
+        asegurar( 8 );
+        return buffer.getDouble( );
+    }
+
+    /**
+     * Lee un texto precedido por su longitud en bytes.
+     * @return Texto leído.
+     * @throws IOException Si ocurre un error leyendo el archivo o si la longitud no es válida.
+     */
+    public String leerTexto( ) throws IOException
+    {
+        int longitud = leerEntero( );
+        Charset codificacion = LectorCatalogo.CODIFICACION;
+        if( longitud < 0 )
+        {
+            codificacion = StandardCharsets.UTF_8;
+            longitud = -( longitud + 1 );
+        }
+        String texto;
+        if( longitud <= buffer.capacity( ) )
+        {
+            asegurar( longitud );
+            texto = new String( buffer.array( ), buffer.position( ), longitud, codificacion );
+            buffer.position( buffer.position( ) + longitud );
+        }
+        else
+        {
+            // El texto no cabe en un bloque: se copia lo que queda del bloque y se lee el resto directamente
+            byte[] bytes = new byte[longitud];
+            int copiados = buffer.remaining( );
+            buffer.get( bytes, 0, copiados );
+            ByteBuffer resto = ByteBuffer.wrap( bytes, copiados, longitud - copiados );
+            while( resto.hasRemaining( ) )
+            {
+                int leidos = canal.read( resto );
+                if( leidos < 0 )
+                {
+                    throw new EOFException( "La copia binaria terminó antes de lo esperado." );
+                }
+                posicionCanal += leidos;
+            }
+            texto = new String( bytes, codificacion );
+        }
+        return texto;
+    }
+
+    /**
+     * Cierra el archivo.
+     * @throws IOException Si ocurre un error cerrando el archivo.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        canal.close( );
+    }
+}
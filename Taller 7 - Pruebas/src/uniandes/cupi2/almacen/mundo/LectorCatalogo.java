@@ -0,0 +1,436 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lector de registros del archivo del catálogo.<br>
+ * Cada línea del archivo es un registro con campos separados por ";;;". La línea se recorre una sola vez para ubicar los separadores y los campos se
+ * entregan por posición, sin crear arreglos intermedios. Los números se interpretan directamente sobre la línea.<br>
+ * Las subclases pueden obtener los registros de otra fuente redefiniendo avanzar y el acceso a los caracteres de la línea.
+ */
+public class LectorCatalogo implements Closeable
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Separador de los campos de un registro.
+     */
+    public final static String SEPARADOR = ";;;";
+
+    /**
+     * Codificación del archivo del catálogo.
+     */
+    public final static Charset CODIFICACION = StandardCharsets.ISO_8859_1;
+
+    /**
+     * Cantidad de campos que se reservan inicialmente. Corresponde a los campos de un producto.
+     */
+    private final static int CAMPOS_INICIALES = 5;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Lector del archivo.
+     */
+    private BufferedReader lector;
+
+    /**
+     * Línea actual. Es null si no hay línea actual.
+     */
+    private String linea;
+
+    /**
+     * Posición en la línea donde empieza cada campo.
+     */
+    private int[] inicios;
+
+    /**
+     * Posición en la línea donde termina cada campo, exclusiva.
+     */
+    private int[] fines;
+
+    /**
+     * Cantidad de campos de la línea actual.
+     */
+    private int cantidadCampos;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un lector sin fuente de registros, para las subclases que leen de otra fuente.<br>
+     * <b>post: </b> No hay registro actual.
+     */
+    protected LectorCatalogo( )
+    {
+        inicios = new int[CAMPOS_INICIALES];
+        fines = new int[CAMPOS_INICIALES];
+    }
+
+    /**
+     * Construye un lector sin línea actual.<br>
+     * <b>post: </b> Se debe llamar avanzar para leer el primer registro.
+     * @param pLector Lector del archivo. pLector != null.
+     */
+    public LectorCatalogo( BufferedReader pLector )
+    {
+        this( );
+        lector = pLector;
+    }
+
+    /**
+     * Construye un lector cuya línea actual es la dada, que ya fue leída del lector.<br>
+     * <b>post: </b> La línea dada es el registro actual.
+     * @param pLinea Línea actual. pLinea != null.
+     * @param pLector Lector del archivo, ubicado después de la línea dada. pLector != null.
+     */
+    public LectorCatalogo( String pLinea, BufferedReader pLector )
+    {
+        this( pLector );
+        separar( pLinea );
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Lee el siguiente registro del archivo.<br>
+     * <b>post: </b> El registro leído es el registro actual.
+     * @return True si se leyó un registro, false si se llegó al final del archivo.
+     * @throws IOException Si ocurre un error leyendo el archivo.
+     */
+    public boolean avanzar( ) throws IOException
+    {
+        String siguiente = lector.readLine( );
+        if( siguiente != null )
+        {
+            separar( siguiente );
+        }
+        else
+        {
+            linea = null;
+            limpiarCampos( );
+        }
+        return siguiente != null;
+    }
+
+    /**
+     * Lee el siguiente registro del archivo y falla si no existe.<br>
+     * <b>post: </b> El registro leído es el registro actual.
+     * @throws AlmacenException Si se llegó al final del archivo o si ocurre un error leyendo el archivo.
+     */
+    public void avanzarObligatorio( ) throws AlmacenException
+    {
+        try
+        {
+            if( !avanzar( ) )
+            {
+                throw new AlmacenException( "El archivo terminó antes de lo esperado." );
+            }
+        }
+        catch( IOException e )
+        {
+            throw new AlmacenException( "Error al leer el archivo.\n" + e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Ubica los campos de la línea dada recorriéndola una sola vez.<br>
+     * <b>post: </b> La línea dada es el registro actual.
+     * @param pLinea Línea que se va a separar. pLinea != null.
+     */
+    private void separar( String pLinea )
+    {
+        linea = pLinea;
+        limpiarCampos( );
+        int inicio = 0;
+        int fin = linea.indexOf( SEPARADOR );
+        while( fin >= 0 )
+        {
+            agregarCampo( inicio, fin );
+            inicio = fin + SEPARADOR.length( );
+            fin = linea.indexOf( SEPARADOR, inicio );
+        }
+        agregarCampo( inicio, linea.length( ) );
+    }
+
+    /**
+     * Elimina los campos del registro actual.<br>
+     * <b>post: </b> El registro actual no tiene campos.
+     */
+    protected void limpiarCampos( )
+    {
+        cantidadCampos = 0;
+    }
+
+    /**
+     * Agrega los límites de un campo, ampliando los arreglos si es necesario.
+     * @param pInicio Posición donde empieza el campo.
+     * @param pFin Posición donde termina el campo, exclusiva.
+     */
+    protected void agregarCampo( int pInicio, int pFin )
+    {
+        if( cantidadCampos == inicios.length )
+        {
+            int[] nuevosInicios = new int[inicios.length * 2];
+            int[] nuevosFines = new int[fines.length * 2];
+            System.arraycopy( inicios, 0, nuevosInicios, 0, cantidadCampos );
+            System.arraycopy( fines, 0, nuevosFines, 0, cantidadCampos );
+            inicios = nuevosInicios;
+            fines = nuevosFines;
+        }
+        inicios[ cantidadCampos ] = pInicio;
+        fines[ cantidadCampos ] = pFin;
+        cantidadCampos++;
+    }
+
+    /**
+     * Retorna la línea del registro actual.
+     * @return Línea actual o null si no hay registro actual.
+     */
+    public String darLinea( )
+    {
+        return linea;
+    }
+
+    /**
+     * Retorna el caracter de la línea actual en la posición dada.
+     * @param pPosicion Posición en la línea. 0 <= pPosicion < longitud de la línea.
+     * @return Caracter en la posición dada.
+     */
+    protected char darCaracter( int pPosicion )
+    {
+        return linea.charAt( pPosicion );
+    }
+
+    /**
+     * Retorna el texto de la línea actual entre las posiciones dadas.
+     * @param pInicio Posición inicial, inclusiva.
+     * @param pFin Posición final, exclusiva.
+     * @return Texto entre las posiciones.
+     */
+    protected String darTexto( int pInicio, int pFin )
+    {
+        return linea.substring( pInicio, pFin );
+    }
+
+    /**
+     * Retorna la cantidad de campos del registro actual.
+     * @return Cantidad de campos.
+     */
+    public int darCantidadCampos( )
+    {
+        return cantidadCampos;
+    }
+
+    /**
+     * Verifica que el registro actual tenga el campo dado.
+     * @param pCampo Posición del campo.
+     * @throws AlmacenException Si el registro no tiene el campo.
+     */
+    protected void verificarCampo( int pCampo ) throws AlmacenException
+    {
+        if( pCampo >= cantidadCampos )
+        {
+            throw new AlmacenException( "El registro no tiene el campo " + pCampo + ": " + darLinea( ) );
+        }
+    }
+
+    /**
+     * Retorna el texto del campo dado del registro actual.
+     * @param pCampo Posición del campo empezando en 0.
+     * @return Texto del campo.
+     * @throws AlmacenException Si el registro no tiene el campo.
+     */
+    public String darCampo( int pCampo ) throws AlmacenException
+    {
+        verificarCampo( pCampo );
+        return darTexto( inicios[ pCampo ], fines[ pCampo ] );
+    }
+
+    /**
+     * Retorna la longitud del campo dado del registro actual.
+     * @param pCampo Posición del campo empezando en 0.
+     * @return Longitud del campo.
+     * @throws AlmacenException Si el registro no tiene el campo.
+     */
+    public int darLongitudCampo( int pCampo ) throws AlmacenException
+    {
+        verificarCampo( pCampo );
+        return fines[ pCampo ] - inicios[ pCampo ];
+    }
+
+    /**
+     * Retorna la posición en el archivo donde empieza el campo dado del registro actual. Este lector no conoce las posiciones en el archivo.
+     * @param pCampo Posición del campo empezando en 0.
+     * @return Posición del campo en el archivo o -1 si el lector no la conoce.
+     * @throws AlmacenException Si el registro no tiene el campo.
+     */
+    public long darPosicionCampo( int pCampo ) throws AlmacenException
+    {
+        verificarCampo( pCampo );
+        return -1;
+    }
+
+    /**
+     * Retorna la posición en la línea actual donde empieza el campo dado.
+     * @param pCampo Posición del campo empezando en 0. pCampo < cantidad de campos.
+     * @return Posición del campo en la línea.
+     */
+    protected int darInicioCampo( int pCampo )
+    {
+        return inicios[ pCampo ];
+    }
+
+    /**
+     * Retorna la fuente de las descripciones diferidas. Si no es null, los productos no guardan su descripción sino su posición en el archivo.
+     * @return Fuente de las descripciones o null si las descripciones se cargan en memoria.
+     */
+    public DescripcionesDiferidas darDescripcionesDiferidas( )
+    {
+        return null;
+    }
+
+    /**
+     * Indica si el campo dado del registro actual es igual al valor dado. No crea cadenas nuevas.
+     * @param pCampo Posición del campo empezando en 0.
+     * @param pValor Valor con el que se compara. pValor != null.
+     * @return True si el registro tiene el campo y es igual al valor, false en caso contrario.
+     */
+    public boolean campoEs( int pCampo, String pValor )
+    {
+        boolean respuesta = pCampo < cantidadCampos && fines[ pCampo ] - inicios[ pCampo ] == pValor.length( );
+        for( int i = 0; i < pValor.length( ) && respuesta; i++ )
+        {
+            respuesta = darCaracter( inicios[ pCampo ] + i ) == pValor.charAt( i );
+        }
+        return respuesta;
+    }
+
+    /**
+     * Retorna el valor entero del campo dado del registro actual. Se ignoran los espacios al inicio y al final.
+     * @param pCampo Posición del campo empezando en 0.
+     * @return Valor entero del campo.
+     * @throws AlmacenException Si el registro no tiene el campo o si el campo no es un entero.
+     */
+    public long darEntero( int pCampo ) throws AlmacenException
+    {
+        verificarCampo( pCampo );
+        int inicio = inicios[ pCampo ];
+        int fin = fines[ pCampo ];
+        while( inicio < fin && darCaracter( inicio ) <= ' ' )
+        {
+            inicio++;
+        }
+        while( fin > inicio && darCaracter( fin - 1 ) <= ' ' )
+        {
+            fin--;
+        }
+        boolean negativo = inicio < fin && darCaracter( inicio ) == '-';
+        if( negativo || inicio < fin && darCaracter( inicio ) == '+' )
+        {
+            inicio++;
+        }
+        if( inicio == fin || fin - inicio > 18 )
+        {
+            throw new AlmacenException( "El campo " + pCampo + " no es un entero válido: " + darLinea( ) );
+        }
+        long valor = 0;
+        for( int i = inicio; i < fin; i++ )
+        {
+            char c = darCaracter( i );
+            if( c < '0' || c > '9' )
+            {
+                throw new AlmacenException( "El campo " + pCampo + " no es un entero válido: " + darLinea( ) );
+            }
+            valor = valor * 10 + ( c - '0' );
+        }
+        return negativo ? -valor : valor;
+    }
+
+    /**
+     * Retorna el valor entero del campo dado del registro actual, que debe ser una cantidad entre 0 y Integer.MAX_VALUE.
+     * @param pCampo Posición del campo empezando en 0.
+     * @return Valor entero del campo.
+     * @throws AlmacenException Si el registro no tiene el campo, si el campo no es un entero o si es negativo o mayor que Integer.MAX_VALUE.
+     */
+    public int darCantidad( int pCampo ) throws AlmacenException
+    {
+        long valor = darEntero( pCampo );
+        if( valor < 0 || valor > Integer.MAX_VALUE )
+        {
+            throw new AlmacenException( "El campo " + pCampo + " no es una cantidad válida: " + darLinea( ) );
+        }
+        return ( int )valor;
+    }
+
+    /**
+     * Retorna el valor decimal del campo dado del registro actual. Los valores enteros se interpretan sin crear cadenas nuevas.
+     * @param pCampo Posición del campo empezando en 0.
+     * @return Valor decimal del campo.
+     * @throws AlmacenException Si el registro no tiene el campo o si el campo no es un número.
+     */
+    public double darDecimal( int pCampo ) throws AlmacenException
+    {
+        verificarCampo( pCampo );
+        boolean entero = true;
+        for( int i = inicios[ pCampo ]; i < fines[ pCampo ] && entero; i++ )
+        {
+            char c = darCaracter( i );
+            entero = c >= '0' && c <= '9' || c <= ' ' || c == '-' || c == '+';
+        }
+
+        double respuesta;
+        if( entero )
+        {
+            respuesta = darEntero( pCampo );
+        }
+        else
+        {
+            try
+            {
+                respuesta = Double.parseDouble( darCampo( pCampo ) );
+            }
+            catch( NumberFormatException e )
+            {
+                throw new AlmacenException( "El campo " + pCampo + " no es un número válido: " + darLinea( ) );
+            }
+        }
+        return respuesta;
+    }
+
+    /**
+     * Cierra la fuente de los registros.
+     * @throws IOException Si ocurre un error cerrando la fuente.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        if( lector != null )
+        {
+            lector.close( );
+        }
+    }
+}
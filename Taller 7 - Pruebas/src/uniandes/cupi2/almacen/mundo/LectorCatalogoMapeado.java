@@ -0,0 +1,421 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lector de registros del catálogo que mapea el archivo en memoria.<br>
+ * El archivo se recorre por ventanas mapeadas, de modo que puede ser más grande que 2 GB. Cada línea se copia como bytes a un arreglo que se reutiliza y
+ * sólo se decodifican los campos que se piden como texto. Como el archivo está en ISO-8859-1, cada byte corresponde a un caracter.
+ */
+public class LectorCatalogoMapeado extends LectorCatalogo
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Tamaño por defecto de la ventana del archivo que se mapea en memoria.
+     */
+    public final static int TAMANO_VENTANA = 1 << 28;
+
+    /**
+     * Tamaño inicial del arreglo de la línea actual.
+     */
+    private final static int TAMANO_LINEA_INICIAL = 4096;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Canal del archivo.
+     */
+    private FileChannel canal;
+
+    /**
+     * Indica si el lector abrió el canal y por lo tanto debe cerrarlo.
+     */
+    private boolean canalPropio;
+
+    /**
+     * Posición del archivo donde termina la parte que se lee, exclusiva.
+     */
+    private long finLectura;
+
+    /**
+     * Tamaño máximo de cada ventana.
+     */
+    private int tamanoVentana;
+
+    /**
+     * Posición en el archivo donde empieza la ventana actual.
+     */
+    private long inicioVentana;
+
+    /**
+     * Ventana actual del archivo. Su posición es el inicio de la siguiente línea.
+     */
+    private MappedByteBuffer ventana;
+
+    /**
+     * Bytes de la línea actual.
+     */
+    private byte[] bytes;
+
+    /**
+     * Cantidad de bytes de la línea actual. Es -1 si no hay línea actual.
+     */
+    private int longitud;
+
+    /**
+     * Posición del archivo donde empieza la línea actual.
+     */
+    private long posicionLinea;
+
+    /**
+     * Fuente de las descripciones diferidas. Es null si las descripciones se cargan en memoria.
+     */
+    private DescripcionesDiferidas descripcionesDiferidas;
+
+    /**
+     * Posición en la ventana donde empieza la línea que se está ubicando.
+     */
+    private int inicioLinea;
+
+    /**
+     * Posición en la ventana del salto de línea de la línea que se está ubicando, o el límite de la ventana si es la última línea.
+     */
+    private int finLinea;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un lector que mapea el archivo dado con el tamaño de ventana por defecto.<br>
+     * <b>post: </b> Se debe llamar avanzar para leer el primer registro.
+     * @param pArchivo Archivo del catálogo. pArchivo != null.
+     * @throws IOException Si ocurre un error abriendo o mapeando el archivo.
+     */
+    public LectorCatalogoMapeado( File pArchivo ) throws IOException
+    {
+        this( pArchivo, TAMANO_VENTANA );
+    }
+
+    /**
+     * Construye un lector que mapea el archivo dado por ventanas del tamaño dado.<br>
+     * <b>post: </b> Se debe llamar avanzar para leer el primer registro.
+     * @param pArchivo Archivo del catálogo. pArchivo != null.
+     * @param pTamanoVentana Tamaño máximo de cada ventana. Debe ser mayor que la línea más larga del archivo. pTamanoVentana > 0.
+     * @throws IOException Si ocurre un error abriendo o mapeando el archivo.
+     */
+    public LectorCatalogoMapeado( File pArchivo, int pTamanoVentana ) throws IOException
+    {
+        this( FileChannel.open( pArchivo.toPath( ), StandardOpenOption.READ ), 0, -1, pTamanoVentana );
+        canalPropio = true;
+    }
+
+    /**
+     * Construye un lector de una parte de un archivo que ya está abierto. El lector no cierra el canal.<br>
+     * <b>post: </b> Se debe llamar avanzar para leer el primer registro de la parte.
+     * @param pCanal Canal del archivo. pCanal != null.
+     * @param pInicio Posición del archivo donde empieza la parte, que debe ser el inicio de una línea. pInicio >= 0.
+     * @param pFin Posición del archivo donde termina la parte, exclusiva. Si es -1 se lee hasta el final del archivo.
+     * @param pTamanoVentana Tamaño máximo de cada ventana. Debe ser mayor que la línea más larga del archivo. pTamanoVentana > 0.
+     * @throws IOException Si ocurre un error mapeando el archivo.
+     */
+    LectorCatalogoMapeado( FileChannel pCanal, long pInicio, long pFin, int pTamanoVentana ) throws IOException
+    {
+        canal = pCanal;
+        finLectura = pFin < 0 ? canal.size( ) : pFin;
+        tamanoVentana = pTamanoVentana;
+        bytes = new byte[TAMANO_LINEA_INICIAL];
+        longitud = -1;
+        mapear( pInicio );
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Mapea la ventana del archivo que empieza en la posición dada.<br>
+     * <b>post: </b> La ventana actual empieza en la posición dada.
+     * @param pInicio Posición del archivo donde empieza la ventana.
+     * @throws IOException Si ocurre un error mapeando el archivo.
+     */
+    private void mapear( long pInicio ) throws IOException
+    {
+        inicioVentana = pInicio;
+        ventana = canal.map( FileChannel.MapMode.READ_ONLY, pInicio, Math.min( tamanoVentana, finLectura - pInicio ) );
+    }
+
+    /**
+     * Busca el fin de la línea que empieza en la posición dada de la ventana.
+     * @param pInicio Posición de la ventana donde empieza la línea.
+     * @return Posición del salto de línea o el límite de la ventana si no lo encontró.
+     */
+    private int buscarFinLinea( int pInicio )
+    {
+        int fin = pInicio;
+        int limite = ventana.limit( );
+        while( fin < limite && ventana.get( fin ) != '\n' )
+        {
+            fin++;
+        }
+        return fin;
+    }
+
+    /**
+     * Ubica la siguiente línea del archivo, mapeando una nueva ventana si la línea no termina en la ventana actual.<br>
+     * <b>post: </b> inicioLinea y finLinea corresponden a la línea ubicada y posicionLinea es su posición en el archivo.
+     * @return True si se ubicó una línea, false si se llegó al final de la parte que se lee.
+     * @throws IOException Si ocurre un error mapeando el archivo o si una línea no cabe en la ventana.
+     */
+    private boolean ubicarLinea( ) throws IOException
+    {
+        inicioLinea = ventana.position( );
+        boolean hayLinea = inicioVentana + inicioLinea < finLectura;
+        if( hayLinea )
+        {
+            finLinea = buscarFinLinea( inicioLinea );
+            while( finLinea == ventana.limit( ) && inicioVentana + finLinea < finLectura )
+            {
+                if( inicioLinea == 0 )
+                {
+                    throw new IOException( "La línea en la posición " + inicioVentana + " es más larga que la ventana de lectura." );
+                }
+                mapear( inicioVentana + inicioLinea );
+                inicioLinea = 0;
+                finLinea = buscarFinLinea( inicioLinea );
+            }
+            posicionLinea = inicioVentana + inicioLinea;
+            ventana.position( Math.min( finLinea + 1, ventana.limit( ) ) );
+        }
+        return hayLinea;
+    }
+
+    /**
+     * Lee el siguiente registro del archivo.<br>
+     * <b>post: </b> El registro leído es el registro actual.
+     * @return True si se leyó un registro, false si se llegó al final del archivo.
+     * @throws IOException Si ocurre un error leyendo el archivo o si una línea no cabe en la ventana.
+     */
+    @Override
+    public boolean avanzar( ) throws IOException
+    {
+        limpiarCampos( );
+        boolean hayLinea = ubicarLinea( );
+        if( hayLinea )
+        {
+            int finContenido = finLinea > inicioLinea && ventana.get( finLinea - 1 ) == '\r' ? finLinea - 1 : finLinea;
+            longitud = finContenido - inicioLinea;
+            if( longitud > bytes.length )
+            {
+                bytes = new byte[Math.max( longitud, bytes.length * 2 )];
+            }
+            int siguiente = ventana.position( );
+            ventana.position( inicioLinea );
+            ventana.get( bytes, 0, longitud );
+            ventana.position( siguiente );
+            separar( );
+        }
+        else
+        {
+            longitud = -1;
+        }
+        return hayLinea;
+    }
+
+    /**
+     * Salta la cantidad de líneas dada sin separar ni copiar su contenido.<br>
+     * <b>post: </b> No hay registro actual. La siguiente lectura empieza después de las líneas saltadas.
+     * @param pCantidad Cantidad de líneas que se saltan. pCantidad >= 0.
+     * @throws AlmacenException Si el archivo termina antes de las líneas indicadas o si ocurre un error leyéndolo.
+     */
+    public void saltarLineas( long pCantidad ) throws AlmacenException
+    {
+        limpiarCampos( );
+        longitud = -1;
+        try
+        {
+            for( long i = 0; i < pCantidad; i++ )
+            {
+                if( !ubicarLinea( ) )
+                {
+                    throw new AlmacenException( "El archivo terminó antes de lo esperado." );
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            throw new AlmacenException( "Error al leer el archivo.\n" + e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Ubica el lector en la posición dada del archivo, mapeando una nueva ventana sólo si la posición está fuera de la ventana actual.<br>
+     * <b>post: </b> No hay registro actual. La siguiente lectura empieza en la posición dada.
+     * @param pPosicion Posición del archivo donde empieza una línea. pPosicion < fin de la parte que se lee.
+     * @throws IOException Si ocurre un error mapeando el archivo.
+     */
+    void ubicar( long pPosicion ) throws IOException
+    {
+        limpiarCampos( );
+        longitud = -1;
+        if( pPosicion >= inicioVentana && pPosicion < inicioVentana + ventana.limit( ) )
+        {
+            ventana.position( ( int )( pPosicion - inicioVentana ) );
+        }
+        else
+        {
+            mapear( pPosicion );
+        }
+    }
+
+    /**
+     * Hace que los productos que se construyan con este lector lean su descripción de la fuente dada sólo cuando se pida.<br>
+     * <b>post: </b> La fuente de las descripciones diferidas es la dada.
+     * @param pDescripciones Fuente de las descripciones, que debe corresponder al mismo archivo. Si es null las descripciones se cargan en memoria.
+     */
+    public void diferirDescripciones( DescripcionesDiferidas pDescripciones )
+    {
+        descripcionesDiferidas = pDescripciones;
+    }
+
+    /**
+     * Retorna la fuente de las descripciones diferidas.
+     * @return Fuente de las descripciones o null si las descripciones se cargan en memoria.
+     */
+    @Override
+    public DescripcionesDiferidas darDescripcionesDiferidas( )
+    {
+        return descripcionesDiferidas;
+    }
+
+    /**
+     * Retorna la posición en el archivo donde empieza el campo dado del registro actual.
+     * @param pCampo Posición del campo empezando en 0.
+     * @return Posición del campo en el archivo.
+     * @throws AlmacenException Si el registro no tiene el campo.
+     */
+    @Override
+    public long darPosicionCampo( int pCampo ) throws AlmacenException
+    {
+        verificarCampo( pCampo );
+        return posicionLinea + darInicioCampo( pCampo );
+    }
+
+    /**
+     * Retorna la posición del archivo donde empieza la última línea leída o saltada.
+     * @return Posición de la línea en el archivo.
+     */
+    public long darPosicionLinea( )
+    {
+        return posicionLinea;
+    }
+
+    /**
+     * Retorna la posición del archivo donde empieza la siguiente línea.
+     * @return Posición de la siguiente línea en el archivo.
+     */
+    public long darPosicionSiguiente( )
+    {
+        return inicioVentana + ventana.position( );
+    }
+
+    /**
+     * Ubica los campos de la línea actual recorriéndola una sola vez.<br>
+     * <b>post: </b> Se agregaron los campos de la línea actual.
+     */
+    private void separar( )
+    {
+        int inicio = 0;
+        int i = 0;
+        while( i + 2 < longitud )
+        {
+            if( bytes[ i ] == ';' && bytes[ i + 1 ] == ';' && bytes[ i + 2 ] == ';' )
+            {
+                agregarCampo( inicio, i );
+                i += SEPARADOR.length( );
+                inicio = i;
+            }
+            else
+            {
+                i++;
+            }
+        }
+        agregarCampo( inicio, longitud );
+    }
+
+    /**
+     * Retorna la línea del registro actual.
+     * @return Línea actual o null si no hay registro actual.
+     */
+    @Override
+    public String darLinea( )
+    {
+        return longitud < 0 ? null : darTexto( 0, longitud );
+    }
+
+    /**
+     * Retorna el caracter de la línea actual en la posición dada.
+     * @param pPosicion Posición en la línea. 0 <= pPosicion < longitud de la línea.
+     * @return Caracter en la posición dada.
+     */
+    @Override
+    protected char darCaracter( int pPosicion )
+    {
+        return ( char )( bytes[ pPosicion ] & 0xFF );
+    }
+
+    /**
+     * Retorna el texto de la línea actual entre las posiciones dadas, decodificado con la codificación del catálogo.
+     * @param pInicio Posición inicial, inclusiva.
+     * @param pFin Posición final, exclusiva.
+     * @return Texto entre las posiciones.
+     */
+    @Override
+    protected String darTexto( int pInicio, int pFin )
+    {
+        return new String( bytes, pInicio, pFin - pInicio, CODIFICACION );
+    }
+
+    /**
+     * Cierra el canal del archivo.
+     * @throws IOException Si ocurre un error cerrando el canal.
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        if( canalPropio )
+        {
+            canal.close( );
+        }
+    }
+
+    /**
+     * Retorna el canal del archivo, que puede usarse para crear lectores de partes del archivo.
+     * @return Canal del archivo.
+     */
+    FileChannel darCanal( )
+    {
+        return canal;
+    }
+}
@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -12,8 +12,13 @@
 package uniandes.cupi2.almacen.mundo;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Clase que representa una Marca.
@@ -35,18 +40,33 @@ public class Marca extends NodoAlmacen
     // -----------------------------------------------------------------
 
     /**
-     * Referencia al producto raz del rbol binario que contiene los productos de la marca.
+     * Referencia al producto raíz del árbol AVL que contiene los productos de la marca.
      */
     private Producto productoRaiz;
 
+    /**
+     * Cantidad total de unidades vendidas de los productos de la marca. Es un contador repartido en celdas para que las ventas de varios hilos no compitan por él.
+     */
+    private final LongAdder cantidadUnidadesVendidas = new LongAdder( );
+
+    /**
+     * Época del punto de control para el que se copiaron los productos.
+     */
+    private int epocaCopia;
+
+    /**
+     * Productos de la marca, ordenados por código, al tomar el punto de control de la época epocaCopia. Es null si ya se escribieron o no se han copiado.
+     */
+    private Producto[] copiaProductos;
+
     // -----------------------------------------------------------------
     // Constructores
     // -----------------------------------------------------------------
 
     /**
      * Construye una nueva marca.<br>
-     * <b>post: </b> Se inicializaron los atributos de la clase padre con los valores dados por parmetro y el tipo respectivo. El producto raz se inicializ en null.
-     * @param pIdentificador Identificador nico de la marca. pIdentificador != null && pIdentificador != "".
+     * <b>post: </b> Se inicializaron los atributos de la clase padre con los valores dados por parámetro y el tipo respectivo. El producto raíz se inicializó en null.
+     * @param pIdentificador Identificador único de la marca. pIdentificador != null && pIdentificador != "".
      * @param pNombre Nombre de la marca. pNombre != null && pNombre != "".
      */
     public Marca( String pIdentificador, String pNombre )
@@ -56,25 +76,42 @@ public class Marca extends NodoAlmacen
     }
 
     /**
-     * Construye una nueva marca a partir de la lnea con la informacin general y el lector para la informacin adicional.<br>
-     * <b>post:</b> Se inicializaron los atributos de la clase padre con el nombre que viene en la lnea y el tipo respectivo. Se cargaron los productos de la marca de la
-     * informacin contenida en el lector.
-     * @param pLinea Lnea que contiene la informacin general de la marca. pLinea != null && pLinea != "" && pLinea.startsWith(TIPO).
-     * @param pLector Lector para acceder a la informacin de los productos.
-     * @throws AlmacenException Si ocurren errores al leer la informacin de los productos.
+     * Construye una nueva marca a partir de la línea con la información general y el lector para la información adicional.<br>
+     * <b>post:</b> Se inicializaron los atributos de la clase padre con el nombre que viene en la línea y el tipo respectivo. Se cargaron los productos de la marca de la
+     * información contenida en el lector.
+     * @param pLinea Línea que contiene la información general de la marca. pLinea != null && pLinea != "" && pLinea.startsWith(TIPO).
+     * @param pLector Lector para acceder a la información de los productos.
+     * @throws AlmacenException Si ocurren errores al leer la información de los productos.
      */
     public Marca( String pLinea, BufferedReader pLector ) throws AlmacenException
     {
-        super( TIPO, pLinea.split( ";;;" )[ 1 ], pLinea.split( ";;;" )[ 2 ] );
+        this( new LectorCatalogo( pLinea, pLector ) );
+    }
+
+    /**
+     * Construye una nueva marca a partir del registro actual del lector, que contiene la información general, y de los registros siguientes.<br>
+     * <b>post:</b> Se inicializaron los atributos de la clase padre con el nombre del registro y el tipo respectivo. Se cargaron los productos de la marca de los
+     * registros siguientes.
+     * @param pLector Lector del catálogo ubicado en el registro de la marca. pLector != null.
+     * @throws AlmacenException Si ocurren errores al leer la información de los productos.
+     */
+    public Marca( LectorCatalogo pLector ) throws AlmacenException
+    {
+        super( TIPO, pLector.darCampo( 1 ), pLector.darCampo( 2 ) );
         try
         {
-            String datos[] = pLinea.split( ";;;" );
-            int numHijos = Integer.parseInt( datos[ 3 ] );
-            while( numHijos-- > 0 )
+            long numHijos = pLector.darEntero( 3 );
+            if( numHijos > Integer.MAX_VALUE )
             {
-                Producto producto = new Producto( pLector );
-                agregarProducto( producto );
+                throw new AlmacenException( "La marca tiene demasiados productos: " + numHijos );
             }
+            Producto[] cargados = new Producto[( int )Math.max( numHijos, 0 )];
+            for( int i = 0; i < cargados.length; i++ )
+            {
+                pLector.avanzarObligatorio( );
+                cargados[ i ] = new Producto( pLector );
+            }
+            construirArbol( cargados );
         }
         catch( Exception e )
         {
@@ -83,56 +120,172 @@ public class Marca extends NodoAlmacen
 
     }
 
+    /**
+     * Construye una nueva marca a partir de la copia binaria.<br>
+     * <b>post:</b> Se inicializaron los atributos de la clase padre con el identificador y el nombre de la copia y el tipo respectivo. Se cargaron los productos de la
+     * marca de la copia.
+     * @param pLector Lector de la copia binaria ubicado después del tipo de la marca. pLector != null.
+     * @throws IOException Si ocurre un error leyendo la copia.
+     * @throws AlmacenException Si la copia tiene productos repetidos.
+     */
+    public Marca( LectorBinario pLector ) throws IOException, AlmacenException
+    {
+        super( TIPO, pLector.leerTexto( ), pLector.leerTexto( ) );
+        Producto[] cargados = new Producto[Math.max( pLector.leerEntero( ), 0 )];
+        for( int i = 0; i < cargados.length; i++ )
+        {
+            cargados[ i ] = new Producto( pLector );
+        }
+        construirArbol( cargados );
+    }
+
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
     /**
      * Retorna la cantidad de productos pertenecientes a la marca.
      * @return Cantidad de productos de la marca.
      */
+    @Override
     public int darCantidadProductos( )
     {
         return productoRaiz == null ? 0 : productoRaiz.darPeso( );
     }
 
     /**
-     * Agrega un nuevo producto con la informacin dada al rbol de productos de la marca.<br>
-     * <b>post: </b>Se agreg el producto al rbol.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * Retorna el producto que ocupa la posición dada en el orden por código.
+     * @param pPosicion Posición del producto empezando en 0.
+     * @return Producto en la posición dada o null si la posición no es válida.
+     */
+    public Producto darProductoPosicion( int pPosicion )
+    {
+        Producto respuesta = null;
+        if( pPosicion >= 0 && pPosicion < darCantidadProductos( ) )
+        {
+            respuesta = productoRaiz.darProductoPosicion( pPosicion );
+        }
+        return respuesta;
+    }
+
+    /**
+     * Retorna la posición que tiene o tendría el producto con el código dado en el orden por código.
+     * @param pCodigo Código del producto. pCodigo != null.
+     * @return Cantidad de productos de la marca con código menor al dado.
+     */
+    public int darPosicion( String pCodigo )
+    {
+        return productoRaiz == null ? 0 : productoRaiz.darPosicion( pCodigo );
+    }
+
+    /**
+     * Retorna una página de productos ordenados por código sin recorrer el resto del árbol.
+     * @param pDesde Posición del primer producto de la página. pDesde >= 0.
+     * @param pCantidad Cantidad máxima de productos de la página. pCantidad >= 0.
+     * @return Lista con los productos de la página. Puede tener menos de pCantidad productos si se llega al final.
+     */
+    public List<Producto> darProductos( int pDesde, int pCantidad )
+    {
+        List<Producto> respuesta = new ArrayList<>( );
+        int hasta = ( int )Math.min( ( long )pDesde + pCantidad, darCantidadProductos( ) );
+        if( pDesde < hasta )
+        {
+            productoRaiz.darInorden( pDesde, hasta, respuesta );
+        }
+        return respuesta;
+    }
+
+    /**
+     * Agrega un nuevo producto con la información dada al árbol de productos de la marca.<br>
+     * <b>post: </b>Se agregó el producto al árbol.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
      * @param pNombre Nombre del producto. pNombre != null && pNombre != "".
-     * @param pDescripcion Descripcin del producto. pDescripcion != null && pDescripcion != "".
-     * @param pPrecio Precio del producto. pPrecio > 0.
-     * @throws AlmacenException Si ya exista un producto con el cdigo dado.
+     * @param pDescripcion Descripción del producto. pDescripcion != null && pDescripcion != "".
+     * @param pPrecio Precio del producto en pesos. pPrecio > 0 y se puede representar en centavos.
+     * @return Producto agregado.
+     * @throws AlmacenException Si ya existía un producto con el código dado.
      */
-    public void agregarProducto( String pCodigo, String pNombre, String pDescripcion, double pPrecio ) throws AlmacenException
+    public Producto agregarProducto( String pCodigo, String pNombre, String pDescripcion, double pPrecio ) throws AlmacenException
     {
         Producto nuevo = new Producto( pCodigo, pNombre, pDescripcion, pPrecio );
         agregarProducto( nuevo );
-
+        return nuevo;
     }
 
     /**
-     * Agrega un producto al rbol de productos de la marca.<br>
-     * <b>post: </b>Se agreg el producto al rbol.
+     * Agrega un producto al árbol de productos de la marca.<br>
+     * <b>post: </b>Se agregó el producto al árbol y esta marca quedó como su marca. Se actualizaron los totales y los más vendidos de la marca y de sus categorías
+     * ancestro.
      * @param pProducto Producto nuevo. pProducto != null.
-     * @throws AlmacenException Si ya exista un producto con el cdigo dado.
+     * @throws AlmacenException Si ya existía un producto con el código dado.
      */
     private void agregarProducto( Producto pProducto ) throws AlmacenException
     {
-        if( productoRaiz == null )
+        productoRaiz = productoRaiz == null ? pProducto : productoRaiz.agregarProducto( pProducto );
+        pProducto.cambiarMarca( this );
+        cantidadUnidadesVendidas.add( pProducto.darCantidadUnidadesVendidas( ) );
+        if( padre != null )
         {
-            productoRaiz = pProducto;
+            padre.actualizarTotales( pProducto.darValorVentasCentavos( ), pProducto.darCantidadUnidadesVendidas( ), 1 );
         }
-        else
+        actualizarMasVendidos( pProducto );
+    }
+
+    /**
+     * Construye el árbol de productos de la marca con los productos cargados, en O(n) si ya están ordenados por código o en O(n log n) si no.<br>
+     * <b>pre: </b> La marca no tiene productos.<br>
+     * <b>post: </b> El árbol de la marca es un árbol perfectamente balanceado con los productos dados y esta marca quedó como su marca. Se actualizaron los totales
+     * y los más vendidos de la marca y de sus categorías ancestro.
+     * @param pProductos Productos cargados. pProductos != null.
+     * @throws AlmacenException Si hay dos productos con el mismo código o si el valor de las ventas de la marca no se puede representar en centavos.
+     */
+    private void construirArbol( Producto[] pProductos ) throws AlmacenException
+    {
+        boolean ordenados = true;
+        for( int i = 1; i < pProductos.length && ordenados; i++ )
         {
-            productoRaiz.agregarProducto( pProducto );
+            ordenados = pProductos[ i - 1 ].darCodigo( ).compareTo( pProductos[ i ].darCodigo( ) ) < 0;
+        }
+        if( !ordenados )
+        {
+            Arrays.sort( pProductos, Comparator.comparing( Producto::darCodigo ) );
+            for( int i = 1; i < pProductos.length; i++ )
+            {
+                if( pProductos[ i - 1 ].darCodigo( ).equals( pProductos[ i ].darCodigo( ) ) )
+                {
+                    throw new AlmacenException( "Ya existe un producto con el código " + pProductos[ i ].darCodigo( ) );
+                }
+            }
+        }
+
+        long valorVentas = 0;
+        long unidades = 0;
+        for( Producto producto : pProductos )
+        {
+            producto.cambiarMarca( this );
+            try
+            {
+                valorVentas = Math.addExact( valorVentas, producto.darValorVentasCentavos( ) );
+            }
+            catch( ArithmeticException e )
+            {
+                throw new AlmacenException( "El valor de las ventas de la marca " + identificador + " supera el máximo que se puede representar." );
+            }
+            unidades += producto.darCantidadUnidadesVendidas( );
+            masVendidos.actualizar( producto );
+        }
+        productoRaiz = Producto.construirArbol( pProductos, 0, pProductos.length );
+        cantidadUnidadesVendidas.add( unidades );
+        if( padre != null )
+        {
+            padre.actualizarTotales( valorVentas, unidades, pProductos.length );
+            padre.combinarMasVendidos( this );
         }
     }
     /**
-     * Busca un producto por cdigo en el rbol de productos.
-     * @param pCodigo Cdigo del producto que se esta buscando. pCodigo != null && pCodigo != "".
-     * @return Producto con el cdigo dado por parmetro o null si no existe.
+     * Busca un producto por código en el árbol de productos.
+     * @param pCodigo Código del producto que se esta buscando. pCodigo != null && pCodigo != "".
+     * @return Producto con el código dado por parámetro o null si no existe.
      */
     public Producto buscarProducto( String pCodigo )
     {
@@ -140,10 +293,10 @@ public class Marca extends NodoAlmacen
     }
 
     /**
-     * Vende una cantidad dada del producto con el cdigo recibido por parmetro.<br>
-     * <b>pre: </b>Existe el producto con el cdigo dado. <br>
-     * <b>post: </b> Se vendieron las cantidades dadas del producto con cdigo dado.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * Vende una cantidad dada del producto con el código recibido por parámetro.<br>
+     * <b>pre: </b>Existe el producto con el código dado. <br>
+     * <b>post: </b> Se vendieron las cantidades dadas del producto con código dado.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
      * @param pCantidad Cantidad de unidades vendidas. pCantidad > 0.
      */
     public void venderProducto( String pCodigo, int pCantidad )
@@ -152,28 +305,106 @@ public class Marca extends NodoAlmacen
     }
 
     /**
-     * Retorna la venta total de los productos de la marca.
-     * @return Venta total de los productos de la marca.
+     * Retorna la venta total de los productos de la marca en centavos.
+     * @return Venta total de los productos de la marca en centavos.
+     */
+    @Override
+    public long darValorVentasCentavos( )
+    {
+        return productoRaiz == null ? 0 : productoRaiz.darValorVentasSubarbolCentavos( );
+    }
+
+    /**
+     * Retorna la venta total de los productos de la marca cuyo código está en el rango dado.
+     * @param pCodigoDesde Código inicial del rango, inclusive. pCodigoDesde != null.
+     * @param pCodigoHasta Código final del rango, inclusive. pCodigoHasta != null.
+     * @return Venta total de los productos en el rango en pesos.
      */
-    public double darValorVentas( )
+    public double darValorVentas( String pCodigoDesde, String pCodigoHasta )
     {
+        return Producto.aPesos( darValorVentasCentavos( pCodigoDesde, pCodigoHasta ) );
+    }
 
-        double valorVentas = 0;
-        ArrayList<Producto> productos = new ArrayList<>( );
-        if( productoRaiz != null )
+    /**
+     * Retorna la venta total de los productos de la marca cuyo código está en el rango dado, en centavos.
+     * @param pCodigoDesde Código inicial del rango, inclusive. pCodigoDesde != null.
+     * @param pCodigoHasta Código final del rango, inclusive. pCodigoHasta != null.
+     * @return Venta total de los productos en el rango en centavos.
+     */
+    public long darValorVentasCentavos( String pCodigoDesde, String pCodigoHasta )
+    {
+        return productoRaiz == null ? 0 : productoRaiz.darValorVentasCentavos( pCodigoDesde, pCodigoHasta );
+    }
+
+    /**
+     * Retorna la cantidad total de unidades vendidas de los productos de la marca.
+     * @return Unidades vendidas de la marca.
+     */
+    @Override
+    public long darCantidadUnidadesVendidas( )
+    {
+        return cantidadUnidadesVendidas.sum( );
+    }
+
+    /**
+     * Actualiza los totales de ventas después de que se vendieron unidades del producto dado.<br>
+     * <b>pre: </b>El producto pertenece a esta marca.<br>
+     * <b>post: </b>Se actualizó la información del camino entre la raíz y el producto, y los totales y los más vendidos de la marca y de sus categorías ancestro.
+     * @param pProducto Producto cuyas ventas cambiaron. pProducto != null.
+     * @param pCantidad Cantidad de unidades vendidas. pCantidad >= 0.
+     * @param pValor Valor de la venta en centavos. pValor >= 0.
+     */
+    void actualizarVentas( Producto pProducto, int pCantidad, long pValor )
+    {
+        productoRaiz.sumarVentas( pProducto.darCodigo( ), pValor );
+        cantidadUnidadesVendidas.add( pCantidad );
+        if( padre != null )
         {
-            productoRaiz.darInorden( productos );
+            padre.actualizarTotales( pValor, pCantidad, 0 );
         }
-        for( Producto producto : productos )
+        actualizarMasVendidos( pProducto );
+    }
+
+    /**
+     * Ubica el producto dado, cuyas ventas aumentaron o que es nuevo, en los más vendidos de la marca y, si queda entre ellos, en los de sus categorías ancestro.
+     * @param pProducto Producto de la marca. pProducto != null.
+     */
+    private void actualizarMasVendidos( Producto pProducto )
+    {
+        if( masVendidos.actualizar( pProducto ) && padre != null )
         {
-            valorVentas += producto.darValorVentas( );
+            padre.actualizarMasVendidos( pProducto );
         }
-        return valorVentas;
+    }
+
+    /**
+     * Suma al árbol y a los totales de la marca las ventas de un lote, cuyos productos ya sumaron sus unidades vendidas. Los totales de las categorías ancestro no
+     * se actualizan, sus más vendidos sí.<br>
+     * <b>pre: </b> Los productos del lote son de esta marca. Ningún hilo está cambiando la estructura del árbol de la marca.<br>
+     * <b>post: </b> Se actualizó el valor acumulado en el camino de cada producto, las unidades vendidas de la marca y los más vendidos de la marca y de sus
+     * categorías ancestro.
+     * @param pVentas Cantidad vendida de cada producto del lote. pVentas != null.
+     * @return Valor de las ventas del lote en centavos.
+     */
+    long sumarVentas( Map<Producto, Integer> pVentas )
+    {
+        long valor = 0;
+        long unidades = 0;
+        for( Map.Entry<Producto, Integer> venta : pVentas.entrySet( ) )
+        {
+            long valorProducto = venta.getKey( ).darPrecioCentavos( ) * venta.getValue( );
+            productoRaiz.sumarVentas( venta.getKey( ).darCodigo( ), valorProducto );
+            valor += valorProducto;
+            unidades += venta.getValue( );
+            actualizarMasVendidos( venta.getKey( ) );
+        }
+        cantidadUnidadesVendidas.add( unidades );
+        return valor;
     }
 
     /**
      * Agrega a la lista acumulada todos los productos del nodo.<br>
-     * <b>pre:</b> La lista de nodos est inicializada.
+     * <b>pre:</b> La lista de nodos está inicializada.
      * @param pProductos Lista acumulada con los productos. pProductos != null.
      */
     @Override
@@ -187,10 +418,33 @@ public class Marca extends NodoAlmacen
         }
     }
 
+    /**
+     * Agrega al resumen dado la marca y sus productos.
+     * @param pResumen Resumen acumulado. pResumen != null.
+     */
+    @Override
+    void resumir( ResumenSubarbol pResumen )
+    {
+        pResumen.agregarMarca( );
+        if( productoRaiz != null )
+        {
+            productoRaiz.resumir( pResumen );
+        }
+    }
+
+    /**
+     * Retorna la raíz del árbol de productos de la marca.
+     * @return Producto raíz o null si la marca no tiene productos.
+     */
+    Producto darProductoRaiz( )
+    {
+        return productoRaiz;
+    }
+
     /**
      * Busca el nodo con el identificador dado.
      * @param pIdentificador Identificador del nodo. pIdentificador != null && pIdentificador != "".
-     * @return NodoAlmacen con el identificador dado o null si no se encontr el nodo.
+     * @return NodoAlmacen con el identificador dado o null si no se encontró el nodo.
      */
     @Override
     public NodoAlmacen buscarNodo( String pIdentificador )
@@ -199,29 +453,111 @@ public class Marca extends NodoAlmacen
     }
 
     /**
-     * Elimina el producto con el cdigo dado.<br>
-     * <b>post:</b> Se elimin el producto.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
-     * @return True si elimin el producto, false en caso contrario.
+     * Elimina el producto con el código dado.<br>
+     * <b>post:</b> Se eliminó el producto. Se actualizaron los totales y los más vendidos de la marca y de sus categorías ancestro.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
+     * @return True si eliminó el producto, false en caso contrario.
      */
     public boolean eliminarProducto( String pCodigo )
     {
         boolean respuesta = false;
-        if( productoRaiz != null )
+        Producto eliminado = buscarProducto( pCodigo );
+        if( eliminado != null )
         {
-            if( productoRaiz.darCodigo( ).equals( pCodigo ) )
+            long valorAnterior = darValorVentasCentavos( );
+            productoRaiz = productoRaiz.eliminarProducto( pCodigo );
+            eliminado.cambiarMarca( null );
+            cantidadUnidadesVendidas.add( -eliminado.darCantidadUnidadesVendidas( ) );
+            if( padre != null )
             {
-                Producto raizAux = new Producto( "", "", "", -1 );
-                raizAux.cambiarHijoIzquierda( productoRaiz );
-                respuesta = productoRaiz.eliminarProducto( pCodigo, raizAux );
-                productoRaiz = raizAux.darHijoIzquierda( );
+                padre.actualizarTotales( darValorVentasCentavos( ) - valorAnterior, -eliminado.darCantidadUnidadesVendidas( ), -1 );
             }
-            else
+            if( masVendidos.quitar( eliminado ) )
             {
-                respuesta = productoRaiz.eliminarProducto( pCodigo, null );
+                reconstruirMasVendidos( );
+                if( padre != null )
+                {
+                    padre.quitarMasVendido( eliminado );
+                }
             }
+            respuesta = true;
         }
         return respuesta;
     }
 
+    /**
+     * Recalcula los más vendidos de la marca recorriendo todos sus productos. Sólo se necesita cuando sale uno de los más vendidos.<br>
+     * <b>post: </b> Los más vendidos de la marca son los más vendidos entre sus productos.
+     */
+    private void reconstruirMasVendidos( )
+    {
+        masVendidos.vaciar( );
+        for( Producto producto : darProductos( ) )
+        {
+            masVendidos.actualizar( producto );
+        }
+    }
+
+    /**
+     * Escribe la marca y sus productos, ordenados por código, en la copia binaria.
+     * @param pEscritor Escritor de la copia binaria. pEscritor != null.
+     * @throws IOException Si ocurre un error escribiendo la copia.
+     */
+    @Override
+    public void escribir( EscritorBinario pEscritor ) throws IOException
+    {
+        pEscritor.escribirByte( LectorBinario.TIPO_MARCA );
+        pEscritor.escribirTexto( identificador );
+        pEscritor.escribirTexto( nombre );
+        pEscritor.escribirEntero( darCantidadProductos( ) );
+        for( Producto producto : darProductos( ) )
+        {
+            producto.escribir( pEscritor );
+        }
+    }
+
+    /**
+     * Retorna los productos que tenía la marca al tomar el punto de control de la época dada. La primera llamada de la época los copia, por eso se debe llamar antes
+     * de agregar o eliminar productos mientras se escribe el punto de control.<br>
+     * <b>post: </b> Los productos de la época quedaron copiados.
+     * @param pEpoca Época del punto de control en curso. pEpoca > 0.
+     * @return Productos ordenados por código, o null si ya se liberaron.
+     */
+    synchronized Producto[] copiarProductos( int pEpoca )
+    {
+        if( epocaCopia != pEpoca )
+        {
+            copiaProductos = darProductos( ).toArray( new Producto[0] );
+            epocaCopia = pEpoca;
+        }
+        return copiaProductos;
+    }
+
+    /**
+     * Libera la copia de los productos del punto de control.<br>
+     * <b>post: </b> La marca no tiene copia de los productos.
+     */
+    synchronized void liberarCopia( )
+    {
+        copiaProductos = null;
+    }
+
+    /**
+     * Escribe la marca y sus productos, ordenados por código, en el catálogo de texto.
+     * @param pEscritor Escritor del catálogo. pEscritor != null.
+     * @throws IOException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo.
+     */
+    @Override
+    public void escribir( EscritorCatalogo pEscritor ) throws IOException
+    {
+        pEscritor.escribirCampo( TIPO );
+        pEscritor.escribirCampo( identificador );
+        pEscritor.escribirCampo( nombre );
+        pEscritor.escribirEntero( darCantidadProductos( ) );
+        pEscritor.terminarRegistro( );
+        if( productoRaiz != null )
+        {
+            productoRaiz.escribirInorden( pEscritor );
+        }
+    }
 }
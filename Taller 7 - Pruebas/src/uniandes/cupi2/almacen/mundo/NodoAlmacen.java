@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -17,11 +17,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Clase abstracta que representa un nodo del rbol del mercado.
+ * Clase abstracta que representa un nodo del árbol del mercado.
  */
 public abstract class NodoAlmacen
 {
 
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Cantidad máxima de productos más vendidos que se mantienen por nodo.
+     */
+    public final static int MAXIMO_MAS_VENDIDOS = 20;
+
     // -----------------------------------------------------------------
     // Atributos
     // -----------------------------------------------------------------
@@ -41,13 +50,33 @@ public abstract class NodoAlmacen
      */
     protected String nombre;
 
+    /**
+     * Categoría padre del nodo. Es null si el nodo es la raíz o si no ha sido agregado a ninguna categoría.
+     */
+    protected Categoria padre;
+
+    /**
+     * Productos más vendidos del subárbol del nodo, actualizados con cada venta y con cada cambio de la estructura.
+     */
+    final PodioVentas masVendidos = new PodioVentas( );
+
+    /**
+     * Unidades vendidas recientemente en el subárbol del nodo, por ventanas de tiempo. Sólo lo usa VentasRecientes, que lo sincroniza.
+     */
+    final ContadorVentana unidadesRecientes = new ContadorVentana( );
+
+    /**
+     * Valor en centavos de las ventas recientes del subárbol del nodo, por ventanas de tiempo. Sólo lo usa VentasRecientes, que lo sincroniza.
+     */
+    final ContadorVentana valorReciente = new ContadorVentana( );
+
     // -----------------------------------------------------------------
     // Constructores
     // -----------------------------------------------------------------
 
     /**
      * Crea un nuevo nodo.<br>
-     * <b>post: </b> Los atributos identificador y tipo se inicializaron con los valores dados por parmetro.
+     * <b>post: </b> Los atributos identificador y tipo se inicializaron con los valores dados por parámetro.
      * @param pTipo Tipo del nodo. pTipo != null && pTipo != "".
      * @param pIdentificador Identificador del nodo. pIdentificador != null && pIdentificador != "".
      * @param pNombre Nombre del nodo. pNombre != null && pNombre != "".
@@ -60,7 +89,7 @@ public abstract class NodoAlmacen
     }
 
     // -----------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -----------------------------------------------------------------
 
     /**
@@ -88,64 +117,164 @@ public abstract class NodoAlmacen
     public String darNombre(){
         return nombre;
     }
+
+    /**
+     * Retorna la categoría padre del nodo.
+     * @return Categoría padre o null si el nodo no tiene padre.
+     */
+    public Categoria darPadre( )
+    {
+        return padre;
+    }
     
     /**
      * Busca el nodo con el identificador dado.
      * @param pIdentificador Identificador del nodo. pIdentificador != null && pIdentificador != "".
-     * @return NodoAlmacen con el identificador dado o null si no se encontr el nodo.
+     * @return NodoAlmacen con el identificador dado o null si no se encontró el nodo.
      */
     public abstract NodoAlmacen buscarNodo( String pIdentificador );
 
     /**
      * Retorna el valor total de las ventas del nodo.
-     * @return Valor ventas del nodo.
+     * @return Valor ventas del nodo en pesos.
+     */
+    public double darValorVentas( )
+    {
+        return Producto.aPesos( darValorVentasCentavos( ) );
+    }
+
+    /**
+     * Retorna el valor total de las ventas del nodo en centavos, que se suma sin errores de redondeo.
+     * @return Valor ventas del nodo en centavos.
      */
-    public abstract double darValorVentas( );
+    public abstract long darValorVentasCentavos( );
 
     /**
-     * Crea un nodo a partir de la informacin del lector.
-     * @param pLector Lector que contiene la informacin. pLector != null.
+     * Retorna la cantidad total de unidades vendidas de los productos del nodo.
+     * @return Unidades vendidas en el nodo.
+     */
+    public abstract long darCantidadUnidadesVendidas( );
+
+    /**
+     * Retorna la cantidad de productos del nodo.
+     * @return Cantidad de productos del nodo.
+     */
+    public abstract int darCantidadProductos( );
+
+    /**
+     * Crea un nodo a partir de la información del lector.
+     * @param pLector Lector que contiene la información. pLector != null.
      * @return NodoAlmacen creado.
-     * @throws AlmacenException Si ocurre algn error al leer la informacin.
+     * @throws AlmacenException Si ocurre algún error al leer la información.
      */
     public NodoAlmacen crearNodo( BufferedReader pLector ) throws AlmacenException
     {
-        try
+        return crearNodo( new LectorCatalogo( pLector ) );
+    }
+
+    /**
+     * Crea un nodo a partir del siguiente registro del lector.
+     * @param pLector Lector del catálogo. pLector != null.
+     * @return NodoAlmacen creado.
+     * @throws AlmacenException Si ocurre algún error al leer la información.
+     */
+    public NodoAlmacen crearNodo( LectorCatalogo pLector ) throws AlmacenException
+    {
+        pLector.avanzarObligatorio( );
+        NodoAlmacen respuesta = null;
+        if( pLector.campoEs( 0, Categoria.TIPO ) )
         {
-            String linea = pLector.readLine( );
-            String datos[] = linea.split( ";;;" );
-            NodoAlmacen respuesta = null;
-            if( datos[ 0 ].equals( Categoria.TIPO ) )
-            {
-                respuesta = new Categoria( linea, pLector );
-            }
-            else if( datos[ 0 ].equals( Marca.TIPO ) )
-            {
-                respuesta = new Marca( linea, pLector );
-            }
-            else
-            {
-                throw new AlmacenException( datos[ 0 ] + " no es un tipo de nodo valido." );
-            }
-            return respuesta;
+            respuesta = new Categoria( pLector );
+        }
+        else if( pLector.campoEs( 0, Marca.TIPO ) )
+        {
+            respuesta = new Marca( pLector );
+        }
+        else
+        {
+            throw new AlmacenException( pLector.darCampo( 0 ) + " no es un tipo de nodo valido." );
+        }
+        return respuesta;
+    }
 
+    /**
+     * Crea un nodo a partir de la copia binaria.
+     * @param pLector Lector de la copia binaria ubicado en el tipo del nodo. pLector != null.
+     * @return NodoAlmacen creado.
+     * @throws IOException Si ocurre un error leyendo la copia.
+     * @throws AlmacenException Si la copia no tiene el formato esperado.
+     */
+    public NodoAlmacen crearNodo( LectorBinario pLector ) throws IOException, AlmacenException
+    {
+        byte tipo = pLector.leerByte( );
+        NodoAlmacen respuesta = null;
+        if( tipo == LectorBinario.TIPO_CATEGORIA )
+        {
+            respuesta = new Categoria( pLector );
+        }
+        else if( tipo == LectorBinario.TIPO_MARCA )
+        {
+            respuesta = new Marca( pLector );
         }
-        catch( IOException e )
+        else
         {
-            throw new AlmacenException( "Error al leer el archivo.\n" + e.getMessage( ) );
+            throw new AlmacenException( tipo + " no es un tipo de nodo valido." );
         }
+        return respuesta;
     }
 
+    /**
+     * Escribe el nodo y su subárbol en la copia binaria.
+     * @param pEscritor Escritor de la copia binaria. pEscritor != null.
+     * @throws IOException Si ocurre un error escribiendo la copia.
+     */
+    public abstract void escribir( EscritorBinario pEscritor ) throws IOException;
+
+    /**
+     * Escribe el nodo y su subárbol en el catálogo de texto.
+     * @param pEscritor Escritor del catálogo. pEscritor != null.
+     * @throws IOException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo.
+     */
+    public abstract void escribir( EscritorCatalogo pEscritor ) throws IOException;
+
     /**
      * Agrega a la lista acumulada todos los productos del nodo.<br>
-     * <b>pre:</b> La lista de nodos est inicializada.
+     * <b>pre:</b> La lista de nodos está inicializada.
      * @param pProductos Lista acumulada con los productos. pProductos != null.
      */
     public abstract void darProductos( List<Producto> pProductos );
 
     /**
-     * Retorna una lista con todos los productos de la categora.<br>
-     * <b>pre:</b> La lista de nodos est inicializada.
+     * Agrega al resumen dado todos los productos del nodo.
+     * @param pResumen Resumen acumulado. pResumen != null.
+     */
+    abstract void resumir( ResumenSubarbol pResumen );
+
+    /**
+     * Calcula en este hilo el resumen de los productos del nodo, recorriéndolos todos. AgregadorParalelo calcula el mismo resumen en varios hilos.<br>
+     * <b>pre: </b> Ningún hilo está cambiando la estructura del subárbol.
+     * @return Resumen de los productos del nodo.
+     */
+    public ResumenSubarbol darResumen( )
+    {
+        ResumenSubarbol resumen = new ResumenSubarbol( );
+        resumir( resumen );
+        return resumen;
+    }
+
+    /**
+     * Retorna los productos que más han vendido del subárbol del nodo, sin recorrerlo. Con el mismo valor de ventas va primero el de menor código.
+     * @param pCantidad Cantidad de productos pedida. 0 <= pCantidad <= MAXIMO_MAS_VENDIDOS.
+     * @return Lista con a lo sumo pCantidad productos, del que más vendió al que menos.
+     */
+    public List<Producto> darMasVendidos( int pCantidad )
+    {
+        return masVendidos.darProductos( pCantidad );
+    }
+
+    /**
+     * Retorna una lista con todos los productos de la categoría.<br>
+     * <b>pre:</b> La lista de nodos está inicializada.
      * @return Lista con los productos del nodo.
      */
     public List<Producto> darProductos( )
@@ -156,7 +285,7 @@ public abstract class NodoAlmacen
     }
     
     /**
-     * Retorna la representacin en string de este objeto.<br>
+     * Retorna la representación en string de este objeto.<br>
      * @return Nombre del nodo.
      */
     @Override
@@ -0,0 +1,258 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Productos más vendidos del subárbol de un nodo, ordenados de mayor a menor valor de ventas y, si el valor es igual, por código. Guarda a lo sumo
+ * NodoAlmacen.MAXIMO_MAS_VENDIDOS productos y se actualiza con cada venta, así que consultarlo no depende del tamaño del subárbol.<br>
+ * Como el valor de las ventas de un producto sólo crece, un producto que no está en el podio de un hijo tampoco puede estar en el de su padre: las actualizaciones
+ * suben por los ancestros mientras el producto quede en el podio. El umbral, que es el valor del último producto cuando el podio está lleno, deja descartar sin
+ * bloquear las ventas de los productos que no alcanzan a entrar.
+ */
+class PodioVentas
+{
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Productos del podio, del más vendido al menos vendido. Sólo las primeras cantidad posiciones tienen productos.
+     */
+    private Producto[] productos;
+
+    /**
+     * Valor de las ventas en centavos de cada producto del podio la última vez que se ubicó.
+     */
+    private long[] valores;
+
+    /**
+     * Cantidad de productos del podio.
+     */
+    private int cantidad;
+
+    /**
+     * Valor de las ventas del último producto si el podio está lleno, o -1 si todavía cabe cualquier producto.
+     */
+    private volatile long umbral;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un podio vacío.
+     */
+    PodioVentas( )
+    {
+        productos = new Producto[NodoAlmacen.MAXIMO_MAS_VENDIDOS];
+        valores = new long[NodoAlmacen.MAXIMO_MAS_VENDIDOS];
+        umbral = -1;
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Ubica el producto dado según su valor de ventas actual. Si no está en el podio y su valor no alcanza el umbral se descarta sin bloquear.<br>
+     * <b>pre: </b> El valor de las ventas del producto no disminuyó desde la última vez que se ubicó.<br>
+     * <b>post: </b> El producto está en el podio si es uno de los más vendidos entre los que tenía el podio y él.
+     * @param pProducto Producto cuyas ventas aumentaron o que es nuevo en el subárbol. pProducto != null.
+     * @return True si el producto quedó en el podio, false en caso contrario.
+     */
+    boolean actualizar( Producto pProducto )
+    {
+        return pProducto.darValorVentasCentavos( ) >= umbral && ubicar( pProducto );
+    }
+
+    /**
+     * Ubica el producto dado según su valor de ventas actual, que se lee dentro del bloqueo para que la última ubicación de cada producto use su último valor.
+     * @param pProducto Producto del subárbol. pProducto != null.
+     * @return True si el producto quedó en el podio, false en caso contrario.
+     */
+    private synchronized boolean ubicar( Producto pProducto )
+    {
+        long valor = pProducto.darValorVentasCentavos( );
+        int posicion = buscar( pProducto );
+        if( posicion < 0 )
+        {
+            if( cantidad < productos.length )
+            {
+                posicion = cantidad++;
+            }
+            else if( vaAntes( valor, pProducto, cantidad - 1 ) )
+            {
+                posicion = cantidad - 1;
+            }
+            else
+            {
+                return false;
+            }
+            productos[ posicion ] = pProducto;
+        }
+        valores[ posicion ] = valor;
+        while( posicion > 0 && vaAntes( valores[ posicion ], productos[ posicion ], posicion - 1 ) )
+        {
+            intercambiar( posicion, posicion - 1 );
+            posicion--;
+        }
+        while( posicion < cantidad - 1 && vaAntes( valores[ posicion + 1 ], productos[ posicion + 1 ], posicion ) )
+        {
+            intercambiar( posicion, posicion + 1 );
+            posicion++;
+        }
+        actualizarUmbral( );
+        return true;
+    }
+
+    /**
+     * Ubica todos los productos de otro podio en este.<br>
+     * <b>post: </b> El podio tiene los más vendidos entre los que tenía y los del otro podio.
+     * @param pOtro Podio de un subárbol hijo. pOtro != null && pOtro != this.
+     * @return True si alguno de los productos del otro podio quedó en este, false en caso contrario.
+     */
+    boolean combinar( PodioVentas pOtro )
+    {
+        boolean respuesta = false;
+        for( Producto producto : pOtro.darProductos( NodoAlmacen.MAXIMO_MAS_VENDIDOS ) )
+        {
+            respuesta |= ubicar( producto );
+        }
+        return respuesta;
+    }
+
+    /**
+     * Saca del podio el producto dado.<br>
+     * <b>post: </b> El producto no está en el podio y los demás conservan su orden.
+     * @param pProducto Producto que salió del subárbol. pProducto != null.
+     * @return True si el producto estaba en el podio, false en caso contrario.
+     */
+    synchronized boolean quitar( Producto pProducto )
+    {
+        int posicion = buscar( pProducto );
+        if( posicion < 0 )
+        {
+            return false;
+        }
+        System.arraycopy( productos, posicion + 1, productos, posicion, cantidad - posicion - 1 );
+        System.arraycopy( valores, posicion + 1, valores, posicion, cantidad - posicion - 1 );
+        productos[ --cantidad ] = null;
+        actualizarUmbral( );
+        return true;
+    }
+
+    /**
+     * Indica si alguno de los productos de otro podio está en este.
+     * @param pOtro Podio de un subárbol descendiente. pOtro != null && pOtro != this.
+     * @return True si los podios comparten algún producto, false en caso contrario.
+     */
+    boolean comparte( PodioVentas pOtro )
+    {
+        for( Producto producto : pOtro.darProductos( NodoAlmacen.MAXIMO_MAS_VENDIDOS ) )
+        {
+            synchronized( this )
+            {
+                if( buscar( producto ) >= 0 )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Saca todos los productos del podio.<br>
+     * <b>post: </b> El podio está vacío.
+     */
+    synchronized void vaciar( )
+    {
+        for( int i = 0; i < cantidad; i++ )
+        {
+            productos[ i ] = null;
+        }
+        cantidad = 0;
+        actualizarUmbral( );
+    }
+
+    /**
+     * Retorna los primeros productos del podio.
+     * @param pCantidad Cantidad máxima de productos. pCantidad >= 0.
+     * @return Lista con los productos más vendidos, del que más vendió al que menos.
+     */
+    synchronized List<Producto> darProductos( int pCantidad )
+    {
+        int hasta = Math.min( pCantidad, cantidad );
+        List<Producto> respuesta = new ArrayList<>( hasta );
+        for( int i = 0; i < hasta; i++ )
+        {
+            respuesta.add( productos[ i ] );
+        }
+        return respuesta;
+    }
+
+    /**
+     * Busca la posición del producto dado en el podio.
+     * @param pProducto Producto buscado. pProducto != null.
+     * @return Posición del producto o -1 si no está en el podio.
+     */
+    private int buscar( Producto pProducto )
+    {
+        for( int i = 0; i < cantidad; i++ )
+        {
+            if( productos[ i ] == pProducto )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Indica si un producto con el valor dado va antes que el producto de la posición dada.
+     * @param pValor Valor de las ventas del producto en centavos.
+     * @param pProducto Producto que se compara. pProducto != null.
+     * @param pPosicion Posición ocupada del podio.
+     * @return True si el producto vendió más o, con el mismo valor, tiene un código menor.
+     */
+    private boolean vaAntes( long pValor, Producto pProducto, int pPosicion )
+    {
+        return pValor > valores[ pPosicion ] || pValor == valores[ pPosicion ] && pProducto.darCodigo( ).compareTo( productos[ pPosicion ].darCodigo( ) ) < 0;
+    }
+
+    /**
+     * Intercambia los productos de dos posiciones del podio.
+     * @param pPrimera Primera posición.
+     * @param pSegunda Segunda posición.
+     */
+    private void intercambiar( int pPrimera, int pSegunda )
+    {
+        Producto producto = productos[ pPrimera ];
+        productos[ pPrimera ] = productos[ pSegunda ];
+        productos[ pSegunda ] = producto;
+        long valor = valores[ pPrimera ];
+        valores[ pPrimera ] = valores[ pSegunda ];
+        valores[ pSegunda ] = valor;
+    }
+
+    /**
+     * Recalcula el umbral según la cantidad de productos del podio.
+     */
+    private void actualizarUmbral( )
+    {
+        umbral = cantidad < productos.length ? -1 : valores[ cantidad - 1 ];
+    }
+}
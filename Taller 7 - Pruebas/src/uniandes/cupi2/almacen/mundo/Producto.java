@@ -1,7 +1,7 @@
 /**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
- * Universidad  de  los Andes   (Bogot - Colombia)
- * Departamento de  Ingeniera  de  Sistemas    y   Computacin
- * Licenciado   bajo    el  esquema Academic Free License versin 2.1
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
  *      
  * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
  * Ejercicio: n11_almacen
@@ -12,20 +12,61 @@
 package uniandes.cupi2.almacen.mundo;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.List;
 
 /**
- * Clase que representa un producto del almacn.
+ * Clase que representa un producto del almacén.
  */
 public class Producto
 {
 
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Cantidad de centavos de un peso. Los precios y los valores de las ventas se guardan en centavos para sumarlos sin errores de redondeo.
+     */
+    public final static int CENTAVOS_POR_PESO = 100;
+
+    /**
+     * Límite, exclusivo, del valor absoluto de una cantidad de centavos convertida desde un decimal: 2^63.
+     */
+    private final static double LIMITE_CENTAVOS = 0x1p63;
+
+    /**
+     * Acceso atómico a las unidades vendidas, para vender desde varios hilos sin candado.
+     */
+    private final static VarHandle UNIDADES;
+
+    /**
+     * Acceso atómico al valor de las ventas del subárbol, que las ventas de varios hilos actualizan a la vez.
+     */
+    private final static VarHandle VALOR_SUBARBOL;
+
+    static
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup( );
+            UNIDADES = lookup.findVarHandle( Producto.class, "cantidadUnidadesVendidas", int.class );
+            VALOR_SUBARBOL = lookup.findVarHandle( Producto.class, "valorVentasSubarbol", long.class );
+        }
+        catch( ReflectiveOperationException e )
+        {
+            throw new ExceptionInInitializerError( e );
+        }
+    }
+
     // -----------------------------------------------------------------
     // Atributos
     // -----------------------------------------------------------------
 
     /**
-     * Cdigo nico del producto.
+     * Código único del producto.
      */
     private String codigo;
 
@@ -35,14 +76,14 @@ public class Producto
     private String nombre;
 
     /**
-     * Descripcin del producto.
+     * Descripción del producto.
      */
     private String descripcion;
 
     /**
-     * Precio del producto.
+     * Precio del producto en centavos.
      */
-    private double precio;
+    private long precio;
 
     /**
      * Cantidad de unidades que se han vendido del producto.
@@ -59,52 +100,207 @@ public class Producto
      */
     private Producto hijoDerecha;
 
+    /**
+     * Altura del subárbol AVL que tiene como raíz este producto. Una hoja tiene altura 1.
+     */
+    private int altura;
+
+    /**
+     * Cantidad de productos del subárbol que tiene como raíz este producto, incluyéndolo.
+     */
+    private int peso;
+
+    /**
+     * Valor total de las ventas de los productos del subárbol que tiene como raíz este producto, incluyéndolo, en centavos.
+     */
+    private long valorVentasSubarbol;
+
+    /**
+     * Marca a la que pertenece el producto. Es null mientras el producto no esté en el árbol de una marca.
+     */
+    private Marca marca;
+
+    /**
+     * Fuente de la descripción cuando no se guarda en memoria. Es null si la descripción está en el atributo descripcion.
+     */
+    private DescripcionesDiferidas descripciones;
+
+    /**
+     * Posición de la descripción en el archivo de la fuente de descripciones.
+     */
+    private long posicionDescripcion;
+
+    /**
+     * Longitud de la descripción en el archivo de la fuente de descripciones, negativa si está en UTF-8.
+     */
+    private int longitudDescripcion;
+
+    /**
+     * Época del último punto de control durante el cual se vendió el producto.
+     */
+    private int epocaVentas;
+
+    /**
+     * Unidades vendidas al tomar el punto de control de la época epocaVentas, guardadas antes de la primera venta posterior.
+     */
+    private int vendidasPuntoControl;
+
+    /**
+     * Unidades vendidas recientemente, por ventanas de tiempo. Es null mientras el producto no tenga ventas registradas en VentasRecientes.
+     */
+    private ContadorVentana unidadesRecientes;
+
     // -------------------------------------------------------------
     // Constructores
     // -------------------------------------------------------------
 
     /**
      * Construye un nuevo producto.<br>
-     * <b>post:</b> Los atributos cdigo, nombre, descripcin y precio se inicializaron con los valores dados por parmetro. El hijo izquierda y el hijo derecha se
-     * inicializaron en null. La cantidad de unidades vendidas se inicializaron en 0.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
+     * <b>post:</b> Los atributos código, nombre, descripción y precio se inicializaron con los valores dados por parámetro. El hijo izquierda y el hijo derecha se
+     * inicializaron en null. La cantidad de unidades vendidas se inicializaron en 0. La altura y el peso se inicializaron en 1.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
      * @param pNombre Nombre del producto. pNombre != null && pNombre != "".
-     * @param pDescripcion Descripcin del producto. pDescripcion != null && pDescripcion != "".
-     * @param pPrecio Precio del producto. pPrecio > 0.
+     * @param pDescripcion Descripción del producto. pDescripcion != null && pDescripcion != "".
+     * @param pPrecio Precio del producto en pesos, que se redondea al centavo. pPrecio > 0 y se puede representar en centavos.
      */
     public Producto( String pCodigo, String pNombre, String pDescripcion, double pPrecio )
     {
         codigo = pCodigo;
         nombre = pNombre;
         descripcion = pDescripcion;
-        precio = pPrecio;
+        precio = aCentavos( pPrecio );
         cantidadUnidadesVendidas = 0;
+        altura = 1;
+        peso = 1;
+        valorVentasSubarbol = 0;
     }
 
     /**
-     * Construye un nuevo producto a partir de la informacin del lector.<br>
-     * <b>post:</b> Los atributos cdigo, nombre, descripcin, precio y unidades vendidas se inicializaron con la informacin del archivo. El hijo izquierda y el hijo derecha
-     * se inicializaron en null.
+     * Construye un nuevo producto a partir de la información del lector.<br>
+     * <b>post:</b> Los atributos código, nombre, descripción, precio y unidades vendidas se inicializaron con la información del archivo. El hijo izquierda y el hijo derecha
+     * se inicializaron en null. La altura y el peso se inicializaron en 1.
      * @param pLector Lector del archivo. pLector != null.
      * @throws Exception Si ocurren errores al leer los datos.
      */
     public Producto( BufferedReader pLector ) throws Exception
     {
-        String datos[] = pLector.readLine( ).split( ";;;" );
-        codigo = datos[ 0 ];
-        nombre = datos[ 1 ];
-        descripcion = datos[ 2 ];
-        precio = Double.parseDouble( datos[ 3 ] );
-        cantidadUnidadesVendidas = Integer.parseInt( datos[ 4 ] );
+        this( new LectorCatalogo( pLector.readLine( ), pLector ) );
+    }
+
+    /**
+     * Construye un nuevo producto a partir del registro actual del lector.<br>
+     * <b>post:</b> Los atributos código, nombre, descripción, precio y unidades vendidas se inicializaron con la información del registro. El hijo izquierda y el hijo
+     * derecha se inicializaron en null. La altura y el peso se inicializaron en 1.
+     * @param pLector Lector del catálogo ubicado en el registro del producto. pLector != null.
+     * @throws AlmacenException Si el registro no tiene el formato de un producto, si sus unidades vendidas son negativas o no caben en un int, si su precio no es
+     *         mayor a 0 centavos o si su precio o el valor de sus ventas no se pueden representar en centavos.
+     */
+    public Producto( LectorCatalogo pLector ) throws AlmacenException
+    {
+        codigo = pLector.darCampo( 0 );
+        nombre = pLector.darCampo( 1 );
+        descripciones = pLector.darDescripcionesDiferidas( );
+        if( descripciones == null )
+        {
+            descripcion = pLector.darCampo( 2 );
+        }
+        else
+        {
+            posicionDescripcion = pLector.darPosicionCampo( 2 );
+            longitudDescripcion = pLector.darLongitudCampo( 2 );
+        }
+        cantidadUnidadesVendidas = pLector.darCantidad( 4 );
+        try
+        {
+            precio = aCentavos( pLector.darDecimal( 3 ) );
+            valorVentasSubarbol = darValorVentasCentavos( );
+        }
+        catch( ArithmeticException e )
+        {
+            throw new AlmacenException( "El producto " + codigo + ": " + e.getMessage( ) );
+        }
+        if( precio <= 0 )
+        {
+            throw new AlmacenException( "El producto " + codigo + " debe tener un precio mayor a 0." );
+        }
+        altura = 1;
+        peso = 1;
+    }
+
+    /**
+     * Construye un nuevo producto a partir de la copia binaria.<br>
+     * <b>post:</b> Los atributos código, nombre, descripción, precio y unidades vendidas se inicializaron con la información de la copia. El hijo izquierda y el hijo
+     * derecha se inicializaron en null. La altura y el peso se inicializaron en 1.
+     * @param pLector Lector de la copia binaria ubicado en el producto. pLector != null.
+     * @throws IOException Si ocurre un error leyendo la copia, si el precio del producto no es mayor a 0, si sus unidades vendidas son negativas o si el valor de
+     *         sus ventas no se puede representar en centavos.
+     */
+    public Producto( LectorBinario pLector ) throws IOException
+    {
+        codigo = pLector.leerTexto( );
+        nombre = pLector.leerTexto( );
+        descripciones = pLector.darDescripcionesDiferidas( );
+        if( descripciones == null )
+        {
+            descripcion = pLector.leerTexto( );
+        }
+        else
+        {
+            longitudDescripcion = pLector.leerEntero( );
+            posicionDescripcion = pLector.darPosicion( );
+            pLector.saltar( longitudDescripcion < 0 ? -( longitudDescripcion + 1 ) : longitudDescripcion );
+        }
+        precio = pLector.leerLargo( );
+        cantidadUnidadesVendidas = pLector.leerEntero( );
+        if( precio <= 0 || cantidadUnidadesVendidas < 0 )
+        {
+            throw new IOException( "El producto " + codigo + " de la copia tiene un precio que no es mayor a 0 o unidades vendidas negativas." );
+        }
+        try
+        {
+            valorVentasSubarbol = darValorVentasCentavos( );
+        }
+        catch( ArithmeticException e )
+        {
+            throw new IOException( "El producto " + codigo + ": el valor de sus ventas no se puede representar en centavos." );
+        }
+        altura = 1;
+        peso = 1;
     }
 
     // -------------------------------------------------------------
-    // Mtodos
+    // Métodos
     // -------------------------------------------------------------
 
     /**
-     * Retorna el cdigo del producto.
-     * @return Cdigo del producto.
+     * Convierte un valor en pesos a centavos, redondeando al centavo más cercano.
+     * @param pPesos Valor en pesos.
+     * @return Valor en centavos.
+     * @throws ArithmeticException Si el valor no es un número o no cabe en un long al pasarlo a centavos.
+     */
+    public static long aCentavos( double pPesos )
+    {
+        double centavos = Math.rint( pPesos * CENTAVOS_POR_PESO );
+        if( !( Math.abs( centavos ) < LIMITE_CENTAVOS ) )
+        {
+            throw new ArithmeticException( "El valor " + pPesos + " no se puede representar en centavos." );
+        }
+        return ( long )centavos;
+    }
+
+    /**
+     * Convierte un valor en centavos a pesos. El resultado es el decimal más cercano al valor exacto, así que es exacto mientras el valor no supere 2^53 centavos.
+     * @param pCentavos Valor en centavos.
+     * @return Valor en pesos.
+     */
+    public static double aPesos( long pCentavos )
+    {
+        return ( double )pCentavos / CENTAVOS_POR_PESO;
+    }
+
+    /**
+     * Retorna el código del producto.
+     * @return Código del producto.
      */
     public String darCodigo( )
     {
@@ -121,19 +317,28 @@ public class Producto
     }
 
     /**
-     * Retorna la descripcin del producto.
-     * @return Descripcin del producto.
+     * Retorna la descripción del producto. Si la descripción no está en memoria se lee de su fuente.
+     * @return Descripción del producto.
      */
     public String darDescripcion( )
     {
-        return descripcion;
+        return descripciones == null ? descripcion : descripciones.darDescripcion( posicionDescripcion, longitudDescripcion );
     }
 
     /**
      * Retorna el precio del producto.
-     * @return Precio del producto.
+     * @return Precio del producto en pesos.
      */
     public double darPrecio( )
+    {
+        return aPesos( precio );
+    }
+
+    /**
+     * Retorna el precio del producto en centavos.
+     * @return Precio del producto en centavos.
+     */
+    public long darPrecioCentavos( )
     {
         return precio;
     }
@@ -144,7 +349,26 @@ public class Producto
      */
     public int darCantidadUnidadesVendidas( )
     {
-        return cantidadUnidadesVendidas;
+        return ( int )UNIDADES.getVolatile( this );
+    }
+
+    /**
+     * Retorna la marca a la que pertenece el producto.
+     * @return Marca del producto o null si el producto no pertenece a ninguna marca.
+     */
+    public Marca darMarca( )
+    {
+        return marca;
+    }
+
+    /**
+     * Cambia la marca a la que pertenece el producto.<br>
+     * <b>post:</b> La marca del producto es la dada por parámetro.
+     * @param pMarca Nueva marca del producto. Puede ser null.
+     */
+    void cambiarMarca( Marca pMarca )
+    {
+        marca = pMarca;
     }
 
     /**
@@ -166,48 +390,148 @@ public class Producto
     }
 
     /**
-     * Cambia el hijo izquierda por el valor dado por parmetro.<br>
-     * <b>post:</b> Se asign el valor del parmetro a el hijo izquierda.
-     * @param pProducto Producto que ser asignado.
+     * Retorna la altura del subárbol que tiene como raíz este producto.
+     * @return Altura del subárbol. Una hoja tiene altura 1.
      */
-    public void cambiarHijoIzquierda( Producto pProducto )
+    public int darAltura( )
     {
-        hijoIzquierda = pProducto;
+        return altura;
     }
 
     /**
-     * Cambia el hijo derecha por el valor dado por parmetro.<br>
-     * <b>post:</b> Se asign el valor del parmetro a el hijo derecha.
-     * @param pProducto Producto que ser asignado.
+     * Vende una cantidad de unidades dadas del producto. Varios hilos pueden vender a la vez, también el mismo producto, sin perder unidades: cada total se
+     * incrementa con una operación atómica en lugar de recalcularse.<br>
+     * <b>pre: </b>Ningún hilo está cambiando la estructura del árbol de la marca.<br>
+     * <b>post: </b>La cantidad de unidades vendidas aumentó en la cantidad dada por parámetro. Se actualizó el valor de las ventas acumulado en el árbol de la marca.
+     * @param pCantidad Cantidad de unidades que se vendieron. pCantidad >=0.
+     * @throws ArithmeticException Si el valor de la venta en centavos no cabe en un long. En ese caso no se vende nada.
      */
-    public void cambiarHijoDerecha( Producto pProducto )
+    public void vender( int pCantidad )
     {
-        hijoDerecha = pProducto;
+        long valor = Math.multiplyExact( precio, ( long )pCantidad );
+        sumarUnidades( pCantidad );
+        if( marca == null )
+        {
+            VALOR_SUBARBOL.getAndAdd( this, valor );
+        }
+        else
+        {
+            marca.actualizarVentas( this, pCantidad, valor );
+        }
     }
 
     /**
-     * Vende una cantidad de unidades dadas del producto.<br>
-     * <b>post: </b>La cantidad de unidades vendidas aument en la cantidad dada por parmetro.
-     * @param pCantidad Cantidad de unidades que se vendieron. pCantidad >=0.
+     * Suma la cantidad dada a las unidades vendidas del producto sin actualizar el valor acumulado en el árbol de la marca, que se actualiza una vez por lote.<br>
+     * <b>post: </b>La cantidad de unidades vendidas aumentó en la cantidad dada por parámetro.
+     * @param pCantidad Cantidad de unidades que se vendieron. pCantidad >= 0.
      */
-    public void vender( int pCantidad )
+    void sumarUnidades( int pCantidad )
     {
-        cantidadUnidadesVendidas += pCantidad;
+        UNIDADES.getAndAdd( this, pCantidad );
     }
 
     /**
      * Retorna el valor de las ventas totales del producto.
-     * @return Valor de las ventas del producto.
+     * @return Valor de las ventas del producto en pesos.
      */
     public double darValorVentas( )
     {
-        return precio * cantidadUnidadesVendidas;
+        return aPesos( darValorVentasCentavos( ) );
+    }
+
+    /**
+     * Retorna el valor de las ventas totales del producto en centavos.
+     * @return Valor de las ventas del producto en centavos.
+     * @throws ArithmeticException Si el valor no cabe en un long.
+     */
+    public long darValorVentasCentavos( )
+    {
+        return Math.multiplyExact( precio, ( long )darCantidadUnidadesVendidas( ) );
+    }
+
+    /**
+     * Retorna el valor de las ventas de todos los productos del subárbol que tiene como raíz este producto.
+     * @return Valor de las ventas del subárbol en pesos.
+     */
+    public double darValorVentasSubarbol( )
+    {
+        return aPesos( darValorVentasSubarbolCentavos( ) );
+    }
+
+    /**
+     * Retorna el valor de las ventas de todos los productos del subárbol que tiene como raíz este producto en centavos.
+     * @return Valor de las ventas del subárbol en centavos.
+     */
+    public long darValorVentasSubarbolCentavos( )
+    {
+        return ( long )VALOR_SUBARBOL.getVolatile( this );
+    }
+
+    /**
+     * Retorna el valor de las ventas de los productos del subárbol cuyo código está en el rango dado.<br>
+     * Solo se recorren los dos caminos que delimitan el rango, los subárboles que quedan completamente dentro aportan su valor acumulado.
+     * @param pDesde Código inicial del rango, inclusive. pDesde != null.
+     * @param pHasta Código final del rango, inclusive. pHasta != null.
+     * @return Valor de las ventas de los productos en el rango en pesos.
+     */
+    public double darValorVentas( String pDesde, String pHasta )
+    {
+        return aPesos( darValorVentasCentavos( pDesde, pHasta ) );
+    }
+
+    /**
+     * Retorna el valor de las ventas de los productos del subárbol cuyo código está en el rango dado, en centavos.<br>
+     * Solo se recorren los dos caminos que delimitan el rango, los subárboles que quedan completamente dentro aportan su valor acumulado.
+     * @param pDesde Código inicial del rango, inclusive. pDesde != null.
+     * @param pHasta Código final del rango, inclusive. pHasta != null.
+     * @return Valor de las ventas de los productos en el rango en centavos.
+     */
+    public long darValorVentasCentavos( String pDesde, String pHasta )
+    {
+        Producto division = this;
+        while( division != null && ( division.comparar( pDesde ) < 0 || division.comparar( pHasta ) > 0 ) )
+        {
+            division = division.comparar( pDesde ) < 0 ? division.hijoDerecha : division.hijoIzquierda;
+        }
+
+        long respuesta = 0;
+        if( division != null )
+        {
+            respuesta = division.darValorVentasCentavos( );
+            Producto actual = division.hijoIzquierda;
+            while( actual != null )
+            {
+                if( actual.comparar( pDesde ) >= 0 )
+                {
+                    respuesta += actual.darValorVentasCentavos( ) + darValorVentasSubarbol( actual.hijoDerecha );
+                    actual = actual.hijoIzquierda;
+                }
+                else
+                {
+                    actual = actual.hijoDerecha;
+                }
+            }
+            actual = division.hijoDerecha;
+            while( actual != null )
+            {
+                if( actual.comparar( pHasta ) <= 0 )
+                {
+                    respuesta += actual.darValorVentasCentavos( ) + darValorVentasSubarbol( actual.hijoIzquierda );
+                    actual = actual.hijoDerecha;
+                }
+                else
+                {
+                    actual = actual.hijoIzquierda;
+                }
+            }
+        }
+        return respuesta;
     }
 
     /**
-     * Compara el cdigo del producto con el valor dado por parmetro.
-     * @param pCodigo Cdigo con el cual se realizar la comparacin. pCodigo != null && pCodigo != "".
-     * @return Retorna 0 si los 2 cdigos son iguales, 1 si el cdigo del producto es mayor y -1 si es menor.
+     * Compara el código del producto con el valor dado por parámetro.
+     * @param pCodigo Código con el cual se realizará la comparación. pCodigo != null && pCodigo != "".
+     * @return Retorna 0 si los 2 códigos son iguales, 1 si el código del producto es mayor y -1 si es menor.
      */
     public int comparar( String pCodigo )
     {
@@ -225,72 +549,140 @@ public class Producto
     }
 
     /**
-     * Retorna el peso del rbol que tiene como raz este producto.
-     * @return Peso del rbol generado a partir de este producto.
+     * Retorna el peso del árbol que tiene como raíz este producto.
+     * @return Peso del árbol generado a partir de este producto.
      */
     public int darPeso( )
     {
-        int total = 1;
-        if( hijoIzquierda != null )
-        {
-            total += hijoIzquierda.darPeso( );
-        }
-        if( hijoDerecha != null )
-        {
-            total += hijoDerecha.darPeso( );
-        }
-        return total;
+        return peso;
     }
 
     /**
-     * Agrega un producto al subrbol que contiene como raz este producto.<br>
-     * <b>post:</b> Si no exista un producto con el mismo cdigo, se agreg el producto de tal manera que para cada nodo de este rbol el hijo izquierda tiene un cdigo menor
-     * y el hijo derecha tiene un cdigo mayor.
-     * @param pProducto Producto que se va a agregar. pProducto != null.
-     * @throws AlmacenException Si ya exista en el subrbol un producto con el cdigo dado.
+     * Retorna el producto que ocupa la posición dada en el recorrido en inorden del subárbol.
+     * @param pPosicion Posición del producto empezando en 0. 0 <= pPosicion < darPeso( ).
+     * @return Producto en la posición dada.
      */
-    public void agregarProducto( Producto pProducto ) throws AlmacenException
+    public Producto darProductoPosicion( int pPosicion )
     {
-
-        int comp = comparar( pProducto.darCodigo( ) );
-        boolean agrego = false;
-        if( comp > 0 )
+        Producto actual = this;
+        int posicion = pPosicion;
+        int pesoIzquierda = darPeso( actual.hijoIzquierda );
+        while( posicion != pesoIzquierda )
         {
-            if( hijoIzquierda == null )
+            if( posicion < pesoIzquierda )
             {
-                hijoIzquierda = pProducto;
-                agrego = true;
+                actual = actual.hijoIzquierda;
             }
             else
             {
-                hijoIzquierda.agregarProducto( pProducto );
-                agrego = true;
+                posicion -= pesoIzquierda + 1;
+                actual = actual.hijoDerecha;
             }
+            pesoIzquierda = darPeso( actual.hijoIzquierda );
         }
-        else if( comp < 0 )
+        return actual;
+    }
+
+    /**
+     * Retorna la cantidad de productos del subárbol cuyo código es menor al código dado.
+     * @param pCodigo Código de referencia. pCodigo != null.
+     * @return Cantidad de productos con código menor a pCodigo.
+     */
+    public int darPosicion( String pCodigo )
+    {
+        int respuesta = 0;
+        Producto actual = this;
+        while( actual != null )
         {
-            if( hijoDerecha == null )
+            if( actual.comparar( pCodigo ) < 0 )
             {
-                hijoDerecha = pProducto;
-                agrego = true;
+                respuesta += darPeso( actual.hijoIzquierda ) + 1;
+                actual = actual.hijoDerecha;
             }
             else
             {
-                hijoDerecha.agregarProducto( pProducto );
-                agrego = true;
+                actual = actual.hijoIzquierda;
             }
         }
-        
-        if( !agrego )
+        return respuesta;
+    }
+
+    /**
+     * Agrega a la lista acumulada los productos del subárbol cuya posición en inorden está en el rango dado.
+     * Solo se visitan las ramas que tienen productos dentro del rango.
+     * @param pDesde Posición del primer producto del rango dentro de este subárbol. Puede ser negativa.
+     * @param pHasta Posición siguiente al último producto del rango dentro de este subárbol. pDesde < pHasta <= darPeso( ).
+     * @param pAcumulado Lista acumulada con los productos. pAcumulado != null.
+     */
+    public void darInorden( int pDesde, int pHasta, List<Producto> pAcumulado )
+    {
+        int pesoIzquierda = darPeso( hijoIzquierda );
+        if( hijoIzquierda != null && pDesde < pesoIzquierda )
+        {
+            hijoIzquierda.darInorden( pDesde, Math.min( pHasta, pesoIzquierda ), pAcumulado );
+        }
+        if( pDesde <= pesoIzquierda && pesoIzquierda < pHasta )
+        {
+            pAcumulado.add( this );
+        }
+        if( hijoDerecha != null && pHasta > pesoIzquierda + 1 )
+        {
+            hijoDerecha.darInorden( pDesde - pesoIzquierda - 1, pHasta - pesoIzquierda - 1, pAcumulado );
+        }
+    }
+
+    /**
+     * Agrega un producto al subárbol AVL que contiene como raíz este producto.<br>
+     * <b>post:</b> Si no existía un producto con el mismo código, se agregó el producto de tal manera que para cada nodo de este árbol el hijo izquierda tiene un código menor
+     * y el hijo derecha tiene un código mayor. El subárbol quedó balanceado.
+     * @param pProducto Producto que se va a agregar. pProducto != null && pProducto no tiene hijos.
+     * @return Nueva raíz del subárbol después de balancearlo.
+     * @throws AlmacenException Si ya existía en el subárbol un producto con el código dado.
+     */
+    public Producto agregarProducto( Producto pProducto ) throws AlmacenException
+    {
+        int comp = comparar( pProducto.darCodigo( ) );
+        if( comp > 0 )
+        {
+            hijoIzquierda = hijoIzquierda == null ? pProducto : hijoIzquierda.agregarProducto( pProducto );
+        }
+        else if( comp < 0 )
+        {
+            hijoDerecha = hijoDerecha == null ? pProducto : hijoDerecha.agregarProducto( pProducto );
+        }
+        else
+        {
+            throw new AlmacenException( "Ya existe un producto con el código dado." );
+        }
+        return balancear( );
+    }
+
+    /**
+     * Construye un árbol perfectamente balanceado con los productos dados, que deben estar ordenados por código y sin repetidos.<br>
+     * <b>post: </b> Los productos del rango quedaron enlazados en un árbol AVL con la altura, el peso y el valor de ventas de cada subárbol actualizados.
+     * @param pProductos Productos ordenados por código. pProductos != null.
+     * @param pDesde Posición del primer producto del rango.
+     * @param pHasta Posición siguiente al último producto del rango.
+     * @return Raíz del árbol construido o null si el rango está vacío.
+     */
+    static Producto construirArbol( Producto[] pProductos, int pDesde, int pHasta )
+    {
+        Producto raiz = null;
+        if( pDesde < pHasta )
         {
-            throw new AlmacenException( "Ya existe un producto con el cdigo dado." );
+            int mitad = ( pDesde + pHasta ) >>> 1;
+            raiz = pProductos[ mitad ];
+            raiz.hijoIzquierda = construirArbol( pProductos, pDesde, mitad );
+            raiz.hijoDerecha = construirArbol( pProductos, mitad + 1, pHasta );
+            raiz.actualizar( );
         }
+        return raiz;
     }
 
     /**
-     * Busca un producto por cdigo en el subrbol generado a partir de este producto.
-     * @param pCodigo Cdigo del producto que se esta buscando. pCodigo != null && pCodigo != "".
-     * @return Producto con el cdigo dado por parmetro o null si no existe en el subrbol un producto con ese cdigo.
+     * Busca un producto por código en el subárbol generado a partir de este producto.
+     * @param pCodigo Código del producto que se esta buscando. pCodigo != null && pCodigo != "".
+     * @return Producto con el código dado por parámetro o null si no existe en el subárbol un producto con ese código.
      */
     public Producto buscarProducto( String pCodigo )
     {
@@ -310,8 +702,8 @@ public class Producto
     }
 
     /**
-     * Retorna el producto con el cdigo menor.
-     * @return Producto con el cdigo menor.
+     * Retorna el producto con el código menor.
+     * @return Producto con el código menor.
      */
     private Producto darProductoMenorCodigo( )
     {
@@ -324,58 +716,187 @@ public class Producto
     }
 
     /**
-     * Elimina el producto con cdigo dado del subrbol cuya raz es el nodo actual.
-     * @param pCodigo Cdigo del producto. pCodigo != null && pCodigo != "".
-     * @param pPadre Padre del producto actual.
-     * @return True si elimin el producto, false en caso contrario.
+     * Elimina el producto con el código menor del subárbol cuya raíz es el nodo actual.
+     * @return Nueva raíz del subárbol después de balancearlo o null si quedó vacío.
+     */
+    private Producto eliminarProductoMenorCodigo( )
+    {
+        Producto respuesta = hijoDerecha;
+        if( hijoIzquierda != null )
+        {
+            hijoIzquierda = hijoIzquierda.eliminarProductoMenorCodigo( );
+            respuesta = balancear( );
+        }
+        return respuesta;
+    }
+
+    /**
+     * Elimina el producto con código dado del subárbol AVL cuya raíz es el nodo actual.<br>
+     * Los nodos se reenlazan en lugar de copiar datos entre productos, así las referencias a cada producto siguen siendo válidas.<br>
+     * <b>post:</b> Si existía, se eliminó el producto y el subárbol quedó balanceado. El producto eliminado quedó sin hijos.
+     * @param pCodigo Código del producto. pCodigo != null && pCodigo != "".
+     * @return Nueva raíz del subárbol después de balancearlo o null si quedó vacío.
      */
-    public boolean eliminarProducto( String pCodigo, Producto pPadre )
+    public Producto eliminarProducto( String pCodigo )
     {
         int comp = comparar( pCodigo );
-        boolean respuesta = false;
+        Producto respuesta = this;
         if( comp > 0 )
         {
             if( hijoIzquierda != null )
             {
-                respuesta = hijoIzquierda.eliminarProducto( pCodigo, this );
+                hijoIzquierda = hijoIzquierda.eliminarProducto( pCodigo );
             }
         }
         else if( comp < 0 )
         {
             if( hijoDerecha != null )
             {
-                respuesta = hijoDerecha.eliminarProducto( pCodigo, this );
+                hijoDerecha = hijoDerecha.eliminarProducto( pCodigo );
             }
         }
         else
         {
             if( hijoIzquierda != null && hijoDerecha != null )
             {
-                Producto menor = hijoDerecha.darProductoMenorCodigo( );
-                codigo = menor.codigo;
-                nombre = menor.nombre;
-                descripcion = menor.descripcion;
-                precio = menor.precio;
-                cantidadUnidadesVendidas = menor.cantidadUnidadesVendidas;
-
-                hijoDerecha.eliminarProducto( codigo, this );
+                respuesta = hijoDerecha.darProductoMenorCodigo( );
+                respuesta.hijoDerecha = hijoDerecha.eliminarProductoMenorCodigo( );
+                respuesta.hijoIzquierda = hijoIzquierda;
+            }
+            else
+            {
+                respuesta = ( hijoIzquierda != null ) ? hijoIzquierda : hijoDerecha;
             }
-            else if( pPadre.hijoIzquierda != null && pPadre.hijoIzquierda.codigo == codigo )
+            hijoIzquierda = null;
+            hijoDerecha = null;
+            actualizar( );
+        }
+
+        return respuesta == null ? null : respuesta.balancear( );
+    }
+
+    /**
+     * Recalcula la información del subárbol a partir de la de sus hijos.<br>
+     * <b>pre:</b> La información de los hijos está actualizada.<br>
+     * <b>post:</b> Se actualizaron la altura, el peso y el valor de las ventas del subárbol.
+     */
+    private void actualizar( )
+    {
+        altura = 1 + Math.max( darAltura( hijoIzquierda ), darAltura( hijoDerecha ) );
+        peso = 1 + darPeso( hijoIzquierda ) + darPeso( hijoDerecha );
+        valorVentasSubarbol = darValorVentasCentavos( ) + darValorVentasSubarbol( hijoIzquierda ) + darValorVentasSubarbol( hijoDerecha );
+    }
+
+    /**
+     * Suma el valor dado al valor de las ventas acumulado en el camino desde este producto hasta el producto con el código dado.<br>
+     * <b>pre:</b> El producto con el código dado está en el subárbol. Ningún hilo está cambiando la estructura del subárbol.<br>
+     * <b>post:</b> Se actualizó la información de todos los productos del camino.
+     * @param pCodigo Código del producto cuyas ventas cambiaron. pCodigo != null.
+     * @param pValor Valor de las ventas nuevas en centavos.
+     */
+    void sumarVentas( String pCodigo, long pValor )
+    {
+        Producto actual = this;
+        while( actual != null )
+        {
+            VALOR_SUBARBOL.getAndAdd( actual, pValor );
+            int comp = actual.comparar( pCodigo );
+            actual = comp > 0 ? actual.hijoIzquierda : comp < 0 ? actual.hijoDerecha : null;
+        }
+    }
+
+    /**
+     * Retorna el valor de las ventas del subárbol dado.
+     * @param pProducto Raíz del subárbol. Puede ser null.
+     * @return Valor de las ventas del subárbol en centavos o 0 si es vacío.
+     */
+    private static long darValorVentasSubarbol( Producto pProducto )
+    {
+        return pProducto == null ? 0 : pProducto.valorVentasSubarbol;
+    }
+
+    /**
+     * Retorna la altura del subárbol dado.
+     * @param pProducto Raíz del subárbol. Puede ser null.
+     * @return Altura del subárbol o 0 si es vacío.
+     */
+    private static int darAltura( Producto pProducto )
+    {
+        return pProducto == null ? 0 : pProducto.altura;
+    }
+
+    /**
+     * Retorna el peso del subárbol dado.
+     * @param pProducto Raíz del subárbol. Puede ser null.
+     * @return Peso del subárbol o 0 si es vacío.
+     */
+    private static int darPeso( Producto pProducto )
+    {
+        return pProducto == null ? 0 : pProducto.peso;
+    }
+
+    /**
+     * Hace una rotación a la derecha del subárbol que tiene como raíz este producto.<br>
+     * <b>pre:</b> El hijo izquierda existe.
+     * @return Nueva raíz del subárbol.
+     */
+    private Producto rotarDerecha( )
+    {
+        Producto nuevaRaiz = hijoIzquierda;
+        hijoIzquierda = nuevaRaiz.hijoDerecha;
+        nuevaRaiz.hijoDerecha = this;
+        actualizar( );
+        nuevaRaiz.actualizar( );
+        return nuevaRaiz;
+    }
+
+    /**
+     * Hace una rotación a la izquierda del subárbol que tiene como raíz este producto.<br>
+     * <b>pre:</b> El hijo derecha existe.
+     * @return Nueva raíz del subárbol.
+     */
+    private Producto rotarIzquierda( )
+    {
+        Producto nuevaRaiz = hijoDerecha;
+        hijoDerecha = nuevaRaiz.hijoIzquierda;
+        nuevaRaiz.hijoIzquierda = this;
+        actualizar( );
+        nuevaRaiz.actualizar( );
+        return nuevaRaiz;
+    }
+
+    /**
+     * Restablece la condición AVL del subárbol que tiene como raíz este producto.<br>
+     * <b>pre:</b> Los subárboles izquierdo y derecho son AVL y sus alturas difieren a lo sumo en 2.<br>
+     * <b>post:</b> El subárbol es AVL y su información está actualizada.
+     * @return Nueva raíz del subárbol.
+     */
+    private Producto balancear( )
+    {
+        actualizar( );
+        int factor = darAltura( hijoIzquierda ) - darAltura( hijoDerecha );
+        Producto respuesta = this;
+        if( factor > 1 )
+        {
+            if( darAltura( hijoIzquierda.hijoIzquierda ) < darAltura( hijoIzquierda.hijoDerecha ) )
             {
-                pPadre.hijoIzquierda = ( hijoIzquierda != null ) ? hijoIzquierda : hijoDerecha;
+                hijoIzquierda = hijoIzquierda.rotarIzquierda( );
             }
-            else if( pPadre.hijoDerecha != null && pPadre.hijoDerecha.codigo == codigo )
+            respuesta = rotarDerecha( );
+        }
+        else if( factor < -1 )
+        {
+            if( darAltura( hijoDerecha.hijoDerecha ) < darAltura( hijoDerecha.hijoIzquierda ) )
             {
-                pPadre.hijoDerecha = ( hijoIzquierda != null ) ? hijoIzquierda : hijoDerecha;
+                hijoDerecha = hijoDerecha.rotarDerecha( );
             }
-            respuesta = true;
+            respuesta = rotarIzquierda( );
         }
-
         return respuesta;
     }
 
     /**
-     * Agrega a la lista acumulada este producto y los productos de su subrbol.
+     * Agrega a la lista acumulada este producto y los productos de su subárbol.
      * @param pAcumulado Lista acumulada de todos los productos.
      */
     public void darInorden( List<Producto> pAcumulado )
@@ -393,11 +914,123 @@ public class Producto
     }
 
     /**
-     * Retorna el cdigo y el nombre del producto separados por guin.
+     * Agrega al resumen dado este producto y los productos de su subárbol.
+     * @param pResumen Resumen acumulado. pResumen != null.
+     */
+    void resumir( ResumenSubarbol pResumen )
+    {
+        if( hijoIzquierda != null )
+        {
+            hijoIzquierda.resumir( pResumen );
+        }
+        pResumen.agregar( this );
+        if( hijoDerecha != null )
+        {
+            hijoDerecha.resumir( pResumen );
+        }
+    }
+
+    /**
+     * Retorna el código y el nombre del producto separados por guión.
      */
     @Override
     public String toString( )
     {
         return codigo + " - " + nombre;
     }
+
+    /**
+     * Escribe el producto en la copia binaria.
+     * @param pEscritor Escritor de la copia binaria. pEscritor != null.
+     * @throws IOException Si ocurre un error escribiendo la copia.
+     */
+    public void escribir( EscritorBinario pEscritor ) throws IOException
+    {
+        pEscritor.escribirTexto( codigo );
+        pEscritor.escribirTexto( nombre );
+        pEscritor.escribirTexto( darDescripcion( ) );
+        pEscritor.escribirLargo( precio );
+        pEscritor.escribirEntero( cantidadUnidadesVendidas );
+    }
+
+    /**
+     * Escribe en el catálogo de texto este producto y los productos de su subárbol, ordenados por código.
+     * @param pEscritor Escritor del catálogo. pEscritor != null.
+     * @throws IOException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo.
+     */
+    public void escribirInorden( EscritorCatalogo pEscritor ) throws IOException
+    {
+        if( hijoIzquierda != null )
+        {
+            hijoIzquierda.escribirInorden( pEscritor );
+        }
+        escribir( pEscritor, cantidadUnidadesVendidas );
+        if( hijoDerecha != null )
+        {
+            hijoDerecha.escribirInorden( pEscritor );
+        }
+    }
+
+    /**
+     * Escribe el registro del producto en el catálogo de texto con la cantidad de unidades vendidas dada.
+     * @param pEscritor Escritor del catálogo. pEscritor != null.
+     * @param pVendidas Unidades vendidas que se escriben.
+     * @throws IOException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo.
+     */
+    void escribir( EscritorCatalogo pEscritor, int pVendidas ) throws IOException
+    {
+        pEscritor.escribirCampo( codigo );
+        pEscritor.escribirCampo( nombre );
+        pEscritor.escribirCampo( darDescripcion( ) );
+        pEscritor.escribirCentavos( precio );
+        pEscritor.escribirEntero( pVendidas );
+        pEscritor.terminarRegistro( );
+    }
+
+    /**
+     * Guarda las unidades vendidas para el punto de control de la época dada, si es la primera venta desde que se tomó. Se debe llamar sincronizando sobre el
+     * producto, antes de vender.<br>
+     * <b>post: </b> darVendidasPuntoControl( pEpoca ) retorna las unidades vendidas que había al tomar el punto de control.
+     * @param pEpoca Época del punto de control en curso. pEpoca > 0.
+     */
+    void conservarVentas( int pEpoca )
+    {
+        if( epocaVentas != pEpoca )
+        {
+            vendidasPuntoControl = cantidadUnidadesVendidas;
+            epocaVentas = pEpoca;
+        }
+    }
+
+    /**
+     * Retorna las unidades vendidas que había al tomar el punto de control de la época dada. Se debe llamar sincronizando sobre el producto.
+     * @param pEpoca Época del punto de control. pEpoca > 0.
+     * @return Unidades vendidas en el punto de control.
+     */
+    int darVendidasPuntoControl( int pEpoca )
+    {
+        return epocaVentas == pEpoca ? vendidasPuntoControl : cantidadUnidadesVendidas;
+    }
+
+    /**
+     * Indica si el producto tiene ventas registradas en VentasRecientes.
+     * @return True si ya se creó el contador de las ventas recientes, false en caso contrario.
+     */
+    boolean tieneVentasRecientes( )
+    {
+        return unidadesRecientes != null;
+    }
+
+    /**
+     * Retorna el contador de las unidades vendidas recientemente y lo crea si no existe. Sólo lo debe usar VentasRecientes, que lo sincroniza.
+     * @return Contador de las unidades vendidas recientemente.
+     */
+    ContadorVentana darUnidadesRecientes( )
+    {
+        if( unidadesRecientes == null )
+        {
+            unidadesRecientes = new ContadorVentana( );
+        }
+        return unidadesRecientes;
+    }
 }
@@ -0,0 +1,170 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista del árbol del almacén en el momento en que se tomó un punto de control, que se escribe en otro hilo mientras el almacén sigue recibiendo cambios.<br>
+ * Al tomarla sólo se copian las categorías y marcas con la cantidad de hijos de cada categoría. Lo demás se copia cuando se va a modificar: cada marca copia sus
+ * productos la primera vez que se agrega o elimina uno de ellos, o cuando se escribe si nadie la modificó antes, y cada producto guarda sus unidades vendidas antes
+ * de la primera venta. La época identifica el punto de control al que corresponden las copias.
+ */
+class PuntoControl
+{
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Época del punto de control.
+     */
+    private int epoca;
+
+    /**
+     * Momento en que se tomó el punto de control, en milisegundos.
+     */
+    private long captura;
+
+    /**
+     * Categorías y marcas del árbol en preorden.
+     */
+    private List<NodoAlmacen> nodos;
+
+    /**
+     * Cantidad de hijos de cada categoría de nodos, en el mismo orden. Es 0 para las marcas.
+     */
+    private List<Integer> hijos;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Toma el punto de control del árbol de la raíz dada.<br>
+     * <b>pre: </b> El árbol no se está modificando.<br>
+     * <b>post: </b> Se copiaron las categorías y marcas del árbol.
+     * @param pRaiz Categoría raíz del almacén. pRaiz != null.
+     * @param pEpoca Época del punto de control, distinta de la de los anteriores. pEpoca > 0.
+     */
+    PuntoControl( Categoria pRaiz, int pEpoca )
+    {
+        epoca = pEpoca;
+        captura = System.currentTimeMillis( );
+        nodos = new ArrayList<>( );
+        hijos = new ArrayList<>( );
+        capturar( pRaiz );
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Agrega a la vista el nodo dado y su subárbol de categorías y marcas.
+     * @param pNodo Nodo del árbol. pNodo != null.
+     */
+    private void capturar( NodoAlmacen pNodo )
+    {
+        nodos.add( pNodo );
+        if( pNodo instanceof Categoria )
+        {
+            List<NodoAlmacen> nodosHijos = ( ( Categoria )pNodo ).darNodos( );
+            hijos.add( nodosHijos.size( ) );
+            for( NodoAlmacen hijo : nodosHijos )
+            {
+                capturar( hijo );
+            }
+        }
+        else
+        {
+            hijos.add( 0 );
+        }
+    }
+
+    /**
+     * Retorna la época del punto de control.
+     * @return Época del punto de control.
+     */
+    int darEpoca( )
+    {
+        return epoca;
+    }
+
+    /**
+     * Retorna el momento en que se tomó el punto de control.
+     * @return Momento de la captura en milisegundos.
+     */
+    long darCaptura( )
+    {
+        return captura;
+    }
+
+    /**
+     * Escribe el árbol del punto de control en el catálogo de texto. Las copias de los productos de cada marca se liberan después de escribirla.
+     * @param pEscritor Escritor del catálogo. pEscritor != null.
+     * @throws IOException Si algún texto no se puede guardar en el catálogo o si ocurre un error escribiendo el archivo.
+     */
+    void escribir( EscritorCatalogo pEscritor ) throws IOException
+    {
+        for( int i = 0; i < nodos.size( ); i++ )
+        {
+            NodoAlmacen nodo = nodos.get( i );
+            if( nodo instanceof Categoria )
+            {
+                pEscritor.escribirCampo( Categoria.TIPO );
+                pEscritor.escribirCampo( nodo.darIdentificador( ) );
+                pEscritor.escribirCampo( nodo.darNombre( ) );
+                pEscritor.escribirEntero( hijos.get( i ) );
+                pEscritor.terminarRegistro( );
+            }
+            else
+            {
+                Marca marca = ( Marca )nodo;
+                Producto[] productos = marca.copiarProductos( epoca );
+                pEscritor.escribirCampo( Marca.TIPO );
+                pEscritor.escribirCampo( marca.darIdentificador( ) );
+                pEscritor.escribirCampo( marca.darNombre( ) );
+                pEscritor.escribirEntero( productos.length );
+                pEscritor.terminarRegistro( );
+                for( Producto producto : productos )
+                {
+                    int vendidas;
+                    synchronized( producto )
+                    {
+                        vendidas = producto.darVendidasPuntoControl( epoca );
+                    }
+                    producto.escribir( pEscritor, vendidas );
+                }
+                marca.liberarCopia( );
+            }
+        }
+    }
+
+    /**
+     * Libera las copias de los productos de todas las marcas.<br>
+     * <b>post: </b> Ninguna marca del punto de control tiene copia de sus productos.
+     */
+    void liberar( )
+    {
+        for( NodoAlmacen nodo : nodos )
+        {
+            if( nodo instanceof Marca )
+            {
+                ( ( Marca )nodo ).liberarCopia( );
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Reporte de ventas del almacén en formato CSV, con una fila por nodo del árbol: valor de las ventas, unidades vendidas, cantidad de productos y de marcas, y
+ * precios mínimo, máximo y promedio de su subárbol.<br>
+ * Todo el reporte sale de un solo recorrido en posorden: el resumen de cada marca se calcula con sus productos y el de cada categoría combinando los de sus
+ * hijos, así que ningún subárbol se recorre dos veces. Cada fila se escribe en cuanto se termina su nodo, de modo que el reporte no se arma en memoria y sólo se
+ * guardan los resúmenes del camino actual. Las filas quedan en posorden: los hijos antes que su padre.
+ */
+public class ReporteVentas
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Primera línea del reporte con los nombres de las columnas.
+     */
+    public final static String ENCABEZADO = "tipo,identificador,nombre,padre,nivel,ventas,unidades,productos,marcas,precio_minimo,precio_maximo,precio_promedio";
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Salida a la que se escribe el reporte.
+     */
+    private Writer salida;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un reporte que se escribe en la salida dada.
+     * @param pSalida Salida del reporte. pSalida != null.
+     */
+    public ReporteVentas( Writer pSalida )
+    {
+        salida = pSalida;
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Escribe el encabezado y las filas de todos los nodos del subárbol dado.<br>
+     * <b>pre: </b> Ningún hilo está cambiando la estructura del subárbol.<br>
+     * <b>post: </b> Se escribió en la salida una fila por nodo. La salida no se cierra.
+     * @param pRaiz Raíz del subárbol del reporte. pRaiz != null.
+     * @return Resumen de la raíz, el mismo que se escribió en su fila.
+     * @throws IOException Si ocurre un error escribiendo en la salida.
+     */
+    public ResumenSubarbol escribir( NodoAlmacen pRaiz ) throws IOException
+    {
+        salida.write( ENCABEZADO );
+        salida.write( '\n' );
+        return escribir( pRaiz, 0 );
+    }
+
+    /**
+     * Calcula el resumen del nodo dado después de escribir las filas de sus descendientes, y escribe su fila.
+     * @param pNodo Nodo del árbol. pNodo != null.
+     * @param pNivel Profundidad del nodo desde la raíz del reporte.
+     * @return Resumen del subárbol del nodo.
+     * @throws IOException Si ocurre un error escribiendo en la salida.
+     */
+    private ResumenSubarbol escribir( NodoAlmacen pNodo, int pNivel ) throws IOException
+    {
+        ResumenSubarbol resumen;
+        if( pNodo instanceof Categoria )
+        {
+            resumen = new ResumenSubarbol( );
+            for( NodoAlmacen hijo : ( ( Categoria )pNodo ).darNodos( ) )
+            {
+                resumen.combinar( escribir( hijo, pNivel + 1 ) );
+            }
+        }
+        else
+        {
+            resumen = pNodo.darResumen( );
+        }
+        escribirFila( pNodo, pNivel, resumen );
+        return resumen;
+    }
+
+    /**
+     * Escribe la fila de un nodo.
+     * @param pNodo Nodo de la fila. pNodo != null.
+     * @param pNivel Profundidad del nodo.
+     * @param pResumen Resumen del subárbol del nodo. pResumen != null.
+     * @throws IOException Si ocurre un error escribiendo en la salida.
+     */
+    private void escribirFila( NodoAlmacen pNodo, int pNivel, ResumenSubarbol pResumen ) throws IOException
+    {
+        escribirTexto( pNodo.darTipo( ) );
+        salida.write( ',' );
+        escribirTexto( pNodo.darIdentificador( ) );
+        salida.write( ',' );
+        escribirTexto( pNodo.darNombre( ) );
+        salida.write( ',' );
+        escribirTexto( pNodo.darPadre( ) == null ? "" : pNodo.darPadre( ).darIdentificador( ) );
+        salida.write( ',' );
+        salida.write( Integer.toString( pNivel ) );
+        salida.write( ',' );
+        salida.write( EscritorCatalogo.formatearCentavos( pResumen.darValorVentasCentavos( ), true ) );
+        salida.write( ',' );
+        salida.write( Long.toString( pResumen.darUnidadesVendidas( ) ) );
+        salida.write( ',' );
+        salida.write( Long.toString( pResumen.darCantidadProductos( ) ) );
+        salida.write( ',' );
+        salida.write( Long.toString( pResumen.darCantidadMarcas( ) ) );
+        salida.write( ',' );
+        salida.write( EscritorCatalogo.formatearCentavos( pResumen.darPrecioMinimoCentavos( ), true ) );
+        salida.write( ',' );
+        salida.write( EscritorCatalogo.formatearCentavos( pResumen.darPrecioMaximoCentavos( ), true ) );
+        salida.write( ',' );
+        salida.write( String.format( Locale.ROOT, "%.2f", pResumen.darPrecioPromedio( ) ) );
+        salida.write( '\n' );
+    }
+
+    /**
+     * Escribe un campo de texto, entre comillas si contiene comas, comillas o cambios de línea. Las comillas del texto se duplican.
+     * @param pTexto Texto del campo. pTexto != null.
+     * @throws IOException Si ocurre un error escribiendo en la salida.
+     */
+    private void escribirTexto( String pTexto ) throws IOException
+    {
+        if( pTexto.indexOf( ',' ) < 0 && pTexto.indexOf( '"' ) < 0 && pTexto.indexOf( '\n' ) < 0 && pTexto.indexOf( '\r' ) < 0 )
+        {
+            salida.write( pTexto );
+        }
+        else
+        {
+            salida.write( '"' );
+            salida.write( pTexto.replace( "\"", "\"\"" ) );
+            salida.write( '"' );
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+/**
+ * Resumen de los productos de un subárbol del almacén: cantidad de productos y de marcas, unidades vendidas, valor de las ventas y precios mínimo, máximo y promedio.<br>
+ * Todos los valores se acumulan como enteros, así que el resumen no depende del orden en que se recorran los productos y el cálculo paralelo da exactamente el
+ * mismo resultado que el secuencial.
+ */
+public class ResumenSubarbol
+{
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Cantidad de productos resumidos.
+     */
+    private long cantidadProductos;
+
+    /**
+     * Cantidad de marcas resumidas.
+     */
+    private long cantidadMarcas;
+
+    /**
+     * Unidades vendidas de los productos resumidos.
+     */
+    private long unidadesVendidas;
+
+    /**
+     * Valor de las ventas de los productos resumidos en centavos.
+     */
+    private long valorVentas;
+
+    /**
+     * Suma de los precios de los productos resumidos en centavos.
+     */
+    private long sumaPrecios;
+
+    /**
+     * Menor precio de los productos resumidos en centavos. Es Long.MAX_VALUE si no hay productos.
+     */
+    private long precioMinimo;
+
+    /**
+     * Mayor precio de los productos resumidos en centavos. Es Long.MIN_VALUE si no hay productos.
+     */
+    private long precioMaximo;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un resumen sin productos.<br>
+     * <b>post: </b> Todos los totales están en 0.
+     */
+    public ResumenSubarbol( )
+    {
+        precioMinimo = Long.MAX_VALUE;
+        precioMaximo = Long.MIN_VALUE;
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Agrega un producto al resumen.<br>
+     * <b>post: </b> Los totales incluyen el producto dado.
+     * @param pProducto Producto que se agrega. pProducto != null.
+     * @throws ArithmeticException Si el valor de las ventas o la suma de los precios no caben en un long.
+     */
+    void agregar( Producto pProducto )
+    {
+        long precio = pProducto.darPrecioCentavos( );
+        cantidadProductos++;
+        unidadesVendidas += pProducto.darCantidadUnidadesVendidas( );
+        valorVentas = Math.addExact( valorVentas, pProducto.darValorVentasCentavos( ) );
+        sumaPrecios = Math.addExact( sumaPrecios, precio );
+        precioMinimo = Math.min( precioMinimo, precio );
+        precioMaximo = Math.max( precioMaximo, precio );
+    }
+
+    /**
+     * Cuenta una marca en el resumen. Sus productos se agregan aparte.<br>
+     * <b>post: </b> La cantidad de marcas aumentó en 1.
+     */
+    void agregarMarca( )
+    {
+        cantidadMarcas++;
+    }
+
+    /**
+     * Agrega al resumen los totales de otro resumen, de productos distintos.<br>
+     * <b>post: </b> Los totales incluyen los productos del resumen dado.
+     * @param pResumen Resumen que se agrega. pResumen != null.
+     * @throws ArithmeticException Si el valor de las ventas o la suma de los precios no caben en un long.
+     */
+    void combinar( ResumenSubarbol pResumen )
+    {
+        cantidadProductos += pResumen.cantidadProductos;
+        cantidadMarcas += pResumen.cantidadMarcas;
+        unidadesVendidas += pResumen.unidadesVendidas;
+        valorVentas = Math.addExact( valorVentas, pResumen.valorVentas );
+        sumaPrecios = Math.addExact( sumaPrecios, pResumen.sumaPrecios );
+        precioMinimo = Math.min( precioMinimo, pResumen.precioMinimo );
+        precioMaximo = Math.max( precioMaximo, pResumen.precioMaximo );
+    }
+
+    /**
+     * Retorna la cantidad de productos resumidos.
+     * @return Cantidad de productos.
+     */
+    public long darCantidadProductos( )
+    {
+        return cantidadProductos;
+    }
+
+    /**
+     * Retorna la cantidad de marcas resumidas.
+     * @return Cantidad de marcas.
+     */
+    public long darCantidadMarcas( )
+    {
+        return cantidadMarcas;
+    }
+
+    /**
+     * Retorna las unidades vendidas de los productos resumidos.
+     * @return Unidades vendidas.
+     */
+    public long darUnidadesVendidas( )
+    {
+        return unidadesVendidas;
+    }
+
+    /**
+     * Retorna el valor de las ventas de los productos resumidos en centavos.
+     * @return Valor de las ventas en centavos.
+     */
+    public long darValorVentasCentavos( )
+    {
+        return valorVentas;
+    }
+
+    /**
+     * Retorna el valor de las ventas de los productos resumidos.
+     * @return Valor de las ventas en pesos.
+     */
+    public double darValorVentas( )
+    {
+        return Producto.aPesos( valorVentas );
+    }
+
+    /**
+     * Retorna el menor precio de los productos resumidos en centavos.
+     * @return Precio mínimo en centavos o 0 si no hay productos.
+     */
+    public long darPrecioMinimoCentavos( )
+    {
+        return cantidadProductos == 0 ? 0 : precioMinimo;
+    }
+
+    /**
+     * Retorna el mayor precio de los productos resumidos en centavos.
+     * @return Precio máximo en centavos o 0 si no hay productos.
+     */
+    public long darPrecioMaximoCentavos( )
+    {
+        return cantidadProductos == 0 ? 0 : precioMaximo;
+    }
+
+    /**
+     * Retorna el precio promedio de los productos resumidos, calculado a partir de la suma exacta de los precios.
+     * @return Precio promedio en pesos o 0 si no hay productos.
+     */
+    public double darPrecioPromedio( )
+    {
+        return cantidadProductos == 0 ? 0 : ( double )sumaPrecios / cantidadProductos / Producto.CENTAVOS_POR_PESO;
+    }
+
+    /**
+     * Indica si el resumen dado tiene los mismos totales que este.
+     * @param pObjeto Objeto que se compara.
+     * @return True si es un resumen con los mismos totales, false en caso contrario.
+     */
+    @Override
+    public boolean equals( Object pObjeto )
+    {
+        if( !( pObjeto instanceof ResumenSubarbol ) )
+        {
+            return false;
+        }
+        ResumenSubarbol otro = ( ResumenSubarbol )pObjeto;
+        return cantidadProductos == otro.cantidadProductos && cantidadMarcas == otro.cantidadMarcas && unidadesVendidas == otro.unidadesVendidas && valorVentas == otro.valorVentas
+                && sumaPrecios == otro.sumaPrecios && precioMinimo == otro.precioMinimo && precioMaximo == otro.precioMaximo;
+    }
+
+    /**
+     * Retorna el código hash del resumen, consistente con equals.
+     * @return Código hash de los totales.
+     */
+    @Override
+    public int hashCode( )
+    {
+        return Long.hashCode( cantidadProductos ) * 31 + Long.hashCode( valorVentas ) * 17 + Long.hashCode( sumaPrecios );
+    }
+
+    /**
+     * Retorna los totales del resumen.
+     * @return Texto con la cantidad de productos y marcas, las unidades, el valor de las ventas y los precios.
+     */
+    @Override
+    public String toString( )
+    {
+        return cantidadProductos + " productos, " + cantidadMarcas + " marcas, " + unidadesVendidas + " unidades, ventas " + darValorVentas( ) + ", precios " + Producto.aPesos( darPrecioMinimoCentavos( ) )
+                + " - " + Producto.aPesos( darPrecioMaximoCentavos( ) ) + " (promedio " + darPrecioPromedio( ) + ")";
+    }
+}
@@ -0,0 +1,71 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+/**
+ * Representa una línea de una venta: el código de un producto y la cantidad de unidades que se venden de él.
+ */
+public class Venta
+{
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Código del producto vendido.
+     */
+    private String codigo;
+
+    /**
+     * Cantidad de unidades vendidas.
+     */
+    private int cantidad;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye una nueva línea de venta.<br>
+     * <b>post: </b> El código y la cantidad se inicializaron con los valores dados.
+     * @param pCodigo Código del producto vendido. pCodigo != null.
+     * @param pCantidad Cantidad de unidades vendidas.
+     */
+    public Venta( String pCodigo, int pCantidad )
+    {
+        codigo = pCodigo;
+        cantidad = pCantidad;
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Retorna el código del producto vendido.
+     * @return Código del producto.
+     */
+    public String darCodigo( )
+    {
+        return codigo;
+    }
+
+    /**
+     * Retorna la cantidad de unidades vendidas.
+     * @return Cantidad de unidades.
+     */
+    public int darCantidad( )
+    {
+        return cantidad;
+    }
+}
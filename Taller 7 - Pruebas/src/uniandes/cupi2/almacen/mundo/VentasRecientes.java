@@ -0,0 +1,269 @@
+/**~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ * Universidad  de  los Andes   (Bogotá - Colombia)
+ * Departamento de  Ingeniería  de  Sistemas    y   Computación
+ * Licenciado   bajo    el  esquema Academic Free License versión 2.1
+ *
+ * Proyecto Cupi2   (http://cupi2.uniandes.edu.co)
+ * Ejercicio: n11_almacen
+ * Autor: Equipo Cupi2 2018
+ * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+ */
+
+package uniandes.cupi2.almacen.mundo;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registro de las ventas recientes del almacén por producto, marca y categoría, en ventanas de tiempo de ContadorVentana.<br>
+ * Las ventas no actualizan los contadores: sólo agregan un evento con su instante a una cola sin bloqueos, así que no compiten por los contadores de las categorías
+ * ni por los de la raíz. Los eventos se aplican en un solo hilo a la vez, que los saca de la cola y los suma al contador del producto y a los de su marca y sus
+ * categorías ancestro. Se aplican cuando la cola llega a LIMITE_PENDIENTES, lo que acota la memoria de la cola, y antes de cada consulta o cambio de la estructura.
+ * El contador de un producto se crea con su primera venta.<br>
+ * Quien usa el registro debe evitar que la estructura del árbol cambie mientras se aplican los eventos, por ejemplo aplicándolos con el candado de lectura del
+ * almacén.
+ */
+class VentasRecientes
+{
+
+    // -----------------------------------------------------------------
+    // Constantes
+    // -----------------------------------------------------------------
+
+    /**
+     * Cantidad de eventos pendientes a partir de la cual la venta que la alcanza aplica los eventos de la cola.
+     */
+    private final static int LIMITE_PENDIENTES = 1 << 12;
+
+    // -----------------------------------------------------------------
+    // Atributos
+    // -----------------------------------------------------------------
+
+    /**
+     * Eventos de venta que todavía no se han sumado a los contadores.
+     */
+    private Queue<Evento> pendientes;
+
+    /**
+     * Cantidad aproximada de eventos en la cola.
+     */
+    private AtomicInteger cantidadPendientes;
+
+    /**
+     * Candado que toma el hilo que aplica los eventos o consulta los contadores.
+     */
+    private ReentrantLock candado;
+
+    // -----------------------------------------------------------------
+    // Constructores
+    // -----------------------------------------------------------------
+
+    /**
+     * Construye un registro sin ventas.
+     */
+    VentasRecientes( )
+    {
+        pendientes = new ConcurrentLinkedQueue<>( );
+        cantidadPendientes = new AtomicInteger( );
+        candado = new ReentrantLock( );
+    }
+
+    // -----------------------------------------------------------------
+    // Métodos
+    // -----------------------------------------------------------------
+
+    /**
+     * Registra una venta que acaba de ocurrir. Si la cola llegó al límite y ningún otro hilo está aplicando los eventos, los aplica este hilo.<br>
+     * <b>pre: </b> El producto pertenece a una marca del árbol y la estructura del árbol no está cambiando.<br>
+     * <b>post: </b> La venta quedó en la cola o ya se sumó a los contadores.
+     * @param pProducto Producto vendido. pProducto != null.
+     * @param pCantidad Cantidad de unidades vendidas. pCantidad > 0.
+     */
+    void registrar( Producto pProducto, int pCantidad )
+    {
+        pendientes.add( new Evento( pProducto, pCantidad, System.currentTimeMillis( ) ) );
+        if( cantidadPendientes.incrementAndGet( ) >= LIMITE_PENDIENTES && candado.tryLock( ) )
+        {
+            try
+            {
+                aplicarPendientes( );
+            }
+            finally
+            {
+                candado.unlock( );
+            }
+        }
+    }
+
+    /**
+     * Suma a los contadores los eventos de la cola.<br>
+     * <b>pre: </b> El hilo tiene el candado del registro.<br>
+     * <b>post: </b> Los eventos que estaban en la cola se sumaron a los contadores de sus productos, marcas y categorías.
+     */
+    private void aplicarPendientes( )
+    {
+        Evento evento = pendientes.poll( );
+        while( evento != null )
+        {
+            cantidadPendientes.decrementAndGet( );
+            Producto producto = evento.producto;
+            long valor = producto.darPrecioCentavos( ) * evento.cantidad;
+            producto.darUnidadesRecientes( ).sumar( evento.instante, evento.cantidad );
+            for( NodoAlmacen nodo = producto.darMarca( ); nodo != null; nodo = nodo.padre )
+            {
+                nodo.unidadesRecientes.sumar( evento.instante, evento.cantidad );
+                nodo.valorReciente.sumar( evento.instante, valor );
+            }
+            evento = pendientes.poll( );
+        }
+    }
+
+    /**
+     * Retorna las unidades vendidas del subárbol del nodo dado en la ventana de la duración dada que termina ahora.
+     * @param pNodo Nodo del árbol. pNodo != null.
+     * @param pDuracion Duración de la ventana en milisegundos. 0 < pDuracion <= ContadorVentana.DURACION_MAXIMA.
+     * @return Unidades vendidas en la ventana.
+     */
+    long darUnidades( NodoAlmacen pNodo, long pDuracion )
+    {
+        return darTotal( pNodo.unidadesRecientes, pDuracion );
+    }
+
+    /**
+     * Retorna el valor de las ventas del subárbol del nodo dado en la ventana de la duración dada que termina ahora.
+     * @param pNodo Nodo del árbol. pNodo != null.
+     * @param pDuracion Duración de la ventana en milisegundos. 0 < pDuracion <= ContadorVentana.DURACION_MAXIMA.
+     * @return Valor de las ventas en la ventana en centavos.
+     */
+    long darValor( NodoAlmacen pNodo, long pDuracion )
+    {
+        return darTotal( pNodo.valorReciente, pDuracion );
+    }
+
+    /**
+     * Retorna las unidades vendidas del producto dado en la ventana de la duración dada que termina ahora.
+     * @param pProducto Producto del árbol. pProducto != null.
+     * @param pDuracion Duración de la ventana en milisegundos. 0 < pDuracion <= ContadorVentana.DURACION_MAXIMA.
+     * @return Unidades vendidas en la ventana.
+     */
+    long darUnidades( Producto pProducto, long pDuracion )
+    {
+        candado.lock( );
+        try
+        {
+            aplicarPendientes( );
+            return pProducto.tieneVentasRecientes( ) ? pProducto.darUnidadesRecientes( ).darTotal( System.currentTimeMillis( ), pDuracion ) : 0;
+        }
+        finally
+        {
+            candado.unlock( );
+        }
+    }
+
+    /**
+     * Aplica los eventos pendientes y retorna el total del contador dado en la ventana de la duración dada que termina ahora.
+     * @param pContador Contador de un nodo. pContador != null.
+     * @param pDuracion Duración de la ventana en milisegundos. 0 < pDuracion <= ContadorVentana.DURACION_MAXIMA.
+     * @return Total del contador en la ventana.
+     */
+    private long darTotal( ContadorVentana pContador, long pDuracion )
+    {
+        candado.lock( );
+        try
+        {
+            aplicarPendientes( );
+            return pContador.darTotal( System.currentTimeMillis( ), pDuracion );
+        }
+        finally
+        {
+            candado.unlock( );
+        }
+    }
+
+    /**
+     * Resta las ventas recientes del nodo dado de las de sus categorías ancestro, antes de sacarlo del árbol.<br>
+     * <b>pre: </b> El nodo todavía está en el árbol y la estructura no está cambiando en otro hilo.<br>
+     * <b>post: </b> Los contadores de los ancestros del nodo ya no tienen sus ventas.
+     * @param pNodo Nodo que se va a eliminar. pNodo != null.
+     */
+    void quitar( NodoAlmacen pNodo )
+    {
+        candado.lock( );
+        try
+        {
+            aplicarPendientes( );
+            for( Categoria actual = pNodo.padre; actual != null; actual = actual.padre )
+            {
+                actual.unidadesRecientes.restar( pNodo.unidadesRecientes, 1 );
+                actual.valorReciente.restar( pNodo.valorReciente, 1 );
+            }
+        }
+        finally
+        {
+            candado.unlock( );
+        }
+    }
+
+    /**
+     * Resta las ventas recientes del producto dado de las de su marca y sus categorías ancestro, antes de eliminarlo.<br>
+     * <b>pre: </b> El producto todavía está en su marca y la estructura no está cambiando en otro hilo.<br>
+     * <b>post: </b> Los contadores de la marca y sus ancestros ya no tienen las ventas del producto.
+     * @param pProducto Producto que se va a eliminar. pProducto != null.
+     */
+    void quitar( Producto pProducto )
+    {
+        candado.lock( );
+        try
+        {
+            aplicarPendientes( );
+            if( pProducto.tieneVentasRecientes( ) )
+            {
+                for( NodoAlmacen nodo = pProducto.darMarca( ); nodo != null; nodo = nodo.padre )
+                {
+                    nodo.unidadesRecientes.restar( pProducto.darUnidadesRecientes( ), 1 );
+                    nodo.valorReciente.restar( pProducto.darUnidadesRecientes( ), pProducto.darPrecioCentavos( ) );
+                }
+            }
+        }
+        finally
+        {
+            candado.unlock( );
+        }
+    }
+
+    /**
+     * Venta que todavía no se ha sumado a los contadores.
+     */
+    private static class Evento
+    {
+        /**
+         * Producto vendido.
+         */
+        private Producto producto;
+
+        /**
+         * Cantidad de unidades vendidas.
+         */
+        private int cantidad;
+
+        /**
+         * Instante de la venta en milisegundos.
+         */
+        private long instante;
+
+        /**
+         * Construye el evento de una venta.
+         * @param pProducto Producto vendido. pProducto != null.
+         * @param pCantidad Cantidad de unidades vendidas.
+         * @param pInstante Instante de la venta en milisegundos.
+         */
+        Evento( Producto pProducto, int pCantidad, long pInstante )
+        {
+            producto = pProducto;
+            cantidad = pCantidad;
+            instante = pInstante;
+        }
+    }
+}
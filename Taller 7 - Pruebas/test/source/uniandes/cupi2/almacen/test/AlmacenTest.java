@@ -0,0 +1,691 @@
+package uniandes.cupi2.almacen.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.cupi2.almacen.mundo.AgregadorParalelo;
+import uniandes.cupi2.almacen.mundo.Almacen;
+import uniandes.cupi2.almacen.mundo.AlmacenException;
+import uniandes.cupi2.almacen.mundo.CargadorProgresivo;
+import uniandes.cupi2.almacen.mundo.Categoria;
+import uniandes.cupi2.almacen.mundo.ContadorVentana;
+import uniandes.cupi2.almacen.mundo.Marca;
+import uniandes.cupi2.almacen.mundo.NodoAlmacen;
+import uniandes.cupi2.almacen.mundo.Producto;
+import uniandes.cupi2.almacen.mundo.ReporteVentas;
+import uniandes.cupi2.almacen.mundo.ResumenSubarbol;
+import uniandes.cupi2.almacen.mundo.Venta;
+
+public class AlmacenTest {
+
+	private Almacen almacen;
+
+	@BeforeEach // Se carga el almacén a partir del mismo archivo de prueba de las categorías
+	public void setUpEscenario() throws AlmacenException {
+		almacen = new Almacen(new File("./test/testData/categoriaTest.txt"));
+	}
+
+	@Test // Todos los nodos cargados deben poder encontrarse por su identificador
+	public void testBuscarNodo() {
+		assertEquals("Televisores", almacen.buscarNodo("111").darNombre());
+		assertEquals("SAMSUNG", almacen.buscarNodo("1111").darNombre());
+		assertEquals("LG", almacen.buscarNodo("1112").darNombre());
+		assertNull(almacen.buscarNodo("INEXISTENTE"));
+	}
+
+	@Test // Un nodo agregado debe quedar disponible en el índice
+	public void testAgregarNodo() throws AlmacenException {
+		almacen.agregarNodo("111", Marca.TIPO, "1113", "SONY");
+		assertNotNull(almacen.buscarNodo("1113"));
+		assertEquals(3, almacen.darCategoriaRaiz().darNodos().size());
+	}
+
+	@Test // No se puede agregar un nodo con un identificador que ya existe en cualquier parte del árbol
+	public void testAgregarNodoRepetido() throws AlmacenException {
+		almacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		assertThrows(AlmacenException.class, () -> almacen.agregarNodo("C-1", Marca.TIPO, "1112", "Repetida"));
+		assertThrows(AlmacenException.class, () -> almacen.agregarNodo("111", Marca.TIPO, "111", "Repetida"));
+	}
+
+	@Test // Al eliminar una categoría se deben eliminar del índice todos los nodos de su subárbol
+	public void testEliminarNodo() throws AlmacenException {
+		almacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		almacen.agregarNodo("C-1", Marca.TIPO, "M-1", "Genérica");
+		almacen.eliminarNodo("C-1");
+		assertNull(almacen.buscarNodo("C-1"));
+		assertNull(almacen.buscarNodo("M-1"));
+		assertDoesNotThrow(() -> almacen.agregarNodo("111", Marca.TIPO, "M-1", "Genérica"));
+	}
+
+	@Test // Al eliminar un nodo se debe retornar su padre y el nodo debe quedar sin padre
+	public void testEliminarNodoRetornaPadre() throws AlmacenException {
+		almacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		almacen.agregarNodo("C-1", Marca.TIPO, "M-1", "Genérica");
+		NodoAlmacen marca = almacen.buscarNodo("M-1");
+		assertSame(almacen.buscarNodo("C-1"), marca.darPadre());
+
+		Categoria padre = almacen.eliminarNodo("M-1");
+		assertEquals("C-1", padre.darIdentificador());
+		assertNull(marca.darPadre());
+		assertEquals(0, padre.darNodos().size());
+	}
+
+	@Test // La raíz no se puede eliminar y un nodo inexistente no tiene padre
+	public void testEliminarNodoInvalido() throws AlmacenException {
+		assertThrows(AlmacenException.class, () -> almacen.eliminarNodo("111"));
+		assertNull(almacen.eliminarNodo("INEXISTENTE"));
+	}
+
+	@Test // Un producto de cualquier marca debe poderse encontrar y vender a partir de su código
+	public void testVenderProducto() throws AlmacenException {
+		Producto producto = almacen.buscarProducto("30557851");
+		assertEquals("1112", producto.darMarca().darIdentificador());
+		almacen.venderProducto("30557851", 3);
+		assertEquals(3, producto.darCantidadUnidadesVendidas());
+	}
+
+	@Test // No se puede agregar un producto cuyo código ya existe en otra marca
+	public void testAgregarProductoRepetido() throws AlmacenException {
+		assertThrows(AlmacenException.class, () -> almacen.agregarProducto("1112", "31759941", "TV", "TV", 1000));
+		almacen.agregarProducto("1112", "99999999", "TV", "TV", 1000);
+		assertSame(almacen.buscarNodo("1112"), almacen.buscarProducto("99999999").darMarca());
+	}
+
+	@Test // Al eliminar un producto con dos hijos los demás productos de la marca deben seguir en el índice
+	public void testEliminarProducto() throws AlmacenException {
+		almacen.agregarProducto("1112", "30000000", "TV", "TV", 1000);
+		Producto sucesor = almacen.buscarProducto("30747531");
+		almacen.eliminarProducto("30557851");
+		assertNull(almacen.buscarProducto("30557851"));
+		Marca lg = (Marca) almacen.buscarNodo("1112");
+		assertSame(sucesor, lg.buscarProducto("30747531"));
+		assertNotNull(lg.buscarProducto("30000000"));
+		assertEquals(2, lg.darCantidadProductos());
+		assertDoesNotThrow(() -> almacen.agregarProducto("1111", "30557851", "TV", "TV", 1000));
+	}
+
+	@Test // Al eliminar una marca se deben eliminar del índice sus productos
+	public void testEliminarMarca() throws AlmacenException {
+		almacen.eliminarNodo("1111");
+		assertNull(almacen.buscarProducto("31759941"));
+		assertNotNull(almacen.buscarProducto("30557851"));
+	}
+
+	@Test // Los totales de la raíz deben reflejar las ventas y los cambios en productos y nodos
+	public void testTotalesCategoria() throws AlmacenException {
+		Categoria raiz = almacen.darCategoriaRaiz();
+		double ventasIniciales = 1898900 + 2 * (2499000);
+		assertEquals(ventasIniciales, raiz.darValorVentas());
+		assertEquals(3, raiz.darCantidadUnidadesVendidas());
+		assertEquals(5, raiz.darCantidadProductos());
+
+		almacen.venderProducto("30557851", 2);
+		assertEquals(ventasIniciales + 2 * 1498900, raiz.darValorVentas());
+		assertEquals(5, raiz.darCantidadUnidadesVendidas());
+
+		almacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		almacen.agregarNodo("C-1", Marca.TIPO, "M-1", "Genérica");
+		almacen.agregarProducto("M-1", "P-1", "Control", "Control remoto", 50000);
+		almacen.venderProducto("P-1", 1);
+		assertEquals(1, almacen.buscarNodo("C-1").darCantidadProductos());
+		assertEquals(6, raiz.darCantidadProductos());
+		assertEquals(ventasIniciales + 2 * 1498900 + 50000, raiz.darValorVentas());
+
+		almacen.eliminarNodo("C-1");
+		almacen.eliminarProducto("30766691");
+		assertEquals(1898900 + 2 * 1498900, raiz.darValorVentas());
+		assertEquals(3, raiz.darCantidadUnidadesVendidas());
+		assertEquals(4, raiz.darCantidadProductos());
+	}
+
+	@Test // La carga mapeada en memoria debe producir el mismo árbol que la carga secuencial
+	public void testCargaMapeada() throws AlmacenException {
+		Almacen mapeado = new Almacen(new File("./test/testData/categoriaTest.txt"), Almacen.CARGA_MAPEADA);
+		verificarMismoArbol(almacen, mapeado);
+		assertEquals(almacen.buscarProducto("30557851").darDescripcion(), mapeado.buscarProducto("30557851").darDescripcion());
+	}
+
+	@Test // La carga paralela debe producir el mismo árbol que la carga secuencial, también con categorías anidadas
+	public void testCargaParalela() throws AlmacenException {
+		verificarMismoArbol(almacen, new Almacen(new File("./test/testData/categoriaTest.txt"), Almacen.CARGA_PARALELA));
+
+		File datos = new File("./data/datos.txt");
+		Almacen secuencial = new Almacen(datos);
+		Almacen paralelo = new Almacen(datos, Almacen.CARGA_PARALELA);
+		verificarMismoArbol(secuencial, paralelo);
+		for (NodoAlmacen nodo : secuencial.darCategoriaRaiz().darPreorden()) {
+			assertEquals(nodo.darNombre(), paralelo.buscarNodo(nodo.darIdentificador()).darNombre());
+			assertEquals(nodo.darCantidadProductos(), paralelo.buscarNodo(nodo.darIdentificador()).darCantidadProductos());
+		}
+	}
+
+	@Test // La copia binaria debe conservar el árbol, los productos y sus ventas
+	public void testCopiaBinaria() throws Exception {
+		almacen.venderProducto("30557851", 3);
+		almacen.agregarProducto("1111", "P-1", "Control", "Control remoto con tildes y símbolos: áéíóú €", 50000);
+		File copia = File.createTempFile("almacen", ".bin");
+		copia.deleteOnExit();
+		almacen.guardarCopiaBinaria(copia);
+
+		Almacen cargado = new Almacen(copia, Almacen.CARGA_BINARIA);
+		verificarMismoArbol(almacen, cargado);
+		assertEquals(almacen.darCategoriaRaiz().darCantidadUnidadesVendidas(), cargado.darCategoriaRaiz().darCantidadUnidadesVendidas());
+		for (Producto producto : almacen.darCategoriaRaiz().darProductos()) {
+			Producto copiado = cargado.buscarProducto(producto.darCodigo());
+			assertEquals(producto.darNombre(), copiado.darNombre());
+			assertEquals(producto.darDescripcion(), copiado.darDescripcion());
+			assertEquals(producto.darPrecio(), copiado.darPrecio());
+			assertEquals(producto.darCantidadUnidadesVendidas(), copiado.darCantidadUnidadesVendidas());
+			assertEquals(producto.darMarca().darIdentificador(), copiado.darMarca().darIdentificador());
+		}
+	}
+
+	@Test // Un archivo que no es una copia binaria no se puede cargar en ese modo
+	public void testCopiaBinariaInvalida() {
+		assertThrows(AlmacenException.class, () -> new Almacen(new File("./test/testData/categoriaTest.txt"), Almacen.CARGA_BINARIA));
+	}
+
+	@Test // Con descripciones diferidas los productos deben entregar las mismas descripciones en todos los modos que conocen las posiciones en el archivo
+	public void testDescripcionesDiferidas() throws Exception {
+		File datos = new File("./data/datos.txt");
+		Almacen completo = new Almacen(datos);
+		File copia = File.createTempFile("almacen", ".bin");
+		copia.deleteOnExit();
+		completo.guardarCopiaBinaria(copia);
+
+		Almacen[] diferidos = { new Almacen(datos, Almacen.CARGA_MAPEADA, true), new Almacen(datos, Almacen.CARGA_PARALELA, true),
+				new Almacen(copia, Almacen.CARGA_BINARIA, true) };
+		for (Almacen diferido : diferidos) {
+			verificarMismoArbol(completo, diferido);
+			for (Producto producto : completo.darCategoriaRaiz().darProductos()) {
+				assertEquals(producto.darDescripcion(), diferido.buscarProducto(producto.darCodigo()).darDescripcion());
+			}
+			diferido.cerrar();
+		}
+	}
+
+	@Test // La carga progresiva debe producir el mismo árbol que la carga completa, tanto del catálogo como de la copia binaria
+	public void testCargaProgresiva() throws Exception {
+		File datos = new File("./data/datos.txt");
+		Almacen completo = new Almacen(datos);
+		File copia = File.createTempFile("almacen", ".bin");
+		copia.deleteOnExit();
+		completo.guardarCopiaBinaria(copia);
+
+		for (CargadorProgresivo cargador : new CargadorProgresivo[] { new CargadorProgresivo(datos, Almacen.CARGA_MAPEADA, true),
+				new CargadorProgresivo(copia, Almacen.CARGA_BINARIA, false) }) {
+			Almacen progresivo = cargador.darAlmacen();
+			assertEquals(0, progresivo.darCategoriaRaiz().darNodos().size());
+			int progreso = cargador.darProgreso();
+			while (cargador.haySiguiente()) {
+				progresivo.agregarSubarbol(cargador.cargarSiguiente());
+				assertTrue(cargador.darProgreso() >= progreso);
+				progreso = cargador.darProgreso();
+			}
+			cargador.close();
+			assertEquals(100, progreso);
+			verificarMismoArbol(completo, progresivo);
+			assertNotNull(progresivo.buscarProducto(completo.darCategoriaRaiz().darProductos().get(0).darCodigo()));
+			progresivo.cerrar();
+		}
+	}
+
+	@Test // Un subárbol con un identificador repetido no se debe agregar ni modificar los índices
+	public void testAgregarSubarbolRepetido() throws AlmacenException {
+		Categoria subarbol = new Categoria("C-1", "Accesorios");
+		subarbol.agregarNodo("C-1", Marca.TIPO, "1112", "Repetida");
+		assertThrows(AlmacenException.class, () -> almacen.agregarSubarbol(subarbol));
+		assertNull(almacen.buscarNodo("C-1"));
+		assertEquals("LG", almacen.buscarNodo("1112").darNombre());
+		assertEquals(2, almacen.darCategoriaRaiz().darNodos().size());
+	}
+
+	@Test // El catálogo guardado debe conservar el árbol, los productos y sus ventas, también si las descripciones se leían del archivo original
+	public void testGuardar() throws Exception {
+		Almacen diferido = new Almacen(new File("./data/datos.txt"), Almacen.CARGA_MAPEADA, true);
+		Producto vendido = diferido.darCategoriaRaiz().darProductos().get(0);
+		diferido.venderProducto(vendido.darCodigo(), 4);
+		diferido.agregarNodo("1", Marca.TIPO, "M-1", "Nueva");
+		diferido.agregarProducto("M-1", "P-1", "Control", "Control remoto con tildes: áéíóú", 50000.5);
+		File guardado = File.createTempFile("almacen", ".txt");
+		guardado.deleteOnExit();
+		diferido.guardar(guardado);
+
+		for (int modo : new int[] { Almacen.CARGA_SECUENCIAL, Almacen.CARGA_PARALELA }) {
+			Almacen cargado = new Almacen(guardado, modo);
+			verificarMismoArbol(diferido, cargado);
+			assertEquals(diferido.darCategoriaRaiz().darCantidadUnidadesVendidas(), cargado.darCategoriaRaiz().darCantidadUnidadesVendidas());
+			for (Producto producto : diferido.darCategoriaRaiz().darProductos()) {
+				Producto copiado = cargado.buscarProducto(producto.darCodigo());
+				assertEquals(producto.darNombre(), copiado.darNombre());
+				assertEquals(producto.darDescripcion(), copiado.darDescripcion());
+				assertEquals(producto.darPrecio(), copiado.darPrecio());
+				assertEquals(producto.darCantidadUnidadesVendidas(), copiado.darCantidadUnidadesVendidas());
+			}
+		}
+		diferido.cerrar();
+	}
+
+	@Test // Los valores se suman en centavos, así que mil ventas de 10 centavos suman exactamente 100 pesos en todos los niveles y se guardan sin redondeo
+	public void testVentasEnCentavos() throws Exception {
+		long valorRaiz = almacen.darValorVentasCentavos();
+		almacen.agregarProducto("1111", "P-1", "Calcomanía", "Calcomanía pequeña", 0.1);
+		almacen.agregarProducto("1111", "P-2", "Lápiz", "Lápiz de colores", 1234.07);
+		for (int i = 0; i < 1000; i++) {
+			almacen.venderProducto("P-1", 1);
+		}
+		almacen.venderProducto("P-2", 3);
+		Marca samsung = (Marca) almacen.buscarNodo("1111");
+		assertEquals(10000, almacen.buscarProducto("P-1").darValorVentasCentavos());
+		assertEquals(100.0, almacen.buscarProducto("P-1").darValorVentas());
+		assertEquals(10000 + 370221, samsung.darValorVentasCentavos("P-1", "P-2"));
+		assertEquals(valorRaiz + 10000 + 370221, almacen.darValorVentasCentavos());
+
+		File guardado = File.createTempFile("almacen", ".txt");
+		guardado.deleteOnExit();
+		almacen.guardar(guardado);
+		Almacen cargado = new Almacen(guardado);
+		assertEquals(123407, cargado.buscarProducto("P-2").darPrecioCentavos());
+		assertEquals(almacen.darValorVentasCentavos(), cargado.darValorVentasCentavos());
+	}
+
+	@Test // Una venta de una cantidad que no es positiva se rechaza sin cambiar las unidades ni los totales
+	public void testVentaNoPositiva() throws AlmacenException {
+		int unidades = almacen.buscarProducto("30557851").darCantidadUnidadesVendidas();
+		long valorRaiz = almacen.darValorVentasCentavos();
+		assertThrows(AlmacenException.class, () -> almacen.venderProducto("30557851", 0));
+		assertThrows(AlmacenException.class, () -> almacen.venderProducto("30557851", -5));
+		assertEquals(unidades, almacen.buscarProducto("30557851").darCantidadUnidadesVendidas());
+		assertEquals(valorRaiz, almacen.darValorVentasCentavos());
+	}
+
+	@Test // Una venta cuyo valor desborda los totales en centavos se rechaza sin cambiar nada, sola o dentro de un lote
+	public void testVentaDesbordada() throws AlmacenException {
+		assertThrows(AlmacenException.class, () -> almacen.agregarProducto("1111", "P-0", "Imposible", "Precio sin representación", 1e17));
+		almacen.agregarProducto("1111", "P-1", "Joya", "Joya de la corona", 1e16);
+		almacen.venderProducto("P-1", 5);
+		long valorRaiz = almacen.darValorVentasCentavos();
+		assertThrows(AlmacenException.class, () -> almacen.venderProducto("P-1", 5));
+		List<String> resultados = almacen.venderProductos(Arrays.asList(new Venta("30557851", 1), new Venta("P-1", 5)));
+		assertNull(resultados.get(0));
+		assertNotNull(resultados.get(1));
+		assertEquals(5, almacen.buscarProducto("P-1").darCantidadUnidadesVendidas());
+		assertEquals(valorRaiz + 149890000, almacen.darValorVentasCentavos());
+	}
+
+	@Test // Un precio que redondeado al centavo no es mayor a 0 se rechaza al agregar el producto y al cargar el catálogo
+	public void testPrecioNoPositivo() throws Exception {
+		assertThrows(AlmacenException.class, () -> almacen.agregarProducto("1111", "P-0", "Negativo", "Precio negativo", -12345.07));
+		assertThrows(AlmacenException.class, () -> almacen.agregarProducto("1111", "P-0", "Gratis", "Precio cero", 0));
+		assertThrows(AlmacenException.class, () -> almacen.agregarProducto("1111", "P-0", "Casi gratis", "Menos de medio centavo", 0.004));
+		assertNull(almacen.buscarProducto("P-0"));
+
+		almacen.agregarProducto("1111", "P-1", "Lápiz", "Lápiz de colores", 12345.07);
+		File guardado = File.createTempFile("almacen", ".txt");
+		guardado.deleteOnExit();
+		almacen.guardar(guardado);
+		String texto = new String(Files.readAllBytes(guardado.toPath()), StandardCharsets.ISO_8859_1);
+		assertTrue(texto.contains(";;;12345.07;;;"));
+		Files.write(guardado.toPath(), texto.replace(";;;12345.07;;;", ";;;-12345.07;;;").getBytes(StandardCharsets.ISO_8859_1));
+		assertThrows(AlmacenException.class, () -> new Almacen(guardado));
+	}
+
+	@Test // Unas unidades vendidas negativas o que no caben en un int se rechazan al cargar el catálogo en lugar de truncarse
+	public void testUnidadesFueraDeRango() throws Exception {
+		almacen.agregarProducto("1111", "P-1", "Lápiz", "Lápiz de colores", 12345.07);
+		almacen.venderProducto("P-1", 7);
+		File guardado = File.createTempFile("almacen", ".txt");
+		guardado.deleteOnExit();
+		almacen.guardar(guardado);
+		String texto = new String(Files.readAllBytes(guardado.toPath()), StandardCharsets.ISO_8859_1);
+		assertTrue(texto.contains(";;;12345.07;;;7\n"));
+		for (String unidades : new String[] { "3000000000", "-7" }) {
+			Files.write(guardado.toPath(), texto.replace(";;;12345.07;;;7\n", ";;;12345.07;;;" + unidades + "\n").getBytes(StandardCharsets.ISO_8859_1));
+			assertThrows(AlmacenException.class, () -> new Almacen(guardado));
+		}
+	}
+
+	@Test // La copia binaria se valida igual que el catálogo de texto: un precio no positivo o unidades negativas se rechazan
+	public void testProductoBinarioInvalido() throws Exception {
+		almacen.agregarProducto("1111", "P-1", "Lápiz", "Lápiz de colores", 12345.07);
+		almacen.venderProducto("P-1", 7);
+		File copia = File.createTempFile("almacen", ".bin");
+		copia.deleteOnExit();
+		almacen.guardarCopiaBinaria(copia);
+		byte[] bytes = Files.readAllBytes(copia.toPath());
+		byte[] producto = ByteBuffer.allocate(12).putLong(1234507).putInt(7).array();
+		int posicion = buscar(bytes, producto);
+		assertTrue(posicion >= 0);
+		for (byte[] invalido : new byte[][] { ByteBuffer.allocate(12).putLong(-1234507).putInt(7).array(), ByteBuffer.allocate(12).putLong(1234507).putInt(-7).array() }) {
+			byte[] modificado = bytes.clone();
+			System.arraycopy(invalido, 0, modificado, posicion, invalido.length);
+			Files.write(copia.toPath(), modificado);
+			assertThrows(AlmacenException.class, () -> new Almacen(copia, Almacen.CARGA_BINARIA));
+		}
+	}
+
+	@Test // Si un texto no se puede guardar en el formato del catálogo el archivo anterior no debe cambiar
+	public void testGuardarTextoInvalido() throws Exception {
+		File guardado = File.createTempFile("almacen", ".txt");
+		guardado.deleteOnExit();
+		almacen.guardar(guardado);
+		long longitud = guardado.length();
+		almacen.agregarProducto("1111", "P-1", "Control;;;remoto", "Descripción", 50000);
+		assertThrows(AlmacenException.class, () -> almacen.guardar(guardado));
+		assertEquals(longitud, guardado.length());
+		assertEquals(0, guardado.getParentFile().listFiles((dir, nombre) -> nombre.startsWith(guardado.getName()) && nombre.endsWith(".tmp")).length);
+	}
+
+	@Test // Las consultas de varios hilos deben ver estados consistentes mientras otros hilos agregan y venden productos, y al final deben estar todos los cambios
+	public void testCambiosConcurrentes() throws Exception {
+		int productosIniciales = almacen.darCantidadProductos();
+		long unidadesIniciales = almacen.darCantidadUnidadesVendidas();
+		double valorInicial = almacen.darValorVentas();
+		AtomicBoolean terminar = new AtomicBoolean();
+		List<Throwable> errores = new ArrayList<>();
+		List<Thread> hilos = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			String marca = "M-" + t;
+			hilos.add(new Thread(() -> {
+				try {
+					almacen.agregarNodo("111", Marca.TIPO, marca, "Marca " + marca);
+					for (int i = 0; i < 100; i++) {
+						almacen.agregarProducto(marca, marca + "-" + i, "Producto", "Descripción", 10);
+						almacen.venderProducto(marca + "-" + i, 2);
+					}
+				} catch (Throwable e) {
+					synchronized (errores) {
+						errores.add(e);
+					}
+				}
+			}));
+		}
+		List<Thread> lectores = new ArrayList<>();
+		for (int t = 0; t < 2; t++) {
+			lectores.add(new Thread(() -> {
+				try {
+					double valorAnterior = valorInicial;
+					while (!terminar.get()) {
+						// Sólo se venden unidades, el valor de las ventas no puede disminuir
+						double valor = almacen.darValorVentas();
+						assertTrue(valor >= valorAnterior);
+						valorAnterior = valor;
+						int cantidad = almacen.darCantidadProductos();
+						assertTrue(cantidad >= productosIniciales && cantidad <= productosIniciales + 400);
+						Producto producto = almacen.buscarProducto("M-0-50");
+						assertTrue(producto == null || producto.darCodigo().equals("M-0-50"));
+						assertNotNull(almacen.buscarNodo("111"));
+					}
+				} catch (Throwable e) {
+					synchronized (errores) {
+						errores.add(e);
+					}
+				}
+			}));
+		}
+		for (Thread hilo : lectores) {
+			hilo.start();
+		}
+		for (Thread hilo : hilos) {
+			hilo.start();
+		}
+		for (Thread hilo : hilos) {
+			hilo.join();
+		}
+		terminar.set(true);
+		for (Thread hilo : lectores) {
+			hilo.join();
+		}
+		assertTrue(errores.isEmpty(), errores.toString());
+		assertEquals(productosIniciales + 400, almacen.darCantidadProductos());
+		assertEquals(unidadesIniciales + 800, almacen.darCantidadUnidadesVendidas());
+		assertEquals(valorInicial + 8000, almacen.darValorVentas());
+		assertEquals(productosIniciales + 400, almacen.darProductos().size());
+	}
+
+	@Test // El resumen y la lista de productos calculados en paralelo deben ser idénticos a los secuenciales con cualquier umbral de división
+	public void testResumenParalelo() throws AlmacenException {
+		almacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		for (int m = 0; m < 3; m++) {
+			almacen.agregarNodo("C-1", Marca.TIPO, "M-" + m, "Marca " + m);
+			for (int i = 0; i < 700; i++) {
+				almacen.agregarProducto("M-" + m, String.format("P-%d-%04d", m, i), "Producto", "Descripción", 1 + (i * 37 % 1000) * 0.07);
+				almacen.venderProducto(String.format("P-%d-%04d", m, i), 1 + i % 5);
+			}
+		}
+		Categoria raiz = almacen.darCategoriaRaiz();
+		ResumenSubarbol secuencial = almacen.darResumen(raiz.darIdentificador(), false);
+		assertEquals(raiz.darCantidadProductos(), secuencial.darCantidadProductos());
+		assertEquals(raiz.darCantidadUnidadesVendidas(), secuencial.darUnidadesVendidas());
+		assertEquals(raiz.darValorVentasCentavos(), secuencial.darValorVentasCentavos());
+		assertEquals(100, almacen.darResumen("M-0", false).darPrecioMinimoCentavos());
+		assertEquals(100 + 999 * 7, almacen.darResumen("M-0", false).darPrecioMaximoCentavos());
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (int umbral : new int[] { 1, 7, 300, AgregadorParalelo.UMBRAL_PRODUCTOS }) {
+			AgregadorParalelo agregador = new AgregadorParalelo(pool, umbral);
+			for (NodoAlmacen nodo : raiz.darPreorden()) {
+				assertEquals(nodo.darResumen(), agregador.darResumen(nodo));
+				assertEquals(nodo.darProductos(), agregador.darProductos(nodo));
+			}
+		}
+		pool.shutdown();
+		assertEquals(secuencial, almacen.darResumen(raiz.darIdentificador(), true));
+		assertEquals(almacen.darProductos(), almacen.darProductos(true));
+		assertNull(almacen.darResumen("INEXISTENTE", true));
+	}
+
+	@Test // El reporte tiene una fila por nodo en posorden y la fila de la raíz coincide con el resumen de todo el almacén
+	public void testEscribirReporte() throws AlmacenException {
+		almacen.agregarNodo("111", Marca.TIPO, "M-R", "Marca, \"especial\"");
+		almacen.agregarProducto("M-R", "P-R", "Producto", "Descripción", 12.5);
+		almacen.venderProducto("P-R", 3);
+		StringWriter salida = new StringWriter();
+		ResumenSubarbol resumen = almacen.escribirReporte(salida);
+
+		Categoria raiz = almacen.darCategoriaRaiz();
+		String[] lineas = salida.toString().split("\n");
+		assertEquals(ReporteVentas.ENCABEZADO, lineas[0]);
+		assertEquals(raiz.darPreorden().size() + 1, lineas.length);
+		List<NodoAlmacen> posorden = raiz.darPosorden();
+		for (int i = 0; i < posorden.size(); i++) {
+			assertTrue(lineas[i + 1].startsWith(posorden.get(i).darTipo() + "," + posorden.get(i).darIdentificador() + ","));
+		}
+		assertEquals(almacen.darResumen(raiz.darIdentificador(), false), resumen);
+		assertEquals(raiz.darMarcas().size(), resumen.darCantidadMarcas());
+		assertEquals(raiz.darValorVentasCentavos(), resumen.darValorVentasCentavos());
+		assertTrue(salida.toString().contains("Marca,M-R,\"Marca, \"\"especial\"\"\",111,1,37.50,3,1,1,12.50,12.50,12.50\n"));
+		assertTrue(lineas[lineas.length - 1].startsWith(Categoria.TIPO + "," + raiz.darIdentificador() + ","));
+		assertTrue(lineas[lineas.length - 1].contains(",0," + resumen.darValorVentasCentavos() / 100 + "."));
+	}
+
+	@Test // Los más vendidos de cada nodo coinciden con ordenar todos sus productos después de ventas, lotes y cambios de la estructura
+	public void testMasVendidos() throws AlmacenException {
+		almacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		almacen.agregarNodo("C-1", Categoria.TIPO, "C-2", "Cables");
+		for (int m = 0; m < 4; m++) {
+			almacen.agregarNodo(m % 2 == 0 ? "C-1" : "C-2", Marca.TIPO, "M-" + m, "Marca " + m);
+			for (int i = 0; i < 60; i++) {
+				almacen.agregarProducto("M-" + m, String.format("P-%d-%02d", m, i), "Producto", "Descripción", 1 + i % 7);
+			}
+		}
+		verificarMasVendidos();
+		for (int i = 0; i < 500; i++) {
+			almacen.venderProducto(String.format("P-%d-%02d", i % 4, i * 31 % 60), 1 + i % 3);
+		}
+		verificarMasVendidos();
+		List<Venta> lote = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			lote.add(new Venta(String.format("P-%d-%02d", i % 4, i), 50 + i));
+		}
+		almacen.venderProductos(lote);
+		verificarMasVendidos();
+
+		Categoria raiz = almacen.darCategoriaRaiz();
+		for (int i = 0; i < 5; i++) {
+			almacen.eliminarProducto(almacen.darMasVendidos(raiz.darIdentificador(), 1).get(0).darCodigo());
+			verificarMasVendidos();
+		}
+		almacen.eliminarNodo("M-3");
+		verificarMasVendidos();
+		almacen.eliminarNodo("C-2");
+		verificarMasVendidos();
+		assertEquals(3, almacen.darMasVendidos("M-0", 3).size());
+		assertNull(almacen.darMasVendidos("INEXISTENTE", 3));
+	}
+
+	// Verifica que los más vendidos de cada nodo sean los primeros de todos sus productos ordenados por valor de ventas y código
+	private void verificarMasVendidos() {
+		for (NodoAlmacen nodo : almacen.darCategoriaRaiz().darPreorden()) {
+			List<Producto> productos = nodo.darProductos();
+			productos.sort((a, b) -> a.darValorVentasCentavos() != b.darValorVentasCentavos()
+					? Long.compare(b.darValorVentasCentavos(), a.darValorVentasCentavos())
+					: a.darCodigo().compareTo(b.darCodigo()));
+			List<Producto> esperados = productos.subList(0, Math.min(NodoAlmacen.MAXIMO_MAS_VENDIDOS, productos.size()));
+			assertEquals(esperados, almacen.darMasVendidos(nodo.darIdentificador(), NodoAlmacen.MAXIMO_MAS_VENDIDOS));
+		}
+	}
+
+	@Test // Las ventas recientes de cada producto se suman a su marca y a sus categorías, y se restan al eliminar productos o nodos
+	public void testVentasRecientes() throws AlmacenException {
+		almacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		almacen.agregarNodo("C-1", Marca.TIPO, "M-1", "Marca 1");
+		almacen.agregarNodo("C-1", Marca.TIPO, "M-2", "Marca 2");
+		almacen.agregarProducto("M-1", "P-1", "Producto", "Descripción", 10);
+		almacen.agregarProducto("M-1", "P-2", "Producto", "Descripción", 2.5);
+		almacen.agregarProducto("M-2", "P-3", "Producto", "Descripción", 1);
+		String raiz = almacen.darCategoriaRaiz().darIdentificador();
+		assertEquals(0, almacen.darUnidadesRecientes(raiz, ContadorVentana.HORA));
+
+		almacen.venderProducto("P-1", 3);
+		almacen.venderProducto("P-2", 4);
+		almacen.venderProducto("P-1", 1);
+		almacen.venderProductos(Arrays.asList(new Venta("P-3", 5), new Venta("P-2", 2)));
+		for (long duracion : new long[] { ContadorVentana.HORA, ContadorVentana.DIA, ContadorVentana.DURACION_MAXIMA }) {
+			assertEquals(4, almacen.darUnidadesRecientesProducto("P-1", duracion));
+			assertEquals(6, almacen.darUnidadesRecientesProducto("P-2", duracion));
+			assertEquals(10, almacen.darUnidadesRecientes("M-1", duracion));
+			assertEquals(4000 + 1500, almacen.darValorVentasRecientesCentavos("M-1", duracion));
+			assertEquals(15, almacen.darUnidadesRecientes("C-1", duracion));
+			assertEquals(15, almacen.darUnidadesRecientes(raiz, duracion));
+			assertEquals(4000 + 1500 + 500, almacen.darValorVentasRecientesCentavos(raiz, duracion));
+		}
+
+		almacen.eliminarProducto("P-2");
+		assertEquals(4, almacen.darUnidadesRecientes("M-1", ContadorVentana.HORA));
+		assertEquals(9, almacen.darUnidadesRecientes(raiz, ContadorVentana.HORA));
+		assertEquals(4000 + 500, almacen.darValorVentasRecientesCentavos("C-1", ContadorVentana.DIA));
+		almacen.eliminarNodo("M-2");
+		assertEquals(4, almacen.darUnidadesRecientes(raiz, ContadorVentana.HORA));
+		assertEquals(4000, almacen.darValorVentasRecientesCentavos(raiz, ContadorVentana.HORA));
+
+		assertThrows(AlmacenException.class, () -> almacen.darUnidadesRecientes("M-2", ContadorVentana.HORA));
+		assertThrows(AlmacenException.class, () -> almacen.darUnidadesRecientesProducto("P-2", ContadorVentana.HORA));
+		assertThrows(AlmacenException.class, () -> almacen.darUnidadesRecientes(raiz, 0));
+		assertThrows(AlmacenException.class, () -> almacen.darUnidadesRecientes(raiz, ContadorVentana.DURACION_MAXIMA + 1));
+	}
+
+	@Test // Un lote suma las líneas del mismo producto y reporta por línea los códigos inexistentes y las cantidades inválidas sin dejar de vender las demás
+	public void testVenderProductos() throws AlmacenException {
+		Marca lg = (Marca) almacen.buscarNodo("1112");
+		Categoria televisores = (Categoria) almacen.buscarNodo("111");
+		double valorLg = lg.darValorVentas();
+		long unidadesTelevisores = televisores.darCantidadUnidadesVendidas();
+		double valorRaiz = almacen.darValorVentas();
+		List<String> resultados = almacen.venderProductos(Arrays.asList(new Venta("30557851", 2), new Venta("INEXISTENTE", 1),
+				new Venta("30747531", 1), new Venta("30557851", 3), new Venta("30747531", 0)));
+
+		assertEquals(5, resultados.size());
+		assertNull(resultados.get(0));
+		assertNotNull(resultados.get(1));
+		assertNull(resultados.get(2));
+		assertNull(resultados.get(3));
+		assertNotNull(resultados.get(4));
+		assertEquals(5, almacen.buscarProducto("30557851").darCantidadUnidadesVendidas());
+		assertEquals(2, almacen.buscarProducto("30747531").darCantidadUnidadesVendidas());
+		double vendido = 5 * 1498900.0 + 1898900.0;
+		assertEquals(valorLg + vendido, lg.darValorVentas());
+		assertEquals(unidadesTelevisores + 6, televisores.darCantidadUnidadesVendidas());
+		assertEquals(valorRaiz + vendido, almacen.darValorVentas());
+		assertEquals(5 * 1498900.0 + 2 * 1898900.0, lg.darValorVentas("30557851", "30747531"));
+	}
+
+	@Test // Las ventas simultáneas del mismo producto desde varios hilos no deben perder unidades en el producto, la marca, el rango de códigos ni la raíz
+	public void testVentasConcurrentes() throws Exception {
+		Marca marca = (Marca) almacen.buscarNodo("1112");
+		double valorMarca = marca.darValorVentas();
+		double valorRango = marca.darValorVentas("30557851", "30557851");
+		long unidadesRaiz = almacen.darCantidadUnidadesVendidas();
+		double valorRaiz = almacen.darValorVentas();
+		List<Thread> hilos = new ArrayList<>();
+		List<AlmacenException> errores = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			hilos.add(new Thread(() -> {
+				try {
+					for (int i = 0; i < 1000; i++) {
+						almacen.venderProducto("30557851", 1);
+						almacen.venderProducto("30747531", 2);
+					}
+				} catch (AlmacenException e) {
+					synchronized (errores) {
+						errores.add(e);
+					}
+				}
+			}));
+		}
+		for (Thread hilo : hilos) {
+			hilo.start();
+		}
+		for (Thread hilo : hilos) {
+			hilo.join();
+		}
+		assertTrue(errores.isEmpty());
+		assertEquals(8000, almacen.buscarProducto("30557851").darCantidadUnidadesVendidas());
+		assertEquals(16001, almacen.buscarProducto("30747531").darCantidadUnidadesVendidas());
+		assertEquals(24001, marca.darCantidadUnidadesVendidas());
+		assertEquals(unidadesRaiz + 24000, almacen.darCantidadUnidadesVendidas());
+		double vendido = 8000 * 1498900.0 + 16000 * 1898900.0;
+		assertEquals(valorMarca + vendido, marca.darValorVentas());
+		assertEquals(valorRango + 8000 * 1498900.0, marca.darValorVentas("30557851", "30557851"));
+		assertEquals(valorRaiz + vendido, almacen.darValorVentas());
+		verificarMasVendidos();
+		assertEquals(24000, almacen.darUnidadesRecientes("1112", ContadorVentana.HORA));
+		assertEquals(24000, almacen.darUnidadesRecientes(almacen.darCategoriaRaiz().darIdentificador(), ContadorVentana.HORA));
+	}
+
+	// Verifica que los dos almacenes tengan los mismos nodos en el mismo orden y los mismos totales
+	private void verificarMismoArbol(Almacen esperado, Almacen actual) {
+		Categoria raiz = esperado.darCategoriaRaiz();
+		List<NodoAlmacen> nodosEsperados = raiz.darPreorden();
+		List<NodoAlmacen> nodosActuales = actual.darCategoriaRaiz().darPreorden();
+		assertEquals(nodosEsperados.size(), nodosActuales.size());
+		for (int i = 0; i < nodosEsperados.size(); i++) {
+			assertEquals(nodosEsperados.get(i).darIdentificador(), nodosActuales.get(i).darIdentificador());
+		}
+		assertEquals(raiz.darCantidadProductos(), actual.darCategoriaRaiz().darCantidadProductos());
+		assertEquals(raiz.darValorVentas(), actual.darCategoriaRaiz().darValorVentas());
+	}
+
+	// Busca la primera posición del patrón en los bytes o retorna -1 si no está
+	private static int buscar(byte[] bytes, byte[] patron) {
+		for (int i = 0; i + patron.length <= bytes.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + patron.length), patron)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,316 @@
+package uniandes.cupi2.almacen.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.cupi2.almacen.mundo.Almacen;
+import uniandes.cupi2.almacen.mundo.AlmacenException;
+import uniandes.cupi2.almacen.mundo.Bitacora;
+import uniandes.cupi2.almacen.mundo.Categoria;
+import uniandes.cupi2.almacen.mundo.ContadorVentana;
+import uniandes.cupi2.almacen.mundo.Marca;
+import uniandes.cupi2.almacen.mundo.NodoAlmacen;
+import uniandes.cupi2.almacen.mundo.Producto;
+import uniandes.cupi2.almacen.mundo.Venta;
+
+public class BitacoraTest {
+
+	private File base;
+
+	private File archivoBitacora;
+
+	private Almacen almacen;
+
+	@BeforeEach // Se copia el archivo de prueba de las categorías a un directorio temporal y se abre su bitácora
+	public void setUpEscenario() throws Exception {
+		File directorio = Files.createTempDirectory("bitacora").toFile();
+		directorio.deleteOnExit();
+		base = new File(directorio, "datos.txt");
+		base.deleteOnExit();
+		archivoBitacora = new File(directorio, "datos.log");
+		archivoBitacora.deleteOnExit();
+		Files.copy(new File("./test/testData/categoriaTest.txt").toPath(), base.toPath());
+		almacen = abrir();
+	}
+
+	private Almacen abrir() throws AlmacenException {
+		Almacen abierto = new Almacen(base, Almacen.CARGA_MAPEADA);
+		abierto.abrirBitacora(base, archivoBitacora);
+		return abierto;
+	}
+
+	// Hace un cambio de cada tipo
+	private void modificar(Almacen pAlmacen) throws AlmacenException {
+		pAlmacen.venderProducto("30557851", 3);
+		pAlmacen.agregarNodo("111", Categoria.TIPO, "C-1", "Accesorios");
+		pAlmacen.agregarNodo("C-1", Marca.TIPO, "M-1", "Genérica");
+		pAlmacen.agregarProducto("M-1", "P-1", "Control", "Control remoto", 50000.5);
+		pAlmacen.agregarProducto("M-1", "P-2", "Cable", "Cable HDMI", 2.5e7);
+		pAlmacen.venderProducto("P-1", 2);
+		pAlmacen.eliminarProducto("P-2");
+		pAlmacen.eliminarNodo("1112");
+	}
+
+	// Verifica que los dos almacenes tengan los mismos nodos, productos y ventas
+	private void verificarMismoAlmacen(Almacen pEsperado, Almacen pActual) {
+		List<NodoAlmacen> esperados = pEsperado.darCategoriaRaiz().darPreorden();
+		List<NodoAlmacen> actuales = pActual.darCategoriaRaiz().darPreorden();
+		assertEquals(esperados.size(), actuales.size());
+		for (int i = 0; i < esperados.size(); i++) {
+			assertEquals(esperados.get(i).darIdentificador(), actuales.get(i).darIdentificador());
+		}
+		List<Producto> productos = pEsperado.darCategoriaRaiz().darProductos();
+		assertEquals(productos.size(), pActual.darCategoriaRaiz().darCantidadProductos());
+		for (Producto producto : productos) {
+			Producto copiado = pActual.buscarProducto(producto.darCodigo());
+			assertEquals(producto.darDescripcion(), copiado.darDescripcion());
+			assertEquals(producto.darPrecio(), copiado.darPrecio());
+			assertEquals(producto.darCantidadUnidadesVendidas(), copiado.darCantidadUnidadesVendidas());
+		}
+		assertEquals(pEsperado.darCategoriaRaiz().darValorVentas(), pActual.darCategoriaRaiz().darValorVentas());
+	}
+
+	@Test // Los cambios registrados se deben aplicar de nuevo al abrir la bitácora sobre el mismo catálogo
+	public void testReproducir() throws Exception {
+		modificar(almacen);
+		almacen.cerrar();
+
+		Almacen reabierto = abrir();
+		verificarMismoAlmacen(almacen, reabierto);
+		assertNull(reabierto.buscarProducto("P-2"));
+		assertNull(reabierto.buscarNodo("1112"));
+		reabierto.cerrar();
+	}
+
+	@Test // Un lote de ventas se registra con un registro por producto y se reproduce igual
+	public void testReproducirLote() throws Exception {
+		almacen.venderProductos(Arrays.asList(new Venta("30557851", 2), new Venta("30747531", 1), new Venta("30557851", 3), new Venta("INEXISTENTE", 1)));
+		almacen.cerrar();
+		assertEquals(3, Files.readAllLines(archivoBitacora.toPath(), StandardCharsets.ISO_8859_1).size());
+
+		Almacen reabierto = abrir();
+		verificarMismoAlmacen(almacen, reabierto);
+		assertEquals(5, reabierto.buscarProducto("30557851").darCantidadUnidadesVendidas());
+		// La bitácora no guarda el instante de las ventas, así que al reproducirlas no cuentan como recientes
+		assertEquals(5, almacen.darUnidadesRecientesProducto("30557851", ContadorVentana.HORA));
+		assertEquals(0, reabierto.darUnidadesRecientesProducto("30557851", ContadorVentana.HORA));
+		reabierto.cerrar();
+	}
+
+	@Test // Un registro interrumpido al final se descarta y los cambios siguientes se registran después del último registro completo
+	public void testRegistroInterrumpido() throws Exception {
+		modificar(almacen);
+		almacen.cerrar();
+		try (FileOutputStream salida = new FileOutputStream(archivoBitacora, true)) {
+			salida.write("1a2b3c;;;Vender;;;305578".getBytes("ISO-8859-1"));
+		}
+
+		Almacen reabierto = abrir();
+		verificarMismoAlmacen(almacen, reabierto);
+		reabierto.venderProducto("P-1", 1);
+		reabierto.cerrar();
+
+		Almacen ultimo = abrir();
+		assertEquals(3, ultimo.buscarProducto("P-1").darCantidadUnidadesVendidas());
+		ultimo.cerrar();
+	}
+
+	@Test // Un registro dañado detiene la reproducción en el último registro válido
+	public void testRegistroDanado() throws Exception {
+		almacen.venderProducto("30557851", 1);
+		almacen.venderProducto("30557851", 2);
+		almacen.cerrar();
+		byte[] contenido = Files.readAllBytes(archivoBitacora.toPath());
+		contenido[contenido.length - 2] = '9';
+		Files.write(archivoBitacora.toPath(), contenido);
+
+		Almacen reabierto = abrir();
+		assertEquals(1, reabierto.buscarProducto("30557851").darCantidadUnidadesVendidas());
+		reabierto.cerrar();
+	}
+
+	@Test // Al superar el umbral la bitácora se compacta en el catálogo, que al cerrar debe tener todos los cambios
+	public void testCompactar() throws Exception {
+		almacen.cerrar();
+		almacen = new Almacen(base, Almacen.CARGA_MAPEADA);
+		almacen.abrirBitacora(base, archivoBitacora, 1);
+		modificar(almacen);
+		almacen.cerrar();
+
+		Almacen catalogo = new Almacen(base);
+		verificarMismoAlmacen(almacen, catalogo);
+		assertEquals(1, Files.readAllLines(archivoBitacora.toPath(), StandardCharsets.ISO_8859_1).size());
+		Almacen reabierto = abrir();
+		verificarMismoAlmacen(almacen, reabierto);
+		assertEquals(0, reabierto.darCategoriaRaiz().darCantidadProductos() - catalogo.darCategoriaRaiz().darCantidadProductos());
+		reabierto.cerrar();
+	}
+
+	@Test // Un punto de control tomado mientras otro hilo vende y agrega productos debe tener exactamente los cambios anteriores a su corte
+	public void testPuntoControlConcurrente() throws Exception {
+		AtomicBoolean terminar = new AtomicBoolean();
+		List<Exception> errores = new ArrayList<>();
+		Thread hilo = new Thread(() -> {
+			try {
+				for (int i = 0; !terminar.get() || i < 200; i++) {
+					almacen.venderProducto("30557851", 1);
+					almacen.agregarProducto("1112", "P-" + i, "Producto " + i, "Descripción " + i, 1000 + i);
+					if (i % 3 == 0) {
+						almacen.eliminarProducto("P-" + (i / 3));
+					}
+				}
+			} catch (AlmacenException e) {
+				synchronized (errores) {
+					errores.add(e);
+				}
+			}
+		});
+		hilo.start();
+		for (int i = 0; i < 5; i++) {
+			almacen.hacerPuntoControl();
+		}
+		terminar.set(true);
+		hilo.join();
+		assertTrue(errores.isEmpty());
+		almacen.cerrar();
+
+		Almacen reabierto = abrir();
+		verificarMismoAlmacen(almacen, reabierto);
+		reabierto.cerrar();
+	}
+
+	@Test // Si el proceso se detiene entre el registro del punto de control y la reescritura de la bitácora, se aplican sólo los cambios que no tiene el catálogo
+	public void testPuntoControlInterrumpido() throws Exception {
+		almacen.venderProducto("30557851", 3);
+		almacen.venderProducto("30747531", 2);
+		byte[] anterior = Files.readAllBytes(archivoBitacora.toPath());
+		// El enlace conserva el catálogo anterior con su misma identidad
+		File baseAnterior = new File(base.getPath() + ".anterior");
+		baseAnterior.deleteOnExit();
+		Files.createLink(baseAnterior.toPath(), base.toPath());
+		almacen.hacerPuntoControl();
+		almacen.cerrar();
+		String identidad = Files.readAllLines(archivoBitacora.toPath(), StandardCharsets.ISO_8859_1).get(0).split(";;;")[2];
+
+		// Falla después de reemplazar el catálogo: la bitácora anterior tiene el registro del punto de control
+		try (FileOutputStream salida = new FileOutputStream(archivoBitacora)) {
+			salida.write(anterior);
+			salida.write(crearRegistro(Bitacora.PUNTO + ";;;" + identidad + ";;;2"));
+		}
+		Almacen reabierto = abrir();
+		verificarMismoAlmacen(almacen, reabierto);
+		reabierto.cerrar();
+		assertEquals(1, Files.readAllLines(archivoBitacora.toPath(), StandardCharsets.ISO_8859_1).size());
+
+		// Falla antes de reemplazar el catálogo: el catálogo anterior corresponde al registro BASE
+		Files.move(baseAnterior.toPath(), base.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		try (FileOutputStream salida = new FileOutputStream(archivoBitacora)) {
+			salida.write(anterior);
+			salida.write(crearRegistro(Bitacora.PUNTO + ";;;" + identidad + ";;;2"));
+		}
+		reabierto = abrir();
+		verificarMismoAlmacen(almacen, reabierto);
+		reabierto.cerrar();
+	}
+
+	// Crea la línea de un registro de la bitácora con su CRC
+	private byte[] crearRegistro(String pContenido) {
+		CRC32 crc = new CRC32();
+		crc.update(pContenido.getBytes(StandardCharsets.ISO_8859_1));
+		return (Long.toHexString(crc.getValue()) + ";;;" + pContenido + "\n").getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	@Test // Las métricas de los puntos de control se actualizan con los puntos de control programados
+	public void testMetricasPuntoControl() throws Exception {
+		assertEquals(-1, almacen.darDuracionPuntoControl());
+		assertEquals(-1, almacen.darRetrasoPuntoControl());
+		almacen.venderProducto("30557851", 1);
+		almacen.programarPuntosControl(10);
+		for (int i = 0; i < 500 && almacen.darDuracionPuntoControl() < 0; i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(almacen.darDuracionPuntoControl() >= 0);
+		assertTrue(almacen.darRetrasoPuntoControl() >= 0);
+		assertNull(almacen.darErrorPuntoControl());
+		almacen.cerrar();
+
+		Almacen catalogo = new Almacen(base);
+		assertEquals(1, catalogo.buscarProducto("30557851").darCantidadUnidadesVendidas());
+	}
+
+	@Test // Una bitácora de otra versión del catálogo se descarta
+	public void testBitacoraObsoleta() throws Exception {
+		almacen.venderProducto("30557851", 3);
+		almacen.cerrar();
+		Files.copy(new File("./test/testData/categoriaTest.txt").toPath(), base.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		base.setLastModified(base.lastModified() + 2000);
+
+		Almacen reabierto = abrir();
+		assertEquals(0, reabierto.buscarProducto("30557851").darCantidadUnidadesVendidas());
+		reabierto.cerrar();
+	}
+
+	@Test // Un cambio que no se puede aplicar o registrar no debe quedar en la bitácora ni en el almacén
+	public void testCambioInvalido() throws Exception {
+		assertThrows(AlmacenException.class, () -> almacen.venderProducto("INEXISTENTE", 1));
+		assertThrows(AlmacenException.class, () -> almacen.agregarProducto("1111", "P-1", "Control;;;remoto", "Control", 1000));
+		assertThrows(AlmacenException.class, () -> almacen.agregarProducto("INEXISTENTE", "P-1", "Control", "Control", 1000));
+		assertNull(almacen.buscarProducto("P-1"));
+		almacen.cerrar();
+
+		Almacen reabierto = abrir();
+		assertNull(reabierto.buscarProducto("P-1"));
+		reabierto.cerrar();
+	}
+
+	@Test // Los registros de varios hilos deben quedar todos en el disco, compartiendo sincronizaciones
+	public void testRegistrosConcurrentes() throws Exception {
+		almacen.cerrar();
+		Almacen catalogo = new Almacen(base);
+		try (Bitacora bitacora = new Bitacora(new File(archivoBitacora.getPath() + ".2"), base, Bitacora.UMBRAL_COMPACTACION, catalogo)) {
+			List<Thread> hilos = new ArrayList<>();
+			List<IOException> errores = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				Thread hilo = new Thread(() -> {
+					try {
+						for (int j = 0; j < 50; j++) {
+							bitacora.esperar(bitacora.registrar(Bitacora.VENDER, "30557851", "1"));
+						}
+					} catch (IOException e) {
+						synchronized (errores) {
+							errores.add(e);
+						}
+					}
+				});
+				hilos.add(hilo);
+				hilo.start();
+			}
+			for (Thread hilo : hilos) {
+				hilo.join();
+			}
+			assertTrue(errores.isEmpty());
+			assertTrue(bitacora.darSincronizaciones() < 400);
+		}
+
+		Almacen reabierto = new Almacen(base);
+		try (Bitacora bitacora = new Bitacora(new File(archivoBitacora.getPath() + ".2"), base, Bitacora.UMBRAL_COMPACTACION, reabierto)) {
+			assertEquals(400, bitacora.darRegistrosReproducidos());
+		}
+		assertEquals(400, reabierto.buscarProducto("30557851").darCantidadUnidadesVendidas());
+		new File(archivoBitacora.getPath() + ".2").delete();
+	}
+}
@@ -0,0 +1,80 @@
+package uniandes.cupi2.almacen.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import uniandes.cupi2.almacen.mundo.ContadorVentana;
+
+public class ContadorVentanaTest {
+
+	private static final long MINUTO = ContadorVentana.MINUTO;
+	private static final long HORA = ContadorVentana.HORA;
+	private static final long DIA = ContadorVentana.DIA;
+
+	// Instante de referencia, alineado con el inicio de un día
+	private static final long INICIO = 20000 * DIA;
+
+	@Test // Cada consulta suma las casillas del anillo más fino que cubre la duración, incluyendo la casilla actual
+	public void testDarTotal() {
+		ContadorVentana contador = new ContadorVentana();
+		assertEquals(0, contador.darTotal(INICIO, HORA));
+		contador.sumar(INICIO, 5);
+		contador.sumar(INICIO + 30 * MINUTO, 7);
+		contador.sumar(INICIO + 2 * HORA, 11);
+		long ahora = INICIO + 2 * HORA + 10 * MINUTO;
+
+		assertEquals(0, contador.darTotal(ahora, MINUTO));
+		assertEquals(11, contador.darTotal(ahora, HORA));
+		assertEquals(11, contador.darTotal(ahora, 2 * HORA));
+		assertEquals(23, contador.darTotal(ahora, 3 * HORA));
+		assertEquals(23, contador.darTotal(ahora, DIA));
+		assertEquals(23, contador.darTotal(ahora, 7 * DIA));
+		assertEquals(23, contador.darTotal(ahora, ContadorVentana.DURACION_MAXIMA));
+	}
+
+	@Test // Las casillas que salen de cada anillo se limpian y las cantidades demasiado viejas para un anillo sólo cuentan en los más gruesos
+	public void testAvanzar() {
+		ContadorVentana contador = new ContadorVentana();
+		for (int i = 0; i < 90; i++) {
+			contador.sumar(INICIO + i * MINUTO, 1);
+		}
+		long ahora = INICIO + 89 * MINUTO;
+		assertEquals(60, contador.darTotal(ahora, HORA));
+		assertEquals(90, contador.darTotal(ahora, DIA));
+
+		contador.sumar(INICIO + 10 * MINUTO, 100);
+		assertEquals(60, contador.darTotal(ahora, HORA));
+		assertEquals(190, contador.darTotal(ahora, DIA));
+
+		ahora = INICIO + 3 * DIA;
+		contador.sumar(ahora, 1);
+		assertEquals(1, contador.darTotal(ahora, HORA));
+		assertEquals(1, contador.darTotal(ahora, DIA));
+		assertEquals(191, contador.darTotal(ahora, 4 * DIA));
+
+		ahora = INICIO + 40 * DIA;
+		assertEquals(0, contador.darTotal(ahora, ContadorVentana.DURACION_MAXIMA));
+		contador.sumar(ahora, 2);
+		assertEquals(2, contador.darTotal(ahora, ContadorVentana.DURACION_MAXIMA));
+	}
+
+	@Test // Restar otro contador quita sus cantidades de los periodos que los dos todavía conservan
+	public void testRestar() {
+		ContadorVentana total = new ContadorVentana();
+		ContadorVentana parte = new ContadorVentana();
+		for (int i = 0; i < 5; i++) {
+			total.sumar(INICIO + i * HORA, 10);
+		}
+		parte.sumar(INICIO + HORA, 2);
+		parte.sumar(INICIO + 3 * HORA, 1);
+		total.sumar(INICIO + HORA, 2 * 50);
+		total.sumar(INICIO + 3 * HORA, 1 * 50);
+
+		total.restar(parte, 50);
+		long ahora = INICIO + 4 * HORA;
+		assertEquals(50, total.darTotal(ahora, DIA));
+		assertEquals(10, total.darTotal(ahora, MINUTO));
+		assertEquals(30, total.darTotal(ahora, 3 * HORA));
+	}
+}
@@ -0,0 +1,110 @@
+package uniandes.cupi2.almacen.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import uniandes.cupi2.almacen.mundo.AlmacenException;
+import uniandes.cupi2.almacen.mundo.DescripcionesDiferidas;
+import uniandes.cupi2.almacen.mundo.LectorCatalogo;
+import uniandes.cupi2.almacen.mundo.LectorCatalogoMapeado;
+
+public class LectorCatalogoTest {
+
+	private static final File ARCHIVO = new File("./test/testData/categoriaTest.txt");
+
+	private LectorCatalogo crearLector(String texto) {
+		return new LectorCatalogo(new BufferedReader(new StringReader(texto)));
+	}
+
+	@Test // Los campos se entregan por posición, incluyendo los campos vacíos
+	public void testDarCampo() throws Exception {
+		LectorCatalogo lector = crearLector("1;;;Nombre;;;;;;25\n");
+		assertTrue(lector.avanzar());
+		assertEquals(4, lector.darCantidadCampos());
+		assertEquals("1", lector.darCampo(0));
+		assertEquals("Nombre", lector.darCampo(1));
+		assertEquals("", lector.darCampo(2));
+		assertTrue(lector.campoEs(1, "Nombre"));
+		assertFalse(lector.campoEs(1, "Nom"));
+		assertFalse(lector.campoEs(7, "Nombre"));
+		assertThrows(AlmacenException.class, () -> lector.darCampo(4));
+		assertFalse(lector.avanzar());
+		assertNull(lector.darLinea());
+	}
+
+	@Test // Los números toleran espacios y signo, y los valores no numéricos generan error
+	public void testNumeros() throws Exception {
+		LectorCatalogo lector = crearLector("1026300 ;;; -7;;;1549000.5;;;1e3;;;12a");
+		lector.avanzar();
+		assertEquals(1026300, lector.darEntero(0));
+		assertEquals(-7, lector.darEntero(1));
+		assertEquals(1549000.5, lector.darDecimal(2));
+		assertEquals(1000.0, lector.darDecimal(3));
+		assertThrows(AlmacenException.class, () -> lector.darEntero(2));
+		assertThrows(AlmacenException.class, () -> lector.darEntero(4));
+		assertThrows(AlmacenException.class, () -> lector.darDecimal(4));
+	}
+
+	@Test // El lector mapeado debe entregar los mismos registros que el secuencial aunque las líneas crucen ventanas
+	public void testLectorMapeado() throws Exception {
+		try (LectorCatalogo secuencial = new LectorCatalogo(new BufferedReader(
+				new InputStreamReader(new FileInputStream(ARCHIVO), LectorCatalogo.CODIFICACION)));
+				LectorCatalogo mapeado = new LectorCatalogoMapeado(ARCHIVO, 1024)) {
+			int registros = 0;
+			while (secuencial.avanzar()) {
+				assertTrue(mapeado.avanzar());
+				assertEquals(secuencial.darLinea(), mapeado.darLinea());
+				assertEquals(secuencial.darCantidadCampos(), mapeado.darCantidadCampos());
+				for (int i = 0; i < secuencial.darCantidadCampos(); i++) {
+					assertEquals(secuencial.darCampo(i), mapeado.darCampo(i));
+				}
+				registros++;
+			}
+			assertFalse(mapeado.avanzar());
+			assertTrue(registros > 0);
+		}
+	}
+
+	@Test // Una línea que no cabe en la ventana no se puede leer
+	public void testLineaMasLargaQueVentana() throws Exception {
+		try (LectorCatalogo mapeado = new LectorCatalogoMapeado(ARCHIVO, 64)) {
+			assertThrows(IOException.class, () -> {
+				while (mapeado.avanzar()) {
+				}
+			});
+		}
+	}
+
+	@Test // El caché de descripciones debe descartar la descripción usada hace más tiempo
+	public void testCacheDescripciones() throws Exception {
+		try (DescripcionesDiferidas descripciones = new DescripcionesDiferidas(ARCHIVO, 2);
+				LectorCatalogoMapeado lector = new LectorCatalogoMapeado(ARCHIVO)) {
+			lector.avanzar();
+			long[] posiciones = new long[3];
+			int[] longitudes = new int[3];
+			String[] textos = new String[3];
+			for (int i = 0; i < 3; i++) {
+				lector.avanzar();
+				posiciones[i] = lector.darPosicionCampo(1);
+				longitudes[i] = lector.darLongitudCampo(1);
+				textos[i] = lector.darCampo(1);
+			}
+			assertEquals(textos[0], descripciones.darDescripcion(posiciones[0], longitudes[0]));
+			assertEquals(textos[1], descripciones.darDescripcion(posiciones[1], longitudes[1]));
+			assertEquals(textos[0], descripciones.darDescripcion(posiciones[0], longitudes[0]));
+			assertEquals(2, descripciones.darLecturas());
+			assertEquals(textos[2], descripciones.darDescripcion(posiciones[2], longitudes[2]));
+			assertEquals(textos[0], descripciones.darDescripcion(posiciones[0], longitudes[0]));
+			assertEquals(textos[1], descripciones.darDescripcion(posiciones[1], longitudes[1]));
+			assertEquals(4, descripciones.darLecturas());
+		}
+	}
+}
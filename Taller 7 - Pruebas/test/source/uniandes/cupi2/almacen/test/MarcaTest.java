@@ -0,0 +1,171 @@
+package uniandes.cupi2.almacen.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.cupi2.almacen.mundo.AlmacenException;
+import uniandes.cupi2.almacen.mundo.Marca;
+import uniandes.cupi2.almacen.mundo.Producto;
+
+public class MarcaTest {
+
+	private static final int CANTIDAD = 1000;
+
+	private Marca marca;
+
+	@BeforeEach // Se crea una marca con productos agregados en orden creciente de código
+	public void setUpEscenario() throws AlmacenException {
+		marca = new Marca("M-1", "Genérica");
+		for (int i = 0; i < CANTIDAD; i++) {
+			marca.agregarProducto(darCodigo(i), "Producto " + i, "Descripción", 1000 + i);
+		}
+	}
+
+	private String darCodigo(int pNumero) {
+		return String.format("%06d", pNumero);
+	}
+
+	// Verifica que el subárbol cumpla la condición AVL y retorna su altura
+	private int verificarBalance(Producto pProducto) {
+		if (pProducto == null) {
+			return 0;
+		}
+		int izquierda = verificarBalance(pProducto.darHijoIzquierda());
+		int derecha = verificarBalance(pProducto.darHijoDerecha());
+		assertTrue(Math.abs(izquierda - derecha) <= 1, "Subárbol desbalanceado en " + pProducto.darCodigo());
+		assertEquals(1 + Math.max(izquierda, derecha), pProducto.darAltura());
+		return pProducto.darAltura();
+	}
+
+	private Producto darRaiz() {
+		return darRaiz(marca);
+	}
+
+	private Producto darRaiz(Marca pMarca) {
+		Producto raiz = null;
+		// La raíz es el producto con mayor altura
+		for (Producto producto : pMarca.darProductos()) {
+			if (raiz == null || producto.darAltura() > raiz.darAltura()) {
+				raiz = producto;
+			}
+		}
+		return raiz;
+	}
+
+	@Test // Los productos agregados en orden no deben degenerar el árbol en una lista
+	public void testAgregarProductosOrdenados() {
+		verificarBalance(darRaiz());
+		assertTrue(darRaiz().darAltura() <= 1.45 * (Math.log(CANTIDAD + 2) / Math.log(2)));
+		assertEquals(CANTIDAD, marca.darCantidadProductos());
+	}
+
+	@Test // El recorrido en inorden debe retornar los productos ordenados por código
+	public void testDarProductos() {
+		List<Producto> productos = marca.darProductos();
+		assertEquals(CANTIDAD, productos.size());
+		for (int i = 0; i < CANTIDAD; i++) {
+			assertEquals(darCodigo(i), productos.get(i).darCodigo());
+		}
+	}
+
+	@Test // Un código repetido debe generar una excepción
+	public void testAgregarProductoRepetido() {
+		assertThrows(AlmacenException.class, () -> marca.agregarProducto(darCodigo(10), "Repetido", "Descripción", 1));
+	}
+
+	@Test // Después de eliminar la mitad de los productos el árbol debe seguir balanceado
+	public void testEliminarProducto() {
+		for (int i = 0; i < CANTIDAD; i += 2) {
+			assertTrue(marca.eliminarProducto(darCodigo(i)));
+		}
+		assertFalse(marca.eliminarProducto(darCodigo(0)));
+		assertEquals(CANTIDAD / 2, marca.darCantidadProductos());
+		assertNull(marca.buscarProducto(darCodigo(0)));
+		assertNotNull(marca.buscarProducto(darCodigo(1)));
+		verificarBalance(darRaiz());
+	}
+
+	@Test // El k-ésimo producto y la posición de un código deben corresponder al orden por código
+	public void testDarProductoPosicion() {
+		assertEquals(darCodigo(0), marca.darProductoPosicion(0).darCodigo());
+		assertEquals(darCodigo(500), marca.darProductoPosicion(500).darCodigo());
+		assertEquals(darCodigo(CANTIDAD - 1), marca.darProductoPosicion(CANTIDAD - 1).darCodigo());
+		assertNull(marca.darProductoPosicion(CANTIDAD));
+		assertEquals(500, marca.darPosicion(darCodigo(500)));
+		assertEquals(CANTIDAD, marca.darPosicion("999999"));
+	}
+
+	@Test // Una página de productos debe contener exactamente los productos del rango pedido
+	public void testDarPaginaProductos() {
+		List<Producto> pagina = marca.darProductos(990, 20);
+		assertEquals(10, pagina.size());
+		assertEquals(darCodigo(990), pagina.get(0).darCodigo());
+		assertEquals(darCodigo(999), pagina.get(9).darCodigo());
+		assertEquals(0, marca.darProductos(CANTIDAD, 5).size());
+	}
+
+	@Test // El valor de las ventas de la marca y de un rango de códigos debe reflejar cada venta
+	public void testDarValorVentas() {
+		assertEquals(0, marca.darValorVentas());
+		marca.venderProducto(darCodigo(10), 2);
+		marca.venderProducto(darCodigo(20), 1);
+		marca.venderProducto(darCodigo(900), 3);
+		double esperado = 2 * 1010 + 1020 + 3 * 1900;
+		assertEquals(esperado, marca.darValorVentas());
+		assertEquals(2 * 1010 + 1020, marca.darValorVentas(darCodigo(0), darCodigo(20)));
+		assertEquals(1020, marca.darValorVentas(darCodigo(11), darCodigo(899)));
+		assertEquals(0, marca.darValorVentas(darCodigo(21), darCodigo(899)));
+
+		marca.eliminarProducto(darCodigo(900));
+		assertEquals(2 * 1010 + 1020, marca.darValorVentas());
+	}
+
+	// Crea el texto de una marca en el formato del archivo con los productos de los números dados
+	private String darTextoMarca(int... pNumeros) {
+		StringBuilder texto = new StringBuilder();
+		for (int numero : pNumeros) {
+			texto.append(darCodigo(numero)).append(";;;Producto ").append(numero).append(";;;Descripción;;;").append(1000 + numero).append(";;;")
+					.append(numero % 3).append('\n');
+		}
+		return texto.toString();
+	}
+
+	@Test // Una marca cargada del archivo debe quedar perfectamente balanceada, con los productos en orden o en desorden
+	public void testCargarMarca() throws AlmacenException {
+		int[] ordenados = new int[CANTIDAD];
+		int[] desordenados = new int[CANTIDAD];
+		for (int i = 0; i < CANTIDAD; i++) {
+			ordenados[i] = i;
+			desordenados[i] = (i * 7919) % CANTIDAD;
+		}
+		for (int[] numeros : new int[][] { ordenados, desordenados }) {
+			Marca cargada = new Marca("Marca;;;M-2;;;Cargada;;;" + CANTIDAD, new BufferedReader(new StringReader(darTextoMarca(numeros))));
+			verificarBalance(darRaiz(cargada));
+			assertEquals(32 - Integer.numberOfLeadingZeros(CANTIDAD), darRaiz(cargada).darAltura());
+			assertEquals(CANTIDAD, cargada.darCantidadProductos());
+			for (int i = 0; i < CANTIDAD; i++) {
+				assertEquals(darCodigo(i), cargada.darProductoPosicion(i).darCodigo());
+			}
+			double ventas = 0;
+			for (int i = 0; i < CANTIDAD; i++) {
+				ventas += (1000 + i) * (i % 3);
+			}
+			assertEquals(ventas, cargada.darValorVentas());
+			assertEquals(ventas, darRaiz(cargada).darValorVentasSubarbol());
+		}
+	}
+
+	@Test // Un código repetido en el archivo debe generar una excepción al cargar la marca
+	public void testCargarMarcaRepetido() {
+		assertThrows(AlmacenException.class,
+				() -> new Marca("Marca;;;M-2;;;Cargada;;;4", new BufferedReader(new StringReader(darTextoMarca(3, 1, 2, 1)))));
+		assertThrows(AlmacenException.class,
+				() -> new Marca("Marca;;;M-2;;;Cargada;;;3", new BufferedReader(new StringReader(darTextoMarca(1, 2, 2)))));
+	}
+}
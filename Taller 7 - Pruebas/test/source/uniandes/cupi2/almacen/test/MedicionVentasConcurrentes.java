@@ -0,0 +1,77 @@
+package uniandes.cupi2.almacen.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import uniandes.cupi2.almacen.mundo.Almacen;
+import uniandes.cupi2.almacen.mundo.Producto;
+
+/**
+ * Mide cuántas ventas por segundo hace el almacén con 1, 2, 4... hilos vendiendo productos al azar, hasta el doble de los procesadores disponibles. No abre
+ * bitácora, para medir sólo el registro de las ventas en memoria. Se ejecuta con el archivo del catálogo como argumento, por defecto ./data/datos.txt.
+ */
+public class MedicionVentasConcurrentes {
+
+	private static final long DURACION_MS = 2000;
+
+	public static void main(String[] args) throws Exception {
+		File archivo = new File(args.length > 0 ? args[0] : "./data/datos.txt");
+		Almacen almacen = new Almacen(archivo, Almacen.CARGA_MAPEADA, true);
+		List<Producto> productos = almacen.darProductos();
+		String[] codigos = new String[productos.size()];
+		for (int i = 0; i < codigos.length; i++) {
+			codigos[i] = productos.get(i).darCodigo();
+		}
+		int procesadores = Runtime.getRuntime().availableProcessors();
+		System.out.println(codigos.length + " productos, " + procesadores + " procesadores");
+
+		// La primera ronda sólo calienta el compilador
+		medir(almacen, codigos, procesadores);
+		double base = 0;
+		for (int hilos = 1; hilos <= 2 * procesadores; hilos *= 2) {
+			double ventas = medir(almacen, codigos, hilos);
+			base = hilos == 1 ? ventas : base;
+			System.out.printf("%2d hilos: %,12.0f ventas/s  aceleración %.2f%n", hilos, ventas, ventas / base);
+		}
+		almacen.cerrar();
+	}
+
+	// Vende durante DURACION_MS con la cantidad de hilos dada y retorna las ventas por segundo
+	private static double medir(Almacen almacen, String[] codigos, int hilos) throws InterruptedException {
+		AtomicBoolean terminar = new AtomicBoolean();
+		LongAdder ventas = new LongAdder();
+		CountDownLatch inicio = new CountDownLatch(1);
+		List<Thread> vendedores = new ArrayList<>();
+		for (int t = 0; t < hilos; t++) {
+			Random azar = new Random(t);
+			Thread vendedor = new Thread(() -> {
+				try {
+					inicio.await();
+					long hechas = 0;
+					while (!terminar.get()) {
+						almacen.venderProducto(codigos[azar.nextInt(codigos.length)], 1);
+						hechas++;
+					}
+					ventas.add(hechas);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			});
+			vendedores.add(vendedor);
+			vendedor.start();
+		}
+		long comienzo = System.nanoTime();
+		inicio.countDown();
+		Thread.sleep(DURACION_MS);
+		terminar.set(true);
+		for (Thread vendedor : vendedores) {
+			vendedor.join();
+		}
+		return ventas.sum() * 1e9 / (System.nanoTime() - comienzo);
+	}
+}